@@ -0,0 +1,280 @@
+package com.taskapp.footprint;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.UserDataAccess;
+
+/**
+ * DataAccessで読み込んだUser・Task・Logが1件あたりどれだけのヒープを使うかを計測します。
+ * 件数を変えたデータを生成し、件数ごとに次の値を計測してJSONで出力します。
+ * <ul>
+ * <li>findAllで読み込んだリストを保持したまま残るヒープ（合計と1件あたり）</li>
+ * <li>findAll・ログインの間に割り当てたバイト数と割り当て速度</li>
+ * <li>その間のGCの回数と時間</li>
+ * </ul>
+ * 残るヒープは読み込みの前後でGCを行い、使用中のヒープの差から求めます。
+ * 値を安定させるため、Gradleのタスクではヒープの大きさとGCを固定して実行します。
+ * <pre>
+ * ./gradlew heapFootprint -PfootprintSizes=1000,10000,100000
+ * </pre>
+ */
+public class HeapFootprint {
+    /** 担当ユーザーの種類。UserDataAccessのキャッシュに収まる数にし、ファイルの読み直しを計測に含めない */
+    private static final int REP_USERS = 100;
+
+    /** ログインを計測する際に読み込むusers.csvの行数の合計の目安 */
+    private static final long LOGIN_LINES = 2_000_000;
+
+    private final Path dataDir;
+
+    public HeapFootprint(Path dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    /**
+     * @param args 出力するJSONのパス、データを生成するフォルダ、カンマ区切りの件数
+     * @throws IOException データの生成・JSONの出力に失敗した場合
+     */
+    public static void main(String[] args) throws IOException {
+        Path reportPath = Paths.get(args.length > 0 ? args[0] : "build/reports/footprint/footprint.json");
+        Path dataDir = Paths.get(args.length > 1 ? args[1] : "build/footprint");
+        String sizes = args.length > 2 ? args[2] : "1000,10000,100000";
+
+        HeapFootprint footprint = new HeapFootprint(dataDir);
+        // クラスの読み込み・初期化で増えるヒープを計測に含めないよう、最初の件数で1回空実行する
+        footprint.measure(Integer.parseInt(sizes.split(",")[0].trim()));
+        System.out.println("（ここまでは空実行）");
+        List<String> datasets = new ArrayList<>();
+        for (String size : sizes.split(",")) {
+            datasets.add(footprint.measure(Integer.parseInt(size.trim())));
+        }
+
+        String json = "{\n"
+                + "  \"timestamp\": \"" + Instant.now() + "\",\n"
+                + "  \"javaVersion\": \"" + System.getProperty("java.version") + "\",\n"
+                + "  \"maxHeapBytes\": " + Runtime.getRuntime().maxMemory() + ",\n"
+                + "  \"garbageCollectors\": [" + ManagementFactory.getGarbageCollectorMXBeans().stream()
+                        .map(gc -> "\"" + gc.getName() + "\"").collect(Collectors.joining(", ")) + "],\n"
+                + "  \"datasets\": [\n" + String.join(",\n", datasets) + "\n  ]\n"
+                + "}\n";
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        Files.writeString(reportPath, json, StandardCharsets.UTF_8);
+        System.out.println("計測結果を" + reportPath + "に出力しました。");
+    }
+
+    /**
+     * 指定した件数のデータを生成し、User・Task・Logの読み込みとログインを計測します。
+     *
+     * @param records 生成するユーザー・タスク・ログそれぞれの件数
+     * @return 計測結果のJSON
+     * @throws IOException データの生成に失敗した場合
+     */
+    String measure(int records) throws IOException {
+        Path dir = dataDir.resolve(String.valueOf(records));
+        Path usersPath = dir.resolve("users.csv");
+        Path tasksPath = dir.resolve("tasks.csv");
+        Path logsPath = dir.resolve("logs.csv");
+        generate(dir, records);
+
+        UserDataAccess userDataAccess = new UserDataAccess(usersPath.toString());
+        Measurement users = measure(records, () -> userDataAccess.findAll());
+        Measurement tasks = measure(records,
+                () -> new TaskDataAccess(tasksPath.toString(), userDataAccess).findAll());
+        Measurement logs = measure(records, () -> new LogDataAccess(logsPath.toString()).findAll());
+
+        // 最後の行のユーザーでログインし、users.csvを全て読む場合を計測する
+        int iterations = (int) Math.max(5, LOGIN_LINES / records);
+        String email = "user" + records + "@example.com";
+        Measurement login = measure(iterations, () -> {
+            Object user = null;
+            for (int i = 0; i < iterations; i++) {
+                user = userDataAccess.findByEmailAndPassword(email, "password" + records);
+            }
+            return user;
+        });
+
+        System.out.printf(Locale.ROOT, "%,9d件  User %6.1f B/件  Task %6.1f B/件  Log %6.1f B/件  ログイン %,.0f B/回%n",
+                records, users.bytesPerRecord(), tasks.bytesPerRecord(), logs.bytesPerRecord(),
+                login.allocatedBytesPerRecord());
+        return "    {\n"
+                + "      \"records\": " + records + ",\n"
+                + "      \"users\": " + users.toJson(false) + ",\n"
+                + "      \"tasks\": " + tasks.toJson(false) + ",\n"
+                + "      \"logs\": " + logs.toJson(false) + ",\n"
+                + "      \"login\": " + login.toJson(true) + "\n"
+                + "    }";
+    }
+
+    /**
+     * 処理の前後でGCを行い、結果を保持したまま残るヒープと処理中の割り当て・GCを計測します。
+     *
+     * @param records 1件あたりの値を求める件数（ログインの場合は回数）
+     * @param action  計測する処理。戻り値は計測が終わるまで保持する
+     */
+    private static Measurement measure(int records, Supplier<Object> action) {
+        fullGc();
+        long usedBefore = usedHeap();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        Object result = action.get();
+
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        long gcCount = gcCount() - gcCountBefore;
+        long gcMillis = gcMillis() - gcMillisBefore;
+        fullGc();
+        long retained = usedHeap() - usedBefore;
+        Reference.reachabilityFence(result);
+        return new Measurement(records, retained, allocated, elapsedNanos, gcCount, gcMillis);
+    }
+
+    /**
+     * 件数分のusers.csv・tasks.csv・logs.csvを生成します。同じ件数のデータが既にある場合は作り直しません。
+     */
+    private static void generate(Path dir, int records) throws IOException {
+        if (Files.exists(dir.resolve("logs.csv"))) {
+            return;
+        }
+        Files.createDirectories(dir);
+        try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve("users.csv"), StandardCharsets.UTF_8)) {
+            writer.write("Code,Name,Email,Password");
+            for (int i = 1; i <= records; i++) {
+                writer.newLine();
+                writer.write(i + ",ユーザー" + i + ",user" + i + "@example.com,password" + i);
+            }
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve("tasks.csv"), StandardCharsets.UTF_8)) {
+            writer.write("Code,Name,Status,Rep_User_Code");
+            for (int i = 1; i <= records; i++) {
+                writer.newLine();
+                writer.write(i + ",タスク" + i + "," + i % 3 + "," + (i % REP_USERS + 1));
+            }
+        }
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve("logs.csv"), StandardCharsets.UTF_8)) {
+            writer.write("Task_Code,Change_User_Code,Status,Change_Date");
+            for (int i = 1; i <= records; i++) {
+                writer.newLine();
+                writer.write(i + "," + (i % REP_USERS + 1) + "," + i % 3 + "," + date.plusDays(i % 365));
+            }
+        }
+    }
+
+    private static void fullGc() {
+        // 1回では参照の処理などで回収しきれない場合があるため、使用量が減らなくなるまで繰り返す
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            long current = usedHeap();
+            if (current >= used) {
+                return;
+            }
+            used = current;
+        }
+    }
+
+    /**
+     * 直前のGC直後のヒープの使用量を取得します。
+     * GC後に割り当てたTLAB（スレッドごとの割り当て領域）を含めないよう、現在の使用量ではなくGC直後の値を使います。
+     */
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                .mapToLong(pool -> pool.getCollectionUsage().getUsed())
+                .sum();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    /**
+     * 1つの処理の計測結果です。
+     */
+    private static class Measurement {
+        final int records;
+        final long retainedBytes;
+        final long allocatedBytes;
+        final long elapsedNanos;
+        final long gcCount;
+        final long gcMillis;
+
+        Measurement(int records, long retainedBytes, long allocatedBytes, long elapsedNanos, long gcCount,
+                long gcMillis) {
+            this.records = records;
+            this.retainedBytes = retainedBytes;
+            this.allocatedBytes = allocatedBytes;
+            this.elapsedNanos = elapsedNanos;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        double bytesPerRecord() {
+            return (double) retainedBytes / records;
+        }
+
+        double allocatedBytesPerRecord() {
+            return (double) allocatedBytes / records;
+        }
+
+        double allocationMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : allocatedBytes * 1000.0 / elapsedNanos;
+        }
+
+        /**
+         * @param operation trueの場合は件数を処理の回数として出力し、残るヒープを出力しない
+         */
+        String toJson(boolean operation) {
+            StringBuilder json = new StringBuilder("{");
+            if (operation) {
+                json.append("\"iterations\": ").append(records)
+                        .append(", \"allocatedBytesPerOp\": ").append(format(allocatedBytesPerRecord()));
+            } else {
+                json.append("\"retainedBytes\": ").append(retainedBytes)
+                        .append(", \"retainedBytesPerRecord\": ").append(format(bytesPerRecord()))
+                        .append(", \"allocatedBytesPerRecord\": ").append(format(allocatedBytesPerRecord()));
+            }
+            return json.append(", \"allocatedBytes\": ").append(allocatedBytes)
+                    .append(", \"elapsedMillis\": ").append(format(elapsedNanos / 1e6))
+                    .append(", \"allocationRateMBps\": ").append(format(allocationMegabytesPerSecond()))
+                    .append(", \"gcCount\": ").append(gcCount)
+                    .append(", \"gcMillis\": ").append(gcMillis)
+                    .append('}').toString();
+        }
+
+        private static String format(double value) {
+            return String.format(Locale.ROOT, "%.1f", value);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.taskapp.dataaccess;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 区切り文字の探索を、1バイトずつ比べる実装（scalar）とVector APIの実装（vector）で比べます。
+ * <ul>
+ * <li>indexNewlines：ログのCSV全体から改行の位置をまとめて探す</li>
+ * <li>scanLogs：LogCursorで全てのログを読み、ステータスを集計する</li>
+ * </ul>
+ * <pre>
+ * ./gradlew jmh -PjmhInclude=ByteScannerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ByteScannerBenchmark {
+    /** 生成するログの件数 */
+    private static final int LOGS = 200_000;
+
+    @Param({ "scalar", "vector" })
+    public String scanner;
+
+    private ByteScanner byteScanner;
+
+    private byte[] csv;
+
+    private final int[] positions = new int[1024];
+
+    @Setup
+    public void setUp() {
+        byteScanner = ByteScanner.select(scanner);
+        if (!scanner.equals("scalar") && byteScanner == ByteScanner.SCALAR) {
+            throw new IllegalStateException("Vector APIを使えません。--add-modules jdk.incubator.vectorを指定してください");
+        }
+        Random random = new Random(0);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        StringBuilder builder = new StringBuilder("Task_Code,Change_User_Code,Status,Change_Date");
+        for (int i = 0; i < LOGS; i++) {
+            builder.append('\n').append(random.nextInt(100_000) + 1).append(',').append(random.nextInt(100) + 1)
+                    .append(',').append(random.nextInt(3)).append(',').append(start.plusDays(random.nextInt(365)));
+        }
+        csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int indexNewlines() {
+        int lines = 0;
+        int from = 0;
+        while (true) {
+            int count = byteScanner.indexAll(csv, from, csv.length, (byte) '\n', positions);
+            lines += count;
+            if (count < positions.length) {
+                return lines;
+            }
+            from = positions[count - 1] + 1;
+        }
+    }
+
+    @Benchmark
+    public long scanLogs() {
+        long sum = 0;
+        try (LogCursor cursor = new LogCursor(List.of(() -> new ByteArrayInputStream(csv)),
+                LocalDate.MIN, LocalDate.MAX, 64 * 1024, byteScanner)) {
+            while (cursor.next()) {
+                sum += cursor.getStatus();
+            }
+        }
+        return sum;
+    }
+}
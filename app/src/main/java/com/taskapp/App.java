@@ -1,10 +1,20 @@
 package com.taskapp;
 
+import com.taskapp.ui.TaskCli;
 import com.taskapp.ui.TaskUI;
 
 public class App {
 
     public static void main(String[] args) {
+        // 引数がある場合は1回のコマンドだけを実行して終了する（対話形式のメニューは読み込まない）
+        if (args.length > 0) {
+            int status = new TaskCli().run(args);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+
         TaskUI ui = new TaskUI();
         ui.displayMenu();
     }
@@ -0,0 +1,119 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSVへの書き込みを専用スレッドで順番に実行します。
+ * 1ファイルにつき1スレッドで書き込むため、追記の順序は呼び出し順のまま保たれます。
+ * 完了を待つ書き込みも{@link #run(Write)}で同じスレッドに登録し、先に登録した非同期の書き込みを追い越さないようにします。
+ * 同じファイルを複数のインスタンスから書き込む場合も{@link #forFile(String, Path)}で同じ書き込み用スレッドを使います。
+ */
+class AsyncWriter {
+    /**
+     * IOExceptionをスローする書き込み処理です。
+     */
+    @FunctionalInterface
+    interface Write {
+        void run() throws IOException;
+    }
+
+    /** ファイルごとの書き込み用スレッド */
+    private static final Map<Path, AsyncWriter> FILE_WRITERS = new ConcurrentHashMap<>();
+
+    private final String threadName;
+
+    /** 最初の書き込みまで作成しない。一覧表示だけのコマンドではスレッドプールを読み込まずに済む */
+    private ThreadPoolExecutor executor;
+
+    /** 現在の書き込みスレッド */
+    private volatile Thread thread;
+
+    /**
+     * @param threadName 書き込みスレッドの名前
+     */
+    AsyncWriter(String threadName) {
+        this.threadName = threadName;
+    }
+
+    /**
+     * ファイルの書き込み用スレッドを取得します。同じファイルには、どのインスタンスからでも同じスレッドを返します。
+     *
+     * @param prefix スレッド名の接頭辞
+     * @param path   書き込むファイルのパス
+     * @return 書き込み用スレッド
+     */
+    static AsyncWriter forFile(String prefix, Path path) {
+        return FILE_WRITERS.computeIfAbsent(path.toAbsolutePath().normalize(),
+                key -> new AsyncWriter(prefix + "-" + key.getFileName()));
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> thread = new Thread(runnable, threadName));
+            // 書き込みが無い間はスレッドを終了させ、アプリの終了を妨げないようにする
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * 書き込み処理を登録します。
+     *
+     * @param write 書き込み処理
+     * @return 書き込みが完了したら完了するFuture。IOExceptionはUncheckedIOExceptionで通知されます
+     */
+    CompletableFuture<Void> submit(Write write) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                write.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor());
+    }
+
+    /**
+     * 書き込み処理を登録し、完了を待ちます。
+     *
+     * @param write 書き込み処理
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void run(Write write) throws IOException {
+        if (Thread.currentThread() == thread) {
+            // 書き込みスレッドから呼ばれた場合は、自身の後ろに登録すると終わらないためその場で実行する
+            write.run();
+            return;
+        }
+        await(submit(write));
+    }
+
+    /**
+     * 書き込みの完了を待ちます。
+     *
+     * @param future 書き込みが完了したら完了するFuture
+     * @throws IOException 書き込みに失敗した場合
+     */
+    static void await(CompletableFuture<?> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.taskapp.dataaccess;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * コードをキーにした件数上限つきのキャッシュです。W-TinyLFU方式で追い出す対象を決めます。
+ * <ul>
+ * <li>新しく読み込んだ値はまず小さなウィンドウ（LRU）に入る</li>
+ * <li>ウィンドウから溢れた値は、メイン領域の追い出し候補よりアクセス頻度が高い場合のみメイン領域に入る</li>
+ * <li>メイン領域は試用（probation）と保護（protected）の2段のLRUで、試用中に再度参照されると保護に移る</li>
+ * </ul>
+ * アクセス頻度はCount-Min Sketchで概算し、一定回数ごとに半減させて古い頻度を忘れるようにします。
+ *
+ * @param <V> キャッシュする値の型
+ */
+class BoundedCache<V> {
+    private final int maxSize;
+
+    private final int windowMax;
+
+    private final int protectedMax;
+
+    private final Map<Integer, V> window = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<Integer, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<Integer, V> protectedArea = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final FrequencySketch sketch;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    /** 読み込み中に無効化された古い値をキャッシュしないための世代番号 */
+    private long generation;
+
+    /**
+     * @param maxSize 保持する最大件数。0以下の場合はキャッシュしない
+     */
+    BoundedCache(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        this.windowMax = Math.max(1, this.maxSize / 100);
+        this.protectedMax = Math.max(0, (this.maxSize - windowMax) * 4 / 5);
+        this.sketch = new FrequencySketch(Math.max(16, this.maxSize));
+    }
+
+    /**
+     * キャッシュから値を取得し、無い場合はloaderで読み込んでキャッシュします。
+     * loaderがnullを返した場合はキャッシュしません。
+     *
+     * @param key    コード
+     * @param loader キャッシュに無い場合の読み込み処理
+     * @return 値、存在しない場合はnull
+     */
+    V get(int key, IntFunction<V> loader) {
+        if (maxSize == 0) {
+            return loader.apply(key);
+        }
+        long loadGeneration;
+        synchronized (this) {
+            sketch.increment(key);
+            V value = lookup(key);
+            if (value != null) {
+                hitCount++;
+                return value;
+            }
+            missCount++;
+            loadGeneration = generation;
+        }
+
+        // 読み込みはロックの外で行う
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            synchronized (this) {
+                if (generation == loadGeneration && lookup(key) == null) {
+                    admit(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 値をキャッシュから取り除きます。保存・更新・削除の後に呼び出します。
+     *
+     * @param key コード
+     */
+    synchronized void invalidate(int key) {
+        generation++;
+        window.remove(key);
+        probation.remove(key);
+        protectedArea.remove(key);
+    }
+
+    /**
+     * 全ての値をキャッシュから取り除きます。
+     */
+    synchronized void invalidateAll() {
+        generation++;
+        window.clear();
+        probation.clear();
+        protectedArea.clear();
+    }
+
+    /**
+     * これまでのヒット数・ミス数・追い出し数を取得します。
+     *
+     * @return キャッシュの統計
+     */
+    synchronized CacheStats stats() {
+        return new CacheStats(hitCount, missCount, evictionCount, size());
+    }
+
+    private int size() {
+        return window.size() + probation.size() + protectedArea.size();
+    }
+
+    private V lookup(int key) {
+        V value = window.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = protectedArea.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = probation.remove(key);
+        if (value != null) {
+            // 試用中に再度参照されたので保護領域に移す
+            protectedArea.put(key, value);
+            if (protectedArea.size() > protectedMax) {
+                Map.Entry<Integer, V> demoted = removeEldest(protectedArea);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+        return value;
+    }
+
+    private void admit(int key, V value) {
+        window.put(key, value);
+        if (window.size() <= windowMax) {
+            return;
+        }
+
+        Map.Entry<Integer, V> candidate = removeEldest(window);
+        int mainMax = maxSize - windowMax;
+        if (mainMax <= 0) {
+            evictionCount++;
+            return;
+        }
+        if (probation.size() + protectedArea.size() < mainMax) {
+            probation.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+
+        // メイン領域が満杯の場合は、頻度の高い方を残す
+        Map.Entry<Integer, V> victim = eldest(probation.isEmpty() ? protectedArea : probation);
+        evictionCount++;
+        if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+            probation.remove(victim.getKey());
+            protectedArea.remove(victim.getKey());
+            probation.put(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    private Map.Entry<Integer, V> eldest(Map<Integer, V> map) {
+        return map.entrySet().iterator().next();
+    }
+
+    private Map.Entry<Integer, V> removeEldest(Map<Integer, V> map) {
+        Iterator<Map.Entry<Integer, V>> iterator = map.entrySet().iterator();
+        Map.Entry<Integer, V> eldest = iterator.next();
+        Map.Entry<Integer, V> copy = Map.entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return copy;
+    }
+
+    /**
+     * 4段のCount-Min Sketchでキーのアクセス頻度を概算します。
+     * カウンタは最大15で、追加回数がしきい値に達すると全カウンタを半減させます。
+     */
+    private static class FrequencySketch {
+        private static final int DEPTH = 4;
+
+        private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+        private final byte[][] table;
+
+        private final int mask;
+
+        private final int resetThreshold;
+
+        private int additions;
+
+        FrequencySketch(int expectedSize) {
+            int width = Integer.highestOneBit(expectedSize - 1) << 1;
+            table = new byte[DEPTH][width];
+            mask = width - 1;
+            resetThreshold = expectedSize * 10;
+        }
+
+        void increment(int key) {
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = index(key, i);
+                if (table[i][index] < 15) {
+                    table[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= resetThreshold) {
+                reset();
+            }
+        }
+
+        int frequency(int key) {
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < DEPTH; i++) {
+                min = Math.min(min, table[i][index(key, i)]);
+            }
+            return min;
+        }
+
+        private int index(int key, int row) {
+            int hash = key * SEEDS[row];
+            hash ^= hash >>> 16;
+            return hash & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : table) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
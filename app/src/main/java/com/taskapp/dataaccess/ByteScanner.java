@@ -0,0 +1,74 @@
+package com.taskapp.dataaccess;
+
+/**
+ * バイト列から区切り文字（改行・カンマ）の位置をまとめて探します。
+ * システムプロパティ taskapp.csv.scanner で実装を選べます。
+ * <ul>
+ * <li>scalar（既定）：1バイトずつ比べる実装</li>
+ * <li>vector：Vector APIの実装。モジュールが無い場合は1バイトずつ比べる実装に戻す</li>
+ * </ul>
+ * ByteScannerBenchmarkでVector APIの実装が速くなったのは改行の位置の探索だけで、ログ全体の読み込みは変わらなかったため、
+ * 明示的に指定した場合だけVector APIを使います。
+ * Vector APIを使うには、起動時に --add-modules jdk.incubator.vector も指定します。
+ */
+abstract class ByteScanner {
+    /** 1バイトずつ比べる実装 */
+    static final ByteScanner SCALAR = new ByteScanner() {
+        @Override
+        int indexAll(byte[] bytes, int from, int to, byte target, int[] positions) {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (bytes[i] == target) {
+                    positions[count++] = i;
+                    if (count == positions.length) {
+                        break;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    };
+
+    /** taskapp.csv.scannerで選んだ実装 */
+    static final ByteScanner DEFAULT = select(System.getProperty("taskapp.csv.scanner", "scalar"));
+
+    /**
+     * 範囲の中で対象のバイトがある位置を先頭から順に記録します。
+     * 記録する配列がいっぱいになった場合はそこで止めるため、続きは最後に記録した位置の次から探してください。
+     *
+     * @param bytes     バイト列
+     * @param from      開始位置（この位置を含む）
+     * @param to        終了位置（この位置を含まない）
+     * @param target    探すバイト
+     * @param positions 見つけた位置を記録する配列
+     * @return 記録した位置の数
+     */
+    abstract int indexAll(byte[] bytes, int from, int to, byte target, int[] positions);
+
+    /**
+     * 名前に対応する実装を取得します。
+     *
+     * @param name vector・scalarのいずれか
+     * @return 実装。vector以外を指定した場合とVector APIを使えない場合は1バイトずつ比べる実装
+     */
+    static ByteScanner select(String name) {
+        if (!"vector".equals(name)) {
+            return SCALAR;
+        }
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return SCALAR;
+        }
+        try {
+            // モジュールが無い環境でVector APIのクラスを読み込まないよう、名前から作成する
+            return (ByteScanner) Class.forName("com.taskapp.dataaccess.VectorByteScanner")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+}
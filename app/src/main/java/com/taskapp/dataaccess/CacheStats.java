@@ -0,0 +1,48 @@
+package com.taskapp.dataaccess;
+
+/**
+ * キャッシュのヒット数・ミス数・追い出し数を表します。
+ */
+public class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    public CacheStats(long hitCount, long missCount, long evictionCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    public long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * ヒット率を取得します。
+     * @return ヒット率（0.0~1.0）、1度も参照されていない場合は0.0
+     */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "hit=" + hitCount + ", miss=" + missCount + ", eviction=" + evictionCount + ", size=" + size;
+    }
+}
@@ -0,0 +1,202 @@
+package com.taskapp.dataaccess;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * CSVの1行の末尾に付けるCRC32Cのチェックサムを扱います。
+ * チェックサムは「,#」に続く8桁の16進数で、それより前の行の内容をUTF-8で計算した値です。
+ * <pre>
+ * 1,taskA,0,1,#1a2b3c4d
+ * </pre>
+ * 書き込み途中で途切れた行や書き換えられた行は、チェックサムが一致しないため読み込み時に取り除けます。
+ * チェックサムの無い行はこれまでどおり列の数だけで確かめます。
+ * ただしtaskapp.csv.checksumが有効な場合、ファイルを順に読む間にチェックサムの付いた行より後に現れたチェックサムの無い行は、
+ * チェックサムを書く前に途切れた行として取り除きます（{@link Scan}）。
+ */
+final class CsvChecksum {
+    /** システムプロパティ taskapp.csv.checksum=true の場合、保存する行にチェックサムを付ける */
+    static final boolean ENABLED = Boolean.getBoolean("taskapp.csv.checksum");
+
+    /** 「,#」と16進数8桁 */
+    static final int SUFFIX_LENGTH = 10;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private CsvChecksum() {
+    }
+
+    /**
+     * taskapp.csv.checksumが有効な場合は行にチェックサムを付けます。
+     *
+     * @param line 行の内容
+     * @return 書き込む行
+     */
+    static String sealIfEnabled(String line) {
+        return ENABLED ? seal(line) : line;
+    }
+
+    /**
+     * 行にチェックサムを付けます。
+     *
+     * @param line 行の内容
+     * @return チェックサムを付けた行
+     */
+    static String seal(String line) {
+        int crc = crc(line.getBytes(StandardCharsets.UTF_8), 0, -1);
+        char[] suffix = new char[SUFFIX_LENGTH];
+        suffix[0] = ',';
+        suffix[1] = '#';
+        for (int i = 0; i < 8; i++) {
+            suffix[2 + i] = HEX[(crc >>> (28 - i * 4)) & 0xF];
+        }
+        return line + new String(suffix);
+    }
+
+    /**
+     * 行のチェックサムを確かめ、チェックサムを取り除いた内容を返します。
+     *
+     * @param line CSVの1行
+     * @return 行の内容。チェックサムの無い行はそのまま、チェックサムが一致しない行はnull
+     */
+    static String strip(String line) {
+        if (!hasChecksum(line)) {
+            return line;
+        }
+        String content = line.substring(0, line.length() - SUFFIX_LENGTH);
+        long expected = parseHex(line, line.length() - 8);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return crc(bytes, 0, -1) == expected ? content : null;
+    }
+
+    /**
+     * 1つのファイルを先頭から順に読む間、チェックサムの付いた行が既に現れたかを保持します。
+     * 最初のチェックサムの付いた行より前のチェックサムの無い行は、チェックサムを有効にする前に保存された行として受け付けます。
+     */
+    static final class Scan {
+        private final boolean requireSealed;
+
+        private boolean sealedSeen;
+
+        /**
+         * taskapp.csv.checksumが有効な場合に、チェックサムの付いた行より後のチェックサムの無い行を取り除きます。
+         */
+        Scan() {
+            this(ENABLED, false);
+        }
+
+        /**
+         * @param requireSealed チェックサムの付いた行より後のチェックサムの無い行を取り除く場合はtrue
+         * @param sealedSeen    既にチェックサムの付いた行を読んだものとして扱う場合はtrue
+         */
+        Scan(boolean requireSealed, boolean sealedSeen) {
+            this.requireSealed = requireSealed;
+            this.sealedSeen = sealedSeen;
+        }
+
+        /**
+         * 追記された行だけを読むための状態を作成します。
+         * taskapp.csv.checksumが有効な場合、追記された行は全てチェックサムが付いているものとして扱います。
+         *
+         * @return 作成した状態
+         */
+        static Scan appended() {
+            return new Scan(ENABLED, ENABLED);
+        }
+
+        /**
+         * 次の行のチェックサムを確かめ、チェックサムを取り除いた内容を返します。
+         *
+         * @param line CSVの1行
+         * @return 行の内容。チェックサムが一致しない行と、チェックサムを書く前に途切れた行はnull
+         * @see CsvChecksum#strip(String)
+         */
+        String strip(String line) {
+            return accepts(hasChecksum(line)) ? CsvChecksum.strip(line) : null;
+        }
+
+        /**
+         * 次の行を受け付けるかを判断します。チェックサム自体は確かめません。
+         *
+         * @param sealed 行にチェックサムが付いている場合はtrue
+         * @return 受け付ける場合はtrue
+         */
+        boolean accepts(boolean sealed) {
+            if (sealed) {
+                sealedSeen = true;
+                return true;
+            }
+            return !requireSealed || !sealedSeen;
+        }
+    }
+
+    /**
+     * @param line CSVの1行
+     * @return 末尾がチェックサムの形式になっている場合はtrue
+     */
+    static boolean hasChecksum(String line) {
+        int length = line.length();
+        return length >= SUFFIX_LENGTH && line.charAt(length - SUFFIX_LENGTH) == ','
+                && line.charAt(length - SUFFIX_LENGTH + 1) == '#';
+    }
+
+    /**
+     * バイト列の範囲のCRC32Cを計算します。
+     *
+     * @param bytes  バイト列
+     * @param offset 開始位置
+     * @param length 長さ、負の場合は開始位置から末尾まで
+     * @return CRC32Cの値
+     */
+    static int crc(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length < 0 ? bytes.length - offset : length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * ファイルの指定した位置の直前の範囲を読み込みます。
+     * ファイル全体ではなく末尾付近だけを確かめ、追記されただけかを判断するために使います。
+     *
+     * @param path   ファイルのパス
+     * @param end    範囲の終わり
+     * @param length 範囲の長さ。endより長い場合はファイルの先頭から読む
+     * @return 読み込んだバイト列
+     * @throws IOException 読み込みに失敗した場合、またはファイルがendより小さい場合
+     */
+    static byte[] readBefore(Path path, long end, int length) throws IOException {
+        long start = Math.max(0, end - length);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new EOFException(path + "が読み込み中に小さくなりました");
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 8桁の16進数を読み取ります。
+     *
+     * @return 読み取った値（intの範囲のビット列）。16進数でない文字を含む場合はintの範囲外の値
+     */
+    static long parseHex(CharSequence text, int start) {
+        int value = 0;
+        for (int i = start; i < start + 8; i++) {
+            int digit = Character.digit(text.charAt(i), 16);
+            if (digit < 0) {
+                return Long.MIN_VALUE;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,69 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CSVの世代番号を、CSVと同じディレクトリの「ファイル名.gen」に保存します。
+ * 行の追記では世代は変わらず、書き換え・切り出し・コンパクションのように既存の行を変える書き込みで世代を進めます。
+ * スナップショットなどは作成時の世代を記録しておき、世代が変わっていればCSVを先頭から読み直さずに使えないと判断できます。
+ */
+final class CsvGeneration {
+    private CsvGeneration() {
+    }
+
+    /**
+     * CSVの現在の世代を取得します。
+     *
+     * @param csvPath CSVのパス
+     * @return 世代番号、一度も進めていない場合は0
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static long read(Path csvPath) throws IOException {
+        Path path = pathOf(csvPath);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        String text = Files.readString(path, StandardCharsets.US_ASCII).trim();
+        return text.isEmpty() ? 0 : Long.parseLong(text);
+    }
+
+    /**
+     * CSVの世代を1つ進めます。既存の行を変える書き込みで呼び出してください。
+     * 複数のプロセスから同時に進めても番号が戻らないよう、ファイルロックを取って更新します。
+     *
+     * @param csvPath CSVのパス
+     * @return 進めた後の世代番号
+     * @throws IOException 読み書きに失敗した場合
+     */
+    static synchronized long bump(Path csvPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathOf(csvPath), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(32);
+                channel.read(buffer, 0);
+                buffer.flip();
+                String text = StandardCharsets.US_ASCII.decode(buffer).toString().trim();
+                long generation = (text.isEmpty() ? 0 : Long.parseLong(text)) + 1;
+
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(String.valueOf(generation).getBytes(StandardCharsets.US_ASCII)), 0);
+                channel.force(false);
+                return generation;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private static Path pathOf(Path csvPath) {
+        return csvPath.resolveSibling(csvPath.getFileName() + ".gen");
+    }
+}
@@ -0,0 +1,294 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * CSVを1行ずつ読み進めます。
+ * 行の区切り（改行）と列の区切り（カンマ）は{@link ByteScanner}でまとめて探し、行・列はバイト列のまま扱います。
+ * 文字列は{@link #column(int)}・{@link #line()}を呼んだ場合だけ作成するため、コードの比較や数値の列の読み取りではオブジェクトを作りません。
+ * 行の区切りはLFで、CRLFのCRは行に含めません。
+ */
+final class CsvLineReader implements AutoCloseable {
+    /** 読み込みバッファの初期サイズ。1行がこれより長い場合は広げる */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /** 1回の探索で記録する改行の位置の数 */
+    private static final int NEWLINE_BATCH = 1024;
+
+    /** 1行で記録するカンマの位置の数 */
+    private static final int MAX_COMMAS = 16;
+
+    private final InputStream in;
+
+    private final ByteScanner scanner;
+
+    /** バッファの中の改行の位置。nextNewlineからnewlineCountまでが未使用 */
+    private final int[] newlines = new int[NEWLINE_BATCH];
+
+    private final int[] commas = new int[MAX_COMMAS];
+
+    private int newlineCount;
+
+    private int nextNewline;
+
+    /** 改行を探し終えたバッファの位置 */
+    private int indexedTo;
+
+    private boolean eof;
+
+    private byte[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    /** バッファの先頭より前に読み終えたバイト数 */
+    private long consumed;
+
+    private int lineStart;
+
+    private int lineEnd;
+
+    /** チェックサムを除いた行の内容の終わり */
+    private int contentEnd;
+
+    /** 現在の行のカンマの数。まだ探していない場合は-1 */
+    private int commaCount;
+
+    /** 末尾の空の列を除いた、最後の列の終わり */
+    private int lastColumnEnd;
+
+    /**
+     * @param in 読み込むCSV。閉じるとこのストリームも閉じる
+     */
+    CsvLineReader(InputStream in) {
+        this.in = in;
+        this.scanner = ByteScanner.DEFAULT;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * 読み込み済みのバイト列を行に分けて読み進めます。
+     *
+     * @param bytes  CSVのバイト列。内容を書き換えずに使う
+     * @param length 読み込む長さ
+     */
+    CsvLineReader(byte[] bytes, int length) {
+        this.in = null;
+        this.scanner = ByteScanner.DEFAULT;
+        this.buffer = bytes;
+        this.limit = length;
+        this.eof = true;
+    }
+
+    /**
+     * 次の行に進みます。空の行も1行として返します。
+     *
+     * @return 次の行がある場合はtrue、ファイルの終わりの場合はfalse
+     * @throws IOException 読み込みに失敗した場合
+     */
+    boolean next() throws IOException {
+        while (true) {
+            if (nextNewline < newlineCount) {
+                int newline = newlines[nextNewline++];
+                setLine(position, newline);
+                position = newline + 1;
+                return true;
+            }
+            if (indexedTo < limit) {
+                newlineCount = scanner.indexAll(buffer, indexedTo, limit, (byte) '\n', newlines);
+                nextNewline = 0;
+                // 記録しきれなかった場合は、最後に見つけた改行の次から続きを探す
+                indexedTo = newlineCount == newlines.length ? newlines[newlineCount - 1] + 1 : limit;
+                continue;
+            }
+            if (eof) {
+                if (position < limit) {
+                    setLine(position, limit);
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            // 改行を全て使い終えたので、読み終えた部分を詰め、足りなければバッファを広げてから続きを読む
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                consumed += position;
+                limit -= position;
+                indexedTo = limit;
+                position = 0;
+            } else if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+        contentEnd = lineEnd;
+        commaCount = -1;
+    }
+
+    /**
+     * @return ファイルの先頭からの現在の行の開始位置
+     */
+    long offset() {
+        return consumed + lineStart;
+    }
+
+    /**
+     * @return 現在の行の末尾がチェックサムの形式になっている場合はtrue
+     * @see CsvChecksum#hasChecksum(String)
+     */
+    boolean isSealed() {
+        int suffix = lineEnd - CsvChecksum.SUFFIX_LENGTH;
+        return suffix >= lineStart && buffer[suffix] == ',' && buffer[suffix + 1] == '#';
+    }
+
+    /**
+     * 現在の行のチェックサムを確かめ、以降の列の読み取りからチェックサムを除きます。
+     *
+     * @param scan 読んでいるファイルのチェックサムの状態
+     * @return 受け付ける行の場合はtrue。チェックサムが一致しない行と、チェックサムを書く前に途切れた行はfalse
+     * @see CsvChecksum.Scan#strip(String)
+     */
+    boolean verify(CsvChecksum.Scan scan) {
+        boolean sealed = isSealed();
+        if (!scan.accepts(sealed)) {
+            return false;
+        }
+        if (sealed) {
+            int suffix = lineEnd - CsvChecksum.SUFFIX_LENGTH;
+            long expected = parseHex(suffix + 2);
+            if (expected == Long.MIN_VALUE || CsvChecksum.crc(buffer, lineStart, suffix - lineStart) != expected) {
+                return false;
+            }
+            contentEnd = suffix;
+            commaCount = -1;
+        }
+        return true;
+    }
+
+    /**
+     * {@link String#split(String)}と同じく、末尾の空の列は数えません。
+     *
+     * @return 現在の行の列の数。カンマがMAX_COMMAS個以上ある場合はMAX_COMMAS + 1
+     */
+    int columns() {
+        if (commaCount < 0) {
+            int count = scanner.indexAll(buffer, lineStart, contentEnd, (byte) ',', commas);
+            int end = contentEnd;
+            if (count < commas.length) {
+                while (count > 0 && commas[count - 1] + 1 == end) {
+                    end = commas[--count];
+                }
+            }
+            commaCount = count;
+            lastColumnEnd = end;
+        }
+        return commaCount + 1;
+    }
+
+    /**
+     * @param index 列の番号（0から）
+     * @return 列の値
+     */
+    String column(int index) {
+        int start = columnStart(index);
+        return new String(buffer, start, columnEnd(index) - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 列の値を{@link Integer#parseInt(String)}と同じ規則で整数として読み取ります。
+     *
+     * @param index 列の番号（0から）
+     * @return 読み取った値
+     * @throws NumberFormatException intの範囲の整数でない場合
+     */
+    int intColumn(int index) {
+        int start = columnStart(index);
+        int end = columnEnd(index);
+        int cursor = start;
+        boolean negative = false;
+        if (cursor < end && (buffer[cursor] == '-' || buffer[cursor] == '+')) {
+            negative = buffer[cursor] == '-';
+            cursor++;
+        }
+        if (cursor == end) {
+            throw new NumberFormatException("For input string: \"" + column(index) + "\"");
+        }
+        long value = 0;
+        for (; cursor < end; cursor++) {
+            int digit = buffer[cursor] - '0';
+            value = value * 10 + digit;
+            if (digit < 0 || digit > 9 || value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+                throw new NumberFormatException("For input string: \"" + column(index) + "\"");
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * 列の値が指定したバイト列と一致するか判定します。文字列を作らずに比べます。
+     *
+     * @param index    列の番号（0から）
+     * @param expected UTF-8のバイト列
+     * @return 一致する場合はtrue
+     */
+    boolean columnEquals(int index, byte[] expected) {
+        int start = columnStart(index);
+        return Arrays.equals(buffer, start, columnEnd(index), expected, 0, expected.length);
+    }
+
+    /**
+     * @return チェックサムを除いた現在の行の内容
+     */
+    String line() {
+        return new String(buffer, lineStart, contentEnd - lineStart, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    private int columnStart(int index) {
+        checkColumn(index);
+        return index == 0 ? lineStart : commas[index - 1] + 1;
+    }
+
+    private int columnEnd(int index) {
+        checkColumn(index);
+        return index < commaCount ? commas[index] : lastColumnEnd;
+    }
+
+    private void checkColumn(int index) {
+        if (index < 0 || index >= Math.min(columns(), MAX_COMMAS)) {
+            throw new IndexOutOfBoundsException("列が存在しません: " + index);
+        }
+    }
+
+    private long parseHex(int start) {
+        int value = 0;
+        for (int i = start; i < start + 8; i++) {
+            int digit = Character.digit(buffer[i], 16);
+            if (digit < 0) {
+                return Long.MIN_VALUE;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+}
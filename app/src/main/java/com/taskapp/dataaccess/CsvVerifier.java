@@ -0,0 +1,451 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+
+/**
+ * users.csv・tasks.csv・logs.csvの各行が壊れていないかを確かめます。
+ * <ul>
+ * <li>チェックサムの付いた行はCRC32Cが一致するかを確かめる</li>
+ * <li>全ての行で列の数と、数値・日付の列の形式を確かめる</li>
+ * </ul>
+ * 各ファイルを一定の大きさの塊に分け、全てのファイルの塊を並列に検証します。
+ * 塊はメモリにマップして読み込むため、数GBのファイルでもヒープをほとんど使いません。
+ *
+ * @see com.taskapp.dataaccess.CsvChecksum
+ */
+public class CsvVerifier {
+    /** 1つの塊の大きさ（バイト） */
+    private static final long CHUNK_BYTES = Long.getLong("taskapp.verify.chunkBytes", 16L * 1024 * 1024);
+
+    /** 塊の終わりをまたぐ行を読むために余分にマップする大きさ。これより長い行は壊れた行として扱う */
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+
+    /** 1つのファイルで記録する壊れた行の上限 */
+    private static final int MAX_REPORTED_ROWS = 1000;
+
+    private static final Format USERS = new Format(4, new int[] { 0 }, -1);
+
+    private static final Format TASKS = new Format(4, new int[] { 0, 2, 3 }, -1);
+
+    private static final Format LOGS = new Format(4, new int[] { 0, 1, 2 }, 3);
+
+    private final Path usersPath;
+
+    private final Path tasksPath;
+
+    private final Path logsPath;
+
+    public CsvVerifier() {
+        this("app/src/main/resources/users.csv", "app/src/main/resources/tasks.csv",
+                "app/src/main/resources/logs.csv");
+    }
+
+    /**
+     * @param usersPath users.csvのパス
+     * @param tasksPath tasks.csvのパス
+     * @param logsPath  logs.csvのパス
+     */
+    public CsvVerifier(String usersPath, String tasksPath, String logsPath) {
+        this.usersPath = Paths.get(usersPath);
+        this.tasksPath = Paths.get(tasksPath);
+        this.logsPath = Paths.get(logsPath);
+    }
+
+    /**
+     * 3つのファイルを検証します。tasks.csvをシャードに分けている場合は各シャードを検証します。
+     *
+     * @param requireChecksum trueの場合はチェックサムの無い行も壊れた行として扱う
+     * @return ファイルごとの結果と処理時間
+     * @throws IOException ファイルを読み込めない場合
+     */
+    public Report verify(boolean requireChecksum) throws IOException {
+        long start = System.nanoTime();
+        List<Chunk> chunks = new ArrayList<>();
+        List<FileResult> results = new ArrayList<>();
+        List<Path> paths = new ArrayList<>();
+        List<Format> formats = new ArrayList<>();
+        paths.add(usersPath);
+        formats.add(USERS);
+        // タスクをシャードに分けている場合は、元のCSVではなく全てのシャードを検証する
+        for (Path path : ShardedTaskDataAccess.dataFiles(tasksPath)) {
+            paths.add(path);
+            formats.add(TASKS);
+        }
+        paths.add(logsPath);
+        formats.add(LOGS);
+        for (int i = 0; i < paths.size(); i++) {
+            FileResult result = new FileResult(paths.get(i));
+            results.add(result);
+            try (FileChannel channel = FileChannel.open(paths.get(i), StandardOpenOption.READ)) {
+                result.bytes = channel.size();
+            }
+            for (long offset = 0; offset < result.bytes; offset += CHUNK_BYTES) {
+                chunks.add(new Chunk(result, formats.get(i), offset, Math.min(result.bytes, offset + CHUNK_BYTES),
+                        requireChecksum));
+            }
+        }
+
+        try {
+            chunks.parallelStream().forEach(Chunk::scan);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // 塊ごとの行数を足し合わせて、ファイル先頭からの行番号に直す
+        for (FileResult result : results) {
+            long linesBefore = 0;
+            for (Chunk chunk : chunks) {
+                if (chunk.result != result) {
+                    continue;
+                }
+                result.lines += chunk.dataLines;
+                result.checkedLines += chunk.checkedLines;
+                result.corruptCount += chunk.corrupt.size();
+                for (CorruptRow row : chunk.corrupt) {
+                    if (result.corruptRows.size() < MAX_REPORTED_ROWS) {
+                        result.corruptRows.add(new CorruptRow(linesBefore + row.lineNumber, row.reason));
+                    }
+                }
+                linesBefore += chunk.totalLines;
+            }
+        }
+        return new Report(results, System.nanoTime() - start);
+    }
+
+    /**
+     * ファイルの種類ごとの列の形式です。
+     */
+    private static class Format {
+        final int columns;
+        final int[] numericColumns;
+        final int dateColumn;
+
+        Format(int columns, int[] numericColumns, int dateColumn) {
+            this.columns = columns;
+            this.numericColumns = numericColumns;
+            this.dateColumn = dateColumn;
+        }
+    }
+
+    /**
+     * ファイルの[start, end)から始まる行をまとめて検証する単位です。
+     */
+    private static class Chunk {
+        final FileResult result;
+        final Format format;
+        final long start;
+        final long end;
+        final boolean requireChecksum;
+
+        /** 塊の中で始まる行の数（ヘッダー・空行を含む） */
+        long totalLines;
+        long dataLines;
+        long checkedLines;
+
+        /** 壊れた行。行番号は塊の中での番号（1始まり） */
+        final List<CorruptRow> corrupt = new ArrayList<>();
+
+        private final CRC32C crc = new CRC32C();
+
+        private final int[] commas;
+
+        Chunk(FileResult result, Format format, long start, long end, boolean requireChecksum) {
+            this.result = result;
+            this.format = format;
+            this.start = start;
+            this.end = end;
+            this.requireChecksum = requireChecksum;
+            this.commas = new int[format.columns];
+        }
+
+        void scan() {
+            // 直前の1バイトも読み、塊の先頭が行の始まりかどうかを判断する
+            long mapStart = Math.max(0, start - 1);
+            long mapEnd = Math.min(result.bytes, end + MAX_LINE_BYTES);
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(result.path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            int limit = (int) (end - mapStart);
+            int position = (int) (start - mapStart);
+            if (start > 0 && buffer.get(position - 1) != '\n') {
+                // 前の塊から続いている行は前の塊で検証する
+                while (position < limit && buffer.get(position) != '\n') {
+                    position++;
+                }
+                position++;
+            }
+            while (position < limit) {
+                int lineEnd = position;
+                while (lineEnd < buffer.limit() && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                totalLines++;
+                if (lineEnd == buffer.limit() && mapEnd < result.bytes) {
+                    corrupt.add(new CorruptRow(totalLines, "行が長すぎます"));
+                    return;
+                }
+                boolean header = mapStart + position == 0;
+                if (!header) {
+                    check(buffer, position, lineEnd);
+                }
+                position = lineEnd + 1;
+            }
+        }
+
+        private void check(ByteBuffer buffer, int from, int to) {
+            if (to > from && buffer.get(to - 1) == '\r') {
+                to--;
+            }
+            if (to == from) {
+                return;
+            }
+            dataLines++;
+
+            int length = to - from;
+            if (length >= CsvChecksum.SUFFIX_LENGTH && buffer.get(to - CsvChecksum.SUFFIX_LENGTH) == ','
+                    && buffer.get(to - CsvChecksum.SUFFIX_LENGTH + 1) == '#') {
+                to -= CsvChecksum.SUFFIX_LENGTH;
+                checkedLines++;
+                crc.reset();
+                crc.update(buffer.duplicate().limit(to).position(from));
+                if ((int) crc.getValue() != CsvChecksum.parseHex(hex(buffer, to + 2), 0)) {
+                    corrupt.add(new CorruptRow(totalLines, "チェックサムが一致しません"));
+                    return;
+                }
+            } else if (requireChecksum) {
+                corrupt.add(new CorruptRow(totalLines, "チェックサムがありません"));
+                return;
+            }
+
+            String reason = checkColumns(buffer, from, to);
+            if (reason != null) {
+                corrupt.add(new CorruptRow(totalLines, reason));
+            }
+        }
+
+        /**
+         * @return 形式が正しくない理由、正しい場合はnull
+         */
+        private String checkColumns(ByteBuffer buffer, int from, int to) {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (buffer.get(i) == ',') {
+                    if (count + 1 >= format.columns) {
+                        return "列の数が正しくありません";
+                    }
+                    commas[count++] = i;
+                }
+            }
+            if (count + 1 != format.columns) {
+                return "列の数が正しくありません";
+            }
+            for (int column : format.numericColumns) {
+                int columnStart = column == 0 ? from : commas[column - 1] + 1;
+                int columnEnd = column == format.columns - 1 ? to : commas[column];
+                if (!isNumber(buffer, columnStart, columnEnd)) {
+                    return "数値ではない列があります";
+                }
+            }
+            if (format.dateColumn >= 0) {
+                int columnStart = commas[format.dateColumn - 1] + 1;
+                int columnEnd = format.dateColumn == format.columns - 1 ? to : commas[format.dateColumn];
+                if (!isDate(buffer, columnStart, columnEnd)) {
+                    return "日付の形式が正しくありません";
+                }
+            }
+            return null;
+        }
+
+        private static boolean isNumber(ByteBuffer buffer, int from, int to) {
+            if (from < to && buffer.get(from) == '-') {
+                from++;
+            }
+            if (from == to || to - from > 10) {
+                return false;
+            }
+            for (int i = from; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b < '0' || b > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 「yyyy-MM-dd」の形かどうかを確かめます。
+         */
+        private static boolean isDate(ByteBuffer buffer, int from, int to) {
+            if (to - from != 10) {
+                return false;
+            }
+            for (int i = 0; i < 10; i++) {
+                byte b = buffer.get(from + i);
+                boolean ok = i == 4 || i == 7 ? b == '-' : b >= '0' && b <= '9';
+                if (!ok) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static CharSequence hex(ByteBuffer buffer, int from) {
+            char[] chars = new char[8];
+            for (int i = 0; i < 8; i++) {
+                chars[i] = (char) (buffer.get(from + i) & 0xFF);
+            }
+            return new String(chars);
+        }
+    }
+
+    /**
+     * 検証全体の結果です。
+     */
+    public static class Report {
+        private final List<FileResult> files;
+
+        private final long elapsedNanos;
+
+        Report(List<FileResult> files, long elapsedNanos) {
+            this.files = files;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<FileResult> getFiles() {
+            return Collections.unmodifiableList(files);
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return 全てのファイルに壊れた行が無い場合はtrue
+         */
+        public boolean isValid() {
+            return files.stream().allMatch(file -> file.corruptCount == 0);
+        }
+
+        /**
+         * @return 1秒あたりに検証したバイト数
+         */
+        public double getBytesPerSecond() {
+            long bytes = files.stream().mapToLong(FileResult::getBytes).sum();
+            return elapsedNanos == 0 ? 0 : bytes * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return files.stream().map(FileResult::toString).collect(Collectors.joining(", ", "Report [", "]"));
+        }
+    }
+
+    /**
+     * 1つのファイルの検証結果です。
+     */
+    public static class FileResult {
+        private final Path path;
+
+        private long bytes;
+
+        private long lines;
+
+        private long checkedLines;
+
+        private long corruptCount;
+
+        private final List<CorruptRow> corruptRows = new ArrayList<>();
+
+        FileResult(Path path) {
+            this.path = path;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return ヘッダー行と空行を除いた行数
+         */
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * @return チェックサムの付いていた行数
+         */
+        public long getCheckedLines() {
+            return checkedLines;
+        }
+
+        /**
+         * @return 壊れた行の数
+         */
+        public long getCorruptCount() {
+            return corruptCount;
+        }
+
+        /**
+         * @return 壊れた行（行番号順、最大1000件）
+         */
+        public List<CorruptRow> getCorruptRows() {
+            return Collections.unmodifiableList(corruptRows);
+        }
+
+        @Override
+        public String toString() {
+            return "FileResult [path=" + path + ", lines=" + lines + ", checkedLines=" + checkedLines
+                    + ", corruptCount=" + corruptCount + "]";
+        }
+    }
+
+    /**
+     * 壊れた行です。
+     */
+    public static class CorruptRow {
+        private final long lineNumber;
+
+        private final String reason;
+
+        CorruptRow(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        /**
+         * @return ファイル先頭からの行番号（1始まり、ヘッダー行を含む）
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return lineNumber + "行目: " + reason;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * CSVファイルがアプリの外（手作業やスクリプト）で変更されたことを検知し、登録された処理に知らせます。
+ * 監視はフォルダ単位のWatchServiceで行い、通知は専用スレッドから行います。
+ * <ul>
+ * <li>ファイルが大きくなり、前回確認した末尾の内容が変わっていない場合は追記として、追記された行だけを渡す</li>
+ * <li>それ以外の変更は書き換えとして扱い、全体の読み直しを求める</li>
+ * </ul>
+ * アプリ自身の書き込みは{@link #acknowledge(Path)}で知らせると、変更として通知しません。
+ * 書き込みの前に{@link #beginWrite(Path)}を呼び出すと、書き込み途中の内容も変更として通知しません。
+ */
+public class CsvWatcher {
+    /**
+     * ファイルの変更を受け取る処理です。
+     */
+    public interface Listener {
+        /**
+         * ファイルの末尾に行が追記された場合に呼び出されます。
+         *
+         * @param lines 追記された行（空行は含まない）
+         */
+        void onAppend(List<String> lines);
+
+        /**
+         * ファイルが追記以外の方法で変更された場合に呼び出されます。
+         */
+        void onRewrite();
+    }
+
+    /** 追記かどうかの確認に使う末尾のバイト数 */
+    private static final int TAIL_BYTES = 64;
+
+    /** 変更を検知してから書き込みが落ち着くまで待つ時間 */
+    private static final long SETTLE_MILLIS = 50;
+
+    private final Map<Path, List<Listener>> listeners = new ConcurrentHashMap<>();
+
+    private final Map<Path, FileState> states = new ConcurrentHashMap<>();
+
+    private final Set<Path> watchedDirectories = new HashSet<>();
+
+    /** アプリ自身が書き込み中のファイル。確認済みにするまで変更を通知しない */
+    private final Set<Path> writing = ConcurrentHashMap.newKeySet();
+
+    private WatchService watchService;
+
+    /**
+     * ファイルの監視を始めます。初回の登録時に監視用スレッドを起動します。
+     *
+     * @param file     監視するファイル
+     * @param listener 変更を受け取る処理
+     * @throws IOException 監視を始められない場合
+     */
+    public synchronized void register(Path file, Listener listener) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        listeners.computeIfAbsent(path, key -> new CopyOnWriteArrayList<>()).add(listener);
+        states.computeIfAbsent(path, CsvWatcher::readState);
+
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(this::run, "csv-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Path directory = path.getParent();
+        if (watchedDirectories.add(directory)) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    /**
+     * アプリ自身がファイルへの書き込みを始めることを知らせます。
+     * {@link #acknowledge(Path)}を呼び出すまで、このファイルの変更は確認しません。
+     *
+     * @param file 書き込むファイル
+     */
+    public void beginWrite(Path file) {
+        Path path = file.toAbsolutePath().normalize();
+        if (states.containsKey(path)) {
+            writing.add(path);
+        }
+    }
+
+    /**
+     * アプリ自身がファイルに書き込んだことを知らせ、現在の内容を確認済みにします。
+     * {@link #beginWrite(Path)}で始めた書き込みはここで終わりとします。
+     *
+     * @param file 書き込んだファイル
+     */
+    public void acknowledge(Path file) {
+        Path path = file.toAbsolutePath().normalize();
+        if (states.containsKey(path)) {
+            // 確認を再開する前に、書き込み後の状態を記録する
+            states.put(path, readState(path));
+        }
+        writing.remove(path);
+    }
+
+    /**
+     * 監視を終了します。
+     */
+    public synchronized void close() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Thread.sleep(SETTLE_MILLIS);
+                Set<Path> changed = new LinkedHashSet<>();
+                // 待っている間に届いた他のフォルダの通知もまとめて処理する
+                for (; key != null; key = watchService.poll()) {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            listeners.keySet().stream().filter(path -> directory.equals(path.getParent()))
+                                    .forEach(changed::add);
+                        } else {
+                            changed.add(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                }
+                for (Path path : changed) {
+                    if (listeners.containsKey(path)) {
+                        check(path);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 監視を終了する
+        }
+    }
+
+    /**
+     * ファイルの状態を前回と比べ、変わっていれば追記か書き換えかを判定して通知します。
+     */
+    private void check(Path path) {
+        if (writing.contains(path)) {
+            return;
+        }
+        FileState previous = states.get(path);
+        FileState current = readState(path);
+        if (current.equals(previous)) {
+            return;
+        }
+        states.put(path, current);
+
+        List<String> appended = null;
+        try {
+            if (previous != null && previous.size > 0 && current.size > previous.size
+                    && tailChecksum(path, previous.size) == previous.tailChecksum) {
+                appended = readLines(path, previous.size, current.size);
+            }
+        } catch (IOException e) {
+            appended = null;
+        }
+        for (Listener listener : listeners.get(path)) {
+            try {
+                if (appended != null) {
+                    listener.onAppend(appended);
+                } else {
+                    listener.onRewrite();
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static FileState readState(Path path) {
+        try {
+            long size = Files.size(path);
+            return new FileState(size, Files.getLastModifiedTime(path).toMillis(), tailChecksum(path, size));
+        } catch (IOException e) {
+            return new FileState(-1, -1, -1);
+        }
+    }
+
+    /**
+     * 指定した位置の直前TAIL_BYTESバイトのチェックサムを計算します。
+     */
+    private static long tailChecksum(Path path, long end) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(readRange(path, Math.max(0, end - TAIL_BYTES), end));
+        return crc.getValue();
+    }
+
+    /**
+     * ファイルの指定した範囲を行に分けて読み込みます。
+     */
+    private static List<String> readLines(Path path, long start, long end) throws IOException {
+        ByteBuffer buffer = readRange(path, start, end);
+        List<String> lines = new ArrayList<>();
+        for (String line : StandardCharsets.UTF_8.decode(buffer).toString().split("\r?\n")) {
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * ファイルの指定した範囲を読み込みます。
+     *
+     * @return 読み込んだ内容（読み込み位置は先頭）
+     */
+    private static ByteBuffer readRange(Path path, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                // 指定した範囲を読み終えるまで繰り返す
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * 前回確認したファイルの状態です。
+     */
+    private static class FileState {
+        final long size;
+        final long modified;
+        final long tailChecksum;
+
+        FileState(long size, long modified, long tailChecksum) {
+            this.size = size;
+            this.modified = modified;
+            this.tailChecksum = tailChecksum;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FileState)) {
+                return false;
+            }
+            FileState other = (FileState) obj;
+            return size == other.size && modified == other.modified && tailChecksum == other.tailChecksum;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size * 31 + modified);
+        }
+    }
+}
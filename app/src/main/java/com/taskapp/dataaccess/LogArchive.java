@@ -0,0 +1,460 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.taskapp.model.Log;
+
+/**
+ * logs.csvから切り出したログのセグメントを管理します。
+ * セグメントはgzip圧縮したCSVで、マニフェスト（manifest.csv）に各セグメントの
+ * 変更日・タスクコードの範囲を記録し、検索時は範囲外のセグメントを読み飛ばします。
+ * マニフェストには切り出し時のlogs.csvのサイズ・末尾のCRC32C・世代も記録し、
+ * logs.csvを空にする前に終了した場合は{@link #recover()}で重複した行を取り除きます。
+ */
+class LogArchive {
+    private static final String HEADER = "Task_Code,Change_User_Code,Status,Change_Date";
+
+    private static final String MANIFEST_HEADER =
+            "Segment,Min_Date,Max_Date,Min_Task_Code,Max_Task_Code,Rows,Hot_Bytes,Hot_Checksum,Hot_Generation";
+
+    /** 切り出し時のlogs.csvのCRC32Cを計算する末尾の範囲（バイト） */
+    private static final int HOT_WINDOW_BYTES = 4 * 1024;
+
+    private final Path hotPath;
+
+    private final Path archiveDir;
+
+    private final Path manifestPath;
+
+    /**
+     * @param hotPath 追記先のlogs.csvのパス。セグメントは同じフォルダの「ファイル名-archive」に保存する
+     */
+    LogArchive(Path hotPath) {
+        this.hotPath = hotPath;
+        String fileName = hotPath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot < 0 ? fileName : fileName.substring(0, dot);
+        this.archiveDir = hotPath.resolveSibling(baseName + "-archive");
+        this.manifestPath = archiveDir.resolve("manifest.csv");
+    }
+
+    /**
+     * 1つのセグメントの情報です。
+     */
+    static class Segment {
+        final String fileName;
+        final LocalDate minDate;
+        final LocalDate maxDate;
+        final int minTaskCode;
+        final int maxTaskCode;
+        final int rows;
+        /** 切り出したlogs.csvのサイズ。記録していない場合は-1 */
+        final long hotBytes;
+        /** 切り出したlogs.csvのサイズの直前の範囲のCRC32C */
+        final long hotChecksum;
+        /** 切り出したlogs.csvの世代。記録していない場合は-1 */
+        final long hotGeneration;
+
+        Segment(String fileName, LocalDate minDate, LocalDate maxDate, int minTaskCode, int maxTaskCode, int rows,
+                long hotBytes, long hotChecksum, long hotGeneration) {
+            this.fileName = fileName;
+            this.minDate = minDate;
+            this.maxDate = maxDate;
+            this.minTaskCode = minTaskCode;
+            this.maxTaskCode = maxTaskCode;
+            this.rows = rows;
+            this.hotBytes = hotBytes;
+            this.hotChecksum = hotChecksum;
+            this.hotGeneration = hotGeneration;
+        }
+
+        boolean overlaps(LocalDate from, LocalDate to) {
+            return rows > 0 && !maxDate.isBefore(from) && !minDate.isAfter(to);
+        }
+
+        boolean mayContain(int taskCode) {
+            return rows > 0 && minTaskCode <= taskCode && taskCode <= maxTaskCode;
+        }
+
+        String toLine() {
+            String line = fileName + "," + minDate + "," + maxDate + "," + minTaskCode + "," + maxTaskCode + "," + rows;
+            return hotBytes < 0 ? line : line + "," + hotBytes + "," + hotChecksum + "," + hotGeneration;
+        }
+    }
+
+    /**
+     * logs.csvの内容を新しいセグメントとして圧縮保存し、logs.csvをヘッダー行だけにします。
+     * ログとして読み取れない行はセグメントに入れず、logs.csvにそのまま残します。
+     * 墓標で読み飛ばす行はセグメントに入れずに捨て、セグメントには墓標より後に書かれた行だけが入るようにします。
+     * 呼び出し元でlogs.csvへの書き込みと排他してください。
+     *
+     * @see com.taskapp.dataaccess.LogTombstones
+     * @param hidden 現在の世代のlogs.csvで墓標により読み飛ばす行の判定
+     * @throws IOException 読み書きに失敗した場合
+     */
+    void rotate(LogTombstones.Mask hidden) throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<Log> logs = new ArrayList<>();
+        List<String> unreadable = new ArrayList<>();
+        long hotBytes;
+        try (FileChannel channel = FileChannel.open(hotPath, StandardOpenOption.READ)) {
+            // 読み始めた時点のサイズまでを切り出す
+            hotBytes = channel.size();
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
+            LogDataAccess.forEachLine(Channels.newInputStream(channel), 0, hotBytes, (line, offset) -> {
+                Log log = LogDataAccess.parseLine(line, scan);
+                if (log == null) {
+                    unreadable.add(line);
+                } else if (!hidden.hides(log.getTaskCode(), offset)) {
+                    lines.add(line);
+                    logs.add(log);
+                }
+            });
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        LocalDate minDate = null;
+        LocalDate maxDate = null;
+        int minTaskCode = Integer.MAX_VALUE;
+        int maxTaskCode = Integer.MIN_VALUE;
+        for (Log log : logs) {
+            LocalDate date = log.getChangeDate();
+            minDate = minDate == null || date.isBefore(minDate) ? date : minDate;
+            maxDate = maxDate == null || date.isAfter(maxDate) ? date : maxDate;
+            minTaskCode = Math.min(minTaskCode, log.getTaskCode());
+            maxTaskCode = Math.max(maxTaskCode, log.getTaskCode());
+        }
+
+        Files.createDirectories(archiveDir);
+        List<Segment> segments = segments();
+        String fileName = String.format("segment-%06d.csv.gz", segments.size() + 1);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(archiveDir.resolve(fileName))), StandardCharsets.UTF_8))) {
+            writer.write(HEADER);
+            for (String line : lines) {
+                writer.newLine();
+                writer.write(line);
+            }
+        }
+
+        // セグメントを書き終えてからマニフェストに追記し、最後にlogs.csvを空にする。
+        // マニフェストに記録したサイズ・末尾のCRC32C・世代で、logs.csvを空にする前に終了したかをrecover()で判断する
+        boolean newManifest = !Files.exists(manifestPath);
+        try (BufferedWriter writer = Files.newBufferedWriter(manifestPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newManifest) {
+                writer.write(MANIFEST_HEADER);
+            }
+            writer.newLine();
+            writer.write(new Segment(fileName, minDate, maxDate, minTaskCode, maxTaskCode, lines.size(), hotBytes,
+                    hotChecksum(hotBytes), CsvGeneration.read(hotPath)).toLine());
+        }
+        truncateHot(unreadable, hotBytes);
+    }
+
+    /**
+     * 切り出しの途中で終了し、最後のセグメントに写した行がlogs.csvに残っている場合は取り除きます。
+     * logs.csvの世代がマニフェストに記録した世代のままで、記録したサイズ以上かつその直前の範囲のCRC32Cが一致する場合に、
+     * まだ空にしていないと判断します。
+     * 呼び出し元でlogs.csvへの書き込みと排他してください。
+     *
+     * @return 取り除いた場合はtrue
+     * @throws IOException 読み書きに失敗した場合
+     */
+    boolean recover() throws IOException {
+        List<Segment> segments = segments();
+        if (segments.isEmpty() || !Files.exists(hotPath)) {
+            return false;
+        }
+        Segment last = segments.get(segments.size() - 1);
+        if (last.hotBytes < 0 || CsvGeneration.read(hotPath) != last.hotGeneration
+                || Files.size(hotPath) < last.hotBytes || hotChecksum(last.hotBytes) != last.hotChecksum) {
+            return false;
+        }
+        List<String> unreadable = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(hotPath, StandardOpenOption.READ)) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new BoundedInputStream(Channels.newInputStream(channel), last.hotBytes), StandardCharsets.UTF_8));
+            String line;
+            reader.readLine(); // ヘッダー行を読み飛ばす
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && LogDataAccess.parseLine(line, scan) == null) {
+                    unreadable.add(line);
+                }
+            }
+        }
+        truncateHot(unreadable, last.hotBytes);
+        return true;
+    }
+
+    /**
+     * logs.csvを、ヘッダー行・残す行・切り出した位置より後に追記された内容に置き換えます。
+     *
+     * @param kept     残す行
+     * @param hotBytes 切り出したlogs.csvのサイズ
+     */
+    private void truncateHot(List<String> kept, long hotBytes) throws IOException {
+        Path tempPath = hotPath.resolveSibling(hotPath.getFileName() + ".rotate");
+        try {
+            try (FileChannel source = FileChannel.open(hotPath, StandardOpenOption.READ);
+                    FileChannel target = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                StringBuilder head = new StringBuilder(HEADER);
+                for (String line : kept) {
+                    head.append(System.lineSeparator()).append(line);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                // 追記は改行から始まるため、切り出した位置以降はそのまま写せる
+                long size = source.size();
+                for (long position = hotBytes; position < size;) {
+                    position += source.transferTo(position, size - position, target);
+                }
+            }
+            Files.move(tempPath, hotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // 置き換えた後に世代を進め、切り出し後に同じ内容が追記されてもrecover()が空にし直さないようにする。
+            // 置き換えと世代の間で終了した場合は、logs.csvが記録したサイズより小さいためrecover()は何もしない
+            CsvGeneration.bump(hotPath);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    /**
+     * logs.csvの指定したサイズの直前HOT_WINDOW_BYTESバイトのCRC32Cを計算します。
+     */
+    private long hotChecksum(long hotBytes) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(CsvChecksum.readBefore(hotPath, hotBytes, HOT_WINDOW_BYTES));
+        return crc.getValue();
+    }
+
+    /**
+     * セグメントから削除済みのタスクコードの行を取り除いて書き直します。
+     * 書き直したセグメントは一時ファイルから置き換えるため、読み込み中の処理は古い内容か新しい内容のどちらかを読みます。
+     * マニフェストの更新は{@link #replace(Segment)}で行ってください。
+     *
+     * @param segment 書き直すセグメント
+     * @param dead    取り除くタスクコードの判定
+     * @return 書き直した後のセグメント、取り除く行が無かった場合は引数のセグメント
+     * @throws IOException 読み書きに失敗した場合
+     */
+    Segment compact(Segment segment, IntPredicate dead) throws IOException {
+        Path segmentPath = archiveDir.resolve(segment.fileName);
+        List<String> lines = new ArrayList<>();
+        LocalDate minDate = null;
+        LocalDate maxDate = null;
+        int minTaskCode = Integer.MAX_VALUE;
+        int maxTaskCode = Integer.MIN_VALUE;
+        boolean removed = false;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segmentPath)), StandardCharsets.UTF_8))) {
+            String line;
+            reader.readLine(); // ヘッダー行を読み飛ばす
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
+            while ((line = reader.readLine()) != null) {
+                Log log = LogDataAccess.parseLine(line, scan);
+                if (log == null) {
+                    continue;
+                }
+                if (dead.test(log.getTaskCode())) {
+                    removed = true;
+                    continue;
+                }
+                lines.add(line);
+                LocalDate date = log.getChangeDate();
+                minDate = minDate == null || date.isBefore(minDate) ? date : minDate;
+                maxDate = maxDate == null || date.isAfter(maxDate) ? date : maxDate;
+                minTaskCode = Math.min(minTaskCode, log.getTaskCode());
+                maxTaskCode = Math.max(maxTaskCode, log.getTaskCode());
+            }
+        }
+        if (!removed) {
+            return segment;
+        }
+
+        Path tempPath = archiveDir.resolve(segment.fileName + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tempPath)), StandardCharsets.UTF_8))) {
+            writer.write(HEADER);
+            for (String line : lines) {
+                writer.newLine();
+                writer.write(line);
+            }
+        }
+        Files.move(tempPath, segmentPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (lines.isEmpty()) {
+            // 空になったセグメントも番号を保つためマニフェストに残し、行数0として読み飛ばす
+            return new Segment(segment.fileName, segment.minDate, segment.maxDate, segment.minTaskCode,
+                    segment.maxTaskCode, 0, segment.hotBytes, segment.hotChecksum, segment.hotGeneration);
+        }
+        return new Segment(segment.fileName, minDate, maxDate, minTaskCode, maxTaskCode, lines.size(),
+                segment.hotBytes, segment.hotChecksum, segment.hotGeneration);
+    }
+
+    /**
+     * マニフェストの同じファイル名のセグメントの行を置き換えます。
+     * 呼び出し元で{@link #rotate()}と排他してください。
+     *
+     * @param segment 置き換え後のセグメント
+     * @throws IOException 読み書きに失敗した場合
+     */
+    void replace(Segment segment) throws IOException {
+        List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+        String prefix = segment.fileName + ",";
+        Path tempPath = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (i > 0) {
+                    writer.newLine();
+                    if (line.startsWith(prefix)) {
+                        line = segment.toLine();
+                    }
+                }
+                writer.write(line);
+            }
+        }
+        Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * マニフェスト全体のCRC32Cを計算します。セグメントの追加・書き直しでマニフェストが変わったかを確かめるために使います。
+     *
+     * @return CRC32C、マニフェストが無い場合は0
+     * @throws IOException 読み込みに失敗した場合
+     */
+    long manifestChecksum() throws IOException {
+        if (!Files.exists(manifestPath)) {
+            return 0;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(Files.readAllBytes(manifestPath));
+        return crc.getValue();
+    }
+
+    /**
+     * マニフェストに記録されている全てのセグメントを古い順に取得します。
+     *
+     * @return セグメントのリスト
+     * @throws IOException 読み込みに失敗した場合
+     */
+    List<Segment> segments() throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        if (!Files.exists(manifestPath)) {
+            return segments;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            String line;
+            reader.readLine(); // ヘッダー行を読み飛ばす
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",");
+                // 切り出し時のlogs.csvのサイズを記録する前の行は6列
+                if (values.length != 6 && values.length != 9) {
+                    continue;
+                }
+                boolean hasHot = values.length == 9;
+                segments.add(new Segment(values[0], LocalDate.parse(values[1]), LocalDate.parse(values[2]),
+                        Integer.parseInt(values[3]), Integer.parseInt(values[4]), Integer.parseInt(values[5]),
+                        hasHot ? Long.parseLong(values[6]) : -1, hasHot ? Long.parseLong(values[7]) : 0,
+                        hasHot ? Long.parseLong(values[8]) : -1));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * セグメントの全てのログを読み込みます。
+     *
+     * @param segment 読み込むセグメント
+     * @param action  各ログに対する処理
+     * @throws IOException 読み込みに失敗した場合
+     */
+    void scan(Segment segment, Consumer<Log> action) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(open(segment), StandardCharsets.UTF_8))) {
+            String line;
+            reader.readLine(); // ヘッダー行を読み飛ばす
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
+            while ((line = reader.readLine()) != null) {
+                Log log = LogDataAccess.parseLine(line, scan);
+                if (log != null) {
+                    action.accept(log);
+                }
+            }
+        }
+    }
+
+    /**
+     * セグメントを展開しながら読み込むストリームを開きます。先頭はヘッダー行です。
+     *
+     * @param segment 読み込むセグメント
+     * @return 展開したCSVのストリーム
+     * @throws IOException 開けない場合
+     */
+    InputStream open(Segment segment) throws IOException {
+        return new GZIPInputStream(Files.newInputStream(archiveDir.resolve(segment.fileName)));
+    }
+
+    /**
+     * 指定したバイト数までを読み込むストリームです。読み始めた後にlogs.csvへ追記された行を読まないために使います。
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32C;
+
+import com.taskapp.model.Log;
+
+/**
+ * ある日の終わり時点の全タスクのステータス（チェックポイント）を保存します。
+ * チェックポイントはその日以前のログを全て反映した状態で、ある日時点の状態を求める際は
+ * 直前のチェックポイントから後のログだけを反映すれば済みます。
+ * 1つのチェックポイントは「日付.csv」（Task_Code,Status）として、logs.csvと同じフォルダの「ファイル名-checkpoints」に保存します。
+ * ヘッダー行の前の「#世代,バイト位置」の行には、作成に使ったログを読み始めた時点のlogs.csvの位置を記録し、
+ * その位置以降に削除されたタスクコードのステータスは読み込み時に含めません。
+ * <p>
+ * 同じフォルダの「source」に、チェックポイントを作成した時点のログの状態（マニフェストのCRC32C、logs.csvの世代・サイズ・末尾のCRC32C）を記録します。
+ * 使う前に{@link #validate(long)}で現在の状態と比べ、logs.csvが追記されただけであれば追記されたログの最も古い変更日以降のチェックポイントを、
+ * それ以外の変更があれば全てのチェックポイントを削除します。
+ * 切り出しとコンパクションはログの内容を保ったまま書き換えるため、その後に{@link #restamp(long)}で記録し直します。
+ */
+class LogCheckpoints {
+    private static final String HEADER = "Task_Code,Status";
+
+    private static final String EXTENSION = ".csv";
+
+    private static final String POSITION_PREFIX = "#";
+
+    private static final String SOURCE_FILE = "source";
+
+    /** logs.csvのサイズの直前のCRC32Cを計算する範囲（バイト） */
+    private static final int HOT_WINDOW_BYTES = 4 * 1024;
+
+    private final Path hotPath;
+
+    private final Path dir;
+
+    /** 保存済みのチェックポイントの日付。未確認の場合はnull */
+    private TreeSet<LocalDate> dates;
+
+    /**
+     * @param hotPath logs.csvのパス
+     */
+    LogCheckpoints(Path hotPath) {
+        this.hotPath = hotPath;
+        String fileName = hotPath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot < 0 ? fileName : fileName.substring(0, dot);
+        this.dir = hotPath.resolveSibling(baseName + "-checkpoints");
+    }
+
+    /**
+     * 記録したログの状態と現在の状態を比べ、一致しなくなったチェックポイントを削除してから現在の状態を記録します。
+     * 呼び出し元でlogs.csvへの書き込みと排他してください。
+     *
+     * @param manifestChecksum 現在のマニフェストのCRC32C
+     * @throws IOException 読み書きに失敗した場合
+     */
+    synchronized void validate(long manifestChecksum) throws IOException {
+        // 同じlogs.csvを使う他のインスタンスが削除・作成した場合に備え、保存済みの日付を読み直す
+        dates = null;
+        if (dates().isEmpty()) {
+            restamp(manifestChecksum);
+            return;
+        }
+        long[] source = readSource();
+        long size = Files.size(hotPath);
+        if (source == null || source[0] != manifestChecksum || source[1] != CsvGeneration.read(hotPath)
+                || size < source[2] || hotChecksum(source[2]) != source[3]) {
+            clear();
+        } else if (size > source[2]) {
+            LocalDate earliest = earliestAppended(source[2]);
+            if (earliest != null) {
+                dropFrom(earliest);
+            }
+        } else {
+            return;
+        }
+        restamp(manifestChecksum);
+    }
+
+    /**
+     * 現在のログの状態を記録します。
+     * 呼び出し元でlogs.csvへの書き込みと排他してください。
+     *
+     * @param manifestChecksum 現在のマニフェストのCRC32C
+     * @throws IOException 書き込みに失敗した場合
+     */
+    synchronized void restamp(long manifestChecksum) throws IOException {
+        Files.createDirectories(dir);
+        long size = Files.size(hotPath);
+        String line = manifestChecksum + "," + CsvGeneration.read(hotPath) + "," + size + "," + hotChecksum(size);
+        Path path = dir.resolve(SOURCE_FILE);
+        Path tempPath = path.resolveSibling(SOURCE_FILE + ".tmp");
+        Files.writeString(tempPath, line, StandardCharsets.UTF_8);
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 指定した日以降のチェックポイントを削除します。その日以前の変更日のログが追記された場合に呼び出します。
+     *
+     * @param date 日付
+     * @throws IOException 削除に失敗した場合
+     */
+    synchronized void dropFrom(LocalDate date) throws IOException {
+        // 前日の終わり時点のチェックポイントまでは追記されたログを含まない
+        for (LocalDate checkpoint : new ArrayList<>(dates().tailSet(date, true))) {
+            Files.deleteIfExists(pathOf(checkpoint));
+            dates.remove(checkpoint);
+        }
+    }
+
+    /**
+     * 指定した日以前で最も新しいチェックポイントの日付を取得します。
+     *
+     * @param date 日付
+     * @return チェックポイントの日付、無い場合はnull
+     * @throws IOException フォルダの読み込みに失敗した場合
+     */
+    synchronized LocalDate floor(LocalDate date) throws IOException {
+        return dates().floor(date);
+    }
+
+    /**
+     * チェックポイントを読み込みます。
+     * チェックポイントの作成に使ったログを読み始めた時点以降に墓標が追加されたタスクコードは、
+     * 削除前のログから求めたステータスのため含めません。
+     *
+     * @param date       チェックポイントの日付
+     * @param tombstones 現在の墓標（タスクコードごとの位置）
+     * @return タスクコードごとのステータス
+     * @throws IOException 読み込みに失敗した場合
+     */
+    Map<Integer, Integer> read(LocalDate date, Map<Integer, LogPosition> tombstones) throws IOException {
+        Map<Integer, Integer> statuses = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(pathOf(date), StandardCharsets.UTF_8)) {
+            LogPosition position = readPosition(reader);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (comma < 0) {
+                    continue;
+                }
+                try {
+                    int taskCode = Integer.parseInt(line.substring(0, comma));
+                    LogPosition deleted = tombstones.get(taskCode);
+                    if (deleted == null || deleted.compareTo(position) < 0) {
+                        statuses.put(taskCode, Integer.parseInt(line.substring(comma + 1)));
+                    }
+                } catch (NumberFormatException e) {
+                    // 書き込み途中の行は無視する
+                }
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * 先頭の「#世代,バイト位置」の行とヘッダー行を読み進めます。
+     *
+     * @return 作成に使ったログを読み始めた時点のlogs.csvの位置、記録していない場合は{@link LogPosition#MIN}
+     */
+    private LogPosition readPosition(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null || !line.startsWith(POSITION_PREFIX)) {
+            return LogPosition.MIN; // 記録していない場合は読み込んだ行がヘッダー行
+        }
+        reader.readLine(); // ヘッダー行を読み飛ばす
+        String[] values = line.substring(POSITION_PREFIX.length()).split(",");
+        try {
+            return values.length == 2 ? LogPosition.parse(values[0], values[1]) : LogPosition.MIN;
+        } catch (NumberFormatException e) {
+            return LogPosition.MIN;
+        }
+    }
+
+    /**
+     * チェックポイントを保存します。一時ファイルに書いてから置き換えるため、読み込み側が書き込み途中の内容を読むことはありません。
+     *
+     * @param date     チェックポイントの日付
+     * @param statuses タスクコードごとのステータス
+     * @param position 作成に使ったログを読み始めた時点のlogs.csvの位置
+     * @throws IOException 書き込みに失敗した場合
+     */
+    synchronized void write(LocalDate date, Map<Integer, Integer> statuses, LogPosition position) throws IOException {
+        Files.createDirectories(dir);
+        Path path = pathOf(date);
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            writer.write(POSITION_PREFIX + position);
+            writer.newLine();
+            writer.write(HEADER);
+            for (Map.Entry<Integer, Integer> entry : statuses.entrySet()) {
+                writer.newLine();
+                writer.write(entry.getKey() + "," + entry.getValue());
+            }
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dates().add(date);
+    }
+
+    /**
+     * 全てのチェックポイントから、指定した墓標より前のログから求めたタスクコードのステータスを取り除きます。
+     * コンパクションで墓標を消す前に呼び出し、墓標が無くなっても削除前のステータスを読まないようにします。
+     * 墓標より後に作成したチェックポイントの、タスクコードを再び使ったログから求めたステータスは残します。
+     *
+     * @param tombstones 消す墓標（タスクコードごとの位置）
+     * @throws IOException 読み書きに失敗した場合
+     */
+    synchronized void removeAll(Map<Integer, LogPosition> tombstones) throws IOException {
+        for (LocalDate date : new ArrayList<>(dates())) {
+            LogPosition position;
+            try (BufferedReader reader = Files.newBufferedReader(pathOf(date), StandardCharsets.UTF_8)) {
+                position = readPosition(reader);
+            }
+            Map<Integer, Integer> statuses = read(date, Map.of());
+            if (statuses.keySet().removeIf(taskCode -> tombstones.containsKey(taskCode)
+                    && tombstones.get(taskCode).compareTo(position) >= 0)) {
+                write(date, statuses, position);
+            }
+        }
+    }
+
+    /**
+     * 全てのチェックポイントを削除します。logs.csvが外部から書き換えられ、内容が一致しなくなった場合に呼び出します。
+     *
+     * @throws IOException 削除に失敗した場合
+     */
+    synchronized void clear() throws IOException {
+        for (LocalDate date : dates()) {
+            Files.deleteIfExists(pathOf(date));
+        }
+        dates.clear();
+    }
+
+    /**
+     * @return マニフェストのCRC32C・logs.csvの世代・サイズ・末尾のCRC32C、記録が無い場合はnull
+     */
+    private long[] readSource() throws IOException {
+        Path path = dir.resolve(SOURCE_FILE);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        String[] values = Files.readString(path, StandardCharsets.UTF_8).trim().split(",");
+        if (values.length != 4) {
+            return null;
+        }
+        try {
+            long[] source = new long[4];
+            for (int i = 0; i < 4; i++) {
+                source[i] = Long.parseLong(values[i]);
+            }
+            return source;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private long hotChecksum(long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(CsvChecksum.readBefore(hotPath, size, HOT_WINDOW_BYTES));
+        return crc.getValue();
+    }
+
+    /**
+     * logs.csvの指定した位置より後に追記されたログの、最も古い変更日を求めます。
+     *
+     * @param offset 記録したlogs.csvのサイズ
+     * @return 最も古い変更日、読み取れるログが無い場合はnull
+     */
+    private LocalDate earliestAppended(long offset) throws IOException {
+        LocalDate earliest = null;
+        try (FileChannel channel = FileChannel.open(hotPath, StandardOpenOption.READ)) {
+            channel.position(offset);
+            BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+            CsvChecksum.Scan scan = CsvChecksum.Scan.appended();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Log log = LogDataAccess.parseLine(line, scan);
+                if (log != null && (earliest == null || log.getChangeDate().isBefore(earliest))) {
+                    earliest = log.getChangeDate();
+                }
+            }
+        }
+        return earliest;
+    }
+
+    private TreeSet<LocalDate> dates() throws IOException {
+        if (dates == null) {
+            TreeSet<LocalDate> found = new TreeSet<>();
+            if (Files.isDirectory(dir)) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+                    for (Path path : stream) {
+                        String fileName = path.getFileName().toString();
+                        try {
+                            found.add(LocalDate.parse(fileName.substring(0, fileName.length() - EXTENSION.length())));
+                        } catch (DateTimeParseException e) {
+                            // チェックポイント以外のファイルは無視する
+                        }
+                    }
+                }
+            }
+            dates = found;
+        }
+        return dates;
+    }
+
+    private Path pathOf(LocalDate date) {
+        return dir.resolve(date + EXTENSION);
+    }
+}
@@ -0,0 +1,443 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import com.taskapp.model.Log;
+
+/**
+ * ログを1件ずつ読み進めるカーソルです。
+ * 各列は行のバイト列から直接読み取ったプリミティブ値として返し、Log・LocalDateは{@link #toLog()}を呼んだ場合だけ作成します。
+ * 読み込みには使い回しのバッファを使うため、件数を数える・絞り込む・集計するだけの処理ではほとんどオブジェクトを作りません。
+ * 行の区切りは{@link ByteScanner}で読み込んだ範囲ごとにまとめて探します。
+ * <pre>
+ * try (LogCursor cursor = logDataAccess.openCursor()) {
+ *     while (cursor.next()) {
+ *         if (cursor.getStatus() == 2) {
+ *             done++;
+ *         }
+ *     }
+ * }
+ * </pre>
+ * 形式が正しくない行・チェックサムが一致しない行・削除済みのタスクコードの行は読み飛ばします。
+ */
+public final class LogCursor implements AutoCloseable {
+    /** 0000-01-01から1970-01-01までの日数 */
+    private static final long DAYS_0000_TO_1970 = 719_528L;
+
+    /** 1回の探索で記録する改行の位置の数 */
+    private static final int NEWLINE_BATCH = 1024;
+
+    /** 入力を開く処理です。 */
+    interface Source {
+        /**
+         * @return 先頭にヘッダー行のあるログのCSV
+         * @throws IOException 開けない場合
+         */
+        InputStream open() throws IOException;
+
+        /**
+         * {@link #open()}で開いたCSVで読み飛ばす削除済みの行の判定を取得します。{@link #open()}の後に呼び出します。
+         *
+         * @return 判定
+         */
+        default LogTombstones.Mask mask() {
+            return LogTombstones.Mask.NONE;
+        }
+    }
+
+    private final Iterator<Source> sources;
+
+    private final long fromEpochDay;
+
+    private final long toEpochDay;
+
+    private final CRC32C crc = new CRC32C();
+
+    private final ByteScanner scanner;
+
+    /** バッファの中の改行の位置。nextNewlineからnewlineCountまでが未使用 */
+    private final int[] newlines = new int[NEWLINE_BATCH];
+
+    private int newlineCount;
+
+    private int nextNewline;
+
+    /** 改行を探し終えたバッファの位置 */
+    private int indexedTo;
+
+    private InputStream in;
+
+    /** 読んでいるファイルで読み飛ばす削除済みの行 */
+    private LogTombstones.Mask mask;
+
+    /** バッファの先頭より前に読み終えたバイト数 */
+    private long consumed;
+
+    private boolean eof;
+
+    private boolean header;
+
+    /** 読んでいるファイルのチェックサムの状態 */
+    private CsvChecksum.Scan scan;
+
+    private byte[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    private int lineStart;
+
+    private int lineEnd;
+
+    /** 列を読み取っている位置 */
+    private int cursor;
+
+    private int taskCode;
+
+    private int changeUserCode;
+
+    private int status;
+
+    private long changeEpochDay;
+
+    /**
+     * @param sources    読み込む順のログのCSV
+     * @param from       読み込む期間の開始日（この日を含む）
+     * @param to         読み込む期間の終了日（この日を含む）
+     * @param bufferSize 読み込みバッファの初期サイズ。1行がこれより長い場合は広げる
+     * @param scanner    改行を探す実装
+     */
+    LogCursor(List<Source> sources, LocalDate from, LocalDate to, int bufferSize, ByteScanner scanner) {
+        this.sources = sources.iterator();
+        this.scanner = scanner;
+        this.fromEpochDay = from.toEpochDay();
+        this.toEpochDay = to.toEpochDay();
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * 次のログに進みます。
+     * 読み込みに失敗した場合はスタックトレースを出力し、以降のログを読まずに終了します。
+     *
+     * @return 次のログがある場合はtrue、全て読み終えた場合はfalse
+     */
+    public boolean next() {
+        try {
+            while (true) {
+                if (in == null && !openNext()) {
+                    return false;
+                }
+                if (!readLine()) {
+                    closeCurrent();
+                    continue;
+                }
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                if (parseLine() && changeEpochDay >= fromEpochDay && changeEpochDay <= toEpochDay
+                        && !mask.hides(taskCode, consumed + lineStart)) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * @return タスクコード
+     */
+    public int getTaskCode() {
+        return taskCode;
+    }
+
+    /**
+     * @return 変更したユーザーのコード
+     */
+    public int getChangeUserCode() {
+        return changeUserCode;
+    }
+
+    /**
+     * @return 変更後のステータス
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return 変更日（1970-01-01からの日数）
+     * @see java.time.LocalDate#ofEpochDay(long)
+     */
+    public long getChangeEpochDay() {
+        return changeEpochDay;
+    }
+
+    /**
+     * 現在のログをLogとして作成します。
+     *
+     * @return 現在のログ
+     */
+    public Log toLog() {
+        return new Log(taskCode, changeUserCode, status, LocalDate.ofEpochDay(changeEpochDay));
+    }
+
+    /**
+     * 読み込み中のファイルを閉じ、残りのファイルを読まずに終了します。
+     */
+    @Override
+    public void close() {
+        closeCurrent();
+        while (sources.hasNext()) {
+            sources.next();
+        }
+    }
+
+    private boolean openNext() throws IOException {
+        if (!sources.hasNext()) {
+            return false;
+        }
+        Source source = sources.next();
+        in = source.open();
+        mask = source.mask();
+        consumed = 0;
+        eof = false;
+        header = true;
+        scan = new CsvChecksum.Scan();
+        position = 0;
+        limit = 0;
+        indexedTo = 0;
+        newlineCount = 0;
+        nextNewline = 0;
+        return true;
+    }
+
+    private void closeCurrent() {
+        if (in == null) {
+            return;
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        in = null;
+    }
+
+    /**
+     * 次の1行の範囲をlineStart・lineEndに設定します。行末の改行（CRLFのCRも含む）は範囲に含みません。
+     * 改行は読み込んだ範囲ごとにまとめて探し、見つけた位置を順に使います。
+     *
+     * @return 行がある場合はtrue、ファイルの終わりの場合はfalse
+     */
+    private boolean readLine() throws IOException {
+        while (true) {
+            if (nextNewline < newlineCount) {
+                int newline = newlines[nextNewline++];
+                setLine(position, newline);
+                position = newline + 1;
+                return true;
+            }
+            if (indexedTo < limit) {
+                newlineCount = scanner.indexAll(buffer, indexedTo, limit, (byte) '\n', newlines);
+                nextNewline = 0;
+                // 記録しきれなかった場合は、最後に見つけた改行の次から続きを探す
+                indexedTo = newlineCount == newlines.length ? newlines[newlineCount - 1] + 1 : limit;
+                continue;
+            }
+            if (eof) {
+                if (position < limit) {
+                    setLine(position, limit);
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            // 改行を全て使い終えたので、読み終えた部分を詰め、足りなければバッファを広げてから続きを読む
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                consumed += position;
+                limit -= position;
+                indexedTo = limit;
+                position = 0;
+            } else if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * 現在の行を「タスクコード,変更ユーザーコード,ステータス,変更日」として読み取ります。
+     *
+     * @return 形式が正しく、チェックサムがある場合は一致した場合はtrue
+     */
+    private boolean parseLine() {
+        int end = lineEnd;
+        int suffix = end - CsvChecksum.SUFFIX_LENGTH;
+        boolean sealed = suffix >= lineStart && buffer[suffix] == ',' && buffer[suffix + 1] == '#';
+        if (!scan.accepts(sealed)) {
+            return false;
+        }
+        if (sealed) {
+            crc.reset();
+            crc.update(buffer, lineStart, suffix - lineStart);
+            long expected = parseHex(suffix + 2);
+            if (expected == Long.MIN_VALUE || (int) crc.getValue() != expected) {
+                return false;
+            }
+            end = suffix;
+        }
+
+        cursor = lineStart;
+        long value = parseInt(end);
+        if (value == Long.MIN_VALUE || !skipComma(end)) {
+            return false;
+        }
+        taskCode = (int) value;
+        value = parseInt(end);
+        if (value == Long.MIN_VALUE || !skipComma(end)) {
+            return false;
+        }
+        changeUserCode = (int) value;
+        value = parseInt(end);
+        if (value == Long.MIN_VALUE || !skipComma(end)) {
+            return false;
+        }
+        status = (int) value;
+        value = parseDate(end);
+        if (value == Long.MIN_VALUE) {
+            return false;
+        }
+        changeEpochDay = value;
+        return true;
+    }
+
+    private boolean skipComma(int end) {
+        if (cursor < end && buffer[cursor] == ',') {
+            cursor++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 符号付きの10進数をカンマまたは行末まで読み取ります。
+     *
+     * @return 読み取った値、intの範囲の整数でない場合はLong.MIN_VALUE
+     */
+    private long parseInt(int end) {
+        boolean negative = false;
+        if (cursor < end && (buffer[cursor] == '-' || buffer[cursor] == '+')) {
+            negative = buffer[cursor] == '-';
+            cursor++;
+        }
+        int start = cursor;
+        long value = 0;
+        while (cursor < end && buffer[cursor] != ',') {
+            int digit = buffer[cursor] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+            if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+                return Long.MIN_VALUE;
+            }
+            cursor++;
+        }
+        if (cursor == start) {
+            return Long.MIN_VALUE;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * 行末までの「yyyy-MM-dd」を読み取ります。
+     *
+     * @return 1970-01-01からの日数、存在しない日付の場合はLong.MIN_VALUE
+     */
+    private long parseDate(int end) {
+        if (end - cursor != 10 || buffer[cursor + 4] != '-' || buffer[cursor + 7] != '-') {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(cursor, 4);
+        int month = digits(cursor + 5, 2);
+        int day = digits(cursor + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return Long.MIN_VALUE;
+        }
+        // LocalDate#toEpochDay()と同じ計算をLocalDateを作らずに行う
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private long parseHex(int start) {
+        int value = 0;
+        for (int i = start; i < start + 8; i++) {
+            int digit = Character.digit(buffer[i], 16);
+            if (digit < 0) {
+                return Long.MIN_VALUE;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
@@ -1,19 +1,90 @@
 package com.taskapp.dataaccess;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import com.taskapp.model.Log;
 
 public class LogDataAccess {
     private final String filePath;
 
+    private final LogArchive archive;
+
+    private final LogTombstones tombstones;
+
+    private final LogCheckpoints checkpoints;
+
+    /** logs.csvがこのバイト数を超えたらセグメントに切り出す（taskapp.log.rotateBytes） */
+    private static final long ROTATE_BYTES = Long.getLong("taskapp.log.rotateBytes", 8L * 1024 * 1024);
+
+    /** logs.csvの最も古いログがこの日数より前になったらセグメントに切り出す（taskapp.log.rotateDays、0で無効） */
+    private static final int ROTATE_DAYS = Integer.getInteger("taskapp.log.rotateDays", 0);
+
+    /** ログファイルへの書き込みと切り出しを排他するためのロック */
+    private static final Object FILE_LOCK = new Object();
+
+    /** 削除済みの行の割合がこの値以上になったらコンパクションする（taskapp.log.compactRatio） */
+    private static final double COMPACT_RATIO = Double.parseDouble(System.getProperty("taskapp.log.compactRatio", "0.25"));
+
+    /** チェックポイントを作成する間隔の日数（taskapp.log.checkpointDays、0で作成しない） */
+    private static final int CHECKPOINT_DAYS = Integer.getInteger("taskapp.log.checkpointDays", 7);
+
+    /** カーソルの読み込みバッファの初期サイズ */
+    private static final int CURSOR_BUFFER_SIZE = 64 * 1024;
+
+    private static final String HEADER = "Task_Code,Change_User_Code,Status,Change_Date";
+
+    private static final AsyncWriter WRITER = new AsyncWriter("log-writer");
+
+    private static final AsyncWriter COMPACTOR = new AsyncWriter("log-compactor");
+
+    /** コンパクションを同時に1つしか実行しないためのロック */
+    private final Object compactLock = new Object();
+
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    /** logs.csvを切り出した回数。コンパクション中に切り出しが起きたかの確認に使う */
+    private int rotations;
+
+    /** logs.csvの最も古い変更日。未確認の場合はnull */
+    private LocalDate hotMinDate;
+
+    private boolean hotMinDateLoaded;
+
+    /** 外部からの変更を監視している場合のウォッチャー */
+    private volatile CsvWatcher watcher;
 
     public LogDataAccess() {
         filePath = "app/src/main/resources/logs.csv";
+        archive = new LogArchive(Paths.get(filePath));
+        tombstones = new LogTombstones(Paths.get(filePath));
+        checkpoints = new LogCheckpoints(Paths.get(filePath));
+        recoverRotation();
     }
 
     /**
@@ -22,60 +93,737 @@ public class LogDataAccess {
      */
     public LogDataAccess(String filePath) {
         this.filePath = filePath;
+        this.archive = new LogArchive(Paths.get(filePath));
+        this.tombstones = new LogTombstones(Paths.get(filePath));
+        this.checkpoints = new LogCheckpoints(Paths.get(filePath));
+        recoverRotation();
+    }
+
+    /**
+     * 前回の切り出しがlogs.csvを空にする前に終了していた場合に、セグメントと重複した行を取り除きます。
+     *
+     * @see com.taskapp.dataaccess.LogArchive#recover()
+     */
+    private void recoverRotation() {
+        synchronized (FILE_LOCK) {
+            try {
+                archive.recover();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     /**
      * ログをCSVファイルに保存します。
+     * 書き込みは{@link #saveAsync(Log)}と同じ書き込み用スレッドで行い、先に登録した非同期の保存を追い越しません。
+     * 削除済みのタスクコードを再び使う場合も、墓標は削除より前の行だけを隠すため、古い行を取り除くのを待たずに追記します。
      *
      * @param log 保存するログ
      */
-     public void save(Log log) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
-            String line = createLine(log);
-            writer.newLine();
-            writer.write(line);
+    public void save(Log log) {
+        saveAll(List.of(log));
+    }
 
+    /**
+     * 複数のログを1回の書き込みでCSVファイルに保存します。
+     *
+     * @param logs 保存するログのリスト
+     */
+    public void saveAll(List<Log> logs) {
+        try {
+            WRITER.run(() -> write(logs));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-         } catch (IOException e) {
-             e.printStackTrace();
-         }
-     }
+    /**
+     * ログを書き込み用スレッドでCSVファイルに保存します。
+     * 呼び出し元のスレッドは書き込みの完了を待ちません。
+     *
+     * @param log 保存するログ
+     * @return 保存が完了したら完了するFuture
+     */
+    public CompletableFuture<Void> saveAsync(Log log) {
+        return WRITER.submit(() -> write(List.of(log)));
+    }
+
+    /**
+     * 追記前にlogs.csvが大きすぎる、または古すぎる場合はセグメントに切り出し、CSVファイルの末尾にログを追記します。
+     *
+     * @param logs 追記するログ
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void write(List<Log> logs) throws IOException {
+        if (logs.isEmpty()) {
+            return;
+        }
+        synchronized (FILE_LOCK) {
+            rotateIfNeeded();
+            watched(() -> {
+                try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
+                    for (Log log : logs) {
+                        writer.newLine();
+                        writer.write(createLine(log));
+                        if (hotMinDateLoaded && (hotMinDate == null || log.getChangeDate().isBefore(hotMinDate))) {
+                            hotMinDate = log.getChangeDate();
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 必要に応じてlogs.csvをセグメントに切り出します。
+     *
+     * @see com.taskapp.dataaccess.LogArchive#rotate()
+     * @throws IOException 読み書きに失敗した場合
+     */
+    private void rotateIfNeeded() throws IOException {
+        if (ROTATE_DAYS > 0 && !hotMinDateLoaded) {
+            hotMinDate = null;
+            forEachHot(log -> {
+                if (hotMinDate == null || log.getChangeDate().isBefore(hotMinDate)) {
+                    hotMinDate = log.getChangeDate();
+                }
+            });
+            hotMinDateLoaded = true;
+        }
+        boolean tooLarge = Files.size(Paths.get(filePath)) >= ROTATE_BYTES;
+        boolean tooOld = ROTATE_DAYS > 0 && hotMinDate != null && hotMinDate.isBefore(LocalDate.now().minusDays(ROTATE_DAYS));
+        if (tooLarge || tooOld) {
+            rotate();
+        }
+    }
+
+    /**
+     * logs.csvの内容を圧縮したセグメントに切り出し、logs.csvを空にします。
+     *
+     * @see com.taskapp.dataaccess.LogArchive#rotate()
+     */
+    public void rotate() {
+        synchronized (FILE_LOCK) {
+            try {
+                Map<Integer, LogPosition> dead = tombstones.snapshot();
+                long generation = CsvGeneration.read(Paths.get(filePath));
+                watched(() -> keepingCheckpoints(() -> archive.rotate(LogTombstones.hotMask(dead, generation))));
+                rotations++;
+                hotMinDate = null;
+                hotMinDateLoaded = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
 
     /**
      * すべてのログを取得します。
+     * 切り出し済みのセグメントを古い順に読み、最後にlogs.csvを読みます。
+     * 削除済みのタスクコードのログは含みません。
      *
      * @return すべてのログのリスト
      */
-    // public List<Log> findAll() {
-    //     try () {
+    public List<Log> findAll() {
+        List<Log> logs = new ArrayList<>();
+        forEach(logs::add);
+        return logs;
+    }
+
+    /**
+     * すべてのログを1件ずつ読み込み、リストに保持せずに処理します。
+     * 切り出し済みのセグメントを古い順に読み、最後にlogs.csvを読みます。削除済みのタスクコードのログは処理しません。
+     *
+     * @param action 各ログに対する処理
+     */
+    public void forEach(Consumer<Log> action) {
+        try (LogCursor cursor = openCursor()) {
+            while (cursor.next()) {
+                action.accept(cursor.toLog());
+            }
+        }
+    }
+
+    /**
+     * すべてのログを読み進めるカーソルを開きます。
+     * 切り出し済みのセグメントを古い順に読み、最後にlogs.csvを読みます。削除済みのタスクコードのログは読み飛ばします。
+     *
+     * @see com.taskapp.dataaccess.LogCursor
+     * @return カーソル。読み終えたら閉じてください
+     */
+    public LogCursor openCursor() {
+        return openCursor(LocalDate.MIN, LocalDate.MAX);
+    }
+
+    /**
+     * 変更日が指定した期間に含まれるログを読み進めるカーソルを開きます。
+     * 変更日の範囲が重ならないセグメントは読み込みません。
+     *
+     * @see com.taskapp.dataaccess.LogCursor
+     * @param from 期間の開始日（この日を含む）
+     * @param to   期間の終了日（この日を含む）
+     * @return カーソル。読み終えたら閉じてください
+     */
+    public LogCursor openCursor(LocalDate from, LocalDate to) {
+        return openCursor(segment -> segment.overlaps(from, to), from, to);
+    }
+
+    /**
+     * 指定したセグメントとlogs.csvを読み進めるカーソルを開きます。
+     * 各ファイルでは、墓標より前に書かれた削除済みのタスクコードの行を読み飛ばします。
+     *
+     * @see com.taskapp.dataaccess.LogTombstones
+     * @param includes 読み込むセグメントの判定
+     * @param from     読み込む期間の開始日（この日を含む）
+     * @param to       読み込む期間の終了日（この日を含む）
+     * @return カーソル
+     */
+    private LogCursor openCursor(Predicate<LogArchive.Segment> includes, LocalDate from, LocalDate to) {
+        Map<Integer, LogPosition> dead = tombstones.snapshot();
+        List<LogCursor.Source> sources = new ArrayList<>();
+        try {
+            for (LogArchive.Segment segment : archive.segments()) {
+                if (includes.test(segment)) {
+                    LogTombstones.Mask mask = LogTombstones.segmentMask(dead, segment.hotGeneration);
+                    sources.add(new LogCursor.Source() {
+                        @Override
+                        public InputStream open() throws IOException {
+                            return archive.open(segment);
+                        }
+
+                        @Override
+                        public LogTombstones.Mask mask() {
+                            return mask;
+                        }
+                    });
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        sources.add(new LogCursor.Source() {
+            private LogTombstones.Mask mask;
+
+            @Override
+            public InputStream open() throws IOException {
+                // 開いたファイルと世代が食い違わないよう、切り出し・コンパクションと排他して開く
+                synchronized (FILE_LOCK) {
+                    Path hotPath = Paths.get(filePath);
+                    mask = LogTombstones.hotMask(dead, CsvGeneration.read(hotPath));
+                    return Files.newInputStream(hotPath);
+                }
+            }
+
+            @Override
+            public LogTombstones.Mask mask() {
+                return mask;
+            }
+        });
+        return new LogCursor(sources, from, to, CURSOR_BUFFER_SIZE, ByteScanner.DEFAULT);
+    }
+
+    /**
+     * 指定したタスクコードのログを取得します。
+     * タスクコードの範囲に含まれないセグメントは読み込みません。
+     *
+     * @param taskCode タスクコード
+     * @return 該当するログのリスト
+     */
+    public List<Log> findByTaskCode(int taskCode) {
+        List<Log> logs = new ArrayList<>();
+        try (LogCursor cursor = openCursor(segment -> segment.mayContain(taskCode), LocalDate.MIN, LocalDate.MAX)) {
+            while (cursor.next()) {
+                if (cursor.getTaskCode() == taskCode) {
+                    logs.add(cursor.toLog());
+                }
+            }
+        }
+        return logs;
+    }
 
-    //     } catch (IOException e) {
-    //         e.printStackTrace();
-    //     }
-    //     return null;
-    // }
+    /**
+     * 変更日が指定した期間に含まれるログを取得します。
+     * 変更日の範囲が重ならないセグメントは読み込みません。
+     *
+     * @param from 期間の開始日（この日を含む）
+     * @param to   期間の終了日（この日を含む）
+     * @return 該当するログのリスト
+     */
+    public List<Log> findByDateRange(LocalDate from, LocalDate to) {
+        List<Log> logs = new ArrayList<>();
+        try (LogCursor cursor = openCursor(from, to)) {
+            while (cursor.next()) {
+                logs.add(cursor.toLog());
+            }
+        }
+        return logs;
+    }
+
+    /**
+     * 指定した日の終わり時点の各タスクのステータスを、ログを再生して求めます。
+     * 指定した日以前で最も新しいチェックポイントを読み、それより後のログだけを変更日順（同じ日はファイルの順）に反映します。
+     * 再生の途中でチェックポイントの日付（1970-01-01からtaskapp.log.checkpointDaysの倍数の日数の日）を通過した場合は、
+     * その時点の状態をチェックポイントとして保存し、次回以降の再生を短くします。
+     * ログは変更した当日の日付で追記されるため、チェックポイントはまだログが増えうる今日以降の日付には作成しません。
+     * 削除済みのタスクコードと、その日までにログが無いタスクは含みません。
+     *
+     * @param date 日付
+     * @return タスクコードごとのステータス（タスクコード順）
+     */
+    public SortedMap<Integer, Integer> findStatusesAt(LocalDate date) {
+        SortedMap<Integer, Integer> statuses = new TreeMap<>();
+        try {
+            // 読み始める時点の位置をチェックポイントに記録し、以降に削除されたタスクコードを読み込み時に除けるようにする
+            LogPosition position;
+            synchronized (FILE_LOCK) {
+                checkpoints.validate(archive.manifestChecksum());
+                position = LogPosition.of(Paths.get(filePath));
+            }
+            LocalDate base = checkpoints.floor(date);
+            if (base != null) {
+                statuses.putAll(checkpoints.read(base, tombstones.snapshot()));
+            }
+            List<Log> logs = findByDateRange(base == null ? LocalDate.MIN : base.plusDays(1), date);
+            // 安定ソートのため、同じ日のログはファイルの順のまま残る
+            logs.sort(Comparator.comparing(Log::getChangeDate));
+
+            // ログは変更日順のため、反映済みのログの変更日から次のログの前日までのチェックポイントは、次のログを反映する直前の状態になる
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            LocalDate last = date.isBefore(yesterday) ? date : yesterday;
+            LocalDate applied = base;
+            LocalDate written = base;
+            for (Log log : logs) {
+                LocalDate dayBefore = log.getChangeDate().minusDays(1);
+                written = writeCheckpoint(dayBefore.isBefore(last) ? dayBefore : last, applied, written, statuses,
+                        position);
+                statuses.put(log.getTaskCode(), log.getStatus());
+                applied = log.getChangeDate();
+            }
+            writeCheckpoint(last, applied, written, statuses, position);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return statuses;
+    }
+
+    /**
+     * 指定した日以前で最も新しいチェックポイントの日付が、反映済みのログの変更日以降で
+     * 最後に保存したチェックポイントより新しい場合に保存します。
+     *
+     * @param date     日付
+     * @param applied  反映済みのログの最後の変更日、無い場合はnull
+     * @param written  最後に保存したチェックポイントの日付、無い場合はnull
+     * @param statuses 現在の各タスクのステータス
+     * @param position ログを読み始めた時点のlogs.csvの位置
+     * @return 最後に保存したチェックポイントの日付
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private LocalDate writeCheckpoint(LocalDate date, LocalDate applied, LocalDate written,
+            Map<Integer, Integer> statuses, LogPosition position) throws IOException {
+        if (CHECKPOINT_DAYS <= 0 || statuses.isEmpty()) {
+            return written;
+        }
+        LocalDate checkpoint = LocalDate.ofEpochDay(Math.floorDiv(date.toEpochDay(), CHECKPOINT_DAYS) * CHECKPOINT_DAYS);
+        if (applied != null && checkpoint.isBefore(applied) || written != null && !checkpoint.isAfter(written)) {
+            return written;
+        }
+        checkpoints.write(checkpoint, statuses, position);
+        return checkpoint;
+    }
 
     /**
      * 指定したタスクコードに該当するログを削除します。
+     * その時点のlogs.csvの末尾の位置を持つ墓標を1行追記するだけで、以降の読み込みではそれより前に書かれたログを返しません。
+     * 先に登録した非同期の保存も削除の対象にするため、書き込み用スレッドで墓標を追加します。
+     * 行はコンパクション用スレッドが削除済みの行の割合を確認し、しきい値を超えていれば取り除きます。
      *
      * @see #findAll()
+     * @see com.taskapp.dataaccess.LogTombstones
      * @param taskCode 削除するログのタスクコード
      */
-    // public void deleteByTaskCode(int taskCode) {
-    //     try () {
+    public void deleteByTaskCode(int taskCode) {
+        try {
+            WRITER.run(() -> {
+                synchronized (FILE_LOCK) {
+                    tombstones.add(taskCode, LogPosition.of(Paths.get(filePath)));
+                }
+            });
+            scheduleCompaction();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * コンパクション用スレッドに削除済みの行の割合の確認を登録します。
+     * 確認待ちの間に削除が続いても、登録は1回にまとめます。
+     */
+    private void scheduleCompaction() {
+        if (!compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        COMPACTOR.submit(() -> {
+            compactionScheduled.set(false);
+            compactIfNeeded();
+        }).exceptionally(e -> {
+            e.printStackTrace();
+            return null;
+        });
+    }
+
+    /**
+     * 削除済みの行の割合がしきい値以上の場合にコンパクションします。
+     *
+     * @throws IOException 読み書きに失敗した場合
+     */
+    private void compactIfNeeded() throws IOException {
+        Map<Integer, LogPosition> dead = tombstones.snapshot();
+        if (dead.isEmpty()) {
+            return;
+        }
+        long[] rows = new long[2]; // 0: 全ての行, 1: 削除済みの行
+        for (LogArchive.Segment segment : archive.segments()) {
+            LogTombstones.Mask mask = LogTombstones.segmentMask(dead, segment.hotGeneration);
+            if (mask.mayHide(segment)) {
+                archive.scan(segment, log -> {
+                    rows[0]++;
+                    if (mask.hides(log.getTaskCode(), 0)) {
+                        rows[1]++;
+                    }
+                });
+            } else {
+                rows[0] += segment.rows;
+            }
+        }
+        Path hotPath = Paths.get(filePath);
+        LogTombstones.Mask mask;
+        InputStream in;
+        synchronized (FILE_LOCK) {
+            mask = LogTombstones.hotMask(dead, CsvGeneration.read(hotPath));
+            in = Files.newInputStream(hotPath);
+        }
+        try (in) {
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
+            forEachLine(in, 0, Long.MAX_VALUE, (line, offset) -> {
+                Log log = parseLine(line, scan);
+                if (log != null) {
+                    rows[0]++;
+                    if (mask.hides(log.getTaskCode(), offset)) {
+                        rows[1]++;
+                    }
+                }
+            });
+        }
+        if (rows[0] == 0 || (double) rows[1] / rows[0] >= COMPACT_RATIO) {
+            compact(dead);
+        }
+    }
 
-    //     } catch (IOException e) {
-    //         e.printStackTrace();
-    //     }
-    // }
+    /**
+     * セグメントとlogs.csvから墓標より前に書かれた行を取り除き、墓標を消します。
+     * 墓標より後に同じタスクコードで追記された行は残します。
+     * 追記を止めるのはlogs.csvの書き直し中に追記された末尾を写して置き換える間だけです。
+     *
+     * @param dead 取り除く墓標（タスクコードごとの位置）
+     * @return 取り除き終えた場合はtrue、途中で切り出しや墓標の追加が起きたため墓標を残した場合はfalse
+     * @throws IOException 読み書きに失敗した場合
+     */
+    private boolean compact(Map<Integer, LogPosition> dead) throws IOException {
+        synchronized (compactLock) {
+            int rotationMark;
+            synchronized (FILE_LOCK) {
+                rotationMark = rotations;
+            }
+            for (LogArchive.Segment segment : archive.segments()) {
+                LogTombstones.Mask mask = LogTombstones.segmentMask(dead, segment.hotGeneration);
+                if (!mask.mayHide(segment)) {
+                    continue;
+                }
+                LogArchive.Segment compacted = archive.compact(segment, taskCode -> mask.hides(taskCode, 0));
+                if (compacted != segment) {
+                    synchronized (FILE_LOCK) {
+                        keepingCheckpoints(() -> archive.replace(compacted));
+                    }
+                }
+            }
+            if (!compactHot(dead, rotationMark)) {
+                return false;
+            }
+            // 墓標を消すとチェックポイントの削除前のステータスを除けなくなるため、先にチェックポイントから取り除く
+            checkpoints.removeAll(dead);
+            tombstones.removeAll(dead);
+            return true;
+        }
+    }
+
+    /**
+     * logs.csvから墓標より前に書かれた行を取り除きます。
+     * 書き直しはロックを取らずに行い、その間に追記された末尾だけをロックを取って写してから置き換えます。
+     * 置き換えで行の位置が変わるため、書き直している間に追加された墓標がある場合は置き換えません。
+     *
+     * @param dead         取り除く墓標（タスクコードごとの位置）
+     * @param rotationMark コンパクション開始時の切り出し回数
+     * @return 置き換えた場合はtrue、切り出しか墓標の追加が起きていた場合はfalse
+     * @throws IOException 読み書きに失敗した場合
+     */
+    private boolean compactHot(Map<Integer, LogPosition> dead, int rotationMark) throws IOException {
+        Path hotPath = Paths.get(filePath);
+        Path tempPath = hotPath.resolveSibling(hotPath.getFileName() + ".compact");
+        try {
+            long end;
+            LogTombstones.Mask mask;
+            synchronized (FILE_LOCK) {
+                if (rotations != rotationMark) {
+                    return false;
+                }
+                end = Files.size(hotPath);
+                mask = LogTombstones.hotMask(dead, CsvGeneration.read(hotPath));
+            }
+            try (FileChannel channel = FileChannel.open(hotPath, StandardOpenOption.READ);
+                    BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                copyLiveLines(channel, 0, end, mask, writer);
+            }
+            synchronized (FILE_LOCK) {
+                if (rotations != rotationMark || !tombstones.snapshot().equals(dead)) {
+                    return false;
+                }
+                // 書き直している間に追記された末尾を写してから置き換える
+                try (FileChannel channel = FileChannel.open(hotPath, StandardOpenOption.READ);
+                        BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8,
+                                StandardOpenOption.APPEND)) {
+                    copyLiveLines(channel, end, Files.size(hotPath), mask, writer);
+                }
+                watched(() -> keepingCheckpoints(() -> {
+                    CsvGeneration.bump(hotPath);
+                    Files.move(tempPath, hotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }));
+                hotMinDateLoaded = false;
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    /**
+     * logs.csvの指定した範囲の行のうち、取り除かない行を書き出します。
+     * 先頭から読む場合はヘッダー行を読み飛ばします。形式が正しくない行はそのまま残します。
+     *
+     * @param channel logs.csvのチャネル
+     * @param start   読み込み開始位置（行の区切り）
+     * @param end     読み込み終了位置（行の区切り）
+     * @param dead    取り除く行の判定
+     * @param writer  書き出し先
+     * @throws IOException 読み書きに失敗した場合
+     */
+    private void copyLiveLines(FileChannel channel, long start, long end, LogTombstones.Mask dead,
+            BufferedWriter writer) throws IOException {
+        CsvChecksum.Scan scan = new CsvChecksum.Scan();
+        forEachLine(Channels.newInputStream(channel.position(start)), start, end, (line, offset) -> {
+            Log log = parseLine(line, scan);
+            if (log == null || !dead.hides(log.getTaskCode(), offset)) {
+                writer.newLine();
+                writer.write(line);
+            }
+        });
+    }
+
+    /**
+     * 行とその開始位置を受け取る処理です。
+     */
+    interface LineAction {
+        /**
+         * @param line   行（行末の改行を含まない）
+         * @param offset ファイルの先頭からの行の開始位置
+         * @throws IOException 処理に失敗した場合
+         */
+        void accept(String line, long offset) throws IOException;
+    }
+
+    /**
+     * ログのCSVの指定した範囲の行を、行の開始位置とともに1行ずつ読み込みます。
+     * 先頭から読む場合はヘッダー行を読み飛ばします。空の行は読み飛ばし、行末のCRは行に含めません。
+     *
+     * @param in     読み込み開始位置まで読み進めたストリーム
+     * @param start  読み込み開始位置（行の区切り）
+     * @param end    読み込み終了位置（行の区切り）
+     * @param action 各行に対する処理
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static void forEachLine(InputStream in, long start, long end, LineAction action) throws IOException {
+        InputStream buffered = new BufferedInputStream(in);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        boolean header = start == 0;
+        long lineStart = start;
+        for (long position = start;; position++) {
+            int b = position < end ? buffered.read() : -1;
+            if (b != '\n' && b != -1) {
+                if (b != '\r') {
+                    line.write(b);
+                }
+                continue;
+            }
+            String text = line.toString(StandardCharsets.UTF_8);
+            line.reset();
+            if (header) {
+                header = false;
+            } else if (!text.isEmpty()) {
+                action.accept(text, lineStart);
+            }
+            if (b == -1) {
+                return;
+            }
+            lineStart = position + 1;
+        }
+    }
+
+    /**
+     * logs.csvの外部からの変更を監視し、保持している最も古い変更日に反映します。
+     * 追記された場合は追記された行だけを確認し、書き換えられた場合は次の書き込み時に読み直します。
+     *
+     * @see com.taskapp.dataaccess.CsvWatcher#register(Path, CsvWatcher.Listener)
+     * @param csvWatcher 監視に使うウォッチャー
+     * @throws IOException 監視を始められない場合
+     */
+    public void watch(CsvWatcher csvWatcher) throws IOException {
+        this.watcher = csvWatcher;
+        csvWatcher.register(Paths.get(filePath), new CsvWatcher.Listener() {
+            @Override
+            public void onAppend(List<String> lines) {
+                synchronized (FILE_LOCK) {
+                    CsvChecksum.Scan scan = CsvChecksum.Scan.appended();
+                    LocalDate earliest = null;
+                    for (String line : lines) {
+                        Log log = parseLine(line, scan);
+                        if (log == null) {
+                            continue;
+                        }
+                        if (earliest == null || log.getChangeDate().isBefore(earliest)) {
+                            earliest = log.getChangeDate();
+                        }
+                        if (hotMinDateLoaded && (hotMinDate == null || log.getChangeDate().isBefore(hotMinDate))) {
+                            hotMinDate = log.getChangeDate();
+                        }
+                    }
+                    // 追記されたログの変更日以降のチェックポイントは、そのログを含まないため使えない
+                    if (earliest != null) {
+                        try {
+                            checkpoints.dropFrom(earliest);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void onRewrite() {
+                synchronized (FILE_LOCK) {
+                    hotMinDateLoaded = false;
+                }
+                // 書き換えられた内容とチェックポイントが一致する保証が無いため、全て作り直す
+                try {
+                    checkpoints.clear();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * 切り出し・コンパクションのようにログの内容を保ったままlogs.csvやマニフェストを書き換え、チェックポイントを使い続けられるようにします。
+     * 書き換えの前にチェックポイントを確かめ、書き換えた後の状態を記録し直します。FILE_LOCKを取って呼び出します。
+     *
+     * @see com.taskapp.dataaccess.LogCheckpoints#validate(long)
+     * @param write 書き換える処理
+     * @throws IOException 読み書きに失敗した場合
+     */
+    private void keepingCheckpoints(AsyncWriter.Write write) throws IOException {
+        checkpoints.validate(archive.manifestChecksum());
+        write.run();
+        checkpoints.restamp(archive.manifestChecksum());
+    }
+
+    /**
+     * 自身の書き込みをウォッチャーに知らせ、外部からの変更として扱われないようにします。
+     * 書き込みの間はウォッチャーに確認を止めさせ、追記や切り出し・コンパクションによる置き換えの途中の内容を
+     * 書き換えとして通知させません。通知されるとチェックポイントが全て破棄されます。
+     *
+     * @see com.taskapp.dataaccess.CsvWatcher#beginWrite(Path)
+     * @param write 書き込み処理
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void watched(AsyncWriter.Write write) throws IOException {
+        CsvWatcher csvWatcher = watcher;
+        if (csvWatcher == null) {
+            write.run();
+            return;
+        }
+        Path path = Paths.get(filePath);
+        csvWatcher.beginWrite(path);
+        try {
+            write.run();
+        } finally {
+            csvWatcher.acknowledge(path);
+        }
+    }
+
+    /**
+     * logs.csvの全てのログを読み込みます。
+     *
+     * @param action 各ログに対する処理
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private void forEachHot(Consumer<Log> action) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            reader.readLine(); // ヘッダー行を読み飛ばす
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
+            while ((line = reader.readLine()) != null) {
+                Log log = parseLine(line, scan);
+                if (log != null) {
+                    action.accept(log);
+                }
+            }
+        }
+    }
+
+    /**
+     * CSVの1行をログに変換します。
+     *
+     * @param line CSVの1行
+     * @param scan 読んでいるファイルのチェックサムの状態
+     * @return 変換したログ、形式が正しくない行の場合はnull
+     */
+    static Log parseLine(String line, CsvChecksum.Scan scan) {
+        line = scan.strip(line);
+        if (line == null) {
+            return null;
+        }
+        String[] values = line.split(",");
+        if (values.length != 4) {
+            return null;
+        }
+        try {
+            return new Log(Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]),
+                    LocalDate.parse(values[3]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
 
     /**
      * ログをCSVファイルに書き込むためのフォーマットを作成します。
+     * taskapp.csv.checksumが有効な場合は末尾にチェックサムを付けます。
      *
      * @param log フォーマットを作成するログ
      * @return CSVファイルに書き込むためのフォーマット
      */
-     private String createLine(Log log) {
-        return log.getTaskCode() + "," + log.getStatus() + "," + log.getChangeUserCode() + "," + log.getChangeDate();
+    private String createLine(Log log) {
+        return CsvChecksum.sealIfEnabled(
+                log.getTaskCode() + "," + log.getChangeUserCode() + "," + log.getStatus() + "," + log.getChangeDate());
     }
-     }
+}
@@ -0,0 +1,73 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * logs.csvの中の位置を、世代とその世代でのバイト位置の組で表します。
+ * 世代は切り出し・コンパクションで進み、同じ世代の中では追記で位置が進むため、位置の大小で書き込みの前後を比べられます。
+ *
+ * @see com.taskapp.dataaccess.CsvGeneration
+ */
+final class LogPosition implements Comparable<LogPosition> {
+    /** どの位置よりも前の位置 */
+    static final LogPosition MIN = new LogPosition(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    final long generation;
+
+    final long offset;
+
+    LogPosition(long generation, long offset) {
+        this.generation = generation;
+        this.offset = offset;
+    }
+
+    /**
+     * logs.csvの現在の末尾の位置を取得します。呼び出し元でlogs.csvへの書き込みと排他してください。
+     *
+     * @param hotPath logs.csvのパス
+     * @return 現在の世代とファイルサイズの位置
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static LogPosition of(Path hotPath) throws IOException {
+        return new LogPosition(CsvGeneration.read(hotPath), Files.size(hotPath));
+    }
+
+    /**
+     * 「世代,バイト位置」の形式の文字列を読み取ります。
+     *
+     * @param generation 世代
+     * @param offset     バイト位置
+     * @return 位置
+     * @throws NumberFormatException 数値でない場合
+     */
+    static LogPosition parse(String generation, String offset) {
+        return new LogPosition(Long.parseLong(generation.trim()), Long.parseLong(offset.trim()));
+    }
+
+    @Override
+    public int compareTo(LogPosition other) {
+        int compared = Long.compare(generation, other.generation);
+        return compared != 0 ? compared : Long.compare(offset, other.offset);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof LogPosition)) {
+            return false;
+        }
+        LogPosition other = (LogPosition) obj;
+        return generation == other.generation && offset == other.offset;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(generation) * 31 + Long.hashCode(offset);
+    }
+
+    @Override
+    public String toString() {
+        return generation + "," + offset;
+    }
+}
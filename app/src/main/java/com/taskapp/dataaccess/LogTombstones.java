@@ -0,0 +1,224 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ログを削除したタスクコード（墓標）を管理します。
+ * 削除時はlogs.csvを書き直さずに、墓標ファイルへ「タスクコード,世代,バイト位置」を1行追記するだけです。
+ * 墓標は削除した時点のlogs.csvの末尾の位置を持ち、読み込み側はそれより前に書かれた行だけを読み飛ばします。
+ * そのため削除したタスクコードを再び使うログは、古い行を取り除くのを待たずに追記できます。
+ * <ul>
+ * <li>logs.csvの行は、世代が墓標より前の場合、または同じ世代で墓標の位置より前から始まる場合に読み飛ばす</li>
+ * <li>セグメントの行は、切り出したlogs.csvの世代が墓標より前の場合に読み飛ばす。墓標と同じ世代から切り出す際は、読み飛ばす行をセグメントに入れない</li>
+ * </ul>
+ * 実際に行を取り除くのはコンパクションの役割で、取り除き終えた墓標は{@link #removeAll(Map)}で消します。
+ */
+class LogTombstones {
+    private final Path path;
+
+    private final Map<Integer, LogPosition> positions = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    /**
+     * @param hotPath logs.csvのパス。墓標は同じフォルダの「ファイル名.tombstones」に保存する
+     */
+    LogTombstones(Path hotPath) {
+        String fileName = hotPath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot < 0 ? fileName : fileName.substring(0, dot);
+        this.path = hotPath.resolveSibling(baseName + ".tombstones");
+    }
+
+    /**
+     * 初回呼び出し時に墓標ファイルを読み込みます。
+     * ログを読まないコマンドではファイルを開かずに済むよう、コンストラクタでは読み込みません。
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (Files.exists(path)) {
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] values = line.split(",");
+                        if (values.length != 3) {
+                            continue;
+                        }
+                        try {
+                            // 同じタスクコードを再び削除した場合は、後の位置がそれまでの行を全て隠す
+                            positions.merge(Integer.parseInt(values[0].trim()), LogPosition.parse(values[1], values[2]),
+                                    (current, added) -> current.compareTo(added) >= 0 ? current : added);
+                        } catch (NumberFormatException e) {
+                            // 書き込み途中で終了した行は無視する
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * タスクコードの墓標を追加します。既に墓標がある場合は指定した位置に進めます。
+     * 呼び出し元でlogs.csvへの書き込みと排他し、その時点のlogs.csvの末尾の位置を渡してください。
+     *
+     * @param taskCode ログを削除したタスクコード
+     * @param position 削除した時点のlogs.csvの末尾の位置
+     * @throws IOException 書き込みに失敗した場合
+     */
+    synchronized void add(int taskCode, LogPosition position) throws IOException {
+        load();
+        if (position.equals(positions.get(taskCode))) {
+            return;
+        }
+        Files.writeString(path, taskCode + "," + position + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        positions.put(taskCode, position);
+    }
+
+    /**
+     * 現在の墓標の一覧を取得します。
+     *
+     * @return タスクコードごとの墓標の位置（変更不可）
+     */
+    Map<Integer, LogPosition> snapshot() {
+        load();
+        return Map.copyOf(positions);
+    }
+
+    /**
+     * コンパクションで行を取り除き終えた墓標を消します。墓標が無くなった場合はファイルを削除します。
+     * 取り除いている間に同じタスクコードが再び削除され、位置が変わった墓標は残します。
+     *
+     * @param removed 消す墓標（タスクコードごとの位置）
+     * @throws IOException 書き込みに失敗した場合
+     */
+    synchronized void removeAll(Map<Integer, LogPosition> removed) throws IOException {
+        load();
+        removed.forEach(positions::remove);
+        if (positions.isEmpty()) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (Map.Entry<Integer, LogPosition> entry : positions.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 指定した世代のlogs.csvで読み飛ばす行の判定を作成します。
+     *
+     * @param tombstones 墓標（タスクコードごとの位置）
+     * @param generation 読み込むlogs.csvの世代
+     * @return 判定
+     */
+    static Mask hotMask(Map<Integer, LogPosition> tombstones, long generation) {
+        return Mask.of(tombstones, generation, true);
+    }
+
+    /**
+     * 指定した世代のlogs.csvから切り出したセグメントで読み飛ばす行の判定を作成します。
+     * セグメントの行は位置を問わないため、{@link Mask#hides(int, long)}の位置には0を渡してください。
+     *
+     * @param tombstones 墓標（タスクコードごとの位置）
+     * @param generation セグメントを切り出したlogs.csvの世代
+     * @return 判定
+     */
+    static Mask segmentMask(Map<Integer, LogPosition> tombstones, long generation) {
+        return Mask.of(tombstones, generation, false);
+    }
+
+    /**
+     * 1つのファイルで読み飛ばす行の判定です。タスクコードごとに、これより前から始まる行を読み飛ばす位置を持ちます。
+     */
+    static final class Mask {
+        /** 何も読み飛ばさない判定 */
+        static final Mask NONE = new Mask(new int[0], new long[0]);
+
+        /** 墓標のあるタスクコード（昇順） */
+        private final int[] codes;
+
+        private final long[] limits;
+
+        private Mask(int[] codes, long[] limits) {
+            this.codes = codes;
+            this.limits = limits;
+        }
+
+        private static Mask of(Map<Integer, LogPosition> tombstones, long generation, boolean hot) {
+            int[] codes = tombstones.entrySet().stream()
+                    .filter(entry -> entry.getValue().generation > generation
+                            || hot && entry.getValue().generation == generation)
+                    .mapToInt(Map.Entry::getKey).sorted().toArray();
+            if (codes.length == 0) {
+                return NONE;
+            }
+            long[] limits = new long[codes.length];
+            for (int i = 0; i < codes.length; i++) {
+                LogPosition position = tombstones.get(codes[i]);
+                limits[i] = position.generation > generation ? Long.MAX_VALUE : position.offset;
+            }
+            return new Mask(codes, limits);
+        }
+
+        /**
+         * 行を読み飛ばすか判定します。ロックを取らないため、1行ごとに呼び出せます。
+         *
+         * @param taskCode 行のタスクコード
+         * @param offset   ファイルの先頭からの行の開始位置
+         * @return 読み飛ばす場合はtrue
+         */
+        boolean hides(int taskCode, long offset) {
+            if (codes.length == 0) {
+                return false;
+            }
+            int index = Arrays.binarySearch(codes, taskCode);
+            return index >= 0 && offset < limits[index];
+        }
+
+        /**
+         * セグメントに読み飛ばす行がありうるか判定します。
+         *
+         * @param segment セグメント
+         * @return タスクコードの範囲に墓標のあるタスクコードが含まれる場合はtrue
+         */
+        boolean mayHide(LogArchive.Segment segment) {
+            for (int code : codes) {
+                if (segment.mayContain(code)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return 何も読み飛ばさない場合はtrue
+         */
+        boolean isEmpty() {
+            return codes.length == 0;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * タスクをJavaヒープの外（ダイレクトバッファ）に保持する表です。
+ * タスク1件につきオブジェクトを作らないため、件数が増えてもヒープ使用量とGCの停止時間はほぼ変わりません。
+ * <ul>
+ * <li>レコード領域：コード・ステータス・担当ユーザーコード・バージョン・タスク名の位置・長さ・確保した長さを1件28バイトの固定長で保持する</li>
+ * <li>名前領域：タスク名をUTF-8のバイト列で保持する。確保済みの長さに収まる名前は同じ位置に上書きし、
+ * 使われなくなった領域が半分を超えたら詰め直すため、更新を繰り返しても大きくなり続けない</li>
+ * <li>コードからレコードへの索引：int配列のオープンアドレス法のハッシュ表</li>
+ * </ul>
+ * 削除したレコードも半分を超えたら、登録順を保ったまま詰め直し、索引を作り直します。
+ * 値は{@link TaskView}を通して参照し、Taskオブジェクトは必要なときだけ作成します。
+ */
+public class OffHeapTaskTable {
+    private static final int RECORD_SIZE = 28;
+    private static final int CODE = 0;
+    private static final int STATUS = 4;
+    private static final int REP_USER_CODE = 8;
+    private static final int VERSION = 12;
+    private static final int NAME_OFFSET = 16;
+    private static final int NAME_LENGTH = 20;
+    private static final int NAME_CAPACITY = 24;
+
+    /** 名前領域を詰め直す、使われなくなった領域の最小バイト数 */
+    private static final int MIN_COMPACT_BYTES = 16 * 1024;
+
+    /** レコード領域を詰め直す、削除済みレコードの最小件数 */
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    /** 削除済みレコードのステータス */
+    private static final int DELETED = -1;
+
+    private ByteBuffer records = ByteBuffer.allocateDirect(RECORD_SIZE * 1024);
+
+    private ByteBuffer names = ByteBuffer.allocateDirect(16 * 1024);
+
+    /** レコード番号+1を保持する。0は空き */
+    private int[] slots = new int[2048];
+
+    private int recordCount;
+
+    private int liveCount;
+
+    private int namesEnd;
+
+    /** 名前領域のうち、どのレコードからも使われなくなったバイト数 */
+    private int namesGarbage;
+
+    /** レコード領域を詰め直した回数。ビューはこれが変わったらレコード番号を探し直す */
+    private int recordsEpoch;
+
+    /** 走査中の{@link #forEach(Consumer)}の数。走査中はレコード番号が変わらないよう、レコード領域を詰め直さない */
+    private int iterating;
+
+    /**
+     * tasks.csvから表を作成します。
+     *
+     * @param filePath tasks.csvのパス
+     * @return 作成した表
+     */
+    public static OffHeapTaskTable load(String filePath) {
+        OffHeapTaskTable table = new OffHeapTaskTable();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            reader.readLine(); // ヘッダー行を読み飛ばす
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
+            while ((line = reader.readLine()) != null) {
+                line = scan.strip(line);
+                if (line == null) {
+                    continue;
+                }
+                String[] values = line.split(",");
+                if (values.length != 4) {
+                    continue;
+                }
+                table.put(Integer.parseInt(values[0]), values[1], Integer.parseInt(values[2]),
+                        Integer.parseInt(values[3]));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return table;
+    }
+
+    /**
+     * タスクを追加します。同じコードのタスクがある場合は内容を置き換えます。
+     *
+     * @param code        タスクコード
+     * @param name        タスク名
+     * @param status      ステータス
+     * @param repUserCode 担当ユーザーコード
+     */
+    public synchronized void put(int code, String name, int status, int repUserCode) {
+        int record = findRecord(code);
+        if (record < 0) {
+            record = addRecord(code);
+        }
+        int base = record * RECORD_SIZE;
+        if (records.getInt(base + STATUS) == DELETED) {
+            liveCount++;
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int capacity = records.getInt(base + NAME_CAPACITY);
+        if (nameBytes.length <= capacity) {
+            // 確保済みの領域に収まる場合は同じ位置に上書きする
+            names.put(records.getInt(base + NAME_OFFSET), nameBytes);
+        } else {
+            records.putInt(base + NAME_OFFSET, appendName(nameBytes));
+            namesGarbage += capacity;
+            records.putInt(base + NAME_CAPACITY, nameBytes.length);
+        }
+        records.putInt(base + NAME_LENGTH, nameBytes.length);
+        records.putInt(base + STATUS, status);
+        records.putInt(base + REP_USER_CODE, repUserCode);
+        records.putInt(base + VERSION, records.getInt(base + VERSION) + 1);
+        compactIfNeeded();
+    }
+
+    /**
+     * タスクのステータスを変更し、バージョンを1つ進めます。
+     *
+     * @param code   タスクコード
+     * @param status 新しいステータス
+     * @return タスクが存在した場合はtrue
+     */
+    public synchronized boolean setStatus(int code, int status) {
+        int record = findLiveRecord(code);
+        if (record < 0) {
+            return false;
+        }
+        int base = record * RECORD_SIZE;
+        records.putInt(base + STATUS, status);
+        records.putInt(base + VERSION, records.getInt(base + VERSION) + 1);
+        return true;
+    }
+
+    /**
+     * タスクを削除します。
+     *
+     * @param code タスクコード
+     * @return タスクが存在した場合はtrue
+     */
+    public synchronized boolean remove(int code) {
+        int record = findLiveRecord(code);
+        if (record < 0) {
+            return false;
+        }
+        int base = record * RECORD_SIZE;
+        records.putInt(base + STATUS, DELETED);
+        namesGarbage += records.getInt(base + NAME_CAPACITY);
+        records.putInt(base + NAME_CAPACITY, 0);
+        records.putInt(base + NAME_LENGTH, 0);
+        liveCount--;
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * コードに該当するタスクをビューに設定します。
+     *
+     * @param code タスクコード
+     * @param view 設定先のビュー
+     * @return タスクが存在した場合はtrue
+     */
+    public synchronized boolean find(int code, TaskView view) {
+        int record = findLiveRecord(code);
+        if (record < 0) {
+            return false;
+        }
+        view.set(record);
+        return true;
+    }
+
+    /**
+     * 全てのタスクを登録順に走査します。
+     * actionには同じビューが使い回されるため、保持する場合はTaskに変換してください。
+     *
+     * @param action 各タスクに対する処理
+     */
+    public synchronized void forEach(Consumer<TaskView> action) {
+        TaskView view = new TaskView();
+        iterating++;
+        try {
+            for (int record = 0; record < recordCount; record++) {
+                if (records.getInt(record * RECORD_SIZE + STATUS) == DELETED) {
+                    continue;
+                }
+                view.set(record);
+                action.accept(view);
+            }
+        } finally {
+            iterating--;
+        }
+    }
+
+    /**
+     * 表を参照するための新しいビューを作成します。
+     *
+     * @return ビュー
+     */
+    public TaskView newView() {
+        return new TaskView();
+    }
+
+    /**
+     * 削除されていないタスクの件数を取得します。
+     *
+     * @return タスクの件数
+     */
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    /**
+     * ヒープ外に確保しているバイト数を取得します。
+     *
+     * @return 確保しているバイト数
+     */
+    public synchronized long offHeapBytes() {
+        return (long) records.capacity() + names.capacity();
+    }
+
+    private int findRecord(int code) {
+        int mask = slots.length - 1;
+        for (int i = mix(code) & mask;; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) {
+                return -1;
+            }
+            if (records.getInt((slot - 1) * RECORD_SIZE + CODE) == code) {
+                return slot - 1;
+            }
+        }
+    }
+
+    private int findLiveRecord(int code) {
+        int record = findRecord(code);
+        if (record < 0 || records.getInt(record * RECORD_SIZE + STATUS) == DELETED) {
+            return -1;
+        }
+        return record;
+    }
+
+    private int addRecord(int code) {
+        if ((recordCount + 1) * RECORD_SIZE > records.capacity()) {
+            records = grow(records, records.capacity() * 2);
+        }
+        int record = recordCount++;
+        int base = record * RECORD_SIZE;
+        records.putInt(base + CODE, code);
+        records.putInt(base + STATUS, DELETED);
+        records.putInt(base + VERSION, 0);
+        records.putInt(base + NAME_OFFSET, 0);
+        records.putInt(base + NAME_LENGTH, 0);
+        records.putInt(base + NAME_CAPACITY, 0);
+
+        if (recordCount * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        insertSlot(code, record);
+        return record;
+    }
+
+    private void insertSlot(int code, int record) {
+        int mask = slots.length - 1;
+        int i = mix(code) & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = record + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int record = 0; record < recordCount - 1; record++) {
+            insertSlot(records.getInt(record * RECORD_SIZE + CODE), record);
+        }
+    }
+
+    private int appendName(byte[] nameBytes) {
+        if (namesEnd + nameBytes.length > names.capacity() && namesGarbage * 2 >= namesEnd) {
+            // 広げる前に、使われなくなった領域を詰め直して空きを作る
+            compactNames(names.capacity());
+        }
+        if (namesEnd + nameBytes.length > names.capacity()) {
+            names = grow(names, Math.max(names.capacity() * 2, namesEnd + nameBytes.length));
+        }
+        int offset = namesEnd;
+        names.put(offset, nameBytes);
+        namesEnd += nameBytes.length;
+        return offset;
+    }
+
+    /**
+     * 削除済みレコードがレコード領域の半分を超えた場合に、削除されていないレコードだけを登録順に詰め直し、索引を作り直します。
+     * 使われなくなった領域が名前領域の半分を超えた場合に、使われている名前だけを新しい領域へ登録順に詰め直します。
+     * 詰め直した後の領域は使われている分の2倍（最小で作成時の大きさ）にし、縮めた分を解放します。
+     * レコード番号が変わった場合、ビューは次に参照する際にコードからレコードを探し直します。
+     */
+    private void compactIfNeeded() {
+        int deleted = recordCount - liveCount;
+        if (iterating == 0 && deleted >= MIN_COMPACT_RECORDS && deleted * 2 >= recordCount) {
+            compactRecords();
+        }
+        if (namesGarbage < MIN_COMPACT_BYTES || namesGarbage * 2 < namesEnd) {
+            return;
+        }
+        compactNames(Math.max(16 * 1024, (namesEnd - namesGarbage) * 2));
+    }
+
+    private void compactRecords() {
+        ByteBuffer compacted = ByteBuffer.allocateDirect(Math.max(RECORD_SIZE * 1024, liveCount * 2 * RECORD_SIZE));
+        int count = 0;
+        for (int record = 0; record < recordCount; record++) {
+            int base = record * RECORD_SIZE;
+            if (records.getInt(base + STATUS) == DELETED) {
+                continue;
+            }
+            compacted.put(count * RECORD_SIZE, records, base, RECORD_SIZE);
+            count++;
+        }
+        records = compacted;
+        recordCount = count;
+        int capacity = 2048;
+        while (capacity < count * 2) {
+            capacity *= 2;
+        }
+        slots = new int[capacity];
+        for (int record = 0; record < count; record++) {
+            insertSlot(records.getInt(record * RECORD_SIZE + CODE), record);
+        }
+        recordsEpoch++;
+    }
+
+    private void compactNames(int capacity) {
+        ByteBuffer compacted = ByteBuffer.allocateDirect(capacity);
+        int end = 0;
+        for (int record = 0; record < recordCount; record++) {
+            int base = record * RECORD_SIZE;
+            int length = records.getInt(base + NAME_CAPACITY);
+            if (length == 0) {
+                continue;
+            }
+            compacted.put(end, names, records.getInt(base + NAME_OFFSET), length);
+            records.putInt(base + NAME_OFFSET, end);
+            end += length;
+        }
+        names = compacted;
+        namesEnd = end;
+        namesGarbage = 0;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        grown.put(0, buffer, 0, buffer.capacity());
+        return grown;
+    }
+
+    private static int mix(int code) {
+        int hash = code * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 表の1件を参照するフライウェイトです。Taskと同じ名前のアクセサを持ちます。
+     * 参照中のタスクが削除され、レコード領域が詰め直された後は、削除済みのタスク（ステータス-1・タスク名は空）として値を返します。
+     */
+    public class TaskView {
+        private int record = -1;
+
+        private int code;
+
+        private int epoch;
+
+        private TaskView() {
+        }
+
+        private void set(int record) {
+            this.record = record;
+            this.code = records.getInt(record * RECORD_SIZE + CODE);
+            this.epoch = recordsEpoch;
+        }
+
+        /**
+         * @return レコードの位置、削除されて詰め直された場合は-1
+         */
+        private int base() {
+            if (epoch != recordsEpoch) {
+                record = findRecord(code);
+                epoch = recordsEpoch;
+            }
+            return record < 0 ? -1 : record * RECORD_SIZE;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getName() {
+            byte[] bytes;
+            synchronized (OffHeapTaskTable.this) {
+                int base = base();
+                if (base < 0) {
+                    return "";
+                }
+                bytes = new byte[records.getInt(base + NAME_LENGTH)];
+                names.get(records.getInt(base + NAME_OFFSET), bytes);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        public int getStatus() {
+            synchronized (OffHeapTaskTable.this) {
+                int base = base();
+                return base < 0 ? DELETED : records.getInt(base + STATUS);
+            }
+        }
+
+        public int getRepUserCode() {
+            synchronized (OffHeapTaskTable.this) {
+                int base = base();
+                return base < 0 ? 0 : records.getInt(base + REP_USER_CODE);
+            }
+        }
+
+        public int getVersion() {
+            synchronized (OffHeapTaskTable.this) {
+                int base = base();
+                return base < 0 ? 0 : records.getInt(base + VERSION);
+            }
+        }
+
+        /**
+         * ビューの内容からTaskを作成します。
+         *
+         * @param repUser 担当ユーザー
+         * @return 作成したタスク
+         */
+        public Task toTask(User repUser) {
+            // 途中で更新されても、同じ時点の値から作成する
+            synchronized (OffHeapTaskTable.this) {
+                return new Task(getCode(), getName(), getStatus(), repUser);
+            }
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * タスクをタスクコードのハッシュで複数のCSV（シャード）に分けて保存します。
+ * <ul>
+ * <li>コードを指定する読み書きは該当する1つのシャードだけに振り分ける</li>
+ * <li>全件・条件付きの取得は全てのシャードを並列に読み込み、タスクコード順に並べて返す</li>
+ * <li>書き込み用スレッドと行の位置・キャッシュはシャードごとに持ち、別のシャードへの書き込みは互いを待たない</li>
+ * </ul>
+ * シャードは元のCSVと同じフォルダに「tasks.shard0.csv」のような名前で作成し、シャード数を「tasks.shards」に記録します。
+ * シャードが無い場合は元のCSVを、シャード数が変わった場合は既存のシャードを読み込んで振り分け直します。
+ * 振り分けた後の元のCSVは「tasks.csv.migrated」に名前を変えます。元のCSVに戻す場合は{@link #unshard(String)}を使います。
+ */
+public class ShardedTaskDataAccess extends TaskDataAccess {
+    private static final String HEADER = "Code,Name,Status,Rep_User_Code";
+
+    private final UserDataAccess userDataAccess;
+
+    private final TaskDataAccess[] shards;
+
+    /**
+     * @param basePath       元のCSVのパス。シャードはこのファイルと同じフォルダに作成する
+     * @param shardCount     シャード数
+     * @param userDataAccess 全てのシャードで共有するユーザーのデータアクセス
+     */
+    public ShardedTaskDataAccess(String basePath, int shardCount, UserDataAccess userDataAccess) {
+        super(userDataAccess);
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("シャード数は1以上を指定してください: " + shardCount);
+        }
+        this.userDataAccess = userDataAccess;
+        Path base = Paths.get(basePath);
+        try {
+            prepareShards(base, shardCount);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        shards = new TaskDataAccess[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            // シャード数が1の場合は元のCSVにまとめ直しているため、元のCSVをそのまま使う
+            Path path = shardCount > 1 ? shardPath(base, i) : base;
+            shards[i] = new TaskDataAccess(path.toString(), userDataAccess);
+        }
+    }
+
+    /**
+     * タスクコードを保存するシャードの番号を求めます。
+     * 連番のコードが特定のシャードに偏らないよう、ビットを混ぜてから割り当てます。
+     *
+     * @param code       タスクコード
+     * @param shardCount シャード数
+     * @return シャードの番号（0始まり）
+     */
+    static int shardIndex(int code, int shardCount) {
+        int hash = code * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+
+    private TaskDataAccess shardFor(int code) {
+        return shards[shardIndex(code, shards.length)];
+    }
+
+    /**
+     * 全てのシャードを並列に読み込み、条件に一致するタスクをタスクコード順に取得します。
+     *
+     * @param filter 取得するタスクの条件
+     * @return 条件に一致したタスクのリスト
+     */
+    @Override
+    public List<Task> findAll(Predicate<Task> filter) {
+        List<Task> tasks = Arrays.stream(shards).parallel()
+                .flatMap(shard -> shard.findAll(filter).stream())
+                .collect(Collectors.toCollection(ArrayList::new));
+        tasks.sort(Comparator.comparingInt(Task::getCode));
+        return tasks;
+    }
+
+    /**
+     * シャードを順にタスクコードだけ読み込みます。
+     *
+     * @param action 各タスクコードに対する処理
+     */
+    @Override
+    public void forEachCode(IntConsumer action) {
+        for (TaskDataAccess shard : shards) {
+            shard.forEachCode(action);
+        }
+    }
+
+    /**
+     * シャードを順に1件ずつ読み込みます。タスクの順序はシャードごとになり、タスクコード順にはなりません。
+     *
+     * @param userResolver 担当ユーザーコードから担当ユーザーを取得する処理（見つからない場合はnull）
+     * @param action       各タスクに対する処理
+     */
+    @Override
+    public void forEach(IntFunction<User> userResolver, Consumer<Task> action) {
+        for (TaskDataAccess shard : shards) {
+            shard.forEach(userResolver, action);
+        }
+    }
+
+    @Override
+    public void save(Task task) {
+        shardFor(task.getCode()).save(task);
+    }
+
+    /**
+     * タスクをシャードごとに分け、シャードごとに並列で1回ずつ書き込みます。
+     *
+     * @param tasks 保存するタスクのリスト
+     */
+    @Override
+    public void saveAll(List<Task> tasks) {
+        List<List<Task>> byShard = groupByShard(tasks);
+        IntStream.range(0, shards.length).parallel()
+                .filter(i -> !byShard.get(i).isEmpty())
+                .forEach(i -> shards[i].saveAll(byShard.get(i)));
+    }
+
+    /**
+     * タスクを保存先のシャードごとに分けます。
+     *
+     * @return シャードの番号ごとのタスクのリスト
+     */
+    private List<List<Task>> groupByShard(List<Task> tasks) {
+        List<List<Task>> byShard = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Task task : tasks) {
+            byShard.get(shardIndex(task.getCode(), shards.length)).add(task);
+        }
+        return byShard;
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAsync(Task task) {
+        return shardFor(task.getCode()).saveAsync(task);
+    }
+
+    @Override
+    public Task findByCode(int code) {
+        return shardFor(code).findByCode(code);
+    }
+
+    /**
+     * 全てのシャードのキャッシュの統計を合計します。
+     *
+     * @return キャッシュの統計
+     */
+    @Override
+    public CacheStats getCacheStats() {
+        long hit = 0;
+        long miss = 0;
+        long eviction = 0;
+        int size = 0;
+        for (TaskDataAccess shard : shards) {
+            CacheStats stats = shard.getCacheStats();
+            hit += stats.getHitCount();
+            miss += stats.getMissCount();
+            eviction += stats.getEvictionCount();
+            size += stats.getSize();
+        }
+        return new CacheStats(hit, miss, eviction, size);
+    }
+
+    @Override
+    public void update(Task updateTask) {
+        shardFor(updateTask.getCode()).update(updateTask);
+    }
+
+    /**
+     * タスクをシャードごとに分け、シャードごとに並列で1回ずつ書き直します。
+     *
+     * @param updateTasks 更新するタスクのリスト
+     */
+    @Override
+    public void updateAll(List<Task> updateTasks) {
+        List<List<Task>> byShard = groupByShard(updateTasks);
+        IntStream.range(0, shards.length).parallel()
+                .filter(i -> !byShard.get(i).isEmpty())
+                .forEach(i -> shards[i].updateAll(byShard.get(i)));
+    }
+
+    @Override
+    public void delete(int code) {
+        shardFor(code).delete(code);
+    }
+
+    /**
+     * 全てのシャードとusers.csvの外部からの変更を監視します。
+     * users.csvが書き換えられた場合は全てのシャードを読み直してから、onRewriteを1回だけ呼び出します。
+     */
+    @Override
+    public void watch(CsvWatcher csvWatcher, Consumer<List<Task>> onAppend, Runnable onRewrite) throws IOException {
+        for (TaskDataAccess shard : shards) {
+            shard.watchTasks(csvWatcher, onAppend, onRewrite);
+        }
+        userDataAccess.watch(csvWatcher, () -> {
+            for (TaskDataAccess shard : shards) {
+                shard.reload();
+            }
+            onRewrite.run();
+        });
+    }
+
+    @Override
+    void reload() {
+        for (TaskDataAccess shard : shards) {
+            shard.reload();
+        }
+    }
+
+    /**
+     * ヒープ外のタスク表はシャードごとに持つため、まとめた表は返しません。
+     *
+     * @return 常にnull
+     */
+    @Override
+    public OffHeapTaskTable getOffHeapTable() {
+        return null;
+    }
+
+    /**
+     * シャードに分けていたタスクを元のCSVに戻します。シャード数に1以下を指定して起動した場合に使います。
+     * シャードに分けていない場合は何もしません。
+     *
+     * @param basePath 元のCSVのパス
+     */
+    public static void unshard(String basePath) {
+        try {
+            prepareShards(Paths.get(basePath), 1);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * タスクを保存している現在のファイルを取得します。
+     * シャードに分けている場合は全てのシャード、分けていない場合は元のCSVです。
+     *
+     * @param base 元のCSVのパス
+     * @return タスクを保存しているファイル
+     * @throws IOException フォルダを読み込めない場合
+     */
+    static List<Path> dataFiles(Path base) throws IOException {
+        int committed = committedShardCount(base);
+        if (committed <= 1) {
+            return List.of(base);
+        }
+        return IntStream.range(0, committed).mapToObj(i -> shardPath(base, i)).collect(Collectors.toList());
+    }
+
+    /**
+     * 現在のシャード数を指定したシャード数に合わせ、元のCSVまたは既存のシャードから振り分け直します。
+     * 振り分け直しは次の順に行い、どの時点で中断しても次回の起動時に重複や欠落の無い状態に戻ります。
+     * <ol>
+     * <li>振り分け結果をシャード数を付けた一時ファイルに書き出す（中断した場合は一時ファイルを捨てる）</li>
+     * <li>シャード数を記録したマニフェスト（tasks.shards）を置き換えて確定する</li>
+     * <li>一時ファイルを正式な名前に移し、不要になったファイルを片付ける（中断した場合は次回の起動時に続きを行う）</li>
+     * </ol>
+     * シャードに分けた後の元のCSVは「tasks.csv.migrated」に名前を変え、古い内容が読まれないようにします。
+     * シャード数が1の場合はシャードを元のCSVにまとめ直し、マニフェストとシャードを削除します。
+     */
+    private static void prepareShards(Path base, int shardCount) throws IOException {
+        int committed = committedShardCount(base);
+        finishCommit(base, committed);
+        if (committed == shardCount) {
+            return;
+        }
+        List<Path> sources = new ArrayList<>();
+        if (committed > 1) {
+            IntStream.range(0, committed).forEach(i -> sources.add(shardPath(base, i)));
+        } else if (Files.exists(base)) {
+            sources.add(base);
+        }
+
+        Path[] targets = new Path[shardCount];
+        BufferedWriter[] writers = new BufferedWriter[shardCount];
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                targets[i] = shardCount > 1 ? shardPath(base, i) : base;
+                writers[i] = Files.newBufferedWriter(tempPath(targets[i], shardCount), StandardCharsets.UTF_8);
+                writers[i].write(HEADER);
+            }
+            for (Path source : sources) {
+                try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+                    reader.readLine(); // ヘッダー行を読み飛ばす
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        int comma = line.indexOf(',');
+                        if (comma <= 0) {
+                            continue;
+                        }
+                        int code;
+                        try {
+                            code = Integer.parseInt(line.substring(0, comma));
+                        } catch (NumberFormatException e) {
+                            // CSVに間違いがあったらスキップする
+                            continue;
+                        }
+                        BufferedWriter writer = writers[shardIndex(code, shardCount)];
+                        writer.newLine();
+                        writer.write(line);
+                    }
+                }
+            }
+        } finally {
+            for (BufferedWriter writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+
+        writeManifest(base, shardCount);
+        finishCommit(base, shardCount);
+    }
+
+    /**
+     * 確定したシャード数に合わせて、一時ファイルを正式な名前に移し、不要になったファイルを片付けます。
+     * 途中で中断しても、もう一度呼び出すと続きから行えます。
+     *
+     * @param base       元のCSVのパス
+     * @param shardCount 確定したシャード数
+     */
+    private static void finishCommit(Path base, int shardCount) throws IOException {
+        if (shardCount > 1) {
+            for (int i = 0; i < shardCount; i++) {
+                moveIfExists(tempPath(shardPath(base, i), shardCount), shardPath(base, i));
+            }
+            moveIfExists(base, migratedPath(base));
+        } else {
+            moveIfExists(tempPath(base, 1), base);
+        }
+        for (Path shard : findShards(base)) {
+            if (shardNumber(base, shard) >= shardCount || shardCount <= 1) {
+                Files.delete(shard);
+            }
+        }
+        // 確定しなかった振り分けの一時ファイルを捨てる
+        Path directory = base.toAbsolutePath().getParent();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    if (tempShardCount(base, file) >= 0) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+        if (shardCount <= 1) {
+            // マニフェストは最後に消し、中断した場合は次回の起動時にシャードの片付けからやり直す
+            Files.deleteIfExists(manifestPath(base));
+        }
+    }
+
+    /**
+     * マニフェストに記録した、確定済みのシャード数を取得します。
+     * マニフェストが無い場合は、シャードがあれば以前の形式としてその数を、無ければ1を返します。
+     */
+    private static int committedShardCount(Path base) throws IOException {
+        Path manifest = manifestPath(base);
+        if (Files.exists(manifest)) {
+            try {
+                return Math.max(1, Integer.parseInt(Files.readString(manifest, StandardCharsets.UTF_8).trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException("マニフェストを読み込めません: " + manifest, e);
+            }
+        }
+        return findShards(base).stream().mapToInt(shard -> shardNumber(base, shard) + 1).max().orElse(1);
+    }
+
+    /**
+     * シャード数をマニフェストに書き込みます。一時ファイルに書いてから置き換えるため、途中で失敗しても前の内容が残ります。
+     */
+    private static void writeManifest(Path base, int shardCount) throws IOException {
+        Path manifest = manifestPath(base);
+        Path temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        Files.writeString(temp, String.valueOf(shardCount), StandardCharsets.UTF_8);
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void moveIfExists(Path source, Path target) throws IOException {
+        if (Files.exists(source)) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * 元のCSVと同じフォルダにある既存のシャードを取得します。
+     */
+    private static List<Path> findShards(Path base) throws IOException {
+        Path directory = base.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> shardNumber(base, path) >= 0)
+                    .map(path -> base.resolveSibling(path.getFileName()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * ファイル名からシャードの番号を取得します。
+     *
+     * @return シャードの番号、元のCSVのシャードではない場合は-1
+     */
+    private static int shardNumber(Path base, Path path) {
+        Pattern pattern = Pattern.compile(Pattern.quote(stem(base)) + "\\.shard(\\d+)\\.csv");
+        Matcher matcher = pattern.matcher(path.getFileName().toString());
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    private static Path shardPath(Path base, int index) {
+        return base.resolveSibling(stem(base) + ".shard" + index + ".csv");
+    }
+
+    /**
+     * シャード数がshardCountの振り分けで、targetに移す前の一時ファイルのパスを取得します。
+     */
+    private static Path tempPath(Path target, int shardCount) {
+        return target.resolveSibling(target.getFileName() + "." + shardCount + ".tmp");
+    }
+
+    /**
+     * 振り分けの一時ファイルのシャード数を取得します。
+     *
+     * @return シャード数、振り分けの一時ファイルではない場合は-1
+     */
+    private static int tempShardCount(Path base, Path path) {
+        Pattern pattern = Pattern.compile("(?:" + Pattern.quote(base.getFileName().toString()) + "|"
+                + Pattern.quote(stem(base)) + "\\.shard\\d+\\.csv)\\.(\\d+)\\.tmp");
+        Matcher matcher = pattern.matcher(path.getFileName().toString());
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    private static Path manifestPath(Path base) {
+        return base.resolveSibling(stem(base) + ".shards");
+    }
+
+    private static Path migratedPath(Path base) {
+        return base.resolveSibling(base.getFileName() + ".migrated");
+    }
+
+    private static String stem(Path base) {
+        String name = base.getFileName().toString();
+        return name.endsWith(".csv") ? name.substring(0, name.length() - 4) : name;
+    }
+}
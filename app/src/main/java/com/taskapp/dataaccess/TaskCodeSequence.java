@@ -0,0 +1,143 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * 新しいタスクコードを採番します。
+ * 採番済みの最大値（ハイウォーターマーク）をファイルに保存し、ファイルロックを取って更新するため、
+ * 複数のプロセスから同時に採番してもコードは重複しません。
+ * ファイルからはblockSize件分のコードをまとめて予約し、プロセス内ではロックを取らずに払い出します。
+ */
+public class TaskCodeSequence {
+    /** ハイウォーターマークのファイルごとのモニター */
+    private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final Path path;
+
+    private final int blockSize;
+
+    private final IntSupplier initialValue;
+
+    /** 上位32ビットに予約済みの上限、下位32ビットに払い出し済みのコードを持つ */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param filePath     ハイウォーターマークを保存するファイルのパス。nullの場合はプロセス内だけで採番する
+     * @param blockSize    1回のファイル更新で予約するコードの件数
+     * @param initialValue ファイルが無いときに使う採番済みの最大値（既存タスクの最大コードなど）
+     */
+    public TaskCodeSequence(String filePath, int blockSize, IntSupplier initialValue) {
+        this.path = filePath == null ? null : Paths.get(filePath);
+        this.blockSize = Math.max(1, blockSize);
+        this.initialValue = initialValue;
+    }
+
+    /**
+     * 新しいタスクコードを1件払い出します。
+     *
+     * @return 払い出したコード
+     * @throws IOException ハイウォーターマークの読み書きに失敗した場合
+     */
+    public int next() throws IOException {
+        while (true) {
+            long current = state.get();
+            int limit = (int) (current >>> 32);
+            int code = (int) current;
+            if (code < limit) {
+                if (state.compareAndSet(current, pack(limit, code + 1))) {
+                    return code + 1;
+                }
+                continue;
+            }
+            reserve(current);
+        }
+    }
+
+    /**
+     * 利用者が指定したコードを採番済みとして記録し、以降の払い出しと重複しないようにします。
+     *
+     * @param code 使用されたコード
+     * @throws IOException ハイウォーターマークの読み書きに失敗した場合
+     */
+    public synchronized void observe(int code) throws IOException {
+        long current = state.get();
+        if (code <= (int) current) {
+            return;
+        }
+        if (path == null) {
+            int limit = Math.max((int) (current >>> 32), code);
+            state.set(pack(limit, code));
+            return;
+        }
+        // 予約済みのブロックを捨て、指定されたコードより後ろから予約し直す
+        int mark = updateMark(code, 0);
+        state.set(pack(mark, mark));
+    }
+
+    /**
+     * 予約済みのコードを使い切った場合に次のブロックを予約します。
+     */
+    private synchronized void reserve(long expected) throws IOException {
+        if (state.get() != expected) {
+            return; // 他のスレッドが予約済み
+        }
+        int base;
+        if (path == null) {
+            int code = (int) expected;
+            base = expected == 0 ? initialValue.getAsInt() : code;
+            state.set(pack(base + blockSize, base));
+            return;
+        }
+        int mark = updateMark(0, blockSize);
+        base = mark - blockSize;
+        state.set(pack(mark, base));
+    }
+
+    /**
+     * ファイルロックを取り、ハイウォーターマークを更新します。
+     * ファイルロックはプロセス単位のため、同じプロセス内で同じファイルを使うインスタンス同士はファイルごとのモニターで排他します。
+     *
+     * @param atLeast 新しいマークの下限
+     * @param add     現在のマークに加える件数
+     * @return 更新後のマーク
+     */
+    private int updateMark(int atLeast, int add) throws IOException {
+        Object monitor = MONITORS.computeIfAbsent(path.toAbsolutePath().normalize(), key -> new Object());
+        synchronized (monitor) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    ByteBuffer buffer = ByteBuffer.allocate(16);
+                    channel.read(buffer, 0);
+                    buffer.flip();
+                    String text = StandardCharsets.US_ASCII.decode(buffer).toString().trim();
+                    int mark = text.isEmpty() ? initialValue.getAsInt() : Integer.parseInt(text);
+                    mark = Math.max(mark, atLeast) + add;
+
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.wrap(String.valueOf(mark).getBytes(StandardCharsets.US_ASCII)), 0);
+                    channel.force(false);
+                    return mark;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private static long pack(int limit, int code) {
+        return ((long) limit << 32) | (code & 0xFFFFFFFFL);
+    }
+}
@@ -2,11 +2,25 @@ package com.taskapp.dataaccess;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 
 import com.taskapp.model.Task;
 import com.taskapp.model.User;
@@ -17,9 +31,32 @@ public class TaskDataAccess {
 
     private final UserDataAccess userDataAccess;
 
+    private final TaskLineOffsets lineOffsets;
+
+    private final BoundedCache<Task> cache = new BoundedCache<>(UserDataAccess.CACHE_MAX_SIZE);
+
+    /** システムプロパティ taskapp.offheap=true の場合、タスクをヒープ外の表にも保持する */
+    private static final boolean OFF_HEAP = Boolean.getBoolean("taskapp.offheap");
+
+    private OffHeapTaskTable offHeapTable;
+
+    /** この大きさ（バイト）以上のtasks.csvは、読み込み・変換・担当ユーザーの解決を並行に行う */
+    private static final long PIPELINE_BYTES = Long.getLong("taskapp.tasks.pipelineBytes", 8L * 1024 * 1024);
+
+    /**
+     * 書き込み用スレッドはファイルごとに持ち、シャード同士の書き込みが互いを待たないようにする。
+     * 同じファイルを開いた別のインスタンスとは同じスレッドを共有し、書き込みの順序を保つ
+     */
+    private final AsyncWriter asyncWriter;
+
+    /** 外部からの変更を監視している場合のウォッチャー */
+    private volatile CsvWatcher watcher;
+
     public TaskDataAccess() {
         filePath = "app/src/main/resources/tasks.csv";
         userDataAccess = new UserDataAccess();
+        lineOffsets = new TaskLineOffsets(filePath);
+        asyncWriter = AsyncWriter.forFile("task-writer", Paths.get(filePath));
     }
 
     /**
@@ -31,6 +68,21 @@ public class TaskDataAccess {
     public TaskDataAccess(String filePath, UserDataAccess userDataAccess) {
         this.filePath = filePath;
         this.userDataAccess = userDataAccess;
+        this.lineOffsets = new TaskLineOffsets(filePath);
+        this.asyncWriter = AsyncWriter.forFile("task-writer", Paths.get(filePath));
+    }
+
+    /**
+     * 自身ではファイルを持たず、全ての処理を上書きするサブクラス用のコンストラクタです。
+     *
+     * @see com.taskapp.dataaccess.ShardedTaskDataAccess
+     * @param userDataAccess ユーザーのデータアクセス
+     */
+    TaskDataAccess(UserDataAccess userDataAccess) {
+        this.filePath = null;
+        this.userDataAccess = userDataAccess;
+        this.lineOffsets = null;
+        this.asyncWriter = null;
     }
 
     /**
@@ -40,102 +92,548 @@ public class TaskDataAccess {
      * @return タスクのリスト
      */
     public List<Task> findAll() {
+        return findAll(task -> true);
+    }
+
+    /**
+     * CSVから条件に一致するタスクデータを取得します。
+     * 条件に一致しないタスクはリストに保持しないため、全件を取得してから絞り込むよりメモリを使いません。
+     *
+     * @param filter 取得するタスクの条件
+     * @return 条件に一致したタスクのリスト
+     */
+    public List<Task> findAll(Predicate<Task> filter) {
         List<Task> tasks = new ArrayList<>();
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            reader.readLine(); // ヘッダー行を読み飛ばす
+        forEach(userDataAccess::findByCode, task -> {
+            if (filter.test(task)) {
+                tasks.add(task);
+            }
+        });
+        return tasks;
+    }
+
+    /**
+     * CSVのタスクコードだけを1件ずつ読み込みます。TaskやUserのオブジェクトは作成しません。
+     * 一括登録でコードの重複を確かめるために使います。
+     *
+     * @param action 各タスクコードに対する処理
+     */
+    public void forEachCode(IntConsumer action) {
+        OffHeapTaskTable table = getOffHeapTable();
+        if (table != null) {
+            table.forEach(view -> action.accept(view.getCode()));
+            return;
+        }
+        try (CsvLineReader reader = new CsvLineReader(new FileInputStream(filePath))) {
+            reader.next(); // ヘッダー行を読み飛ばす
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
+            while (reader.next()) {
+                // 列の数が正しくない行はforEachと同じく読み飛ばす
+                if (!reader.verify(scan) || reader.columns() != 4) {
+                    continue;
+                }
+                try {
+                    action.accept(reader.intColumn(0));
+                } catch (NumberFormatException e) {
+                    // CSVに間違いがあったらスキップする
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * CSVのタスクを1件ずつ読み込み、リストに保持せずに処理します。
+     * 件数に関わらず使うメモリは一定のため、全件を出力する処理に使います。
+     * 大きいファイルは{@link TaskLoadPipeline}で読み込みと変換を別のスレッドで行いますが、
+     * 担当ユーザーの解決と各タスクの処理は呼び出したスレッドでファイルの順に行います。
+     * taskapp.offheapが有効な場合は、CSVを読み直さずにヒープ外のタスク表から登録順に読み込みます。
+     *
+     * @see com.taskapp.dataaccess.OffHeapTaskTable#forEach(Consumer)
+     * @param userResolver 担当ユーザーコードから担当ユーザーを取得する処理（見つからない場合はnull）
+     * @param action       各タスクに対する処理
+     */
+    public void forEach(IntFunction<User> userResolver, Consumer<Task> action) {
+        OffHeapTaskTable table = getOffHeapTable();
+        if (table != null) {
+            table.forEach(view -> action.accept(view.toTask(userResolver.apply(view.getRepUserCode()))));
+            return;
+        }
+        if (TaskLoadPipeline.isWorthwhile(new File(filePath).length(), PIPELINE_BYTES)) {
+            new TaskLoadPipeline(filePath).forEach(userResolver, action);
+            return;
+        }
+        try (CsvLineReader reader = new CsvLineReader(new FileInputStream(filePath))) {
+            reader.next(); // ヘッダー行を読み飛ばす
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
             
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-                
+            while (reader.next()) {
                 // CSVに間違いがあったらスキップする
-                if (values.length != 4) {
+                if (!reader.verify(scan) || reader.columns() != 4) {
                     continue;
                 }
                 
                 // int code, String name, int status, User repUser
-                int code = Integer.parseInt(values[0]);
-                String name = values[1];
-                int status = Integer.parseInt(values[2]);
-                int  repUserCode = Integer.parseInt(values[3]);
+                int code = reader.intColumn(0);
+                String name = reader.column(1);
+                int status = reader.intColumn(2);
+                int  repUserCode = reader.intColumn(3);
 
-                 User user = userDataAccess.findByCode(repUserCode);
+                 User user = userResolver.apply(repUserCode);
                 
                 
-                // Taskオブジェクトを作成しリストに追加
-                Task task = new Task(code, name, status, user);
-                tasks.add(task);
+                // Taskオブジェクトを作成して処理する
+                action.accept(new Task(code, name, status, user));
             }
             
         } catch (IOException e) {
             e.printStackTrace();
         }
-        
-        return tasks;
     }
     
 
     /**
      * タスクをCSVに保存します。
+     * 書き込みは{@link #saveAsync(Task)}と同じ書き込み用スレッドで行い、先に登録した非同期の保存を追い越しません。
+     * @param task 保存するタスク
+     */
+    public void save(Task task) {
+        String line = createLine(task);
+        try {
+            asyncWriter.run(() -> {
+                watched(() -> append(line));
+                // 書き込みに失敗したタスクをヒープ外の表に残さないよう、書き込めてから反映する
+                putOffHeap(task);
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        // 書き込み中に読み込んだ古い行をキャッシュに残さないよう、書き込みの後に取り除く
+        cache.invalidate(task.getCode());
+    }
+
+    /**
+     * 複数のタスクを1回の書き込みでCSVに保存します。
+     * @param tasks 保存するタスクのリスト
+     */
+    public void saveAll(List<Task> tasks) {
+        List<String> lines = new ArrayList<>();
+        for (Task task : tasks) {
+            lines.add(createLine(task));
+        }
+        try {
+            asyncWriter.run(() -> {
+                watched(() -> {
+                    try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
+                        for (String line : lines) {
+                            writer.newLine();
+                            writer.write(line);
+                        }
+                    }
+                });
+                for (Task task : tasks) {
+                    putOffHeap(task);
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (Task task : tasks) {
+            cache.invalidate(task.getCode());
+        }
+    }
+
+    /**
+     * タスクを書き込み用スレッドでCSVに保存します。
+     * 呼び出し元のスレッドは書き込みの完了を待ちません。
+     *
      * @param task 保存するタスク
+     * @return 保存が完了したら完了するFuture
      */
-     public void save(Task task) {
-         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
+    public CompletableFuture<Void> saveAsync(Task task) {
+        cache.invalidate(task.getCode());
+        String line = createLine(task);
+        return asyncWriter.submit(() -> {
+            watched(() -> append(line));
+            putOffHeap(task);
+            // 書き込みを待つ間に読み込まれた古い行も取り除く
+            cache.invalidate(task.getCode());
+        });
+    }
 
-             String line = createLine(task);
+    /**
+     * CSVの末尾に1行追記します。
+     * @param line 追記する行
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void append(String line) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
             writer.newLine();
             writer.write(line);
-
-         } catch (IOException e) {
-             e.printStackTrace();
-     }
-     }
+        }
+    }
 
     /**
      * コードを基にタスクデータを1件取得します。
+     * 直近に参照したタスクはキャッシュから返し、無い場合は記録しておいた行の位置から該当行だけを読み込みます。
+     *
+     * @see com.taskapp.dataaccess.TaskLineOffsets#findLine(int)
      * @param code 取得するタスクのコード
      * @return 取得したタスク
      */
-    // public Task findByCode(int code) {
-    //     try () {
+    public Task findByCode(int code) {
+        return cache.get(code, this::readByCode);
+    }
 
-    //     } catch (IOException e) {
-    //         e.printStackTrace();
-    //     }
-    //     return null;
-    // }
+    /**
+     * キャッシュのヒット数・ミス数・追い出し数を取得します。
+     * @return キャッシュの統計
+     */
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * CSVからコードを基にタスクデータを1件読み込みます。
+     * @param code 取得するタスクのコード
+     * @return 取得したタスク
+     */
+    private Task readByCode(int code) {
+        OffHeapTaskTable table = getOffHeapTable();
+        if (table != null) {
+            OffHeapTaskTable.TaskView view = table.newView();
+            if (!table.find(code, view)) {
+                return null;
+            }
+            return view.toTask(userDataAccess.findByCode(view.getRepUserCode()));
+        }
+        try {
+            String line = lineOffsets.findLine(code);
+            if (line != null) {
+                line = CsvChecksum.strip(line);
+            }
+            if (line == null) {
+                return null;
+            }
+            String[] values = line.split(",");
+            if (values.length != 4) {
+                return null;
+            }
+            User repUser = userDataAccess.findByCode(Integer.parseInt(values[3]));
+            return new Task(code, values[1], Integer.parseInt(values[2]), repUser);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
 
     /**
      * タスクデータを更新します。
+     * ステータスだけが変わる場合はステータス列のみを上書きし、
+     * それ以外の項目が変わる場合はファイル全体を書き換えます。
+     *
+     * @see com.taskapp.dataaccess.TaskLineOffsets#patchStatus(int, String, int, int)
      * @param updateTask 更新するタスク
      */
-    // public void update(Task updateTask) {
-    //     try () {
+    public void update(Task updateTask) {
+        try {
+            asyncWriter.run(() -> watched(() -> {
+                if (lineOffsets.patchStatus(updateTask.getCode(), updateTask.getName(),
+                        updateTask.getRepUser().getCode(), updateTask.getStatus())) {
+                    setStatusOffHeap(updateTask);
+                    return;
+                }
+                rewrite(Collections.singletonMap(updateTask.getCode(), createLine(updateTask)));
+                putOffHeap(updateTask);
+            }));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        cache.invalidate(updateTask.getCode());
+    }
 
-    //     } catch (IOException e) {
-    //         e.printStackTrace();
-    //     }
-    // }
+    /**
+     * 複数のタスクデータをまとめて更新します。
+     * CSVの読み込みと書き直しはタスクの件数によらずそれぞれ1回です。
+     *
+     * @param updateTasks 更新するタスクのリスト
+     */
+    public void updateAll(List<Task> updateTasks) {
+        if (updateTasks.isEmpty()) {
+            return;
+        }
+        Map<Integer, String> newLines = new HashMap<>();
+        for (Task task : updateTasks) {
+            newLines.put(task.getCode(), createLine(task));
+        }
+        try {
+            asyncWriter.run(() -> {
+                rewrite(newLines);
+                for (Task task : updateTasks) {
+                    putOffHeap(task);
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
     /**
      * コードを基にタスクデータを削除します。
      * @param code 削除するタスクのコード
      */
-    // public void delete(int code) {
-    //     try () {
+    public void delete(int code) {
+        try {
+            asyncWriter.run(() -> rewrite(Collections.singletonMap(code, null)));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 指定したコードの行を置き換えてCSV全体を書き直します。
+     *
+     * @param newLines タスクコードごとの置き換え後の行。値がnullの場合は行を削除する
+     * @throws IOException 読み書きに失敗した場合
+     */
+    private void rewrite(Map<Integer, String> newLines) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+
+        // 書き込み途中のファイルを読まれないよう、一時ファイルに書き出してから置き換える
+        Path path = Paths.get(filePath);
+        Path tempPath = path.resolveSibling(path.getFileName() + ".rewrite");
+        try {
+            watched(() -> {
+                try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempPath.toFile()))) {
+                    for (int i = 0; i < lines.size(); i++) {
+                        String line = lines.get(i);
+                        Integer code = i > 0 ? leadingCode(line) : null;
+                        if (code != null && newLines.containsKey(code)) {
+                            String newLine = newLines.get(code);
+                            if (newLine == null) {
+                                continue;
+                            }
+                            line = newLine;
+                        }
+                        if (i > 0) {
+                            writer.newLine();
+                        }
+                        writer.write(line);
+                    }
+                }
+                CsvGeneration.bump(path);
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            });
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+        lineOffsets.invalidate();
+        newLines.forEach((code, newLine) -> {
+            cache.invalidate(code);
+            if (newLine == null && offHeapTable != null) {
+                offHeapTable.remove(code);
+            }
+        });
+    }
+
+    /**
+     * 行の先頭のタスクコードを取得します。
+     *
+     * @param line CSVの1行
+     * @return タスクコード、先頭が数字とカンマでない場合はnull
+     */
+    private static Integer leadingCode(String line) {
+        int comma = line.indexOf(',');
+        if (comma <= 0) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(line.substring(0, comma));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 
-    //     } catch (IOException e) {
-    //         e.printStackTrace();
-    //     }
-    // }
+    /**
+     * tasks.csvとusers.csvの外部からの変更を監視し、キャッシュに反映します。
+     * 追記された場合は該当するコードだけを、書き換えられた場合は全体を読み直します。
+     *
+     * @see com.taskapp.dataaccess.CsvWatcher#register(java.nio.file.Path, CsvWatcher.Listener)
+     * @param csvWatcher 監視に使うウォッチャー
+     * @param onAppend   追記されたタスクを受け取る処理
+     * @param onRewrite  tasks.csvまたはusers.csvが書き換えられた場合の処理
+     * @throws IOException 監視を始められない場合
+     */
+    public void watch(CsvWatcher csvWatcher, Consumer<List<Task>> onAppend, Runnable onRewrite) throws IOException {
+        watchTasks(csvWatcher, onAppend, onRewrite);
+        // 担当ユーザーの名前などが変わった場合もタスクのキャッシュを読み直す
+        userDataAccess.watch(csvWatcher, () -> {
+            reload();
+            onRewrite.run();
+        });
+    }
+
+    /**
+     * tasks.csvだけの外部からの変更を監視し、キャッシュに反映します。
+     *
+     * @param csvWatcher 監視に使うウォッチャー
+     * @param onAppend   追記されたタスクを受け取る処理
+     * @param onRewrite  tasks.csvが書き換えられた場合の処理
+     * @throws IOException 監視を始められない場合
+     */
+    void watchTasks(CsvWatcher csvWatcher, Consumer<List<Task>> onAppend, Runnable onRewrite) throws IOException {
+        this.watcher = csvWatcher;
+        csvWatcher.register(Paths.get(filePath), new CsvWatcher.Listener() {
+            @Override
+            public void onAppend(List<String> lines) {
+                List<Task> tasks = new ArrayList<>();
+                CsvChecksum.Scan scan = CsvChecksum.Scan.appended();
+                for (String line : lines) {
+                    Task task = parseLine(line, scan);
+                    if (task == null) {
+                        // 書き込み途中の行などは読み取れないため、全体を読み直す
+                        onRewrite();
+                        return;
+                    }
+                    tasks.add(task);
+                }
+                for (Task task : tasks) {
+                    cache.invalidate(task.getCode());
+                    putOffHeap(task);
+                }
+                onAppend.accept(tasks);
+            }
+
+            @Override
+            public void onRewrite() {
+                reload();
+                onRewrite.run();
+            }
+        });
+    }
+
+    /**
+     * キャッシュと行の位置を破棄し、ヒープ外の表を読み直します。
+     */
+    void reload() {
+        cache.invalidateAll();
+        lineOffsets.invalidate();
+        synchronized (this) {
+            if (offHeapTable != null) {
+                offHeapTable = OffHeapTaskTable.load(filePath);
+            }
+        }
+    }
+
+    /**
+     * CSVの1行をタスクに変換します。
+     *
+     * @param line CSVの1行
+     * @param scan 読んでいるファイルのチェックサムの状態
+     * @return 変換したタスク、形式が正しくない行の場合はnull
+     */
+    private Task parseLine(String line, CsvChecksum.Scan scan) {
+        line = scan.strip(line);
+        if (line == null) {
+            return null;
+        }
+        String[] values = line.split(",");
+        if (values.length != 4) {
+            return null;
+        }
+        try {
+            User repUser = userDataAccess.findByCode(Integer.parseInt(values[3]));
+            return new Task(Integer.parseInt(values[0]), values[1], Integer.parseInt(values[2]), repUser);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 自身の書き込みをウォッチャーに知らせ、外部からの変更として扱われないようにします。
+     * 書き込みの間はウォッチャーに確認を止めさせ、書き込み途中の内容を変更として通知させません。
+     *
+     * @see com.taskapp.dataaccess.CsvWatcher#beginWrite(Path)
+     * @param write 書き込み処理
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void watched(AsyncWriter.Write write) throws IOException {
+        CsvWatcher csvWatcher = watcher;
+        if (csvWatcher == null) {
+            write.run();
+            return;
+        }
+        Path path = Paths.get(filePath);
+        csvWatcher.beginWrite(path);
+        try {
+            write.run();
+        } finally {
+            csvWatcher.acknowledge(path);
+        }
+    }
+
+    /**
+     * ヒープ外のタスク表を取得します。初回呼び出し時にCSVから読み込みます。
+     *
+     * @see com.taskapp.dataaccess.OffHeapTaskTable#load(String)
+     * @return タスク表、taskapp.offheapが有効でない場合はnull
+     */
+    public synchronized OffHeapTaskTable getOffHeapTable() {
+        if (OFF_HEAP && offHeapTable == null) {
+            offHeapTable = OffHeapTaskTable.load(filePath);
+        }
+        return offHeapTable;
+    }
+
+    /**
+     * 読み込み済みのヒープ外のタスク表に書き込み内容を反映します。
+     * CSVへの書き込みが成功した後に書き込み用スレッドで呼び出し、書き込みと同じ順序で反映します。
+     *
+     * @param task 書き込んだタスク
+     */
+    private void putOffHeap(Task task) {
+        OffHeapTaskTable table;
+        synchronized (this) {
+            table = offHeapTable;
+        }
+        if (table != null) {
+            table.put(task.getCode(), task.getName(), task.getStatus(), task.getRepUser().getCode());
+        }
+    }
+
+    /**
+     * 読み込み済みのヒープ外のタスク表にステータスだけの変更を反映します。
+     * タスク名の領域は書き換えません。
+     *
+     * @param task 書き込んだタスク
+     */
+    private void setStatusOffHeap(Task task) {
+        OffHeapTaskTable table;
+        synchronized (this) {
+            table = offHeapTable;
+        }
+        if (table != null) {
+            table.setStatus(task.getCode(), task.getStatus());
+        }
+    }
 
     /**
      * タスクデータをCSVに書き込むためのフォーマットを作成します。
+     * taskapp.csv.checksumが有効な場合は末尾にチェックサムを付けます。
+     *
+     * @see com.taskapp.dataaccess.CsvChecksum#sealIfEnabled(String)
      * @param task フォーマットを作成するタスク
      * @return CSVに書き込むためのフォーマット文字列
      */
      private String createLine(Task task) {
-        return task.getCode() + "," + task.getName() + "," + task.getStatus() + "," + task.getRepUser();
+        return CsvChecksum.sealIfEnabled(
+                task.getCode() + "," + task.getName() + "," + task.getStatus() + "," + task.getRepUser().getCode());
     }
 }
\ No newline at end of file
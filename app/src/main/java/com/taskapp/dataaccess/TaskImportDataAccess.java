@@ -0,0 +1,37 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TaskImportDataAccess {
+    private final String filePath;
+
+    /**
+     * @param filePath 一括登録用CSVのパス
+     */
+    public TaskImportDataAccess(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * 一括登録用CSVの全ての行を取得します。
+     * CSVは「Code,Name,Rep_User_Code」のヘッダー行から始まる形式とします。
+     *
+     * @return ヘッダーを除いた各行をカンマで分割したリスト（ファイルの行順）
+     * @throws IOException ファイルが読み込めない場合
+     */
+    public List<String[]> findAll() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            reader.readLine(); // ヘッダー行を読み飛ばす
+            while ((line = reader.readLine()) != null) {
+                rows.add(line.split(",", -1));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,168 @@
+package com.taskapp.dataaccess;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * tasks.csvの各行がファイル先頭から何バイト目に始まるかをタスクコードごとに保持します。
+ * ステータス列は1桁（0~9）の固定幅として扱い、ステータスだけの変更は該当バイトの上書きで済ませます。
+ * 行にチェックサムが付いている場合は、チェックサムも合わせて上書きします。
+ */
+class TaskLineOffsets {
+    private static final int READ_CHUNK = 256;
+
+    private final Path path;
+
+    private Map<Integer, Long> offsets;
+
+    /**
+     * @param filePath 対象のCSVファイルのパス
+     */
+    TaskLineOffsets(String filePath) {
+        this.path = Paths.get(filePath);
+    }
+
+    /**
+     * タスクコードに該当する行を取得します。
+     * 位置が見つからない、または位置がずれていた場合は位置を作り直して1度だけ再試行します。
+     *
+     * @param code タスクコード
+     * @return 該当する行（改行を含まない）、存在しない場合はnull
+     * @throws IOException 読み込みに失敗した場合
+     */
+    synchronized String findLine(int code) throws IOException {
+        String line = readLineOf(code);
+        if (line == null) {
+            offsets = null;
+            line = readLineOf(code);
+        }
+        return line;
+    }
+
+    /**
+     * タスクのステータス列だけを上書きします。
+     * 行のコード・タスク名・担当ユーザーコードが引数と一致し、ステータスが1桁の場合のみ書き込みます。
+     *
+     * @param code        タスクコード
+     * @param name        タスク名
+     * @param repUserCode 担当ユーザーコード
+     * @param status      新しいステータス
+     * @return 上書きできた場合はtrue、行全体の書き換えが必要な場合はfalse
+     * @throws IOException 読み書きに失敗した場合
+     */
+    synchronized boolean patchStatus(int code, String name, int repUserCode, int status) throws IOException {
+        if (status < 0 || status > 9) {
+            return false;
+        }
+        String line = findLine(code);
+        if (line == null) {
+            return false;
+        }
+        boolean sealed = CsvChecksum.hasChecksum(line);
+        String content = CsvChecksum.strip(line);
+        if (content == null) {
+            return false;
+        }
+        String[] values = content.split(",");
+        if (values.length != 4 || values[2].length() != 1 || !values[1].equals(name)
+                || !values[3].equals(String.valueOf(repUserCode))) {
+            return false;
+        }
+
+        String prefix = values[0] + "," + values[1] + ",";
+        long position = offsets.get(code) + prefix.getBytes(StandardCharsets.UTF_8).length;
+        // チェックサムも桁数が変わらないため、ステータスからチェックサムまでを同じ長さで上書きできる
+        byte[] patch = sealed
+                ? CsvChecksum.seal(prefix + status + "," + values[3]).substring(prefix.length())
+                        .getBytes(StandardCharsets.UTF_8)
+                : new byte[] { (byte) ('0' + status) };
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(patch), position);
+        }
+        return true;
+    }
+
+    /**
+     * 保持している位置を破棄します。ファイル全体を書き換えた後に呼び出します。
+     */
+    synchronized void invalidate() {
+        offsets = null;
+    }
+
+    private String readLineOf(int code) throws IOException {
+        if (offsets == null) {
+            offsets = scan();
+        }
+        Long offset = offsets.get(code);
+        if (offset == null) {
+            return null;
+        }
+        String line = readLineAt(offset);
+        // 追記・書き換えで位置がずれていないか先頭のコードで確認する
+        if (line == null || !line.startsWith(code + ",")) {
+            return null;
+        }
+        return line;
+    }
+
+    /**
+     * ファイルを先頭から読み、各行の開始位置をタスクコードごとに記録します。
+     * チェックサムを書く前に途切れた行は、TaskDataAccess#forEachと同じく記録しません。
+     */
+    private Map<Integer, Long> scan() throws IOException {
+        Map<Integer, Long> result = new HashMap<>();
+        CsvChecksum.Scan checksums = new CsvChecksum.Scan();
+        try (CsvLineReader reader = new CsvLineReader(Files.newInputStream(path))) {
+            reader.next(); // ヘッダー行を読み飛ばす
+            while (reader.next()) {
+                // 先頭がコードとカンマでない行は記録しない
+                if (!checksums.accepts(reader.isSealed()) || reader.columns() < 2) {
+                    continue;
+                }
+                try {
+                    result.put(reader.intColumn(0), reader.offset());
+                } catch (NumberFormatException e) {
+                    // コードとして扱わない
+                }
+            }
+        }
+        return result;
+    }
+
+    private String readLineAt(long offset) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+        int[] newline = new int[1];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = offset;
+            while (true) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                if (ByteScanner.DEFAULT.indexAll(buffer.array(), 0, read, (byte) '\n', newline) > 0) {
+                    bytes.write(buffer.array(), 0, newline[0]);
+                    return decode(bytes);
+                }
+                bytes.write(buffer.array(), 0, read);
+                position += read;
+            }
+        }
+        return bytes.size() == 0 ? null : decode(bytes);
+    }
+
+    private String decode(ByteArrayOutputStream bytes) {
+        String line = bytes.toString(StandardCharsets.UTF_8);
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+}
@@ -0,0 +1,319 @@
+package com.taskapp.dataaccess;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * tasks.csvを読み込み・変換・担当ユーザーの解決の3段に分け、並行に処理しながら読み込みます。
+ * <ol>
+ * <li>読み込み：1つのスレッドがファイルを一定のバイト数の塊で読み、行の途中で切れないよう最後の改行で区切る</li>
+ * <li>変換：複数のスレッドが塊を{@link CsvLineReader}で行に分け、タスクコード・件名・ステータス・担当ユーザーコードに変換する</li>
+ * <li>解決：呼び出したスレッドが塊をファイルの順に並べ直し、担当ユーザーを解決してタスクを渡す</li>
+ * </ol>
+ * 段の間は上限のあるキューでつなぎ、処理中の塊の数も上限を超えないようにするため、
+ * 後ろの段が遅い場合は読み込みが待ち、ファイルの大きさに関わらず使うメモリは一定です。
+ * 渡すタスクと順序、形式が正しくない行の扱いは{@link TaskDataAccess#forEach(IntFunction, Consumer)}を1行ずつ読む場合と同じです。
+ */
+class TaskLoadPipeline {
+    /** 1つの塊のバイト数 */
+    private static final int BLOCK_BYTES = 64 * 1024;
+
+    /** 変換するスレッドの数 */
+    private static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /** 処理中（読み込み済みでまだ渡していない）の塊の上限 */
+    private static final int MAX_IN_FLIGHT = WORKERS * 4;
+
+    /** 読み込みの終わりを知らせる塊の番号 */
+    private static final int END = -1;
+
+    private final String filePath;
+
+    private final BlockingQueue<Block> raw = new ArrayBlockingQueue<>(MAX_IN_FLIGHT);
+
+    private final BlockingQueue<Block> parsed = new ArrayBlockingQueue<>(MAX_IN_FLIGHT);
+
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+
+    /** 読み込んだ塊の数。読み込みが終わった時点の値を使う */
+    private volatile int blockCount;
+
+    /**
+     * @param filePath tasks.csvのパス
+     */
+    TaskLoadPipeline(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * この読み込み方法を使う価値があるかを判定します。
+     * スレッドを起動する分だけ遅くなるため、小さいファイルや1コアの環境では1行ずつ読み込みます。
+     *
+     * @param fileSize       ファイルの大きさ（バイト）
+     * @param thresholdBytes この大きさ以上のファイルに使う
+     * @return 使う場合はtrue
+     */
+    static boolean isWorthwhile(long fileSize, long thresholdBytes) {
+        return Runtime.getRuntime().availableProcessors() > 1 && fileSize >= thresholdBytes;
+    }
+
+    /**
+     * 全てのタスクを読み込み、ファイルの順に処理します。
+     * 担当ユーザーの解決とタスクの処理は呼び出したスレッドで行います。
+     * 読み込みに失敗した場合はスタックトレースを出力し、それまでに読み込んだタスクだけを処理します。
+     *
+     * @param userResolver 担当ユーザーコードから担当ユーザーを取得する処理（見つからない場合はnull）
+     * @param action       各タスクに対する処理
+     */
+    void forEach(IntFunction<User> userResolver, Consumer<Task> action) {
+        Thread readerThread = new Thread(this::read, "task-load-reader");
+        Thread[] workerThreads = new Thread[WORKERS];
+        for (int i = 0; i < WORKERS; i++) {
+            workerThreads[i] = new Thread(this::parse, "task-load-parser-" + i);
+        }
+        readerThread.setDaemon(true);
+        readerThread.start();
+        for (Thread thread : workerThreads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+        try {
+            resolve(userResolver, action);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 処理が途中で例外になった場合も、待っているスレッドを止める
+            readerThread.interrupt();
+            for (Thread thread : workerThreads) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 読み込みの段です。最後の改行までを1つの塊とし、残りは次の塊の先頭に回します。
+     */
+    private void read() {
+        int sequence = 0;
+        try (InputStream in = new FileInputStream(filePath)) {
+            byte[] carry = new byte[0];
+            boolean eof = false;
+            while (!eof) {
+                inFlight.acquire();
+                byte[] bytes = Arrays.copyOf(carry, Math.max(BLOCK_BYTES, carry.length * 2));
+                int length = carry.length;
+                int end = 0;
+                // 1行が塊より長い場合は、行末が見つかるまで塊を広げる
+                while (end == 0 && !eof) {
+                    if (length == bytes.length) {
+                        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                    }
+                    while (length < bytes.length) {
+                        int read = in.read(bytes, length, bytes.length - length);
+                        if (read < 0) {
+                            eof = true;
+                            break;
+                        }
+                        length += read;
+                    }
+                    end = eof ? length : lastLineEnd(bytes, length);
+                }
+                carry = Arrays.copyOfRange(bytes, end, length);
+                raw.put(new Block(sequence++, bytes, end));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            return;
+        }
+        blockCount = sequence;
+        try {
+            for (int i = 0; i < WORKERS; i++) {
+                raw.put(new Block(END, null, 0));
+            }
+        } catch (InterruptedException e) {
+            // 呼び出し側が処理を終えている
+        }
+    }
+
+    /**
+     * 最後の改行の次の位置を求めます。
+     *
+     * @return 改行の次の位置、塊の中に改行が無い場合は0
+     */
+    private static int lastLineEnd(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 変換の段です。塊の各行をタスクの値に変換します。
+     */
+    private void parse() {
+        try {
+            while (true) {
+                Block block = raw.take();
+                if (block.sequence != END) {
+                    block.parse();
+                }
+                parsed.put(block);
+                if (block.sequence == END) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // 呼び出し側が処理を終えている
+        }
+    }
+
+    /**
+     * 解決の段です。変換済みの塊をファイルの順に並べ直し、担当ユーザーを解決して処理します。
+     */
+    private void resolve(IntFunction<User> userResolver, Consumer<Task> action) throws InterruptedException {
+        Map<Integer, Block> pending = new HashMap<>();
+        int next = 0;
+        int ended = 0;
+        // 前の塊までにチェックサムの付いた行があったか
+        boolean sealedSeen = false;
+        while (true) {
+            Block block = pending.remove(next);
+            if (block == null) {
+                if (ended == WORKERS && next == blockCount) {
+                    return;
+                }
+                Block taken = parsed.take();
+                if (taken.sequence == END) {
+                    ended++;
+                } else {
+                    pending.put(taken.sequence, taken);
+                }
+                continue;
+            }
+            for (int i = 0; i < block.rows; i++) {
+                // TaskDataAccess#forEachと同じく、チェックサムの付いた行より後のチェックサムの無い行は途切れた行として読み飛ばす
+                if (CsvChecksum.ENABLED && !block.sealed[i] && (sealedSeen || i >= block.sealedFrom)) {
+                    continue;
+                }
+                User user = userResolver.apply(block.repUserCodes[i]);
+                action.accept(new Task(block.codes[i], block.names[i], block.statuses[i], user));
+            }
+            if (block.failure != null) {
+                throw block.failure;
+            }
+            sealedSeen |= block.sealedFrom != Integer.MAX_VALUE;
+            inFlight.release();
+            next++;
+        }
+    }
+
+    /**
+     * 読み込んだ1つの塊と、その変換結果です。
+     */
+    private static class Block {
+        final int sequence;
+
+        byte[] bytes;
+
+        final int length;
+
+        int rows;
+
+        int[] codes;
+
+        String[] names;
+
+        int[] statuses;
+
+        int[] repUserCodes;
+
+        boolean[] sealed;
+
+        /** 塊の中で最初のチェックサムの付いた行より後の行の、最初の行番号。無い場合はInteger.MAX_VALUE */
+        int sealedFrom = Integer.MAX_VALUE;
+
+        /** 変換中に発生した例外。それより前の行だけを処理した後にスローする */
+        RuntimeException failure;
+
+        Block(int sequence, byte[] bytes, int length) {
+            this.sequence = sequence;
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        /**
+         * 行に分けて変換します。行の区切りはTaskDataAccess#forEachと同じくLFで、CRLFのCRは行に含めません。
+         */
+        void parse() {
+            int capacity = 64;
+            codes = new int[capacity];
+            names = new String[capacity];
+            statuses = new int[capacity];
+            repUserCodes = new int[capacity];
+            sealed = new boolean[capacity];
+            // 途切れた行の扱いは塊を並べ直した後に決めるため、ここではチェックサムだけを確かめる
+            CsvChecksum.Scan scan = new CsvChecksum.Scan(false, false);
+            try {
+                CsvLineReader reader = new CsvLineReader(bytes, length);
+                // ファイルの先頭の塊はヘッダー行を読み飛ばす
+                if (sequence == 0) {
+                    reader.next();
+                }
+                while (reader.next()) {
+                    addRow(reader, scan);
+                }
+            } catch (IOException e) {
+                // 読み込み済みのバイト列からは発生しない
+                throw new IllegalStateException(e);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            bytes = null;
+        }
+
+        /**
+         * 1行を変換して追加します。TaskDataAccess#forEachと同じく、形式が正しくない行は読み飛ばします。
+         */
+        private void addRow(CsvLineReader reader, CsvChecksum.Scan scan) {
+            boolean hasChecksum = reader.isSealed();
+            if (hasChecksum && sealedFrom == Integer.MAX_VALUE) {
+                sealedFrom = rows;
+            }
+            if (!reader.verify(scan) || reader.columns() != 4) {
+                return;
+            }
+            int code = reader.intColumn(0);
+            int status = reader.intColumn(2);
+            int repUserCode = reader.intColumn(3);
+            if (rows == codes.length) {
+                int capacity = rows * 2;
+                codes = Arrays.copyOf(codes, capacity);
+                names = Arrays.copyOf(names, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                repUserCodes = Arrays.copyOf(repUserCodes, capacity);
+                sealed = Arrays.copyOf(sealed, capacity);
+            }
+            codes[rows] = code;
+            names[rows] = reader.column(1);
+            statuses[rows] = status;
+            repUserCodes[rows] = repUserCode;
+            sealed[rows] = hasChecksum;
+            rows++;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * ユーザー・タスクのメモリ上の状態をバイナリのスナップショットとして保存し、起動時に復元します。
+ * スナップショットには作成時点の各CSVのサイズ・世代（{@link CsvGeneration}）と、そのサイズの直前の一定の範囲のCRC32Cを記録し、
+ * 起動時はそれ以降に追記された行だけを読み込みます。確かめる範囲が一定のため、CSVが大きくなっても起動時間は変わりません。
+ * <ul>
+ * <li>users.csv・tasks.csv：追記された行を追加する</li>
+ * <li>logs.csv：追記されたログのステータスをタスクに反映する</li>
+ * </ul>
+ * tasks.csvのステータスは{@link TaskLineOffsets#patchStatus}でその場で上書きされるため、CRC32Cには含めません。
+ * 上書きされたステータスは同時にlogs.csvへ追記されるため、追記されたログから反映します。
+ * いずれかのCSVが記録時より小さい、世代が変わっていた（書き換え・切り出し・コンパクション）、または記録した範囲の内容が変わっていた場合と、
+ * 追記された行を読み取れない場合はスナップショットを使わず、CSVから作り直します。
+ */
+public class TaskSnapshot {
+    private static final int MAGIC = 0x54534E50;
+
+    private static final int VERSION = 3;
+
+    /** サイズの直前のCRC32Cを計算する範囲（バイト） */
+    private static final int WINDOW_BYTES = 4 * 1024;
+
+    private final Path snapshotPath;
+
+    private final Path usersPath;
+
+    private final Path tasksPath;
+
+    private final Path logsPath;
+
+    private final Map<Integer, User> users = new LinkedHashMap<>();
+
+    public TaskSnapshot() {
+        this("app/src/main/resources/tasks.snapshot", "app/src/main/resources/users.csv",
+                "app/src/main/resources/tasks.csv", "app/src/main/resources/logs.csv");
+    }
+
+    /**
+     * @param snapshotPath スナップショットファイルのパス
+     * @param usersPath    users.csvのパス
+     * @param tasksPath    tasks.csvのパス
+     * @param logsPath     logs.csvのパス
+     */
+    public TaskSnapshot(String snapshotPath, String usersPath, String tasksPath, String logsPath) {
+        this.snapshotPath = Paths.get(snapshotPath);
+        this.usersPath = Paths.get(usersPath);
+        this.tasksPath = Paths.get(tasksPath);
+        this.logsPath = Paths.get(logsPath);
+    }
+
+    /**
+     * 最新のスナップショットと、それ以降に追記された行から全てのタスクを復元します。
+     * スナップショットが無い、または使えない場合はCSVから読み込み、新しいスナップショットを作成します。
+     *
+     * @return 復元したタスクのリスト
+     */
+    public List<Task> load() {
+        Map<Integer, Task> tasks = new LinkedHashMap<>();
+        users.clear();
+        boolean restored = false;
+        try {
+            restored = restore(tasks);
+        } catch (IOException e) {
+            // 壊れたスナップショットはCSVから作り直す
+            e.printStackTrace();
+        } catch (NumberFormatException e) {
+            // 追記された行を読み取れない場合は、記録した位置が行の途中になっているためCSVから作り直す
+        }
+
+        if (!restored) {
+            users.clear();
+            tasks.clear();
+            try {
+                replayUsers(0);
+                replayTasks(0, tasks);
+                save(tasks.values());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return new ArrayList<>(tasks.values());
+    }
+
+    /**
+     * 現在のタスクと読み込み済みのユーザーをスナップショットとして保存します。
+     * 一時ファイルに書き出してから置き換えるため、途中で失敗しても前回のスナップショットは残ります。
+     *
+     * @param tasks 保存するタスク
+     */
+    public void save(Collection<Task> tasks) {
+        Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            // 世代をサイズより先に読み、間に書き換えられた場合は次の起動時に世代の違いで検出する
+            long usersGeneration = CsvGeneration.read(usersPath);
+            long tasksGeneration = CsvGeneration.read(tasksPath);
+            long logsGeneration = CsvGeneration.read(logsPath);
+            long usersOffset = Files.size(usersPath);
+            long tasksOffset = Files.size(tasksPath);
+            long logsOffset = Files.size(logsPath);
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(usersOffset);
+                out.writeLong(usersGeneration);
+                out.writeLong(windowChecksum(usersPath, usersOffset, false));
+                out.writeLong(tasksOffset);
+                out.writeLong(tasksGeneration);
+                out.writeLong(windowChecksum(tasksPath, tasksOffset, true));
+                out.writeLong(logsOffset);
+                out.writeLong(logsGeneration);
+                out.writeLong(windowChecksum(logsPath, logsOffset, false));
+
+                out.writeInt(users.size());
+                for (User user : users.values()) {
+                    out.writeInt(user.getCode());
+                    out.writeUTF(user.getName());
+                    out.writeUTF(user.getEmail());
+                    out.writeUTF(user.getPassword());
+                }
+
+                out.writeInt(tasks.size());
+                for (Task task : tasks) {
+                    out.writeInt(task.getCode());
+                    out.writeUTF(task.getName());
+                    out.writeInt(task.getStatus());
+                    out.writeInt(task.getRepUser() == null ? -1 : task.getRepUser().getCode());
+                }
+            }
+            Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * スナップショットを読み込み、以降の追記分を反映します。
+     *
+     * @return スナップショットを使えた場合はtrue
+     */
+    private boolean restore(Map<Integer, Task> tasks) throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            return false;
+        }
+        long usersOffset;
+        long tasksOffset;
+        long logsOffset;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            usersOffset = in.readLong();
+            long usersGeneration = in.readLong();
+            long usersChecksum = in.readLong();
+            tasksOffset = in.readLong();
+            long tasksGeneration = in.readLong();
+            long tasksChecksum = in.readLong();
+            logsOffset = in.readLong();
+            long logsGeneration = in.readLong();
+            long logsChecksum = in.readLong();
+            if (!isUnchanged(usersPath, usersOffset, usersGeneration, usersChecksum, false)
+                    || !isUnchanged(tasksPath, tasksOffset, tasksGeneration, tasksChecksum, true)
+                    || !isUnchanged(logsPath, logsOffset, logsGeneration, logsChecksum, false)) {
+                return false;
+            }
+
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                User user = new User(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF());
+                users.put(user.getCode(), user);
+            }
+            int taskCount = in.readInt();
+            for (int i = 0; i < taskCount; i++) {
+                int code = in.readInt();
+                String name = in.readUTF();
+                int status = in.readInt();
+                User repUser = users.get(in.readInt());
+                tasks.put(code, new Task(code, name, status, repUser));
+            }
+        }
+
+        replayUsers(usersOffset);
+        replayTasks(tasksOffset, tasks);
+        replayLogs(logsOffset, tasks);
+        return true;
+    }
+
+    /**
+     * CSVがスナップショットの作成時から追記されただけかを確かめます。
+     * 記録したサイズの直前の範囲だけを確かめるため、範囲より前の外部からの書き換えは世代が変わらない限り検出できません。
+     *
+     * @param path       CSVのパス
+     * @param offset     記録したサイズ
+     * @param generation 記録した世代
+     * @param checksum   記録したCRC32C
+     * @param maskStatus タスクのステータス列を除いて確かめる場合はtrue
+     * @return 追記されただけの場合はtrue
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static boolean isUnchanged(Path path, long offset, long generation, long checksum, boolean maskStatus)
+            throws IOException {
+        return Files.size(path) >= offset && CsvGeneration.read(path) == generation
+                && windowChecksum(path, offset, maskStatus) == checksum;
+    }
+
+    /**
+     * CSVの指定したサイズの直前WINDOW_BYTESバイトのCRC32Cを計算します。
+     *
+     * @param path       CSVのパス
+     * @param offset     範囲の終わり
+     * @param maskStatus タスクのステータス列と行のチェックサムを除いて計算する場合はtrue
+     * @return CRC32C
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static long windowChecksum(Path path, long offset, boolean maskStatus) throws IOException {
+        byte[] bytes = CsvChecksum.readBefore(path, offset, WINDOW_BYTES);
+        if (maskStatus) {
+            maskStatuses(bytes, offset <= WINDOW_BYTES);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    /**
+     * tasks.csvの範囲のうち、ステータス列と行のチェックサムを0で埋めます。
+     * 範囲の先頭が行の途中の場合、その行は列の位置が分からないため全て0で埋めます。
+     *
+     * @param bytes         tasks.csvの範囲
+     * @param fromLineStart 範囲の先頭が行の始まりの場合はtrue
+     */
+    private static void maskStatuses(byte[] bytes, boolean fromLineStart) {
+        int lineStart = 0;
+        if (!fromLineStart) {
+            while (lineStart < bytes.length && bytes[lineStart] != '\n') {
+                bytes[lineStart++] = 0;
+            }
+            lineStart++;
+        }
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int end = lineEnd > lineStart && bytes[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            int commas = 0;
+            for (int i = lineStart; i < end && commas < 3; i++) {
+                if (bytes[i] == ',') {
+                    commas++;
+                } else if (commas == 2) {
+                    bytes[i] = 0;
+                }
+            }
+            int suffix = end - CsvChecksum.SUFFIX_LENGTH;
+            if (suffix >= lineStart && bytes[suffix] == ',' && bytes[suffix + 1] == '#') {
+                Arrays.fill(bytes, suffix + 2, end, (byte) 0);
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private void replayUsers(long offset) throws IOException {
+        for (String[] values : readFrom(usersPath, offset)) {
+            if (values.length != 4) {
+                continue;
+            }
+            int code = Integer.parseInt(values[0]);
+            users.put(code, new User(code, values[1], values[2], values[3]));
+        }
+    }
+
+    private void replayTasks(long offset, Map<Integer, Task> tasks) throws IOException {
+        for (String[] values : readFrom(tasksPath, offset)) {
+            if (values.length != 4) {
+                continue;
+            }
+            int code = Integer.parseInt(values[0]);
+            User repUser = users.get(Integer.parseInt(values[3]));
+            tasks.put(code, new Task(code, values[1], Integer.parseInt(values[2]), repUser));
+        }
+    }
+
+    private void replayLogs(long offset, Map<Integer, Task> tasks) throws IOException {
+        for (String[] values : readFrom(logsPath, offset)) {
+            if (values.length != 4) {
+                continue;
+            }
+            Task task = tasks.get(Integer.parseInt(values[0]));
+            if (task != null) {
+                task.setStatus(Integer.parseInt(values[2]));
+            }
+        }
+    }
+
+    /**
+     * CSVの指定したバイト位置以降の行を読み込みます。
+     * 先頭（位置0）から読む場合はヘッダー行を読み飛ばします。
+     */
+    private List<String[]> readFrom(Path path, long offset) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(offset);
+            BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+            if (offset == 0) {
+                reader.readLine();
+            }
+            CsvChecksum.Scan scan = new CsvChecksum.Scan();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = scan.strip(line);
+                if (line == null || line.isEmpty()) {
+                    continue;
+                }
+                rows.add(line.split(","));
+            }
+        }
+        return rows;
+    }
+}
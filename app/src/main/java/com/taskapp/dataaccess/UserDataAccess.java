@@ -1,14 +1,22 @@
 package com.taskapp.dataaccess;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.taskapp.model.User;
 
 public class UserDataAccess {
     private final String filePath;
 
+    /** findByCodeのキャッシュ件数の上限。システムプロパティ taskapp.cache.maxSize で変更でき、0でキャッシュしない */
+    static final int CACHE_MAX_SIZE = Integer.getInteger("taskapp.cache.maxSize", 1024);
+
+    private final BoundedCache<User> cache = new BoundedCache<>(CACHE_MAX_SIZE);
+
     public UserDataAccess() {
         filePath = "app/src/main/resources/users.csv";
     }
@@ -29,23 +37,21 @@ public class UserDataAccess {
      */
      public User findByEmailAndPassword(String email, String password) {
         User user = null;
-         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-
-             String line;
+        // 行ごとに文字列を作らないよう、メールアドレスとパスワードはバイト列のまま比べる
+        byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+         try (CsvLineReader reader = new CsvLineReader(new FileInputStream(filePath))) {
             // タイトル行を読み飛ばす
-            reader.readLine();
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-
+            reader.next();
+            while (reader.next()) {
                 // メールアドレス、パスワードが一致しなかったらスキップする
-                if (!(values[2].equals(email) && values[3].equals(password))) continue;
+                if (reader.columns() < 4
+                        || !(reader.columnEquals(2, emailBytes) && reader.columnEquals(3, passwordBytes))) continue;
 
                   // メールアドレス、パスワードが一致したらそのデータをUserオブジェクトにマッピング
-                  int code = Integer.parseInt(values[0]);
-                  String name = values[1];
-                  String userEmail = values[2];
-                  String userPassword = values[3];
-                  user = new User(code, name, userEmail, userPassword);
+                  int code = reader.intColumn(0);
+                  String name = reader.column(1);
+                  user = new User(code, name, email, password);
             }
          } catch (IOException e) {
              e.printStackTrace();;
@@ -57,25 +63,39 @@ public class UserDataAccess {
 
     /**
      * コードを基にユーザーデータを取得します。
+     * 直近に参照したユーザーはキャッシュから返します。
      * @param code 取得するユーザーのコード
      * @return 見つかったユーザー
      */
     //users.csv
-     public User findByCode(int code) {
-        User user = null;
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
+    public User findByCode(int code) {
+        return cache.get(code, this::readByCode);
+    }
 
-            reader.readLine();
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
+    /**
+     * キャッシュのヒット数・ミス数・追い出し数を取得します。
+     * @return キャッシュの統計
+     */
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
 
-                if (Integer.parseInt(values[0]) != code) continue;
+    /**
+     * CSVからコードを基にユーザーデータを読み込みます。
+     * @param code 取得するユーザーのコード
+     * @return 見つかったユーザー
+     */
+     private User readByCode(int code) {
+        User user = null;
+        try (CsvLineReader reader = new CsvLineReader(new FileInputStream(filePath))) {
+            reader.next();
+            while (reader.next()) {
+                if (reader.columns() < 4 || reader.intColumn(0) != code) continue;
 
                 // コードが一致したらそのデータをUserオブジェクトにマッピング
-                String name = values[1];
-                String userEmail = values[2];
-                String userPassword = values[3];
+                String name = reader.column(1);
+                String userEmail = reader.column(2);
+                String userPassword = reader.column(3);
                 user = new User(code, name, userEmail, userPassword);
                 break; // 一致するユーザーが見つかったのでループを終了
             }
@@ -84,4 +104,57 @@ public class UserDataAccess {
         }
          return user;
      }
-}
\ No newline at end of file
+
+    /**
+     * users.csvの外部からの変更を監視し、キャッシュに反映します。
+     * 追記された場合は該当するコードのキャッシュだけを、書き換えられた場合は全てのキャッシュを破棄します。
+     *
+     * @see com.taskapp.dataaccess.CsvWatcher#register(java.nio.file.Path, CsvWatcher.Listener)
+     * @param watcher   監視に使うウォッチャー
+     * @param onRewrite 書き換えられた場合の処理、無い場合はnull
+     * @throws IOException 監視を始められない場合
+     */
+    public void watch(CsvWatcher watcher, Runnable onRewrite) throws IOException {
+        watcher.register(Paths.get(filePath), new CsvWatcher.Listener() {
+            @Override
+            public void onAppend(List<String> lines) {
+                for (String line : lines) {
+                    try {
+                        cache.invalidate(Integer.parseInt(line.split(",")[0]));
+                    } catch (NumberFormatException e) {
+                        onRewrite();
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public void onRewrite() {
+                cache.invalidateAll();
+                if (onRewrite != null) {
+                    onRewrite.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * CSVから全てのユーザーデータを取得します。
+     * @return ユーザーのリスト
+     */
+    public List<User> findAll() {
+        List<User> users = new ArrayList<>();
+        try (CsvLineReader reader = new CsvLineReader(new FileInputStream(filePath))) {
+            reader.next(); // ヘッダー行を読み飛ばす
+            while (reader.next()) {
+                if (reader.columns() != 4) {
+                    continue;
+                }
+                users.add(new User(reader.intColumn(0), reader.column(1), reader.column(2), reader.column(3)));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return users;
+    }
+}
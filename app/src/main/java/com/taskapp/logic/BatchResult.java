@@ -0,0 +1,97 @@
+package com.taskapp.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.taskapp.model.Task;
+
+/**
+ * 複数のタスクをまとめて登録・変更した結果です。
+ * 問題のあった項目は他の項目の処理を止めずに、理由とともに失敗として記録します。
+ *
+ * @see com.taskapp.logic.TaskLogic#saveAll(List, com.taskapp.model.User)
+ * @see com.taskapp.logic.TaskLogic#changeStatusAll(java.util.Map, com.taskapp.model.User)
+ */
+public class BatchResult {
+    private final List<Task> succeeded = new ArrayList<>();
+
+    private final List<Failure> failures = new ArrayList<>();
+
+    void addSuccess(Task task) {
+        succeeded.add(task);
+    }
+
+    void addFailure(int index, int code, String message) {
+        failures.add(new Failure(index, code, message));
+    }
+
+    /**
+     * @return 登録・変更したタスク（変更後の内容、指定した順）
+     */
+    public List<Task> getSucceeded() {
+        return Collections.unmodifiableList(succeeded);
+    }
+
+    /**
+     * @return 失敗した項目（指定した順）
+     */
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return 失敗した項目がある場合はtrue
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult [succeeded=" + succeeded.size() + ", failures=" + failures + "]";
+    }
+
+    /**
+     * 失敗した1つの項目です。
+     */
+    public static class Failure {
+        private final int index;
+
+        private final int code;
+
+        private final String message;
+
+        Failure(int index, int code, String message) {
+            this.index = index;
+            this.code = code;
+            this.message = message;
+        }
+
+        /**
+         * @return 指定した項目の中での位置（0始まり）
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return タスクコード
+         */
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * @return 失敗した理由
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "タスクコード" + code + "：" + message;
+        }
+    }
+}
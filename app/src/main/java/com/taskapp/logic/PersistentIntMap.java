@@ -0,0 +1,372 @@
+package com.taskapp.logic;
+
+import java.util.Arrays;
+
+/**
+ * intのキーで値を引く、変更できないマップです。
+ * 32分岐のトライで保持し、追加・削除では根から該当する葉までの節だけを複製して新しいマップを返します。
+ * 変更前のマップとは複製しなかった節を共有するため、1回の変更で複製するのは高々7つの節です。
+ * <ul>
+ * <li>キーは符号なしの整数として昇順に並ぶ</li>
+ * <li>各節に配下の件数を持ち、n件目からの走査で手前の部分木を丸ごと読み飛ばせる</li>
+ * </ul>
+ * 変更されることが無いため、複数のスレッドからロック無しで読み込めます。
+ *
+ * @param <V> 値の型（nullは保持できない）
+ */
+final class PersistentIntMap<V> {
+    /**
+     * 走査で値を受け取る処理です。
+     *
+     * @param <V> 値の型
+     */
+    @FunctionalInterface
+    interface Visitor<V> {
+        /**
+         * @param key   キー
+         * @param value 値
+         * @return 走査を続ける場合はtrue
+         */
+        boolean visit(int key, V value);
+    }
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** 根の節が受け持つビットの位置。32ビットを上から2・5・5・5・5・5・5ビットに分ける */
+    private static final int ROOT_SHIFT = 30;
+
+    private static final PersistentIntMap<Object> EMPTY = new PersistentIntMap<>(null);
+
+    private final Node root;
+
+    private PersistentIntMap(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * 空のマップを取得します。
+     *
+     * @param <V> 値の型
+     * @return 空のマップ
+     */
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    /**
+     * @return 件数
+     */
+    int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    /**
+     * キーに対応する値を取得します。
+     *
+     * @param key キー
+     * @return 値、存在しない場合はnull
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        Node node = root;
+        for (int shift = ROOT_SHIFT; node != null; shift -= BITS) {
+            int bit = 1 << ((key >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (shift == 0) {
+                return (V) slot;
+            }
+            node = (Node) slot;
+        }
+        return null;
+    }
+
+    /**
+     * @param key キー
+     * @return キーが存在する場合はtrue
+     */
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * キーと値を追加した新しいマップを返します。同じキーが既にある場合は値を置き換えます。
+     *
+     * @param key   キー
+     * @param value 値
+     * @return 追加後のマップ
+     */
+    PersistentIntMap<V> put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("nullは保持できません");
+        }
+        return new PersistentIntMap<>(put(root, ROOT_SHIFT, key, value));
+    }
+
+    private static Node put(Node node, int shift, int key, Object value) {
+        int bit = 1 << ((key >>> shift) & MASK);
+        int bitmap = node == null ? 0 : node.bitmap;
+        Object[] slots = node == null ? new Object[0] : node.slots;
+        int index = Integer.bitCount(bitmap & (bit - 1));
+        boolean exists = (bitmap & bit) != 0;
+
+        Object child;
+        int sizeDelta;
+        if (shift == 0) {
+            child = value;
+            sizeDelta = exists ? 0 : 1;
+        } else {
+            Node oldChild = exists ? (Node) slots[index] : null;
+            Node newChild = put(oldChild, shift - BITS, key, value);
+            child = newChild;
+            sizeDelta = newChild.size - (oldChild == null ? 0 : oldChild.size);
+        }
+
+        Object[] newSlots;
+        if (exists) {
+            newSlots = slots.clone();
+            newSlots[index] = child;
+        } else {
+            newSlots = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            newSlots[index] = child;
+            System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+        }
+        return new Node(bitmap | bit, newSlots, (node == null ? 0 : node.size) + sizeDelta);
+    }
+
+    /**
+     * キーを削除した新しいマップを返します。キーが無い場合は自身を返します。
+     *
+     * @param key キー
+     * @return 削除後のマップ
+     */
+    PersistentIntMap<V> remove(int key) {
+        if (!containsKey(key)) {
+            return this;
+        }
+        Node newRoot = remove(root, ROOT_SHIFT, key);
+        return newRoot == null ? empty() : new PersistentIntMap<>(newRoot);
+    }
+
+    /**
+     * キーを削除した節を返します。キーが存在することは呼び出し元で確かめておきます。
+     *
+     * @return 削除後の節、空になった場合はnull
+     */
+    private static Node remove(Node node, int shift, int key) {
+        int bit = 1 << ((key >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Object child = shift == 0 ? null : remove((Node) node.slots[index], shift - BITS, key);
+
+        if (child != null) {
+            Object[] newSlots = node.slots.clone();
+            newSlots[index] = child;
+            return new Node(node.bitmap, newSlots, node.size - 1);
+        }
+        if (node.slots.length == 1) {
+            return null;
+        }
+        Object[] newSlots = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, newSlots, 0, index);
+        System.arraycopy(node.slots, index + 1, newSlots, index, newSlots.length - index);
+        return new Node(node.bitmap & ~bit, newSlots, node.size - 1);
+    }
+
+    /**
+     * 全ての値をキーの昇順に走査します。
+     *
+     * @param visitor 値を受け取る処理
+     */
+    void forEach(Visitor<V> visitor) {
+        forEachFrom(0, visitor);
+    }
+
+    /**
+     * キーの昇順でskip件目（0始まり）からの値を走査します。
+     * 手前の件数は節の件数で読み飛ばすため、skipの大きさによらず早く開始位置に着きます。
+     *
+     * @param skip    読み飛ばす件数
+     * @param visitor 値を受け取る処理
+     */
+    void forEachFrom(int skip, Visitor<V> visitor) {
+        if (root != null && skip < root.size) {
+            visit(root, ROOT_SHIFT, 0, new int[] { skip }, visitor);
+        }
+    }
+
+    /**
+     * @param prefix この節までに決まったキーの上位ビット
+     * @param skip   残りの読み飛ばす件数（走査中に減らす）
+     * @return 走査を続ける場合はtrue
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> boolean visit(Node node, int shift, int prefix, int[] skip, Visitor<V> visitor) {
+        int bitmap = node.bitmap;
+        for (int i = 0; i < node.slots.length; i++) {
+            int digit = Integer.numberOfTrailingZeros(bitmap);
+            bitmap &= bitmap - 1;
+            int key = prefix | digit << shift;
+            if (shift == 0) {
+                if (skip[0] > 0) {
+                    skip[0]--;
+                } else if (!visitor.visit(key, (V) node.slots[i])) {
+                    return false;
+                }
+                continue;
+            }
+            Node child = (Node) node.slots[i];
+            if (skip[0] >= child.size) {
+                skip[0] -= child.size;
+                continue;
+            }
+            if (!visit(child, shift - BITS, key, skip, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 空のマップから多数のキーを一度に追加するための作成用オブジェクトです。
+     * 作成中はキーと値を配列に溜めておき、{@link #build()}でキーの順に並べてから節を下から組み立てます。
+     * 節を1件ごとに複製しないため、1件ずつ追加するより大幅に速く、キーがまばらでも余分なメモリを使いません。
+     *
+     * @param <V> 値の型
+     */
+    static final class Builder<V> {
+        private int[] keys = new int[8];
+
+        private Object[] values = new Object[8];
+
+        private int count;
+
+        /** 追加されたキーが重複無く昇順に並んでいる間はtrue */
+        private boolean sorted = true;
+
+        /**
+         * キーと値を追加します。同じキーを複数回追加した場合は最後の値を使います。
+         *
+         * @param key   キー
+         * @param value 値
+         * @return 自身
+         */
+        Builder<V> put(int key, V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("nullは保持できません");
+            }
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            if (count > 0 && Integer.compareUnsigned(key, keys[count - 1]) <= 0) {
+                sorted = false;
+            }
+            keys[count] = key;
+            values[count] = value;
+            count++;
+            return this;
+        }
+
+        /**
+         * 追加した内容でマップを作成します。
+         *
+         * @return 作成したマップ
+         */
+        PersistentIntMap<V> build() {
+            if (count == 0) {
+                return empty();
+            }
+            if (!sorted) {
+                sortAndDistinct();
+            }
+            return new PersistentIntMap<>(node(keys, values, 0, count, ROOT_SHIFT));
+        }
+
+        /**
+         * キーの昇順に並べ替え、同じキーは最後に追加した値だけを残します。
+         */
+        private void sortAndDistinct() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            // 同じキーは追加した順に並ぶ（安定ソート）
+            Arrays.sort(order, (a, b) -> Integer.compareUnsigned(keys[a], keys[b]));
+            int[] sortedKeys = new int[count];
+            Object[] sortedValues = new Object[count];
+            int distinct = 0;
+            for (int index : order) {
+                if (distinct > 0 && sortedKeys[distinct - 1] == keys[index]) {
+                    sortedValues[distinct - 1] = values[index];
+                    continue;
+                }
+                sortedKeys[distinct] = keys[index];
+                sortedValues[distinct] = values[index];
+                distinct++;
+            }
+            keys = sortedKeys;
+            values = sortedValues;
+            count = distinct;
+            sorted = true;
+        }
+
+        /**
+         * 昇順に並んだキーの範囲[from, to)から節を組み立てます。
+         */
+        private static Node node(int[] keys, Object[] values, int from, int to, int shift) {
+            Object[] slots = new Object[1 << BITS];
+            int bitmap = 0;
+            int slotCount = 0;
+            int size = 0;
+            for (int i = from; i < to;) {
+                int digit = (keys[i] >>> shift) & MASK;
+                int end = i + 1;
+                while (end < to && ((keys[end] >>> shift) & MASK) == digit) {
+                    end++;
+                }
+                bitmap |= 1 << digit;
+                if (shift == 0) {
+                    slots[slotCount++] = values[i];
+                    size++;
+                } else {
+                    Node child = node(keys, values, i, end, shift - BITS);
+                    slots[slotCount++] = child;
+                    size += child.size;
+                }
+                i = end;
+            }
+            return new Node(bitmap, Arrays.copyOf(slots, slotCount), size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) -> {
+            sb.append(sb.length() > 1 ? ", " : "").append(key).append('=').append(value);
+            return true;
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * トライの節です。bitmapの立っているビットに対応する子（葉の場合は値）だけをslotsに詰めて持ちます。
+     */
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+        final int size;
+
+        Node(int bitmap, Object[] slots, int size) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+            this.size = size;
+        }
+    }
+}
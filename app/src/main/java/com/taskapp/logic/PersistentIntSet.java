@@ -0,0 +1,296 @@
+package com.taskapp.logic;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * intの値を保持する、変更できない集合です。{@link PersistentIntMap}と同じ32分岐のトライで、
+ * 最下段の32個の値は1つのintのビットで表します。
+ * 追加・削除では根から最下段までの節だけを複製し、変更前の集合とは他の節を共有します。
+ * 値がまばらでも1件あたりの大きさが小さいため、タスク名の索引のように件数の多い一覧に使います。
+ */
+final class PersistentIntSet {
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final int ROOT_SHIFT = 30;
+
+    /** 子が値のビット列（words）になる段 */
+    private static final int BOTTOM_SHIFT = BITS;
+
+    private static final PersistentIntSet EMPTY = new PersistentIntSet(null);
+
+    private final Node root;
+
+    private PersistentIntSet(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @return 空の集合
+     */
+    static PersistentIntSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return 件数
+     */
+    int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    /**
+     * @param value 値
+     * @return 値を含む場合はtrue
+     */
+    boolean contains(int value) {
+        Node node = root;
+        for (int shift = ROOT_SHIFT; node != null; shift -= BITS) {
+            int bit = 1 << ((value >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return false;
+            }
+            int index = Integer.bitCount(node.bitmap & (bit - 1));
+            if (shift == BOTTOM_SHIFT) {
+                return (node.words[index] & (1 << (value & MASK))) != 0;
+            }
+            node = (Node) node.slots[index];
+        }
+        return false;
+    }
+
+    /**
+     * 値を追加した新しい集合を返します。既に含む場合は自身を返します。
+     *
+     * @param value 値
+     * @return 追加後の集合
+     */
+    PersistentIntSet add(int value) {
+        if (contains(value)) {
+            return this;
+        }
+        return new PersistentIntSet(add(root, ROOT_SHIFT, value));
+    }
+
+    private static Node add(Node node, int shift, int value) {
+        int bit = 1 << ((value >>> shift) & MASK);
+        int bitmap = node == null ? 0 : node.bitmap;
+        int index = Integer.bitCount(bitmap & (bit - 1));
+        boolean exists = (bitmap & bit) != 0;
+        int size = (node == null ? 0 : node.size) + 1;
+
+        if (shift == BOTTOM_SHIFT) {
+            int[] words = node == null ? new int[0] : node.words;
+            int word = 1 << (value & MASK);
+            int[] newWords;
+            if (exists) {
+                newWords = words.clone();
+                newWords[index] |= word;
+            } else {
+                newWords = new int[words.length + 1];
+                System.arraycopy(words, 0, newWords, 0, index);
+                newWords[index] = word;
+                System.arraycopy(words, index, newWords, index + 1, words.length - index);
+            }
+            return new Node(bitmap | bit, null, newWords, size);
+        }
+
+        Object[] slots = node == null ? new Object[0] : node.slots;
+        Node child = add(exists ? (Node) slots[index] : null, shift - BITS, value);
+        return new Node(bitmap | bit, replace(slots, index, exists, child), null, size);
+    }
+
+    /**
+     * 値を削除した新しい集合を返します。含まない場合は自身を返します。
+     *
+     * @param value 値
+     * @return 削除後の集合
+     */
+    PersistentIntSet remove(int value) {
+        if (!contains(value)) {
+            return this;
+        }
+        Node newRoot = remove(root, ROOT_SHIFT, value);
+        return newRoot == null ? EMPTY : new PersistentIntSet(newRoot);
+    }
+
+    /**
+     * @return 削除後の節、空になった場合はnull
+     */
+    private static Node remove(Node node, int shift, int value) {
+        int bit = 1 << ((value >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+
+        if (shift == BOTTOM_SHIFT) {
+            int word = node.words[index] & ~(1 << (value & MASK));
+            if (word != 0) {
+                int[] newWords = node.words.clone();
+                newWords[index] = word;
+                return new Node(node.bitmap, null, newWords, node.size - 1);
+            }
+            if (node.words.length == 1) {
+                return null;
+            }
+            int[] newWords = new int[node.words.length - 1];
+            System.arraycopy(node.words, 0, newWords, 0, index);
+            System.arraycopy(node.words, index + 1, newWords, index, newWords.length - index);
+            return new Node(node.bitmap & ~bit, null, newWords, node.size - 1);
+        }
+
+        Node child = remove((Node) node.slots[index], shift - BITS, value);
+        if (child != null) {
+            return new Node(node.bitmap, replace(node.slots, index, true, child), null, node.size - 1);
+        }
+        if (node.slots.length == 1) {
+            return null;
+        }
+        Object[] newSlots = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, newSlots, 0, index);
+        System.arraycopy(node.slots, index + 1, newSlots, index, newSlots.length - index);
+        return new Node(node.bitmap & ~bit, newSlots, null, node.size - 1);
+    }
+
+    private static Object[] replace(Object[] slots, int index, boolean exists, Object child) {
+        if (exists) {
+            Object[] newSlots = slots.clone();
+            newSlots[index] = child;
+            return newSlots;
+        }
+        Object[] newSlots = new Object[slots.length + 1];
+        System.arraycopy(slots, 0, newSlots, 0, index);
+        newSlots[index] = child;
+        System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+        return newSlots;
+    }
+
+    /**
+     * 全ての値を符号なしの整数として昇順に走査します。
+     *
+     * @param visitor 値を受け取る処理。falseを返すと走査を終える
+     */
+    void forEach(IntPredicate visitor) {
+        if (root != null) {
+            visit(root, ROOT_SHIFT, 0, visitor);
+        }
+    }
+
+    private static boolean visit(Node node, int shift, int prefix, IntPredicate visitor) {
+        int bitmap = node.bitmap;
+        for (int i = 0; bitmap != 0; i++) {
+            int digit = Integer.numberOfTrailingZeros(bitmap);
+            bitmap &= bitmap - 1;
+            int base = prefix | digit << shift;
+            if (shift == BOTTOM_SHIFT) {
+                for (int word = node.words[i]; word != 0; word &= word - 1) {
+                    if (!visitor.test(base | Integer.numberOfTrailingZeros(word))) {
+                        return false;
+                    }
+                }
+            } else if (!visit((Node) node.slots[i], shift - BITS, base, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 多数の値から集合を一度に作成するための作成用オブジェクトです。
+     * 値を配列に溜めておき、{@link #build()}で昇順に並べてから節を下から組み立てます。
+     */
+    static final class Builder {
+        private int[] values = new int[8];
+
+        private int count;
+
+        /**
+         * @param value 追加する値（重複してもよい）
+         * @return 自身
+         */
+        Builder add(int value) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = value;
+            return this;
+        }
+
+        /**
+         * @return 追加した値の集合
+         */
+        PersistentIntSet build() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            int[] sorted = Arrays.copyOf(values, count);
+            boolean ascending = true;
+            for (int i = 1; i < count && ascending; i++) {
+                ascending = Integer.compareUnsigned(sorted[i - 1], sorted[i]) < 0;
+            }
+            if (!ascending) {
+                // 符号を反転すると、符号付きの昇順が符号なしの昇順になる
+                for (int i = 0; i < count; i++) {
+                    sorted[i] ^= Integer.MIN_VALUE;
+                }
+                Arrays.sort(sorted);
+                for (int i = 0; i < count; i++) {
+                    sorted[i] ^= Integer.MIN_VALUE;
+                }
+            }
+            return new PersistentIntSet(node(sorted, 0, count, ROOT_SHIFT));
+        }
+
+        /**
+         * 昇順に並んだ値の範囲[from, to)から節を組み立てます。重複した値は1つにまとめます。
+         */
+        private static Node node(int[] values, int from, int to, int shift) {
+            int bitmap = 0;
+            int childCount = 0;
+            Object[] slots = shift == BOTTOM_SHIFT ? null : new Object[1 << BITS];
+            int[] words = shift == BOTTOM_SHIFT ? new int[1 << BITS] : null;
+            int size = 0;
+            for (int i = from; i < to;) {
+                int digit = (values[i] >>> shift) & MASK;
+                int end = i + 1;
+                while (end < to && ((values[end] >>> shift) & MASK) == digit) {
+                    end++;
+                }
+                bitmap |= 1 << digit;
+                if (shift == BOTTOM_SHIFT) {
+                    int word = 0;
+                    for (int j = i; j < end; j++) {
+                        word |= 1 << (values[j] & MASK);
+                    }
+                    words[childCount++] = word;
+                    size += Integer.bitCount(word);
+                } else {
+                    Node child = node(values, i, end, shift - BITS);
+                    slots[childCount++] = child;
+                    size += child.size;
+                }
+                i = end;
+            }
+            return shift == BOTTOM_SHIFT
+                    ? new Node(bitmap, null, Arrays.copyOf(words, childCount), size)
+                    : new Node(bitmap, Arrays.copyOf(slots, childCount), null, size);
+        }
+    }
+
+    /**
+     * トライの節です。最下段の節はwordsに、それ以外の節はslotsに子を詰めて持ちます。
+     */
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+        final int[] words;
+        final int size;
+
+        Node(int bitmap, Object[] slots, int[] words, int size) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+            this.words = words;
+            this.size = size;
+        }
+    }
+}
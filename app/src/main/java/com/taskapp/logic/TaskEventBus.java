@@ -0,0 +1,222 @@
+package com.taskapp.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.taskapp.model.TaskEvent;
+
+/**
+ * タスクのイベントを購読者に配信する、ロックを使わない固定長のリングバッファです。
+ * <ul>
+ * <li>発行側は空きがある場合だけ次の番号をアトミックに確保し、その番号の枠にイベントを書いてから公開済みの番号を書き込む</li>
+ * <li>購読者はそれぞれ専用スレッドと読み込み済みの番号を持ち、公開済みのイベントをまとめて受け取る</li>
+ * <li>最も遅い購読者がまだ読んでいない枠は上書きしないため、バッファが一杯の間は発行側が待つ。
+ * 待つ時間には上限があり、それまでに空かない場合はイベントを捨てて件数を数える</li>
+ * <li>まとめて発行する場合は全体で1つの期限を使い、一度期限を過ぎたら残りは待たずに捨てる</li>
+ * </ul>
+ * 発行はタスクの書き込み中に行われるため、遅い購読者が書き込みを止め続けないようにしています。
+ * 購読者が居ない場合、イベントは誰にも読まれずに上書きされます。
+ */
+public class TaskEventBus {
+    /** 1回の呼び出しで購読者に渡す最大件数 */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    /** 待機時間の上限（ナノ秒） */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final TaskEvent[] entries;
+
+    /** 枠ごとに公開済みのイベントの番号を保持する。未公開の場合は-1 */
+    private final AtomicLongArray published;
+
+    private final int mask;
+
+    /** 確保済みの最大の番号 */
+    private final AtomicLong claimed = new AtomicLong(-1);
+
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+
+    /** バッファが一杯の場合に発行側が待つ時間の上限（ナノ秒） */
+    private final long publishTimeoutNanos;
+
+    /** バッファが空かずに捨てたイベントの件数 */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity 保持するイベントの件数。2の累乗に切り上げる
+     */
+    public TaskEventBus(int capacity) {
+        this(capacity, 10);
+    }
+
+    /**
+     * @param capacity             保持するイベントの件数。2の累乗に切り上げる
+     * @param publishTimeoutMillis バッファが一杯の場合に発行側が待つ時間の上限（ミリ秒）
+     */
+    public TaskEventBus(int capacity, long publishTimeoutMillis) {
+        publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, publishTimeoutMillis));
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        entries = new TaskEvent[size];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * イベントを発行します。バッファが一杯の場合は最も遅い購読者が読み進めるまで待ちます。
+     * 待つ時間の上限までに空かない場合は、イベントを捨てて{@link #getDroppedCount()}に数えます。
+     *
+     * @param event 発行するイベント
+     * @return 発行した場合はtrue、捨てた場合はfalse
+     */
+    public boolean publish(TaskEvent event) {
+        return publish(event, System.nanoTime() + publishTimeoutNanos);
+    }
+
+    /**
+     * 複数のイベントを順に発行します。待つ時間の上限は全体で1回分とし、
+     * 期限を過ぎてバッファが空かなかった場合は、残りのイベントを待たずに捨てます。
+     *
+     * @param events 発行するイベント
+     * @return 発行したイベントの件数
+     */
+    public int publishAll(List<TaskEvent> events) {
+        long deadline = System.nanoTime() + publishTimeoutNanos;
+        int count = 0;
+        for (TaskEvent event : events) {
+            if (!publish(event, deadline)) {
+                // 期限を過ぎているため、以降は空きが無ければすぐに捨てる
+                deadline = System.nanoTime();
+                continue;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private boolean publish(TaskEvent event, long deadline) {
+        long parkNanos = 1;
+        long sequence;
+        while (true) {
+            long current = claimed.get();
+            sequence = current + 1;
+            // 読み込み済みの番号は減らないため、空きを確認してから確保するまでに枠が埋まることは無い
+            if (sequence - entries.length <= minConsumedSequence()) {
+                if (claimed.compareAndSet(current, sequence)) {
+                    break;
+                }
+                continue;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+        }
+        int index = (int) sequence & mask;
+        entries[index] = event;
+        published.set(index, sequence);
+        return true;
+    }
+
+    /**
+     * バッファが空かずに捨てたイベントの件数を取得します。
+     *
+     * @return 捨てたイベントの件数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 購読者を登録し、専用スレッドで配信を始めます。登録後に発行されたイベントから受け取ります。
+     *
+     * @param name     購読者の名前（スレッド名に使う）
+     * @param listener イベントを受け取る処理
+     */
+    public void subscribe(String name, TaskEventListener listener) {
+        Consumer consumer = new Consumer(listener, claimed.get());
+        consumers.add(consumer);
+        Thread thread = new Thread(consumer, "task-event-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * それまでに発行された全てのイベントを全ての購読者が受け取り終えるまで待ちます。
+     *
+     * @param timeout 待つ時間の上限
+     * @param unit    timeoutの単位
+     * @return 受け取り終えた場合はtrue、時間内に終わらなかった場合はfalse
+     */
+    public boolean awaitConsumed(long timeout, TimeUnit unit) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (minConsumedSequence() < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(MAX_PARK_NANOS);
+        }
+        return true;
+    }
+
+    private long minConsumedSequence() {
+        long min = Long.MAX_VALUE;
+        for (Consumer consumer : consumers) {
+            min = Math.min(min, consumer.consumed.get());
+        }
+        return min;
+    }
+
+    /**
+     * 1つの購読者の読み込み位置と配信処理です。
+     */
+    private class Consumer implements Runnable {
+        private final TaskEventListener listener;
+
+        /** 読み込み済みの最大の番号 */
+        private final AtomicLong consumed;
+
+        Consumer(TaskEventListener listener, long start) {
+            this.listener = listener;
+            this.consumed = new AtomicLong(start);
+        }
+
+        @Override
+        public void run() {
+            List<TaskEvent> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            long parkNanos = 1;
+            while (true) {
+                long next = consumed.get() + 1;
+                // 公開済みの番号が連続している所までをまとめて読む
+                while (batch.size() < MAX_BATCH_SIZE && published.get((int) next & mask) == next) {
+                    batch.add(entries[(int) next & mask]);
+                    next++;
+                }
+                if (batch.isEmpty()) {
+                    LockSupport.parkNanos(parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+                    continue;
+                }
+                parkNanos = 1;
+                try {
+                    listener.onEvents(batch);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                // 渡したリストは購読者が保持できるよう、次の配信では新しいリストを使う
+                batch = new ArrayList<>(MAX_BATCH_SIZE);
+                consumed.set(next - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.taskapp.logic;
+
+import java.util.List;
+
+import com.taskapp.model.TaskEvent;
+
+/**
+ * {@link TaskEventBus}からタスクのイベントを受け取ります。
+ */
+@FunctionalInterface
+public interface TaskEventListener {
+    /**
+     * 発生順に並んだイベントをまとめて受け取ります。
+     * 購読者ごとの専用スレッドから呼び出されるため、書き込み処理の応答時間には影響しません。
+     *
+     * @param events 前回の呼び出し以降に発生したイベント（1件以上）
+     */
+    void onEvents(List<TaskEvent> events);
+}
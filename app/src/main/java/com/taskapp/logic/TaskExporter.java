@@ -0,0 +1,283 @@
+package com.taskapp.logic;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.UserDataAccess;
+import com.taskapp.model.User;
+
+/**
+ * タスク・ログを、ユーザーコードをユーザー名に解決した形式で出力します。
+ * タスク・ログは1件ずつ読み込んで書き出し、リストに保持しないため、件数に関わらず使うメモリは一定です。
+ * ユーザーだけは出力の前に1度だけusers.csvを読み、ユーザーコードごとに出力形式に合わせて変換したユーザー名を保持します。
+ * 1件ごとに1行分の文字列を組み立て、1回の書き込みでバッファ付きのWriterに渡します。
+ * <ul>
+ * <li>NDJSON：1行に1件のJSON</li>
+ * <li>CSV：ヘッダー行付き、改行はLF、カンマ・ダブルクォート・改行を含む値はダブルクォートで囲む</li>
+ * </ul>
+ */
+public class TaskExporter {
+    /** 出力形式です。 */
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TaskDataAccess taskDataAccess;
+
+    private final LogDataAccess logDataAccess;
+
+    private final UserDataAccess userDataAccess;
+
+    /**
+     * @param taskDataAccess タスクのデータアクセス
+     * @param logDataAccess  ログのデータアクセス
+     * @param userDataAccess ユーザーのデータアクセス
+     */
+    public TaskExporter(TaskDataAccess taskDataAccess, LogDataAccess logDataAccess, UserDataAccess userDataAccess) {
+        this.taskDataAccess = taskDataAccess;
+        this.logDataAccess = logDataAccess;
+        this.userDataAccess = userDataAccess;
+    }
+
+    /**
+     * 全てのタスクを担当ユーザー名とともに出力します。
+     * 出力先のストリームは閉じません。
+     *
+     * @param out    出力先
+     * @param format 出力形式
+     * @param gzip   gzip圧縮する場合はtrue
+     * @return 出力したタスクの件数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public long exportTasks(OutputStream out, Format format, boolean gzip) throws IOException {
+        Map<Integer, User> users = new HashMap<>();
+        userDataAccess.findAll().forEach(user -> users.put(user.getCode(), user));
+        Map<Integer, String> names = escapeNames(users, format);
+        String unknownName = format == Format.NDJSON ? "null" : "";
+        // users.csvに無い担当ユーザーもコードは出力するよう、コードだけのユーザーとして扱う
+        IntFunction<User> userResolver = code -> {
+            User user = users.get(code);
+            return user != null ? user : new User(code, null, null, null);
+        };
+        return export(out, gzip, "Code,Name,Status,Rep_User_Code,Rep_User_Name", format, rows -> {
+            taskDataAccess.forEach(userResolver, task -> {
+                StringBuilder row = rows.next();
+                int repUserCode = task.getRepUser().getCode();
+                String repUserName = names.getOrDefault(repUserCode, unknownName);
+                if (format == Format.NDJSON) {
+                    row.append("{\"code\":").append(task.getCode()).append(",\"name\":");
+                    appendJsonString(row, task.getName());
+                    row.append(",\"status\":").append(task.getStatus())
+                            .append(",\"repUserCode\":").append(repUserCode)
+                            .append(",\"repUserName\":").append(repUserName).append('}');
+                } else {
+                    row.append(task.getCode()).append(',');
+                    appendCsvValue(row, task.getName());
+                    row.append(',').append(task.getStatus()).append(',').append(repUserCode).append(',')
+                            .append(repUserName);
+                }
+                rows.write();
+            });
+        });
+    }
+
+    /**
+     * 全てのログを変更したユーザー名とともに出力します。
+     * 出力先のストリームは閉じません。
+     *
+     * @param out    出力先
+     * @param format 出力形式
+     * @param gzip   gzip圧縮する場合はtrue
+     * @return 出力したログの件数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public long exportLogs(OutputStream out, Format format, boolean gzip) throws IOException {
+        Map<Integer, User> users = new HashMap<>();
+        userDataAccess.findAll().forEach(user -> users.put(user.getCode(), user));
+        Map<Integer, String> names = escapeNames(users, format);
+        String unknownName = format == Format.NDJSON ? "null" : "";
+        return export(out, gzip, "Task_Code,Change_User_Code,Change_User_Name,Status,Change_Date", format, rows -> {
+            logDataAccess.forEach(log -> {
+                StringBuilder row = rows.next();
+                String changeUserName = names.getOrDefault(log.getChangeUserCode(), unknownName);
+                if (format == Format.NDJSON) {
+                    row.append("{\"taskCode\":").append(log.getTaskCode())
+                            .append(",\"changeUserCode\":").append(log.getChangeUserCode())
+                            .append(",\"changeUserName\":").append(changeUserName)
+                            .append(",\"status\":").append(log.getStatus())
+                            .append(",\"changeDate\":\"").append(log.getChangeDate()).append("\"}");
+                } else {
+                    row.append(log.getTaskCode()).append(',').append(log.getChangeUserCode()).append(',')
+                            .append(changeUserName).append(',').append(log.getStatus()).append(',')
+                            .append(log.getChangeDate());
+                }
+                rows.write();
+            });
+        });
+    }
+
+    /**
+     * ユーザー名を出力形式に合わせて変換します。1行ごとに変換し直さずに済むよう、出力の前に1度だけ行います。
+     *
+     * @param users  ユーザーコードごとのユーザー
+     * @param format 出力形式
+     * @return ユーザーコードごとの、JSONの文字列リテラルまたはCSVの1列にしたユーザー名
+     */
+    private static Map<Integer, String> escapeNames(Map<Integer, User> users, Format format) {
+        Map<Integer, String> names = new HashMap<>();
+        StringBuilder name = new StringBuilder();
+        users.forEach((code, user) -> {
+            name.setLength(0);
+            if (format == Format.NDJSON) {
+                appendJsonString(name, user.getName());
+            } else {
+                appendCsvValue(name, user.getName());
+            }
+            names.put(code, name.toString());
+        });
+        return names;
+    }
+
+    /**
+     * 出力先を1つのバッファ付きのWriterで包んで書き出します。gzip圧縮する場合はその間に圧縮を挟みます。
+     * 書き終えたらフラッシュし、gzipの場合は圧縮を終えますが、出力先は閉じません。
+     *
+     * @param out       出力先
+     * @param gzip      gzip圧縮する場合はtrue
+     * @param csvHeader CSVの場合に出力するヘッダー行
+     * @param format    出力形式
+     * @param body      各行を書き出す処理
+     * @return 書き出した件数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static long export(OutputStream out, boolean gzip, String csvHeader, Format format,
+            Consumer<RowWriter> body) throws IOException {
+        // 出力は同じ値の繰り返しが多く速度優先でも十分に縮むため、圧縮レベルは最も速いものにする
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        } : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(gzip ? gzipOut : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == Format.CSV) {
+            writer.write(csvHeader);
+            writer.write('\n');
+        }
+        RowWriter rows = new RowWriter(writer);
+        try {
+            body.accept(rows);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        return rows.count;
+    }
+
+    /**
+     * 1行分の文字列を使い回しのバッファに組み立て、改行を付けて1回でWriterに書き出します。
+     */
+    private static class RowWriter {
+        private final Writer writer;
+
+        private final StringBuilder row = new StringBuilder(256);
+
+        private char[] chars = new char[256];
+
+        private long count;
+
+        RowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        /**
+         * @return 空にした1行分のバッファ
+         */
+        StringBuilder next() {
+            row.setLength(0);
+            return row;
+        }
+
+        /**
+         * 組み立てた1行に改行を付けて書き出します。
+         */
+        void write() {
+            row.append('\n');
+            int length = row.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            row.getChars(0, length, chars, 0);
+            try {
+                writer.write(chars, 0, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+        }
+    }
+
+    /**
+     * 文字列をJSONの文字列リテラルとして追加します。nullの場合はnullを追加します。
+     * CLIのndjson出力からも使い、JSONのエスケープはこのメソッドにまとめます。
+     *
+     * @param builder 追加先
+     * @param value   追加する文字列
+     */
+    public static void appendJsonString(StringBuilder builder, String value) {
+        if (value == null) {
+            builder.append("null");
+            return;
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+
+    /**
+     * 値をCSVの1列として追加します。カンマ・ダブルクォート・改行を含む場合はダブルクォートで囲みます。
+     * nullの場合は空の列にします。
+     */
+    static void appendCsvValue(StringBuilder builder, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            builder.append(value);
+            return;
+        }
+        builder.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,367 @@
+package com.taskapp.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * 担当ユーザーコード・ステータスからタスクコードを引くための索引です。
+ * 絞り込み一覧では索引からページ分のコードだけを取り出して表示します。
+ * タスク名の部分一致検索には{@link TaskNameIndex}を合わせて更新します。
+ * <p>
+ * 内部の表は全て{@link PersistentIntMap}で持ち、変更のたびに新しい表に置き換えます。
+ * {@link #snapshot()}はその時点の表を共有する読み取り専用の版を返すため、
+ * 書き込み中でもロック無しで一貫した内容を読み込めます。
+ * 一覧の並び順は登録（ステータスの場合は変更）した順で、表のキーにはその順番を表す通し番号を使います。
+ */
+public class TaskIndex {
+    /**
+     * 1件のタスクと、各表での通し番号です。
+     */
+    private static final class Entry {
+        final Task task;
+        final int seq;
+        final int statusSeq;
+
+        Entry(Task task, int seq, int statusSeq) {
+            this.task = task;
+            this.seq = seq;
+            this.statusSeq = statusSeq;
+        }
+    }
+
+    private PersistentIntMap<Entry> entriesByCode = PersistentIntMap.empty();
+
+    private PersistentIntMap<Task> allTasks = PersistentIntMap.empty();
+
+    private PersistentIntMap<PersistentIntMap<Task>> tasksByRepUser = PersistentIntMap.empty();
+
+    private PersistentIntMap<PersistentIntMap<Task>> tasksByStatus = PersistentIntMap.empty();
+
+    private final TaskNameIndex nameIndex;
+
+    private int nextSeq;
+
+    private long version;
+
+    private final boolean readOnly;
+
+    private TaskIndex(TaskNameIndex nameIndex, boolean readOnly) {
+        this.nameIndex = nameIndex;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * タスクのリストから索引を作成します。
+     *
+     * @param tasks 索引に登録するタスクのリスト
+     * @return 作成した索引
+     */
+    public static TaskIndex build(List<Task> tasks) {
+        // 同じコードが複数ある場合はaddと同じく後のタスクで置き換え、並び順も後の位置にする
+        Map<Integer, Task> unique = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            unique.remove(task.getCode());
+            unique.put(task.getCode(), task);
+        }
+
+        // 1件ずつ追加すると表を毎回複製するため、作成用オブジェクトでまとめて作る
+        PersistentIntMap.Builder<Entry> entries = new PersistentIntMap.Builder<>();
+        PersistentIntMap.Builder<Task> all = new PersistentIntMap.Builder<>();
+        Map<Integer, PersistentIntMap.Builder<Task>> byStatus = new HashMap<>();
+        Map<Integer, PersistentIntMap.Builder<Task>> byRepUser = new HashMap<>();
+        int seq = 0;
+        for (Task task : unique.values()) {
+            entries.put(task.getCode(), new Entry(task, seq, seq));
+            all.put(seq, task);
+            byStatus.computeIfAbsent(task.getStatus(), key -> new PersistentIntMap.Builder<>()).put(seq, task);
+            if (task.getRepUser() != null) {
+                byRepUser.computeIfAbsent(task.getRepUser().getCode(), key -> new PersistentIntMap.Builder<>())
+                        .put(seq, task);
+            }
+            seq++;
+        }
+
+        TaskIndex index = new TaskIndex(TaskNameIndex.build(unique.values()), false);
+        index.entriesByCode = entries.build();
+        index.allTasks = all.build();
+        index.tasksByStatus = buildPostings(byStatus);
+        index.tasksByRepUser = buildPostings(byRepUser);
+        index.nextSeq = seq;
+        index.version = seq;
+        return index;
+    }
+
+    private static PersistentIntMap<PersistentIntMap<Task>> buildPostings(
+            Map<Integer, PersistentIntMap.Builder<Task>> builders) {
+        PersistentIntMap.Builder<PersistentIntMap<Task>> postings = new PersistentIntMap.Builder<>();
+        builders.forEach((key, builder) -> postings.put(key, builder.build()));
+        return postings.build();
+    }
+
+    /**
+     * 現時点の内容を持つ読み取り専用の版を取得します。
+     * 表は変更されないため、版を作る処理は件数によらず一定の時間で終わります。
+     *
+     * @return 読み取り専用の版。変更するメソッドを呼び出すとUnsupportedOperationExceptionをスローする
+     */
+    public TaskIndex snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        TaskIndex snapshot = new TaskIndex(nameIndex.snapshot(), true);
+        snapshot.entriesByCode = entriesByCode;
+        snapshot.allTasks = allTasks;
+        snapshot.tasksByRepUser = tasksByRepUser;
+        snapshot.tasksByStatus = tasksByStatus;
+        snapshot.nextSeq = nextSeq;
+        snapshot.version = version;
+        return snapshot;
+    }
+
+    /**
+     * 索引を変更した回数を取得します。版同士の新旧の比較に使います。
+     *
+     * @return 変更した回数
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * タスクを索引に追加します。
+     * 同じコードのタスクが既に登録されている場合は置き換えます。
+     *
+     * @param task 追加するタスク
+     */
+    public void add(Task task) {
+        checkWritable();
+        if (entriesByCode.containsKey(task.getCode())) {
+            remove(task.getCode());
+        }
+        int seq = nextSeq++;
+        entriesByCode = entriesByCode.put(task.getCode(), new Entry(task, seq, seq));
+        allTasks = allTasks.put(seq, task);
+        tasksByStatus = putPosting(tasksByStatus, task.getStatus(), seq, task);
+        nameIndex.add(task.getCode(), task.getName());
+
+        User repUser = task.getRepUser();
+        if (repUser != null) {
+            tasksByRepUser = putPosting(tasksByRepUser, repUser.getCode(), seq, task);
+        }
+        version++;
+    }
+
+    /**
+     * タスクのステータス変更を索引に反映します。
+     * 既に変更後のステータスになっている場合は何もしません。
+     * 以前の版から見えるタスクを変えないよう、ステータスを変えたタスクを新たに作って置き換えます。
+     *
+     * @param code      タスクコード
+     * @param oldStatus 変更前のステータス
+     * @param newStatus 変更後のステータス
+     */
+    public void changeStatus(int code, int oldStatus, int newStatus) {
+        checkWritable();
+        Entry entry = entriesByCode.get(code);
+        if (entry == null || entry.task.getStatus() == newStatus) {
+            return;
+        }
+        Task old = entry.task;
+        Task task = new Task(code, old.getName(), newStatus, old.getRepUser());
+        int statusSeq = nextSeq++;
+        entriesByCode = entriesByCode.put(code, new Entry(task, entry.seq, statusSeq));
+        allTasks = allTasks.put(entry.seq, task);
+        tasksByStatus = removePosting(tasksByStatus, old.getStatus(), entry.statusSeq);
+        tasksByStatus = putPosting(tasksByStatus, newStatus, statusSeq, task);
+        if (task.getRepUser() != null) {
+            tasksByRepUser = putPosting(tasksByRepUser, task.getRepUser().getCode(), entry.seq, task);
+        }
+        version++;
+    }
+
+    /**
+     * タスクを索引から削除します。
+     *
+     * @param code 削除するタスクのコード
+     */
+    public void remove(int code) {
+        checkWritable();
+        Entry entry = entriesByCode.get(code);
+        if (entry == null) {
+            return;
+        }
+        Task task = entry.task;
+        entriesByCode = entriesByCode.remove(code);
+        allTasks = allTasks.remove(entry.seq);
+        tasksByStatus = removePosting(tasksByStatus, task.getStatus(), entry.statusSeq);
+        nameIndex.remove(code);
+        if (task.getRepUser() != null) {
+            tasksByRepUser = removePosting(tasksByRepUser, task.getRepUser().getCode(), entry.seq);
+        }
+        version++;
+    }
+
+    /**
+     * コードを基にタスクを1件取得します。
+     *
+     * @param code タスクコード
+     * @return 見つかったタスク、存在しない場合はnull
+     */
+    public Task findByCode(int code) {
+        Entry entry = entriesByCode.get(code);
+        return entry == null ? null : entry.task;
+    }
+
+    /**
+     * 索引に登録されている全てのタスクを取得します。
+     *
+     * @return タスクのリスト
+     */
+    public List<Task> findAll() {
+        List<Task> tasks = new ArrayList<>(allTasks.size());
+        allTasks.forEach((seq, task) -> tasks.add(task));
+        return tasks;
+    }
+
+    /**
+     * 条件に一致するタスクを1ページ分取得します。
+     * 条件がnullの場合はその条件で絞り込みません。
+     *
+     * @param status      ステータス
+     * @param repUserCode 担当ユーザーコード
+     * @param page        ページ番号（1始まり）
+     * @param pageSize    1ページあたりの件数
+     * @return 条件に一致するタスクのリスト
+     */
+    public List<Task> find(Integer status, Integer repUserCode, int page, int pageSize) {
+        List<Task> result = new ArrayList<>();
+        if (page < 1 || pageSize < 1) {
+            return result;
+        }
+        long skip = (long) (page - 1) * pageSize;
+
+        // 条件が1つ以下の場合は索引の表を開始位置から切り出す
+        if (status == null || repUserCode == null) {
+            PersistentIntMap<Task> tasks = candidates(status, repUserCode);
+            if (skip < tasks.size()) {
+                tasks.forEachFrom((int) skip, (seq, task) -> {
+                    result.add(task);
+                    return result.size() < pageSize;
+                });
+            }
+            return result;
+        }
+
+        // 両方の条件がある場合は件数の少ない方を走査し、もう一方で絞り込む
+        long[] remaining = { skip };
+        scanBoth(status, repUserCode, task -> {
+            if (remaining[0] > 0) {
+                remaining[0]--;
+                return true;
+            }
+            result.add(task);
+            return result.size() < pageSize;
+        });
+        return result;
+    }
+
+    /**
+     * タスク名にキーワードを含むタスクを取得します。
+     * 全角・半角と英字の大文字・小文字は区別しません。
+     *
+     * @see com.taskapp.logic.TaskNameIndex#search(String)
+     * @param keyword 検索するキーワード
+     * @return 一致したタスクのリスト（タスクコード順）
+     */
+    public List<Task> searchByName(String keyword) {
+        List<Task> result = new ArrayList<>();
+        for (int code : nameIndex.search(keyword)) {
+            result.add(entriesByCode.get(code).task);
+        }
+        return result;
+    }
+
+    /**
+     * 条件に一致するタスクの件数を取得します。
+     *
+     * @param status      ステータス
+     * @param repUserCode 担当ユーザーコード
+     * @return 条件に一致するタスクの件数
+     */
+    public int count(Integer status, Integer repUserCode) {
+        if (status == null || repUserCode == null) {
+            return candidates(status, repUserCode).size();
+        }
+        int[] count = { 0 };
+        scanBoth(status, repUserCode, task -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * 索引に登録されているタスクの件数を取得します。
+     *
+     * @return タスクの件数
+     */
+    public int size() {
+        return entriesByCode.size();
+    }
+
+    private PersistentIntMap<Task> candidates(Integer status, Integer repUserCode) {
+        PersistentIntMap<Task> tasks = allTasks;
+        if (status != null) {
+            tasks = tasksByStatus.get(status);
+        } else if (repUserCode != null) {
+            tasks = tasksByRepUser.get(repUserCode);
+        }
+        return tasks != null ? tasks : PersistentIntMap.empty();
+    }
+
+    /**
+     * ステータスと担当ユーザーの両方に一致するタスクを、件数の少ない方の表を走査して順に渡します。
+     *
+     * @param visitor 一致したタスクを受け取る処理。falseを返すと走査を終える
+     */
+    private void scanBoth(int status, int repUserCode, Predicate<Task> visitor) {
+        PersistentIntMap<Task> byStatus = candidates(status, null);
+        PersistentIntMap<Task> byRepUser = candidates(null, repUserCode);
+        boolean scanStatus = byStatus.size() <= byRepUser.size();
+        (scanStatus ? byStatus : byRepUser).forEach((seq, task) -> {
+            boolean matched = scanStatus
+                    ? task.getRepUser() != null && task.getRepUser().getCode() == repUserCode
+                    : task.getStatus() == status;
+            return !matched || visitor.test(task);
+        });
+    }
+
+    private static PersistentIntMap<PersistentIntMap<Task>> putPosting(
+            PersistentIntMap<PersistentIntMap<Task>> postings, int key, int seq, Task task) {
+        PersistentIntMap<Task> tasks = postings.get(key);
+        return postings.put(key, (tasks != null ? tasks : PersistentIntMap.<Task>empty()).put(seq, task));
+    }
+
+    private static PersistentIntMap<PersistentIntMap<Task>> removePosting(
+            PersistentIntMap<PersistentIntMap<Task>> postings, int key, int seq) {
+        PersistentIntMap<Task> tasks = postings.get(key);
+        if (tasks == null) {
+            return postings;
+        }
+        tasks = tasks.remove(seq);
+        return tasks.size() == 0 ? postings.remove(key) : postings.put(key, tasks);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("読み取り専用の版は変更できません");
+        }
+    }
+}
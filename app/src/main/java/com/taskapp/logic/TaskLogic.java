@@ -1,14 +1,28 @@
 package com.taskapp.logic;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
+import com.taskapp.dataaccess.CsvWatcher;
 import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.OffHeapTaskTable;
+import com.taskapp.dataaccess.ShardedTaskDataAccess;
+import com.taskapp.dataaccess.TaskCodeSequence;
+import com.taskapp.dataaccess.TaskImportDataAccess;
 import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.TaskSnapshot;
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
 import com.taskapp.model.Log;
 import com.taskapp.model.Task;
+import com.taskapp.model.TaskEvent;
 import com.taskapp.model.User;
 
 public class TaskLogic {
@@ -16,10 +30,50 @@ public class TaskLogic {
     private final LogDataAccess logDataAccess;
     private final UserDataAccess userDataAccess;
 
+    private final TaskSnapshot taskSnapshot;
+
+    private final TaskCodeSequence taskCodeSequence;
+
+    /** 書き込み用の索引。変更は同期化したメソッドの中だけで行う */
+    private TaskIndex taskIndex;
+
+    /** 読み込み用に公開した索引の版。書き込みのたびに新しい版に置き換え、読み込みはロック無しでこの版を使う */
+    private volatile TaskIndex publishedIndex;
+
+    /** 購読者が読み込まずにバッファが一杯の場合、書き込みはtaskapp.events.publishTimeoutMillisだけ待ってイベントを捨てる */
+    private final TaskEventBus eventBus = new TaskEventBus(Integer.getInteger("taskapp.events.capacity", 1024),
+            Long.getLong("taskapp.events.publishTimeoutMillis", 10));
+
+    private int changesSinceSnapshot;
+
+    private CsvWatcher csvWatcher;
+
+    /** 外部からの書き換えで索引を作り直している間に、自身が索引に加えた変更 */
+    private final List<Consumer<TaskIndex>> changesDuringRebuild = new ArrayList<>();
+
+    private boolean rebuildingIndex;
+
+    /** この件数の変更ごとにスナップショットを保存する */
+    private static final int SNAPSHOT_INTERVAL = 100;
+
+    /** システムプロパティ taskapp.tasks.shards に2以上を指定すると、tasks.csvをその数のシャードに分けて保存する */
+    private static final int TASK_SHARDS = Integer.getInteger("taskapp.tasks.shards", 1);
+
     public TaskLogic() {
-        taskDataAccess = new TaskDataAccess();
+        if (TASK_SHARDS > 1) {
+            taskDataAccess = new ShardedTaskDataAccess("app/src/main/resources/tasks.csv", TASK_SHARDS,
+                    new UserDataAccess());
+            // スナップショットはtasks.csvの追記位置を記録するため、シャードに分けた場合は使わない
+            taskSnapshot = null;
+        } else {
+            // 以前シャードに分けていた場合は、tasks.csvにまとめ直してから使う
+            ShardedTaskDataAccess.unshard("app/src/main/resources/tasks.csv");
+            taskDataAccess = new TaskDataAccess();
+            taskSnapshot = new TaskSnapshot();
+        }
         logDataAccess = new LogDataAccess();
         userDataAccess = new UserDataAccess();
+        taskCodeSequence = new TaskCodeSequence("app/src/main/resources/task_code.seq", 1, this::maxTaskCode);
     }
 
     /**
@@ -33,56 +87,185 @@ public class TaskLogic {
         this.taskDataAccess = taskDataAccess;
         this.logDataAccess = logDataAccess;
         this.userDataAccess = userDataAccess;
+        this.taskSnapshot = null;
+        this.taskCodeSequence = new TaskCodeSequence(null, 1, this::maxTaskCode);
     }
 
     /**
      * 全てのタスクを表示します。
+     * 公開済みの索引の版から読み込むため、ロックを取らず、表示中に書き込まれても同じ時点の一覧になります。
      *
-     * @see com.taskapp.dataaccess.TaskDataAccess#findAll()
+     * @see com.taskapp.logic.TaskIndex#findAll()
      * @param loginUser ログインユーザー
      */
     public void showAll(User loginUser) {
         // リスト作成
-        List<Task> tasks = taskDataAccess.findAll();
+        List<Task> tasks = readIndex().findAll();
 
         // 取得したデータを表示する
-        tasks.forEach(task -> {
-            String status;
-            switch (task.getStatus()) {
-
-                case 1:
-                    status = "着手中";
-                    break;
-                case 2:
-                    status = "完了";
-                    break;
-                default:
-                    status = "未着手";
-                    break;
-            }
+        tasks.forEach(task -> printTask(task, loginUser));
+    }
+
+    /**
+     * 条件に一致するタスクを1ページ分表示します。
+     * 条件がnullの場合はその条件で絞り込みません。
+     *
+     * @see com.taskapp.logic.TaskIndex#find(Integer, Integer, int, int)
+     * @param loginUser   ログインユーザー
+     * @param status      絞り込むステータス
+     * @param repUserCode 絞り込む担当ユーザーコード
+     * @param page        表示するページ番号（1始まり）
+     * @param pageSize    1ページあたりの件数
+     * @return 条件に一致するタスクの総ページ数
+     */
+    public int showAll(User loginUser, Integer status, Integer repUserCode, int page, int pageSize) {
+        // 件数とページの内容は同じ版から読み込み、途中で書き込まれても食い違わないようにする
+        TaskIndex index = readIndex();
+        int total = index.count(status, repUserCode);
+        int totalPages = (total + pageSize - 1) / pageSize;
 
-            User assignedUser = task.getRepUser();
-            String repUserName;
+        if (total == 0) {
+            System.out.println("条件に一致するタスクはありません。");
+            return 0;
+        }
 
-            // 担当者情報が取得できているか確認
-            if (assignedUser == null) {
-                System.out.println("担当者情報がnullです。タスクコード: " + task.getCode());
+        index.find(status, repUserCode, page, pageSize).forEach(task -> printTask(task, loginUser));
+        System.out.println(page + "/" + totalPages + "ページ（全" + total + "件）");
+        return totalPages;
+    }
+
+    /**
+     * 条件に一致するタスクを全て取得します。
+     * 条件がnullの場合はその条件で絞り込みません。
+     *
+     * @see com.taskapp.logic.TaskIndex#find(Integer, Integer, int, int)
+     * @see com.taskapp.dataaccess.TaskDataAccess#findAll(java.util.function.Predicate)
+     * @param status      絞り込むステータス
+     * @param repUserCode 絞り込む担当ユーザーコード
+     * @return 条件に一致するタスクのリスト
+     */
+    public List<Task> findTasks(Integer status, Integer repUserCode) {
+        if (publishedIndex == null) {
+            // 索引を作っていない場合は、条件に一致するタスクだけをCSVから読み込む
+            // 索引を作るとスナップショットを保存するため、読み込みだけのコマンドでファイルを書き換えないようにする
+            return taskDataAccess.findAll(task -> (status == null || task.getStatus() == status)
+                    && (repUserCode == null
+                            || task.getRepUser() != null && task.getRepUser().getCode() == repUserCode));
+        }
+        return readIndex().find(status, repUserCode, 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 指定した日の終わり時点のタスクの一覧を、ログを再生して取得します。
+     * ステータスはその日時点のもの、タスク名・担当ユーザーは現在のものです。その日までに登録されていないタスクは含みません。
+     *
+     * @see com.taskapp.dataaccess.LogDataAccess#findStatusesAt(LocalDate)
+     * @param date 日付
+     * @return その日時点のタスクのリスト（タスクコード順）
+     */
+    public List<Task> findTasksAt(LocalDate date) {
+        // findTasksと同じく、索引を作っていない場合はスナップショットを保存せずにCSVから読み込む
+        TaskIndex index = publishedIndex;
+        Map<Integer, Task> current = new HashMap<>();
+        if (index == null) {
+            taskDataAccess.findAll().forEach(task -> current.put(task.getCode(), task));
+        }
+        List<Task> tasks = new ArrayList<>();
+        logDataAccess.findStatusesAt(date).forEach((code, status) -> {
+            Task task = index != null ? index.findByCode(code) : current.get(code);
+            if (task != null) {
+                tasks.add(new Task(code, task.getName(), status, task.getRepUser()));
             }
+        });
+        return tasks;
+    }
+
+    /**
+     * このロジックと同じデータを出力するエクスポーターを作成します。
+     *
+     * @return エクスポーター
+     */
+    public TaskExporter exporter() {
+        return new TaskExporter(taskDataAccess, logDataAccess, userDataAccess);
+    }
+
+    /**
+     * タスク名にキーワードを含むタスクを全て取得します。
+     *
+     * @see com.taskapp.logic.TaskIndex#searchByName(String)
+     * @param keyword 検索するキーワード
+     * @return 一致したタスクのリスト（タスクコード順）
+     * @throws AppException キーワードが空の場合
+     */
+    public List<Task> searchByName(String keyword) throws AppException {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new AppException("検索するタスク名を入力してください");
+        }
+        return readIndex().searchByName(keyword.trim());
+    }
+
+    /**
+     * タスク名にキーワードを含むタスクを表示します。
+     *
+     * @see #searchByName(String)
+     * @param loginUser ログインユーザー
+     * @param keyword   検索するキーワード
+     * @return 一致したタスクの件数
+     * @throws AppException キーワードが空の場合
+     */
+    public int showByName(User loginUser, String keyword) throws AppException {
+        List<Task> tasks = searchByName(keyword);
+        if (tasks.isEmpty()) {
+            System.out.println("「" + keyword.trim() + "」を含むタスクはありません。");
+            return 0;
+        }
+        tasks.forEach(task -> printTask(task, loginUser));
+        System.out.println("「" + keyword.trim() + "」を含むタスクは" + tasks.size() + "件です。");
+        return tasks.size();
+    }
+
+    /**
+     * タスクを1件表示します。
+     *
+     * @param task      表示するタスク
+     * @param loginUser ログインユーザー
+     */
+    private void printTask(Task task, User loginUser) {
+        String status;
+        switch (task.getStatus()) {
+
+            case 1:
+                status = "着手中";
+                break;
+            case 2:
+                status = "完了";
+                break;
+            default:
+                status = "未着手";
+                break;
+        }
 
-            if (assignedUser != null) {
-                if (assignedUser.getCode() == loginUser.getCode()) {
-                    repUserName = "あなたが担当しています"; // ログインユーザーが担当者の場合
-                } else {
-                    repUserName = assignedUser.getName() + "が担当しています"; // 担当者の名前を表示
-                }
+        User assignedUser = task.getRepUser();
+        String repUserName;
+
+        // 担当者情報が取得できているか確認
+        if (assignedUser == null) {
+            System.out.println("担当者情報がnullです。タスクコード: " + task.getCode());
+        }
+
+        if (assignedUser != null) {
+            if (assignedUser.getCode() == loginUser.getCode()) {
+                repUserName = "あなたが担当しています"; // ログインユーザーが担当者の場合
             } else {
-                repUserName = "担当者情報が見つかりません"; // 担当者が見つからなかった場合
+                repUserName = assignedUser.getName() + "が担当しています"; // 担当者の名前を表示
             }
+        } else {
+            repUserName = "担当者情報が見つかりません"; // 担当者が見つからなかった場合
+        }
 
-            // 出力
-            System.out.println(task.getCode() + ". " + "タスク名：" + task.getName() +
-                    ", 担当者名：" + repUserName + ", ステータス： " + status);
-        });
+        // 出力
+        System.out.println(task.getCode() + ". " + "タスク名：" + task.getName() +
+                ", 担当者名：" + repUserName + ", ステータス： " + status);
     }
 
     /**
@@ -95,24 +278,375 @@ public class TaskLogic {
      * @param name        タスク名
      * @param repUserCode 担当ユーザーコード
      * @param loginUser   ログインユーザー
-     * @throws AppException ユーザーコードが存在しない場合にスローされます
+     * @throws AppException タスク名が10文字を超える、またはユーザーコードが存在しない場合にスローされます
      */
-    public void save(int code, String name, int status, User loginUser) throws AppException {
+    public synchronized void save(int code, String name, int repUserCode, User loginUser) throws AppException {
+        Task newTask = createNewTask(code, name, repUserCode);
+
+        taskDataAccess.save(newTask);
+        updateIndex(index -> index.add(newTask));
+        eventBus.publish(TaskEvent.created(newTask, loginUser.getCode()));
+        System.out.println("タスクの登録が完了しました。");
 
-        User repUser = userDataAccess.findByCode(loginUser.getCode());
+        // ログを保存
+        Log newLog = new Log(code, loginUser.getCode(), 0, LocalDate.now()); // 初期ステータスと日付を含む
+        logDataAccess.save(newLog);
+    }
+
+    /**
+     * 新しいタスクを保存します。
+     * タスクとログの書き込みは並行して行い、呼び出し元は書き込みの完了を待ちません。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#saveAsync(com.taskapp.model.Task)
+     * @see com.taskapp.dataaccess.LogDataAccess#saveAsync(com.taskapp.model.Log)
+     * @param code        タスクコード
+     * @param name        タスク名
+     * @param repUserCode 担当ユーザーコード
+     * @param loginUser   ログインユーザー
+     * @return タスクとログの両方の保存が完了したら完了するFuture
+     * @throws AppException タスク名が10文字を超える、またはユーザーコードが存在しない場合にスローされます
+     */
+    public synchronized CompletableFuture<Void> saveAsync(int code, String name, int repUserCode, User loginUser)
+            throws AppException {
+        Task newTask = createNewTask(code, name, repUserCode);
+        Log newLog = new Log(code, loginUser.getCode(), 0, LocalDate.now());
+
+        CompletableFuture<Void> taskFuture = taskDataAccess.saveAsync(newTask);
+        CompletableFuture<Void> logFuture = logDataAccess.saveAsync(newLog);
+        updateIndex(index -> index.add(newTask));
+        eventBus.publish(TaskEvent.created(newTask, loginUser.getCode()));
+        return CompletableFuture.allOf(taskFuture, logFuture);
+    }
+
+    /**
+     * 新しいタスクコードを採番します。
+     * 採番したコードは他のセッションと重複しません。
+     *
+     * @see com.taskapp.dataaccess.TaskCodeSequence#next()
+     * @return 採番したタスクコード
+     * @throws AppException 採番に失敗した場合にスローされます
+     */
+    public synchronized int allocateCode() throws AppException {
+        try {
+            int code = taskCodeSequence.next();
+            // 手作業でCSVに追加されたコードと重なった場合は次のコードを使う
+            while (exists(code)) {
+                code = taskCodeSequence.next();
+            }
+            return code;
+        } catch (IOException e) {
+            throw new AppException("タスクコードの採番に失敗しました");
+        }
+    }
+
+    /**
+     * 担当ユーザーを確認し、保存する新しいタスクを作成します。
+     *
+     * @param code        タスクコード
+     * @param name        タスク名
+     * @param repUserCode 担当ユーザーコード
+     * @return 作成したタスク（初期ステータスは0: 未着手）
+     * @throws AppException タスク名が10文字を超える、タスクコードが既に使われている、またはユーザーコードが存在しない場合にスローされます
+     */
+    private Task createNewTask(int code, String name, int repUserCode) throws AppException {
+        String nameError = validateName(name);
+        if (nameError != null) {
+            throw new AppException(nameError);
+        }
+        if (exists(code)) {
+            throw new AppException("タスクコード" + code + "は既に使われています");
+        }
+        try {
+            taskCodeSequence.observe(code);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        User repUser = userDataAccess.findByCode(repUserCode);
         if (repUser == null) {
             throw new AppException("存在するユーザーコードを入力してください");
         }
+        return new Task(code, name, 0, repUser);
+    }
 
-        Task newTask = new Task(code, name, 0, repUser); // 初期ステータスは0（未着手）
+    /**
+     * CSVファイルからタスクを一括登録します。
+     * コードの重複は既存タスクのコードの集合で、担当ユーザーはusers.csvを1度だけ読んだ索引で確認し、
+     * 問題のない行だけをtasks.csv・logs.csvへそれぞれ1回の書き込みで保存します。
+     * 問題のあった行は行番号とともに表示し、登録しません。
+     *
+     * @see com.taskapp.dataaccess.TaskImportDataAccess#findAll()
+     * @see com.taskapp.dataaccess.UserDataAccess#findAll()
+     * @see com.taskapp.dataaccess.TaskDataAccess#saveAll(List)
+     * @see com.taskapp.dataaccess.LogDataAccess#saveAll(List)
+     * @param importFilePath 一括登録用CSVのパス（Code,Name,Rep_User_Code）
+     * @param loginUser      ログインユーザー
+     * @return 登録したタスクの件数
+     * @throws AppException ファイルが読み込めない場合にスローされます
+     */
+    public synchronized int importTasks(String importFilePath, User loginUser) throws AppException {
+        List<String[]> rows;
+        try {
+            rows = new TaskImportDataAccess(importFilePath).findAll();
+        } catch (IOException e) {
+            throw new AppException("ファイルを読み込めませんでした：" + importFilePath);
+        }
 
-        taskDataAccess.save(newTask);
-        System.out.println("タスクの登録が完了しました。");
+        Map<Integer, User> users = findAllUsers();
+        PersistentIntSet usedCodes = usedCodes();
 
-        // ログを保存
-        Log newLog = new Log(code, 0, loginUser.getCode(), LocalDate.now()); // 初期ステータスと日付を含む
-        logDataAccess.save(newLog);
+        List<Task> newTasks = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            String[] values = rows.get(i);
+            int lineNumber = i + 2; // ヘッダー行の分を足す
+            if (values.length == 1 && values[0].isEmpty()) {
+                continue;
+            }
+            if (values.length != 3) {
+                System.out.println(lineNumber + "行目：列の数が正しくありません");
+                continue;
+            }
 
+            int code;
+            int repUserCode;
+            try {
+                code = Integer.parseInt(values[0]);
+                repUserCode = Integer.parseInt(values[2]);
+            } catch (NumberFormatException e) {
+                System.out.println(lineNumber + "行目：コードは半角の数字で入力してください");
+                continue;
+            }
+            String error = validateNewTask(code, values[1], repUserCode, usedCodes, users);
+            if (error != null) {
+                System.out.println(lineNumber + "行目：" + error);
+                continue;
+            }
+
+            usedCodes = usedCodes.add(code);
+            newTasks.add(new Task(code, values[1], 0, users.get(repUserCode)));
+        }
+
+        saveNewTasks(newTasks, loginUser);
+        return newTasks.size();
+    }
+
+    /**
+     * 複数の新しいタスクをまとめて保存します。
+     * 担当ユーザーはusers.csvを1度だけ読んだ内容で、コードの重複は索引の現時点の内容で確認し、
+     * 問題のないタスクだけをtasks.csv・logs.csvへそれぞれ1回の書き込みで保存します。
+     * 問題のあったタスクは保存せず、理由を結果に記録します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#saveAll(List)
+     * @see com.taskapp.dataaccess.LogDataAccess#saveAll(List)
+     * @param tasks     保存するタスク（担当ユーザーはコードだけを使い、ステータスは0: 未着手で保存する）
+     * @param loginUser ログインユーザー
+     * @return 保存したタスクと失敗したタスク
+     */
+    public synchronized BatchResult saveAll(List<Task> tasks, User loginUser) {
+        Map<Integer, User> users = findAllUsers();
+        PersistentIntSet usedCodes = usedCodes();
+
+        BatchResult result = new BatchResult();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            int repUserCode = task.getRepUser() == null ? -1 : task.getRepUser().getCode();
+            String error = validateNewTask(task.getCode(), task.getName(), repUserCode, usedCodes, users);
+            if (error != null) {
+                result.addFailure(i, task.getCode(), error);
+                continue;
+            }
+            usedCodes = usedCodes.add(task.getCode());
+            result.addSuccess(new Task(task.getCode(), task.getName(), 0, users.get(repUserCode)));
+        }
+
+        saveNewTasks(result.getSucceeded(), loginUser);
+        return result;
+    }
+
+    /**
+     * 複数のタスクのステータスをまとめて変更します。
+     * 変更できるかは索引の現時点の内容で確認し、問題のないタスクだけを
+     * tasks.csvの1回の書き直しとlogs.csvへの1回の追記で保存します。
+     * 問題のあったタスクは変更せず、理由を結果に記録します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#updateAll(List)
+     * @see com.taskapp.dataaccess.LogDataAccess#saveAll(List)
+     * @param statusByCode タスクコードごとの新しいステータス（LinkedHashMapの場合は指定した順に処理する）
+     * @param loginUser    ログインユーザー
+     * @return 変更したタスクと失敗したタスク
+     */
+    public synchronized BatchResult changeStatusAll(Map<Integer, Integer> statusByCode, User loginUser) {
+        TaskIndex index = getTaskIndex();
+        BatchResult result = new BatchResult();
+        List<Integer> oldStatuses = new ArrayList<>();
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : statusByCode.entrySet()) {
+            int code = entry.getKey();
+            int status = entry.getValue();
+            String statusError = validateStatus(status);
+            if (statusError != null) {
+                result.addFailure(i++, code, statusError);
+                continue;
+            }
+            Task task = index.findByCode(code);
+            if (task == null) {
+                result.addFailure(i++, code, "存在するタスクコードを入力してください");
+                continue;
+            }
+            // 変更できるのは1つ先のステータスのみ
+            if (task.getStatus() + 1 != status) {
+                result.addFailure(i++, code, "ステータスは、前のステータスより1つ先のもののみを選択してください");
+                continue;
+            }
+            if (task.getRepUser() == null) {
+                result.addFailure(i++, code, "担当者情報が見つかりません");
+                continue;
+            }
+            oldStatuses.add(task.getStatus());
+            result.addSuccess(new Task(code, task.getName(), status, task.getRepUser()));
+            i++;
+        }
+
+        List<Task> updateTasks = result.getSucceeded();
+        if (updateTasks.isEmpty()) {
+            return result;
+        }
+        LocalDate today = LocalDate.now();
+        List<Log> newLogs = new ArrayList<>();
+        updateTasks.forEach(task -> newLogs.add(new Log(task.getCode(), loginUser.getCode(), task.getStatus(), today)));
+
+        taskDataAccess.updateAll(updateTasks);
+        logDataAccess.saveAll(newLogs);
+        updateIndex(taskIndex -> {
+            for (int j = 0; j < updateTasks.size(); j++) {
+                Task task = updateTasks.get(j);
+                taskIndex.changeStatus(task.getCode(), oldStatuses.get(j), task.getStatus());
+            }
+        });
+        List<TaskEvent> events = new ArrayList<>(updateTasks.size());
+        for (int j = 0; j < updateTasks.size(); j++) {
+            events.add(TaskEvent.statusChanged(updateTasks.get(j), oldStatuses.get(j), loginUser.getCode()));
+        }
+        // バッファが一杯でも、待つのはまとめて1回分だけにする
+        eventBus.publishAll(events);
+        checkpoint();
+        return result;
+    }
+
+    /**
+     * users.csvを1度だけ読み、ユーザーコードごとのユーザーを取得します。
+     *
+     * @return ユーザーコードごとのユーザー
+     */
+    private Map<Integer, User> findAllUsers() {
+        Map<Integer, User> users = new HashMap<>();
+        userDataAccess.findAll().forEach(user -> users.put(user.getCode(), user));
+        return users;
+    }
+
+    /**
+     * 既存タスクのコードの集合を作成します。
+     * 大きなコードが1件あるだけで大きくなるBitSetではなく、まばらな集合を使います。
+     * 索引を作成済みの場合は索引から、作成していない場合は索引を作らずにCSVのコードの列だけを読み込みます。
+     *
+     * @return 使われているタスクコード
+     */
+    private PersistentIntSet usedCodes() {
+        PersistentIntSet[] usedCodes = { PersistentIntSet.empty() };
+        IntConsumer addCode = code -> {
+            if (code >= 0) {
+                usedCodes[0] = usedCodes[0].add(code);
+            }
+        };
+        TaskIndex index = publishedIndex;
+        if (index != null) {
+            index.findAll().forEach(task -> addCode.accept(task.getCode()));
+        } else {
+            taskDataAccess.forEachCode(addCode);
+        }
+        return usedCodes[0];
+    }
+
+    /**
+     * 新しいタスクを登録できるか確認します。
+     *
+     * @param code        タスクコード
+     * @param name        タスク名
+     * @param repUserCode 担当ユーザーコード
+     * @param usedCodes   使われているタスクコード
+     * @param users       ユーザーコードごとのユーザー
+     * @return 登録できない理由、登録できる場合はnull
+     */
+    private static String validateNewTask(int code, String name, int repUserCode, PersistentIntSet usedCodes,
+            Map<Integer, User> users) {
+        if (code < 0) {
+            return "コードは半角の数字で入力してください";
+        }
+        if (usedCodes.contains(code)) {
+            return "タスクコード" + code + "は既に使われています";
+        }
+        String nameError = validateName(name);
+        if (nameError != null) {
+            return nameError;
+        }
+        if (!users.containsKey(repUserCode)) {
+            return "存在するユーザーコードを入力してください";
+        }
+        return null;
+    }
+
+    /**
+     * タスク名を確認します。画面・コマンドライン・一括処理のどこから登録しても同じ条件で確認します。
+     *
+     * @param name タスク名
+     * @return 問題がある場合はその理由、問題が無い場合はnull
+     */
+    private static String validateName(String name) {
+        if (name == null || name.isEmpty() || name.length() > 10) {
+            return "タスク名は10文字以内で入力してください";
+        }
+        return null;
+    }
+
+    /**
+     * 変更後のステータスを確認します。変更できるのは1: 着手中、2: 完了のいずれかです。
+     *
+     * @param status 変更後のステータス
+     * @return 問題がある場合はその理由、問題が無い場合はnull
+     */
+    private static String validateStatus(int status) {
+        if (status != 1 && status != 2) {
+            return "ステータスは1・2の中から選択してください";
+        }
+        return null;
+    }
+
+    /**
+     * 確認済みの新しいタスクとその登録ログを、tasks.csv・logs.csvへそれぞれ1回の書き込みで保存します。
+     *
+     * @param newTasks  保存するタスク
+     * @param loginUser ログインユーザー
+     */
+    private void saveNewTasks(List<Task> newTasks, User loginUser) {
+        if (newTasks.isEmpty()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        List<Log> newLogs = new ArrayList<>();
+        newTasks.forEach(task -> newLogs.add(new Log(task.getCode(), loginUser.getCode(), 0, today)));
+
+        taskDataAccess.saveAll(newTasks);
+        logDataAccess.saveAll(newLogs);
+        updateIndex(index -> newTasks.forEach(index::add));
+        List<TaskEvent> events = new ArrayList<>(newTasks.size());
+        newTasks.forEach(task -> events.add(TaskEvent.created(task, loginUser.getCode())));
+        eventBus.publishAll(events);
+        try {
+            taskCodeSequence.observe(newTasks.stream().mapToInt(Task::getCode).max().getAsInt());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        checkpoint();
     }
 
     /**
@@ -124,16 +658,33 @@ public class TaskLogic {
      * @param code      タスクコード
      * @param status    新しいステータス
      * @param loginUser ログインユーザー
-     * @throws AppException タスクコードが存在しない、またはステータスが前のステータスより1つ先でない場合にスローされます
+     * @throws AppException ステータスが1・2のいずれでもない、タスクコードが存在しない、
+     *                      またはステータスが前のステータスより1つ先でない場合にスローされます
      */
-    public void changeStatus(int code, int status, User loginUser) throws AppException {
+    public synchronized void changeStatus(int code, int status, User loginUser) throws AppException {
+        String statusError = validateStatus(status);
+        if (statusError != null) {
+            throw new AppException(statusError);
+        }
+        Task task = taskDataAccess.findByCode(code);
+        if (task == null) {
+            throw new AppException("存在するタスクコードを入力してください");
+        }
 
-        if (!isNumeric(codeInput)) {
-            System.out.println("半角の整数で入力してください。");
-            System.out.println();
-            continue;
+        // 変更できるのは1つ先のステータスのみ
+        int oldStatus = task.getStatus();
+        if (oldStatus + 1 != status) {
+            throw new AppException("ステータスは、前のステータスより1つ先のもののみを選択してください");
         }
-        // 選択肢一覧表示
+
+        Task updateTask = new Task(code, task.getName(), status, task.getRepUser());
+        taskDataAccess.update(updateTask);
+        updateIndex(index -> index.changeStatus(code, oldStatus, status));
+        eventBus.publish(TaskEvent.statusChanged(updateTask, oldStatus, loginUser.getCode()));
+
+        Log newLog = new Log(code, loginUser.getCode(), status, LocalDate.now());
+        logDataAccess.save(newLog);
+        System.out.println("ステータスの変更が完了しました。");
     }
 
     /**
@@ -145,6 +696,196 @@ public class TaskLogic {
      * @param code タスクコード
      * @throws AppException タスクコードが存在しない、またはタスクのステータスが完了でない場合にスローされます
      */
-    // public void delete(int code) throws AppException {
-    // }
+    public synchronized void delete(int code) throws AppException {
+        Task task = taskDataAccess.findByCode(code);
+        if (task == null) {
+            throw new AppException("存在するタスクコードを入力してください");
+        }
+        // 削除できるのは完了したタスクのみ
+        if (task.getStatus() != 2) {
+            throw new AppException("ステータスが完了のタスクを選択してください");
+        }
+
+        taskDataAccess.delete(code);
+        logDataAccess.deleteByTaskCode(code);
+        updateIndex(index -> index.remove(code));
+        eventBus.publish(TaskEvent.deleted(task));
+        System.out.println(task.getName() + "の削除が完了しました。");
+    }
+
+    /**
+     * タスクの登録・ステータス変更・削除のイベントを配信するバスを取得します。
+     * キャッシュや集計などはここで購読すると、CSVを読み直さずに変更を受け取れます。
+     *
+     * @see com.taskapp.logic.TaskEventBus#subscribe(String, TaskEventListener)
+     * @return イベントバス
+     */
+    public TaskEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * メモリ上のタスクの状態をスナップショットとして保存します。
+     * 索引をまだ作成していない場合は何もしません。
+     *
+     * @see com.taskapp.dataaccess.TaskSnapshot#save(java.util.Collection)
+     */
+    public synchronized void checkpoint() {
+        if (taskSnapshot == null || taskIndex == null) {
+            return;
+        }
+        taskSnapshot.save(taskIndex.findAll());
+        changesSinceSnapshot = 0;
+    }
+
+    /**
+     * tasks.csv・users.csv・logs.csvのアプリ外からの変更の監視を始めます。
+     * 追記されたタスクは索引に加え、書き換えられた場合は監視用スレッドで索引を作り直してから置き換えます。
+     * 対話形式のように長く動かす場合に呼び出します。
+     *
+     * @see com.taskapp.dataaccess.CsvWatcher
+     */
+    public synchronized void startWatching() {
+        if (csvWatcher != null) {
+            return;
+        }
+        csvWatcher = new CsvWatcher();
+        try {
+            taskDataAccess.watch(csvWatcher, this::onTasksAppended, this::rebuildIndex);
+            userDataAccess.watch(csvWatcher, null);
+            logDataAccess.watch(csvWatcher);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * アプリ外で追記されたタスクを索引に加えます。監視用スレッドから呼び出されます。
+     *
+     * @param tasks 追記されたタスク
+     */
+    private synchronized void onTasksAppended(List<Task> tasks) {
+        if (taskIndex != null) {
+            tasks.forEach(taskIndex::add);
+            publishIndex();
+        }
+    }
+
+    /**
+     * CSVから索引を作り直して置き換えます。監視用スレッドから呼び出されます。
+     * CSVを読む間はロックを取らず、その間に自身が加えた変更は置き換える前に新しい索引へ反映します。
+     */
+    private void rebuildIndex() {
+        synchronized (this) {
+            rebuildingIndex = true;
+            changesDuringRebuild.clear();
+        }
+        TaskIndex rebuilt = TaskIndex.build(taskDataAccess.findAll());
+        synchronized (this) {
+            changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+            changesDuringRebuild.clear();
+            rebuildingIndex = false;
+            taskIndex = rebuilt;
+            publishIndex();
+        }
+    }
+
+    /**
+     * 読み込み済みの索引に変更を反映します。索引をまだ作成していない場合は何もしません。
+     *
+     * @param change 索引への変更
+     */
+    private void updateIndex(Consumer<TaskIndex> change) {
+        if (rebuildingIndex) {
+            changesDuringRebuild.add(change);
+        }
+        if (taskIndex != null) {
+            change.accept(taskIndex);
+            publishIndex();
+            recordChange();
+        }
+    }
+
+    /**
+     * 絞り込み用の索引を取得します。
+     * 初回呼び出し時にスナップショット（無い場合はCSVの全タスク）から索引を作成します。
+     *
+     * @see com.taskapp.dataaccess.TaskSnapshot#load()
+     * @see com.taskapp.dataaccess.TaskDataAccess#findAll()
+     * @return タスクの索引
+     */
+    private TaskIndex getTaskIndex() {
+        if (taskIndex == null) {
+            List<Task> tasks = taskSnapshot != null ? taskSnapshot.load() : taskDataAccess.findAll();
+            taskIndex = TaskIndex.build(tasks);
+            publishIndex();
+        }
+        return taskIndex;
+    }
+
+    /**
+     * 読み込み用の索引の版を取得します。ロックを取らないため、書き込み中でも待たずに直前の版を読み込めます。
+     * 索引をまだ作成していない場合だけ、作成を待ちます。
+     *
+     * @see com.taskapp.logic.TaskIndex#snapshot()
+     * @return 索引の版
+     */
+    private TaskIndex readIndex() {
+        TaskIndex index = publishedIndex;
+        if (index == null) {
+            synchronized (this) {
+                getTaskIndex();
+                index = publishedIndex;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 書き込み用の索引の現時点の版を、読み込み用に公開します。
+     */
+    private void publishIndex() {
+        publishedIndex = taskIndex.snapshot();
+    }
+
+    /**
+     * 登録済みタスクの最大コードを取得します。採番の初期値として使います。
+     *
+     * @return 最大のタスクコード、タスクが無い場合は0
+     */
+    private int maxTaskCode() {
+        OffHeapTaskTable table = taskIndex == null ? taskDataAccess.getOffHeapTable() : null;
+        if (table != null) {
+            int[] max = { 0 };
+            table.forEach(view -> max[0] = Math.max(max[0], view.getCode()));
+            return max[0];
+        }
+        return getTaskIndex().findAll().stream().mapToInt(Task::getCode).max().orElse(0);
+    }
+
+    /**
+     * タスクコードが使われているか確認します。
+     * 索引をまだ作成しておらず、ヒープ外のタスク表が有効な場合は、索引を作らずにタスク表から確認します。
+     * 登録だけを行う場合に全タスクをヒープに読み込まないためです。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#getOffHeapTable()
+     * @param code タスクコード
+     * @return 使われている場合はtrue
+     */
+    private boolean exists(int code) {
+        if (taskIndex == null && taskDataAccess.getOffHeapTable() != null) {
+            return taskDataAccess.findByCode(code) != null;
+        }
+        return getTaskIndex().findByCode(code) != null;
+    }
+
+    /**
+     * 索引への変更件数を数え、一定件数ごとにスナップショットを保存します。
+     */
+    private void recordChange() {
+        changesSinceSnapshot++;
+        if (changesSinceSnapshot >= SNAPSHOT_INTERVAL) {
+            checkpoint();
+        }
+    }
 }
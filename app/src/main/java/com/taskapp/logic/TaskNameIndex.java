@@ -0,0 +1,201 @@
+package com.taskapp.logic;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.taskapp.model.Task;
+
+/**
+ * タスク名の部分一致検索に使う、2文字ずつ（バイグラム）に分けた転置索引です。
+ * <ul>
+ * <li>タスク名は全角・半角の英数字と大文字・小文字を区別しないよう正規化してから分ける</li>
+ * <li>1文字の検索に答えられるよう、1文字ずつの索引も合わせて持つ</li>
+ * <li>キーごとのコードの一覧はコードの昇順に持ち、検索時は件数の少ない一覧を基に他の一覧で絞り込む</li>
+ * </ul>
+ * バイグラムが全て含まれていても部分文字列とは限らないため、最後に正規化済みのタスク名で確かめます。
+ * 表は{@link PersistentIntMap}と{@link PersistentIntSet}で持つため、{@link #snapshot()}で変更の影響を受けない版を取得できます。
+ */
+public class TaskNameIndex {
+    private PersistentIntMap<String> namesByCode = PersistentIntMap.empty();
+
+    private PersistentIntMap<PersistentIntSet> postingsByGram = PersistentIntMap.empty();
+
+    /**
+     * タスクのタスク名からまとめて索引を作成します。
+     *
+     * @param tasks 登録するタスク（コードの重複は無いこと）
+     * @return 作成した索引
+     */
+    static TaskNameIndex build(Collection<Task> tasks) {
+        PersistentIntMap.Builder<String> names = new PersistentIntMap.Builder<>();
+        Map<Integer, PersistentIntSet.Builder> postings = new HashMap<>();
+        for (Task task : tasks) {
+            String normalized = normalize(task.getName());
+            names.put(task.getCode(), normalized);
+            for (int gram : distinctGrams(normalized)) {
+                postings.computeIfAbsent(gram, key -> new PersistentIntSet.Builder()).add(task.getCode());
+            }
+        }
+        PersistentIntMap.Builder<PersistentIntSet> byGram = new PersistentIntMap.Builder<>();
+        postings.forEach((gram, builder) -> byGram.put(gram, builder.build()));
+
+        TaskNameIndex index = new TaskNameIndex();
+        index.namesByCode = names.build();
+        index.postingsByGram = byGram.build();
+        return index;
+    }
+
+    /**
+     * 現時点の内容を持つ版を取得します。以降にこの索引を変更しても、取得した版の検索結果は変わりません。
+     *
+     * @return 現時点の内容を持つ索引
+     */
+    public TaskNameIndex snapshot() {
+        TaskNameIndex snapshot = new TaskNameIndex();
+        snapshot.namesByCode = namesByCode;
+        snapshot.postingsByGram = postingsByGram;
+        return snapshot;
+    }
+
+    /**
+     * タスク名を索引に追加します。同じコードが既に登録されている場合は置き換えます。
+     *
+     * @param code タスクコード
+     * @param name タスク名
+     */
+    public void add(int code, String name) {
+        remove(code);
+        String normalized = normalize(name);
+        namesByCode = namesByCode.put(code, normalized);
+        for (int gram : distinctGrams(normalized)) {
+            PersistentIntSet postings = postingsByGram.get(gram);
+            postings = (postings != null ? postings : PersistentIntSet.empty()).add(code);
+            postingsByGram = postingsByGram.put(gram, postings);
+        }
+    }
+
+    /**
+     * タスク名を索引から削除します。
+     *
+     * @param code 削除するタスクのコード
+     */
+    public void remove(int code) {
+        String normalized = namesByCode.get(code);
+        if (normalized == null) {
+            return;
+        }
+        namesByCode = namesByCode.remove(code);
+        for (int gram : distinctGrams(normalized)) {
+            PersistentIntSet postings = postingsByGram.get(gram);
+            if (postings == null) {
+                continue;
+            }
+            postings = postings.remove(code);
+            postingsByGram = postings.size() == 0 ? postingsByGram.remove(gram) : postingsByGram.put(gram, postings);
+        }
+    }
+
+    /**
+     * タスク名にキーワードを含むタスクのコードを取得します。
+     *
+     * @param keyword 検索するキーワード
+     * @return 一致したタスクのコード（昇順）。キーワードが空の場合は空の配列
+     */
+    public int[] search(String keyword) {
+        String normalized = normalize(keyword);
+        if (normalized.isEmpty()) {
+            return new int[0];
+        }
+
+        int[] queryGrams = Arrays.stream(queryGrams(normalized)).distinct().toArray();
+        PersistentIntSet[] lists = new PersistentIntSet[queryGrams.length];
+        for (int i = 0; i < queryGrams.length; i++) {
+            lists[i] = postingsByGram.get(queryGrams[i]);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        // 件数の少ない一覧を基にすると、以降の絞り込みで調べる件数が最も少なくなる
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+
+        int[] matched = new int[lists[0].size()];
+        int[] count = { 0 };
+        PersistentIntMap<String> names = namesByCode;
+        lists[0].forEach(code -> {
+            for (int i = 1; i < lists.length; i++) {
+                if (!lists[i].contains(code)) {
+                    return true;
+                }
+            }
+            if (normalized.length() <= 2 || names.get(code).contains(normalized)) {
+                matched[count[0]++] = code;
+            }
+            return true;
+        });
+        return Arrays.copyOf(matched, count[0]);
+    }
+
+    /**
+     * 索引に登録されているタスク名の件数を取得します。
+     *
+     * @return 件数
+     */
+    public int size() {
+        return namesByCode.size();
+    }
+
+    /**
+     * 全角・半角と大文字・小文字の違いを無くします。
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 登録するタスク名を索引のキーに分けます。1文字ずつのキーとバイグラムのキーの両方を返します。
+     * バイグラムのキーは2文字を上位・下位16ビットに詰めた値で、1文字のキーは上位16ビットを全て1にします。
+     */
+    private static int[] grams(String text) {
+        int[] grams = new int[Math.max(0, text.length() * 2 - 1)];
+        for (int i = 0; i < text.length(); i++) {
+            grams[i] = unigram(text.charAt(i));
+        }
+        for (int i = 0; i + 1 < text.length(); i++) {
+            grams[text.length() + i] = bigram(text.charAt(i), text.charAt(i + 1));
+        }
+        return grams;
+    }
+
+    private static int[] distinctGrams(String text) {
+        return Arrays.stream(grams(text)).distinct().toArray();
+    }
+
+    /**
+     * 検索するキーワードを索引のキーに分けます。2文字以上の場合はバイグラムだけを使います。
+     */
+    private static int[] queryGrams(String text) {
+        if (text.length() == 1) {
+            return new int[] { unigram(text.charAt(0)) };
+        }
+        int[] grams = new int[text.length() - 1];
+        for (int i = 0; i + 1 < text.length(); i++) {
+            grams[i] = bigram(text.charAt(i), text.charAt(i + 1));
+        }
+        return grams;
+    }
+
+    private static int unigram(char c) {
+        return 0xFFFF0000 | c;
+    }
+
+    private static int bigram(char first, char second) {
+        return first << 16 | second;
+    }
+}
@@ -0,0 +1,101 @@
+package com.taskapp.model;
+
+/**
+ * タスクの登録・ステータス変更・削除を他のコンポーネントに知らせるイベントです。
+ * Taskは後から変更されることがあるため、発生時点の値をコピーして保持します。
+ */
+public class TaskEvent {
+    /**
+     * イベントの種類です。
+     */
+    public enum Type {
+        TASK_CREATED, STATUS_CHANGED, TASK_DELETED
+    }
+
+    private final Type type;
+    private final int taskCode;
+    private final String name;
+    private final int repUserCode;
+    private final int oldStatus;
+    private final int newStatus;
+    private final int changeUserCode;
+
+    public TaskEvent(Type type, int taskCode, String name, int repUserCode, int oldStatus, int newStatus,
+            int changeUserCode) {
+        this.type = type;
+        this.taskCode = taskCode;
+        this.name = name;
+        this.repUserCode = repUserCode;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+        this.changeUserCode = changeUserCode;
+    }
+
+    /**
+     * タスクを登録したイベントを作成します。
+     *
+     * @param task           登録したタスク
+     * @param changeUserCode 登録したユーザーのコード
+     * @return イベント（変更前のステータスは-1）
+     */
+    public static TaskEvent created(Task task, int changeUserCode) {
+        return new TaskEvent(Type.TASK_CREATED, task.getCode(), task.getName(), repUserCode(task), -1,
+                task.getStatus(), changeUserCode);
+    }
+
+    /**
+     * ステータスを変更したイベントを作成します。
+     *
+     * @param task           変更後のタスク
+     * @param oldStatus      変更前のステータス
+     * @param changeUserCode 変更したユーザーのコード
+     * @return イベント
+     */
+    public static TaskEvent statusChanged(Task task, int oldStatus, int changeUserCode) {
+        return new TaskEvent(Type.STATUS_CHANGED, task.getCode(), task.getName(), repUserCode(task), oldStatus,
+                task.getStatus(), changeUserCode);
+    }
+
+    /**
+     * タスクを削除したイベントを作成します。
+     *
+     * @param task 削除したタスク
+     * @return イベント（変更後のステータスと変更したユーザーのコードは-1）
+     */
+    public static TaskEvent deleted(Task task) {
+        return new TaskEvent(Type.TASK_DELETED, task.getCode(), task.getName(), repUserCode(task),
+                task.getStatus(), -1, -1);
+    }
+
+    private static int repUserCode(Task task) {
+        return task.getRepUser() == null ? -1 : task.getRepUser().getCode();
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    public int getTaskCode() {
+        return this.taskCode;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getRepUserCode() {
+        return this.repUserCode;
+    }
+
+    public int getOldStatus() {
+        return this.oldStatus;
+    }
+
+    public int getNewStatus() {
+        return this.newStatus;
+    }
+
+    public int getChangeUserCode() {
+        return this.changeUserCode;
+    }
+}
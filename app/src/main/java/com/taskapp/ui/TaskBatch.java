@@ -0,0 +1,215 @@
+package com.taskapp.ui;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.User;
+
+/**
+ * コマンドファイルを読み込み、メニューを介さずにタスクを操作します。
+ * 1行に1コマンドを書き、空行と「#」で始まる行は読み飛ばします。
+ * <pre>
+ * login &lt;メールアドレス&gt; &lt;パスワード&gt;
+ * list [ステータス|-] [担当ユーザーコード|-]
+ * add &lt;タスクコード|-&gt; &lt;担当ユーザーコード&gt; &lt;タスク名&gt;
+ * status &lt;タスクコード&gt; &lt;新しいステータス&gt;
+ * delete &lt;タスクコード&gt;
+ * </pre>
+ * 実行中の出力はメモリに溜めて最後に1回で書き出し、コマンドの種類ごとの件数・失敗数・処理時間を最後に表示します。
+ */
+public class TaskBatch {
+    private final UserLogic userLogic;
+
+    private final TaskLogic taskLogic;
+
+    private User loginUser;
+
+    /** listで絞り込む場合の1ページあたりの件数 */
+    private static final int LIST_PAGE_SIZE = 1000;
+
+    /** コマンドの種類ごとの処理時間（登録順に表示する） */
+    private final Map<String, Timing> timings = new LinkedHashMap<>();
+
+    public TaskBatch() {
+        userLogic = new UserLogic();
+        taskLogic = new TaskLogic();
+    }
+
+    public TaskBatch(UserLogic userLogic, TaskLogic taskLogic) {
+        this.userLogic = userLogic;
+        this.taskLogic = taskLogic;
+    }
+
+    /**
+     * コマンドファイルを実行します。
+     *
+     * @see #run(BufferedReader)
+     * @param scriptPath コマンドファイルのパス
+     * @return 失敗したコマンドの件数
+     * @throws AppException ファイルが読み込めない場合にスローされます
+     */
+    public int run(String scriptPath) throws AppException {
+        try (BufferedReader script = new BufferedReader(new FileReader(scriptPath))) {
+            return run(script);
+        } catch (IOException e) {
+            throw new AppException("ファイルを読み込めませんでした：" + scriptPath);
+        }
+    }
+
+    /**
+     * コマンドを1行ずつ実行します。
+     * 失敗したコマンドは行番号とメッセージを出力し、次の行から実行を続けます。
+     *
+     * @param script コマンドの読み込み元
+     * @return 失敗したコマンドの件数
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public int run(BufferedReader script) throws IOException {
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int failures = 0;
+        try {
+            // TaskLogicの出力もまとめて書き出すため、実行中は標準出力を差し替える
+            System.setOut(new PrintStream(buffer));
+
+            String line;
+            int lineNumber = 0;
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] values = line.split("\\s+", 4);
+                Timing timing = timings.computeIfAbsent(values[0], command -> new Timing());
+
+                long start = System.nanoTime();
+                try {
+                    execute(values);
+                } catch (AppException e) {
+                    System.out.println(lineNumber + "行目：" + e.getMessage());
+                    timing.failures++;
+                    failures++;
+                }
+                timing.record(System.nanoTime() - start);
+            }
+            taskLogic.checkpoint();
+            printTimings();
+        } finally {
+            System.out.flush();
+            System.setOut(originalOut);
+            buffer.writeTo(originalOut);
+            originalOut.flush();
+        }
+        return failures;
+    }
+
+    /**
+     * 1行分のコマンドを実行します。
+     *
+     * @param values 空白で区切ったコマンドと引数
+     * @throws AppException コマンドや引数が正しくない、または処理に失敗した場合にスローされます
+     */
+    private void execute(String[] values) throws AppException {
+        String command = values[0];
+        if ("login".equals(command)) {
+            requireArguments(values, 3);
+            loginUser = userLogic.login(values[1], values[2]);
+            return;
+        }
+        if (loginUser == null) {
+            throw new AppException("先にloginを実行してください");
+        }
+
+        switch (command) {
+            case "list":
+                list(values);
+                break;
+            case "add":
+                requireArguments(values, 4);
+                int code = "-".equals(values[1]) ? taskLogic.allocateCode() : parseCode(values[1]);
+                taskLogic.save(code, values[3], parseCode(values[2]), loginUser);
+                break;
+            case "status":
+                requireArguments(values, 3);
+                taskLogic.changeStatus(parseCode(values[1]), parseCode(values[2]), loginUser);
+                break;
+            case "delete":
+                requireArguments(values, 2);
+                taskLogic.delete(parseCode(values[1]));
+                break;
+            default:
+                throw new AppException("不明なコマンドです：" + command);
+        }
+    }
+
+    /**
+     * タスクを一覧表示します。条件を指定した場合は全ページを続けて表示します。
+     *
+     * @see com.taskapp.logic.TaskLogic#showAll(User)
+     * @see com.taskapp.logic.TaskLogic#showAll(User, Integer, Integer, int, int)
+     * @param values 空白で区切ったコマンドと引数
+     * @throws AppException 引数が数字でない場合にスローされます
+     */
+    private void list(String[] values) throws AppException {
+        if (values.length == 1) {
+            taskLogic.showAll(loginUser);
+            return;
+        }
+        Integer status = "-".equals(values[1]) ? null : parseCode(values[1]);
+        Integer repUserCode = values.length < 3 || "-".equals(values[2]) ? null : parseCode(values[2]);
+        int page = 1;
+        while (page < taskLogic.showAll(loginUser, status, repUserCode, page, LIST_PAGE_SIZE)) {
+            page++;
+        }
+    }
+
+    private void requireArguments(String[] values, int length) throws AppException {
+        if (values.length < length) {
+            throw new AppException(values[0] + "の引数が足りません");
+        }
+    }
+
+    private int parseCode(String value) throws AppException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new AppException("コードは半角の数字で入力してください：" + value);
+        }
+    }
+
+    /**
+     * コマンドの種類ごとの処理時間を表示します。
+     */
+    private void printTimings() {
+        System.out.println();
+        System.out.println("コマンド, 件数, 失敗, 合計(ms), 平均(µs), 最大(µs)");
+        timings.forEach((command, timing) -> System.out.printf("%s, %d, %d, %.1f, %.1f, %.1f%n",
+                command, timing.count, timing.failures, timing.totalNanos / 1_000_000.0,
+                timing.totalNanos / 1_000.0 / timing.count, timing.maxNanos / 1_000.0));
+    }
+
+    /**
+     * 1種類のコマンドの処理時間の集計です。
+     */
+    private static class Timing {
+        private int count;
+        private int failures;
+        private long totalNanos;
+        private long maxNanos;
+
+        void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+    }
+}
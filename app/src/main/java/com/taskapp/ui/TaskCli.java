@@ -0,0 +1,314 @@
+package com.taskapp.ui;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.taskapp.dataaccess.CsvVerifier;
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskExporter;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * 1回のコマンドだけを実行して終了するコマンドラインです。
+ * <pre>
+ * list [--status ステータス] [--user 担当ユーザーコード] [--at 日付] [--format text|ndjson]
+ * add &lt;タスクコード|-&gt; &lt;担当ユーザーコード&gt; &lt;タスク名&gt;
+ * status &lt;タスクコード&gt; &lt;新しいステータス&gt;
+ * delete &lt;タスクコード&gt;
+ * import &lt;CSVのパス&gt; &lt;メールアドレス&gt; &lt;パスワード&gt;
+ * batch &lt;コマンドファイルのパス&gt;
+ * verify [--users パス] [--tasks パス] [--logs パス] [--require-checksum true]
+ * export &lt;tasks|logs&gt; &lt;出力先のパス|-&gt; [--format ndjson|csv] [--gzip true]
+ * </pre>
+ * add・status・deleteは--email・--password（省略時は環境変数TASKAPP_EMAIL・TASKAPP_PASSWORD）でログインします。
+ * 起動を速くするため、UserLogic・TaskLogicはコマンドが必要とするまで作成しません。
+ */
+public class TaskCli {
+    private UserLogic userLogic;
+
+    private TaskLogic taskLogic;
+
+    public TaskCli() {
+    }
+
+    public TaskCli(UserLogic userLogic, TaskLogic taskLogic) {
+        this.userLogic = userLogic;
+        this.taskLogic = taskLogic;
+    }
+
+    /**
+     * コマンドを実行します。
+     *
+     * @param args コマンドと引数
+     * @return 終了コード（0: 成功, 1: 処理に失敗, 2: コマンドの指定が誤っている）
+     */
+    public int run(String[] args) {
+        List<String> arguments = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                arguments.add(args[i]);
+            }
+        }
+
+        try {
+            switch (args.length == 0 ? "" : args[0]) {
+                case "list":
+                    list(options);
+                    return 0;
+                case "add":
+                    requireArguments(arguments, 3);
+                    int code = "-".equals(arguments.get(0)) ? taskLogic().allocateCode() : parseCode(arguments.get(0));
+                    taskLogic().save(code, arguments.get(2), parseCode(arguments.get(1)), login(options));
+                    return 0;
+                case "status":
+                    requireArguments(arguments, 2);
+                    User loginUser = login(options);
+                    taskLogic().changeStatus(parseCode(arguments.get(0)), parseCode(arguments.get(1)), loginUser);
+                    return 0;
+                case "delete":
+                    requireArguments(arguments, 1);
+                    login(options);
+                    taskLogic().delete(parseCode(arguments.get(0)));
+                    return 0;
+                case "import":
+                    requireArguments(arguments, 3);
+                    User importUser = userLogic().login(arguments.get(1), arguments.get(2));
+                    int count = taskLogic().importTasks(arguments.get(0), importUser);
+                    System.out.println(count + "件のタスクの登録が完了しました。");
+                    return 0;
+                case "batch":
+                    requireArguments(arguments, 1);
+                    return new TaskBatch(userLogic(), taskLogic()).run(arguments.get(0)) > 0 ? 1 : 0;
+                case "verify":
+                    return verify(options) ? 0 : 1;
+                case "export":
+                    requireArguments(arguments, 2);
+                    export(arguments.get(0), arguments.get(1), options);
+                    return 0;
+                default:
+                    printUsage();
+                    return 2;
+            }
+        } catch (AppException e) {
+            System.out.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * 条件に一致するタスクを表示します。
+     * --atを指定した場合は、その日の終わり時点のステータスで絞り込み・表示します。
+     * ndjsonを指定した場合は1行に1タスクのJSONで出力します。
+     *
+     * @see com.taskapp.logic.TaskLogic#findTasks(Integer, Integer)
+     * @see com.taskapp.logic.TaskLogic#findTasksAt(LocalDate)
+     * @param options --status・--user・--at・--formatの指定
+     * @throws AppException 条件が数字・日付でない、または形式が誤っている場合にスローされます
+     */
+    private void list(Map<String, String> options) throws AppException {
+        Integer status = options.containsKey("status") ? parseCode(options.get("status")) : null;
+        Integer repUserCode = options.containsKey("user") ? parseCode(options.get("user")) : null;
+        String format = options.getOrDefault("format", "text");
+        if (!"text".equals(format) && !"ndjson".equals(format)) {
+            throw new AppException("formatにはtextまたはndjsonを指定してください");
+        }
+
+        List<Task> tasks;
+        if (options.containsKey("at")) {
+            LocalDate date;
+            try {
+                date = LocalDate.parse(options.get("at"));
+            } catch (DateTimeParseException e) {
+                throw new AppException("日付はyyyy-MM-ddの形式で入力してください：" + options.get("at"));
+            }
+            tasks = new ArrayList<>();
+            for (Task task : taskLogic().findTasksAt(date)) {
+                if ((status == null || task.getStatus() == status) && (repUserCode == null
+                        || task.getRepUser() != null && task.getRepUser().getCode() == repUserCode)) {
+                    tasks.add(task);
+                }
+            }
+        } else {
+            tasks = taskLogic().findTasks(status, repUserCode);
+        }
+
+        StringBuilder output = new StringBuilder();
+        for (Task task : tasks) {
+            User repUser = task.getRepUser();
+            if ("ndjson".equals(format)) {
+                output.append("{\"code\":").append(task.getCode()).append(",\"name\":");
+                TaskExporter.appendJsonString(output, task.getName());
+                output.append(",\"status\":").append(task.getStatus())
+                        .append(",\"repUserCode\":").append(repUser == null ? "null" : repUser.getCode())
+                        .append(",\"repUserName\":");
+                TaskExporter.appendJsonString(output, repUser == null ? null : repUser.getName());
+                output.append("}\n");
+            } else {
+                output.append(task.getCode()).append(". タスク名：").append(task.getName())
+                        .append(", 担当者名：").append(repUser == null ? "担当者情報が見つかりません" : repUser.getName())
+                        .append(", ステータス： ").append(statusName(task.getStatus()))
+                        .append('\n');
+            }
+        }
+        System.out.print(output);
+    }
+
+    /**
+     * users.csv・tasks.csv・logs.csvを検証し、ファイルごとの行数・壊れた行と処理速度を表示します。
+     *
+     * @see com.taskapp.dataaccess.CsvVerifier#verify(boolean)
+     * @param options --users・--tasks・--logs・--require-checksumの指定
+     * @return 壊れた行が無い場合はtrue
+     * @throws AppException ファイルを読み込めない場合にスローされます
+     */
+    private boolean verify(Map<String, String> options) throws AppException {
+        CsvVerifier verifier = new CsvVerifier(
+                options.getOrDefault("users", "app/src/main/resources/users.csv"),
+                options.getOrDefault("tasks", "app/src/main/resources/tasks.csv"),
+                options.getOrDefault("logs", "app/src/main/resources/logs.csv"));
+        CsvVerifier.Report report;
+        try {
+            report = verifier.verify(Boolean.parseBoolean(options.get("require-checksum")));
+        } catch (IOException e) {
+            throw new AppException("ファイルを読み込めません：" + e.getMessage());
+        }
+
+        StringBuilder output = new StringBuilder();
+        long totalBytes = 0;
+        for (CsvVerifier.FileResult file : report.getFiles()) {
+            totalBytes += file.getBytes();
+            output.append(file.getPath()).append("：").append(file.getLines()).append("行")
+                    .append("（チェックサム付き ").append(file.getCheckedLines()).append("行）")
+                    .append(", 破損 ").append(file.getCorruptCount()).append("行\n");
+            for (CsvVerifier.CorruptRow row : file.getCorruptRows()) {
+                output.append("  ").append(row).append('\n');
+            }
+        }
+        output.append(String.format("%.1fMBを%.2f秒で検証しました（%.1fMB/s）%n", totalBytes / 1e6,
+                report.getElapsedNanos() / 1e9, report.getBytesPerSecond() / 1e6));
+        System.out.print(output);
+        return report.isValid();
+    }
+
+    /**
+     * タスクまたはログを、ユーザー名を解決した形式でファイルまたは標準出力に出力します。
+     * 出力先に-を指定した場合は標準出力に書き出し、件数は標準エラー出力に表示します。
+     *
+     * @see com.taskapp.logic.TaskExporter
+     * @param target  tasksまたはlogs
+     * @param path    出力先のパス、標準出力の場合は-
+     * @param options --format・--gzipの指定
+     * @throws AppException 対象・形式の指定が誤っている、または書き込みに失敗した場合にスローされます
+     */
+    private void export(String target, String path, Map<String, String> options) throws AppException {
+        if (!"tasks".equals(target) && !"logs".equals(target)) {
+            throw new AppException("出力する対象にはtasksまたはlogsを指定してください");
+        }
+        TaskExporter.Format format;
+        switch (options.getOrDefault("format", "ndjson")) {
+            case "ndjson":
+                format = TaskExporter.Format.NDJSON;
+                break;
+            case "csv":
+                format = TaskExporter.Format.CSV;
+                break;
+            default:
+                throw new AppException("formatにはndjsonまたはcsvを指定してください");
+        }
+        boolean gzip = Boolean.parseBoolean(options.get("gzip"));
+
+        boolean toStdout = "-".equals(path);
+        long count;
+        try (OutputStream out = toStdout ? null : Files.newOutputStream(Paths.get(path))) {
+            OutputStream destination = toStdout ? System.out : out;
+            TaskExporter exporter = taskLogic().exporter();
+            count = "tasks".equals(target) ? exporter.exportTasks(destination, format, gzip)
+                    : exporter.exportLogs(destination, format, gzip);
+        } catch (IOException e) {
+            throw new AppException("出力に失敗しました：" + e.getMessage());
+        }
+        (toStdout ? System.err : System.out).println(count + "件を出力しました。");
+    }
+
+    /**
+     * --email・--password、指定が無い場合は環境変数の認証情報でログインします。
+     *
+     * @param options コマンドのオプション
+     * @return ログインしたユーザー
+     * @throws AppException 認証情報が無い、または一致するユーザーが存在しない場合にスローされます
+     */
+    private User login(Map<String, String> options) throws AppException {
+        String email = options.getOrDefault("email", System.getenv("TASKAPP_EMAIL"));
+        String password = options.getOrDefault("password", System.getenv("TASKAPP_PASSWORD"));
+        if (email == null || password == null) {
+            throw new AppException("--email・--passwordまたは環境変数TASKAPP_EMAIL・TASKAPP_PASSWORDを指定してください");
+        }
+        return userLogic().login(email, password);
+    }
+
+    private UserLogic userLogic() {
+        if (userLogic == null) {
+            userLogic = new UserLogic();
+        }
+        return userLogic;
+    }
+
+    private TaskLogic taskLogic() {
+        if (taskLogic == null) {
+            taskLogic = new TaskLogic();
+        }
+        return taskLogic;
+    }
+
+    private void requireArguments(List<String> arguments, int length) throws AppException {
+        if (arguments.size() < length) {
+            throw new AppException("引数が足りません");
+        }
+    }
+
+    private int parseCode(String value) throws AppException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new AppException("コードは半角の数字で入力してください：" + value);
+        }
+    }
+
+    private static String statusName(int status) {
+        switch (status) {
+            case 1:
+                return "着手中";
+            case 2:
+                return "完了";
+            default:
+                return "未着手";
+        }
+    }
+
+    private void printUsage() {
+        System.out.println("使い方：");
+        System.out.println("  list [--status ステータス] [--user 担当ユーザーコード] [--at 日付] [--format text|ndjson]");
+        System.out.println("  add <タスクコード|-> <担当ユーザーコード> <タスク名> [--email メールアドレス --password パスワード]");
+        System.out.println("  status <タスクコード> <新しいステータス> [--email メールアドレス --password パスワード]");
+        System.out.println("  delete <タスクコード> [--email メールアドレス --password パスワード]");
+        System.out.println("  import <CSVのパス> <メールアドレス> <パスワード>");
+        System.out.println("  batch <コマンドファイルのパス>");
+        System.out.println("  verify [--users パス] [--tasks パス] [--logs パス] [--require-checksum true]");
+        System.out.println("  export <tasks|logs> <出力先のパス|-> [--format ndjson|csv] [--gzip true]");
+        System.out.println("引数を指定しない場合は対話形式のメニューを起動します。");
+    }
+}
@@ -4,8 +4,6 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 
-import javax.print.DocFlavor.READER;
-
 import com.taskapp.exception.AppException;
 import com.taskapp.logic.TaskLogic;
 import com.taskapp.logic.UserLogic;
@@ -20,10 +18,14 @@ public class TaskUI {
 
     private User loginUser;
 
+    private static final int PAGE_SIZE = 10;
+
     public TaskUI() {
         reader = new BufferedReader(new InputStreamReader(System.in));
         userLogic = new UserLogic();
         taskLogic = new TaskLogic();
+        // 対話中に手作業で編集されたCSVも一覧に反映する
+        taskLogic.startWatching();
     }
 
     /**
@@ -46,6 +48,9 @@ public class TaskUI {
      * @see com.taskapp.logic.TaskLogic#showAll(User)
      * @see #selectSubMenu()
      * @see #inputNewInformation()
+     * @see #inputFilterInformation()
+     * @see #inputImportInformation()
+     * @see #inputSearchInformation()
      */
     public void displayMenu() {
         System.out.println("タスク管理アプリケーションにようこそ!!");
@@ -56,8 +61,8 @@ public class TaskUI {
         boolean flg = true;
         while (flg) {
             try {
-                System.out.println("以下1~3のメニューから好きな選択肢を選んでください。");
-                System.out.println("1. タスク一覧, 2. タスク新規登録, 3. ログアウト");
+                System.out.println("以下1~6のメニューから好きな選択肢を選んでください。");
+                System.out.println("1. タスク一覧, 2. タスク新規登録, 3. ログアウト, 4. タスク絞り込み一覧, 5. タスク一括登録, 6. タスク名検索");
                 System.out.print("選択肢：");
                 String selectMenu = reader.readLine();
 
@@ -66,17 +71,27 @@ public class TaskUI {
                 switch (selectMenu) {
                     case "1":
                         taskLogic.showAll(loginUser);
-                        //selectSubMenu
+                        selectSubMenu();
                         break;
                     case "2":
                         inputNewInformation();
                         break;
                     case "3":
+                        taskLogic.checkpoint();
                         System.out.println("ログアウトしました。");
                         flg = false;
                         break;
+                    case "4":
+                        inputFilterInformation();
+                        break;
+                    case "5":
+                        inputImportInformation();
+                        break;
+                    case "6":
+                        inputSearchInformation();
+                        break;
                     default:
-                        System.out.println("選択肢が誤っています。1~3の中から選択してください。");
+                        System.out.println("選択肢が誤っています。1~6の中から選択してください。");
                         break;
                 }
             } catch (IOException e) {
@@ -119,22 +134,27 @@ public class TaskUI {
      * ユーザーからの新規タスク情報を受け取り、新規タスクを登録します。
      *
      * @see #isNumeric(String)
-     * @see com.taskapp.logic.TaskLogic#save(int, String, int, User)
+     * @see com.taskapp.logic.TaskLogic#allocateCode()
+     * @see com.taskapp.logic.TaskLogic#saveAsync(int, String, int, User)
      */// Code,Name,Status,Rep_User_Code
     public void inputNewInformation()  {
 
         boolean flg = true;
+        System.out.println("タスクコードを空欄にすると自動で採番します。");
 
         while (flg) {
             try {
                 System.out.print("タスクコードを入力してください： ");
                 String codeInput = reader.readLine();
-                if (!isNumeric(codeInput)) {
-                    System.out.println("半角の整数で入力してください。");
-                    System.out.println();
-                    continue;
+                Integer code = null;
+                if (codeInput != null && !codeInput.isEmpty()) {
+                    if (!isNumeric(codeInput)) {
+                        System.out.println("半角の整数で入力してください。");
+                        System.out.println();
+                        continue;
+                    }
+                    code = Integer.parseInt(codeInput);
                 }
-                int code = Integer.parseInt(codeInput);
 
                 System.out.print("タスク名を入力してください： ");
                 String name = reader.readLine();
@@ -153,15 +173,20 @@ public class TaskUI {
                 }
                 int repCode = Integer.parseInt(codeRepInput);
 
-                // ロジックにデータを保存
+                // ロジックにデータを保存（書き込みの完了は待たずにメニューへ戻る）
                 try {
-                    taskLogic.save(code, name, 0, loginUser);
-                System.out.println("登録が完了しました。");
-                flg = false;
-            } catch (AppException e) {
-                // エラーメッセージを表示するなどの処理
-                System.out.println("エラーが発生しました: " + e.getMessage());
-            }
+                    int taskCode = code != null ? code : taskLogic.allocateCode();
+                    taskLogic.saveAsync(taskCode, name, repCode, loginUser)
+                            .exceptionally(e -> {
+                                System.out.println("タスクの保存に失敗しました: " + e.getMessage());
+                                return null;
+                            });
+                    System.out.println("タスクコード" + taskCode + "で登録が完了しました。");
+                    flg = false;
+                } catch (AppException e) {
+                    // エラーメッセージを表示するなどの処理
+                    System.out.println("エラーが発生しました: " + e.getMessage());
+                }
 
             } catch (IOException e) {
                 e.printStackTrace();
@@ -171,40 +196,139 @@ public class TaskUI {
         }
     }
 
+    /**
+     * ユーザーから絞り込み条件を受け取り、条件に一致するタスクをページごとに表示します。
+     *
+     * @see #isNumeric(String)
+     * @see com.taskapp.logic.TaskLogic#showAll(User, Integer, Integer, int, int)
+     */
+    public void inputFilterInformation() {
+        try {
+            System.out.print("絞り込むステータスを入力してください（0. 未着手, 1. 着手中, 2. 完了, 空欄. 指定しない）：");
+            String statusInput = reader.readLine();
+            Integer status = null;
+            if (isNumeric(statusInput)) {
+                status = Integer.parseInt(statusInput);
+            }
+
+            System.out.print("担当者を選択してください（1. 自分の担当のみ, 2. ユーザーコードを指定, 空欄. 指定しない）：");
+            String repUserInput = reader.readLine();
+            Integer repUserCode = null;
+            if ("1".equals(repUserInput)) {
+                repUserCode = loginUser.getCode();
+            } else if ("2".equals(repUserInput)) {
+                System.out.print("担当するユーザーのコードを入力してください：");
+                String codeInput = reader.readLine();
+                if (!isNumeric(codeInput)) {
+                    System.out.println("ユーザーのコードは半角の数字で入力してください");
+                    return;
+                }
+                repUserCode = Integer.parseInt(codeInput);
+            }
+            System.out.println();
+
+            // ページ送りしながら表示する
+            int page = 1;
+            while (true) {
+                int totalPages = taskLogic.showAll(loginUser, status, repUserCode, page, PAGE_SIZE);
+                if (totalPages <= 1) {
+                    break;
+                }
+                System.out.print("n. 次のページ, p. 前のページ, q. 終了：");
+                String pageInput = reader.readLine();
+                System.out.println();
+                if ("n".equals(pageInput) && page < totalPages) {
+                    page++;
+                } else if ("p".equals(pageInput) && page > 1) {
+                    page--;
+                } else if ("q".equals(pageInput) || pageInput == null) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * ユーザーから一括登録用CSVのパスを受け取り、タスクを一括登録します。
+     *
+     * @see com.taskapp.logic.TaskLogic#importTasks(String, User)
+     */
+    public void inputImportInformation() {
+        try {
+            System.out.print("一括登録するCSVファイルのパスを入力してください：");
+            String importFilePath = reader.readLine();
+
+            int count = taskLogic.importTasks(importFilePath, loginUser);
+            System.out.println(count + "件のタスクの登録が完了しました。");
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (AppException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * ユーザーから検索するキーワードを受け取り、タスク名にキーワードを含むタスクを表示します。
+     *
+     * @see com.taskapp.logic.TaskLogic#showByName(User, String)
+     */
+    public void inputSearchInformation() {
+        try {
+            System.out.print("検索するタスク名を入力してください：");
+            String keyword = reader.readLine();
+            System.out.println();
+
+            taskLogic.showByName(loginUser, keyword);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (AppException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
     /**
      * タスクのステータス変更または削除を選択するサブメニューを表示します。
      *
      * @see #inputChangeInformation()
      * @see #inputDeleteInformation()
      */
-     public void selectSubMenu() {
+    public void selectSubMenu() {
 
         boolean flg = true;
 
         while (flg) {
             try {
-                System.out.print(" 以下1~2から好きな選択肢を選んでください。 ");
-                System.out.print(" 1. タスクのステータス変更, 2. メインメニューに戻る ");
-                String codeInput = reader.readLine();
-                if (!isNumeric(codeInput)) {
-                    System.out.println("半角の整数で入力してください。");
-                    System.out.println();
-                    continue;
-                }
-
-                if(codeInput == 1){
-                    //inputChangeInformation();
-                } else {
-                    continue;
-                }
+                System.out.println("以下1~3から好きな選択肢を選んでください。");
+                System.out.println("1. タスクのステータス変更, 2. タスク削除, 3. メインメニューに戻る");
+                System.out.print("選択肢：");
+                String selectMenu = reader.readLine();
 
+                System.out.println();
 
+                switch (selectMenu) {
+                    case "1":
+                        inputChangeInformation();
+                        flg = false;
+                        break;
+                    case "2":
+                        inputDeleteInformation();
+                        flg = false;
+                        break;
+                    case "3":
+                        flg = false;
+                        break;
+                    default:
+                        System.out.println("選択肢が誤っています。1~3の中から選択してください。");
+                        System.out.println();
+                        break;
+                }
             } catch (IOException e) {
                 e.printStackTrace();
-            } catch (NumberFormatException e) {
-                System.out.println("無効な数値です。再度入力してください。");
-
-     }
+            }
+        }
+    }
 
     /**
      * ユーザーからのタスクステータス変更情報を受け取り、タスクのステータスを変更します。
@@ -212,7 +336,7 @@ public class TaskUI {
      * @see #isNumeric(String)
      * @see com.taskapp.logic.TaskLogic#changeStatus(int, int, User)
      */
-     public void inputChangeInformation() {
+    public void inputChangeInformation() {
 
         boolean flg = true;
 
@@ -221,20 +345,38 @@ public class TaskUI {
                 System.out.print("ステータスを変更するタスクコードを入力してください：");
                 String codeInput = reader.readLine();
                 if (!isNumeric(codeInput)) {
-                    System.out.println("半角の整数で入力してください。");
+                    System.out.println("コードは半角の数字で入力してください");
                     System.out.println();
                     continue;
                 }
                 int code = Integer.parseInt(codeInput);
 
-              // taskLogic.changeStatus();
+                System.out.println("どのステータスに変更するか選択してください。");
+                System.out.println("1. 着手中, 2. 完了");
+                System.out.print("選択肢：");
+                String statusInput = reader.readLine();
+                if (!isNumeric(statusInput)) {
+                    System.out.println("ステータスは半角の数字で入力してください");
+                    System.out.println();
+                    continue;
+                }
+                int status = Integer.parseInt(statusInput);
+                if (status != 1 && status != 2) {
+                    System.out.println("ステータスは1・2の中から選択してください");
+                    System.out.println();
+                    continue;
                 }
 
+                taskLogic.changeStatus(code, status, loginUser);
+                flg = false;
             } catch (IOException e) {
                 e.printStackTrace();
-            } catch (NumberFormatException e) {
-                System.out.println("無効な数値です。再度入力してください。");
-     }
+            } catch (AppException e) {
+                System.out.println(e.getMessage());
+                System.out.println();
+            }
+        }
+    }
 
     /**
      * ユーザーからのタスク削除情報を受け取り、タスクを削除します。
@@ -242,8 +384,31 @@ public class TaskUI {
      * @see #isNumeric(String)
      * @see com.taskapp.logic.TaskLogic#delete(int)
      */
-    // public void inputDeleteInformation() {
-    // }
+    public void inputDeleteInformation() {
+
+        boolean flg = true;
+
+        while (flg) {
+            try {
+                System.out.print("削除するタスクコードを入力してください：");
+                String codeInput = reader.readLine();
+                if (!isNumeric(codeInput)) {
+                    System.out.println("コードは半角の数字で入力してください");
+                    System.out.println();
+                    continue;
+                }
+                int code = Integer.parseInt(codeInput);
+
+                taskLogic.delete(code);
+                flg = false;
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (AppException e) {
+                System.out.println(e.getMessage());
+                System.out.println();
+            }
+        }
+    }
 
     /**
      * 指定された文字列が数値であるかどうかを判定します。
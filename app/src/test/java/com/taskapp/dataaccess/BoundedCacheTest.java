@@ -0,0 +1,65 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testReadThrough() {
+        BoundedCache<String> cache = new BoundedCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, code -> "value" + loads.incrementAndGet());
+        String value = cache.get(1, code -> "value" + loads.incrementAndGet());
+
+        assertThat(value).isEqualTo("value1");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.stats().getHitCount()).isEqualTo(1);
+        assertThat(cache.stats().getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testInvalidate() {
+        BoundedCache<String> cache = new BoundedCache<>(10);
+        cache.get(1, code -> "old");
+
+        cache.invalidate(1);
+
+        assertThat(cache.get(1, code -> "new")).isEqualTo("new");
+    }
+
+    @Test
+    public void testInvalidateDuringLoad() {
+        BoundedCache<String> cache = new BoundedCache<>(10);
+
+        // 読み込み中に書き込みが終わって無効化された場合、読み込んだ古い値はキャッシュしない
+        String loaded = cache.get(1, code -> {
+            cache.invalidate(1);
+            return "old";
+        });
+
+        assertThat(loaded).isEqualTo("old");
+        assertThat(cache.get(1, code -> "new")).isEqualTo("new");
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() {
+        BoundedCache<String> cache = new BoundedCache<>(10);
+        for (int i = 0; i < 20; i++) {
+            cache.get(1, code -> "hot");
+        }
+
+        // 1度しか参照されないキーを大量に読み込む
+        for (int i = 100; i < 1000; i++) {
+            cache.get(i, code -> "cold");
+        }
+
+        assertThat(cache.get(1, code -> "reloaded")).isEqualTo("hot");
+        assertThat(cache.stats().getSize()).isLessThanOrEqualTo(10);
+        assertThat(cache.stats().getEvictionCount()).isPositive();
+    }
+}
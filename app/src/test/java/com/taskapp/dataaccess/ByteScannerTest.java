@@ -0,0 +1,58 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class ByteScannerTest {
+    @Test
+    public void testSelect() {
+        assertThat(ByteScanner.select("scalar")).isSameAs(ByteScanner.SCALAR);
+        // テストは--add-modules jdk.incubator.vectorを指定して実行する
+        assertThat(ByteScanner.select("vector")).isInstanceOf(VectorByteScanner.class);
+        // 既定は1バイトずつ比べる実装で、モジュールがあってもvectorを指定しない限り使わない
+        assertThat(ByteScanner.DEFAULT).isSameAs(ByteScanner.SCALAR);
+        assertThat(ByteScanner.select("auto")).isSameAs(ByteScanner.SCALAR);
+    }
+
+    @Test
+    public void testIndexAll() {
+        byte[] bytes = "a,b\n,,\n".getBytes();
+        int[] positions = new int[8];
+
+        int count = ByteScanner.SCALAR.indexAll(bytes, 0, bytes.length, (byte) ',', positions);
+        assertThat(Arrays.copyOf(positions, count)).containsExactly(1, 4, 5);
+        // 範囲の外の位置は記録しない
+        count = ByteScanner.SCALAR.indexAll(bytes, 2, 5, (byte) ',', positions);
+        assertThat(Arrays.copyOf(positions, count)).containsExactly(4);
+        // 配列がいっぱいになったら止める
+        count = ByteScanner.SCALAR.indexAll(bytes, 0, bytes.length, (byte) ',', new int[2]);
+        assertThat(count).isEqualTo(2);
+    }
+
+    @Test
+    public void testVectorMatchesScalar() {
+        ByteScanner vector = ByteScanner.select("vector");
+        Random random = new Random(0);
+        for (int n = 0; n < 200; n++) {
+            // ベクトル幅の倍数でない長さ・開始位置と、区切り文字が続く箇所を含める
+            byte[] bytes = new byte[random.nextInt(300)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) "ab,\n".charAt(random.nextInt(4));
+            }
+            int from = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int to = from + random.nextInt(bytes.length - from + 1);
+            int[] expected = new int[1 + random.nextInt(40)];
+            int[] actual = new int[expected.length];
+
+            int expectedCount = ByteScanner.SCALAR.indexAll(bytes, from, to, (byte) '\n', expected);
+            int actualCount = vector.indexAll(bytes, from, to, (byte) '\n', actual);
+
+            assertThat(actualCount).isEqualTo(expectedCount);
+            assertThat(Arrays.copyOf(actual, actualCount)).containsExactly(Arrays.copyOf(expected, expectedCount));
+        }
+    }
+}
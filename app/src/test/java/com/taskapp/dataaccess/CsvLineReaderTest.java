@@ -0,0 +1,85 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class CsvLineReaderTest {
+
+    @Test
+    public void testColumns() throws IOException {
+        byte[] csv = String.join("\r\n",
+                "Code,Name,Status,Rep_User_Code",
+                "1,タスク1,0,2",
+                "2,a,1,",
+                "",
+                "-3,b,+4,x").getBytes(StandardCharsets.UTF_8);
+        CsvLineReader reader = new CsvLineReader(csv, csv.length);
+
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.offset()).isEqualTo(0);
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.offset()).isEqualTo(32);
+        assertThat(reader.columns()).isEqualTo(4);
+        assertThat(reader.intColumn(0)).isEqualTo(1);
+        assertThat(reader.column(1)).isEqualTo("タスク1");
+        assertThat(reader.columnEquals(1, "タスク1".getBytes(StandardCharsets.UTF_8))).isTrue();
+        assertThat(reader.intColumn(3)).isEqualTo(2);
+
+        // String#splitと同じく、末尾の空の列は数えない
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.columns()).isEqualTo(3);
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.line()).isEmpty();
+
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.intColumn(0)).isEqualTo(-3);
+        assertThat(reader.intColumn(2)).isEqualTo(4);
+        assertThatThrownBy(() -> reader.intColumn(3)).isInstanceOf(NumberFormatException.class);
+        assertThat(reader.next()).isFalse();
+    }
+
+    @Test
+    public void testVerify() throws IOException {
+        byte[] csv = String.join("\n",
+                "1,a,0,1",
+                CsvChecksum.seal("2,b,0,1"),
+                "3,c,0,1,#00000000",
+                "4,d,0,1").getBytes(StandardCharsets.UTF_8);
+        CsvLineReader reader = new CsvLineReader(csv, csv.length);
+        CsvChecksum.Scan scan = new CsvChecksum.Scan(true, false);
+
+        // チェックサムの付いた行より前の行は受け付ける
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.verify(scan)).isTrue();
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.verify(scan)).isTrue();
+        assertThat(reader.column(3)).isEqualTo("1");
+        assertThat(reader.line()).isEqualTo("2,b,0,1");
+        // チェックサムが一致しない行と、チェックサムの付いた行より後のチェックサムの無い行は受け付けない
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.verify(scan)).isFalse();
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.verify(scan)).isFalse();
+    }
+
+    @Test
+    public void testLongLine() throws IOException {
+        // 読み込みバッファより長い行も、広げながら読み進める
+        String name = "x".repeat(20000);
+        byte[] csv = ("header\n1," + name + ",0,1\n2,a,0,1").getBytes(StandardCharsets.UTF_8);
+        try (CsvLineReader reader = new CsvLineReader(new ByteArrayInputStream(csv))) {
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.column(1)).isEqualTo(name);
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.offset()).isEqualTo(7 + 2 + name.length() + 5);
+            assertThat(reader.intColumn(0)).isEqualTo(2);
+            assertThat(reader.next()).isFalse();
+        }
+    }
+}
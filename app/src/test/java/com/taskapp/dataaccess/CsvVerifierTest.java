@@ -0,0 +1,75 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CsvVerifierTest {
+    @Test
+    public void testChecksum() {
+        String line = CsvChecksum.seal("1,taskA,0,1");
+
+        assertThat(line).matches("1,taskA,0,1,#[0-9a-f]{8}");
+        assertThat(CsvChecksum.strip(line)).isEqualTo("1,taskA,0,1");
+        assertThat(CsvChecksum.strip(line.replace("taskA", "taskB"))).isNull();
+        assertThat(CsvChecksum.strip("1,taskA,0,1")).isEqualTo("1,taskA,0,1");
+    }
+
+    @Test
+    public void testScanRejectsRowTornBeforeChecksum() {
+        String sealed = CsvChecksum.seal("5,taskE,0,12");
+        // チェックサムを書く前に途切れた行は、列の数だけでは壊れていることが分からない
+        String torn = sealed.substring(0, "5,taskE,0,1".length());
+
+        CsvChecksum.Scan scan = new CsvChecksum.Scan(true, false);
+        assertThat(scan.strip("1,taskA,0,1")).isEqualTo("1,taskA,0,1");
+        assertThat(scan.strip(CsvChecksum.seal("2,taskB,0,1"))).isEqualTo("2,taskB,0,1");
+        assertThat(scan.strip(torn)).isNull();
+
+        assertThat(CsvChecksum.Scan.appended().strip(sealed)).isEqualTo("5,taskE,0,12");
+        assertThat(new CsvChecksum.Scan(true, true).strip(torn)).isNull();
+
+        CsvChecksum.Scan disabled = new CsvChecksum.Scan(false, false);
+        disabled.strip(sealed);
+        assertThat(disabled.strip(torn)).isEqualTo("5,taskE,0,1");
+    }
+
+    @Test
+    public void testVerify(@TempDir Path dir) throws IOException {
+        Path users = dir.resolve("users.csv");
+        Path tasks = dir.resolve("tasks.csv");
+        Path logs = dir.resolve("logs.csv");
+        Files.writeString(users, "Code,Name,Email,Password\n1,鈴木一郎,test1@example.com,password1");
+        Files.writeString(tasks, "Code,Name,Status,Rep_User_Code\n"
+                + CsvChecksum.seal("1,taskA,0,1") + "\n"
+                + CsvChecksum.seal("2,taskB,0,1").replace("0,1,#", "1,1,#") + "\n"
+                + "3,taskC,0,1\n"
+                + "4,tas");
+        Files.writeString(logs, "Task_Code,Change_User_Code,Status,Change_Date\n"
+                + CsvChecksum.seal("1,1,0,2024-01-01") + "\n"
+                + "1,1,1,2024/01/02");
+
+        CsvVerifier.Report report = new CsvVerifier(users.toString(), tasks.toString(), logs.toString())
+                .verify(false);
+
+        assertThat(report.isValid()).isFalse();
+        assertThat(report.getFiles().get(0).getCorruptCount()).isZero();
+        CsvVerifier.FileResult taskResult = report.getFiles().get(1);
+        assertThat(taskResult.getLines()).isEqualTo(4);
+        assertThat(taskResult.getCheckedLines()).isEqualTo(2);
+        assertThat(taskResult.getCorruptRows()).extracting(CsvVerifier.CorruptRow::getLineNumber)
+                .containsExactly(3L, 5L);
+        assertThat(report.getFiles().get(2).getCorruptRows()).extracting(CsvVerifier.CorruptRow::getReason)
+                .containsExactly("日付の形式が正しくありません");
+
+        // チェックサムを必須にすると、チェックサムの無い行も壊れた行になる
+        CsvVerifier.Report strict = new CsvVerifier(users.toString(), tasks.toString(), logs.toString())
+                .verify(true);
+        assertThat(strict.getFiles().get(1).getCorruptCount()).isEqualTo(3);
+    }
+}
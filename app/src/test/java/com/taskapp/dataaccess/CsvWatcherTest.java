@@ -0,0 +1,132 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CsvWatcherTest {
+    private final CsvWatcher watcher = new CsvWatcher();
+
+    private final List<String> appended = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger rewrites = new AtomicInteger();
+
+    @AfterEach
+    public void tearDown() {
+        watcher.close();
+    }
+
+    @Test
+    public void testAppendAndRewrite(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("tasks.csv");
+        Files.write(file, "Code,Name,Status,Rep_User_Code\n1,Task One,0,1".getBytes(StandardCharsets.UTF_8));
+        register(file);
+
+        // 追記した場合は追記した行だけを受け取る
+        Files.write(file, "\n2,Task Two,0,1".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        await(() -> !appended.isEmpty());
+        assertThat(appended).containsExactly("2,Task Two,0,1");
+        assertThat(rewrites).hasValue(0);
+
+        // 既存の行を書き換えた場合は全体の読み直しを求める
+        Files.write(file, "Code,Name,Status,Rep_User_Code\n1,Task One,2,1".getBytes(StandardCharsets.UTF_8));
+        await(() -> rewrites.get() > 0);
+        assertThat(appended).hasSize(1);
+    }
+
+    @Test
+    public void testAcknowledgedWriteIsNotNotified(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("tasks.csv");
+        Files.write(file, "Code,Name,Status,Rep_User_Code".getBytes(StandardCharsets.UTF_8));
+        register(file);
+
+        Files.write(file, "\n1,Task One,0,1".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        watcher.acknowledge(file);
+        Path other = dir.resolve("other.csv");
+        Files.write(other, "x".getBytes(StandardCharsets.UTF_8));
+        watcher.register(other, new CsvWatcher.Listener() {
+            @Override
+            public void onAppend(List<String> lines) {
+            }
+
+            @Override
+            public void onRewrite() {
+                rewrites.addAndGet(100);
+            }
+        });
+        // 別のファイルの通知が届いた時点で、確認済みのファイルの通知が無いことを確かめる
+        Files.write(other, "y".getBytes(StandardCharsets.UTF_8));
+        await(() -> rewrites.get() >= 100);
+
+        assertThat(appended).isEmpty();
+        assertThat(rewrites).hasValue(100);
+    }
+
+    @Test
+    public void testWriteInProgressIsNotNotified(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("tasks.csv");
+        Files.write(file, "Code,Name,Status,Rep_User_Code\n1,Task One,0,1".getBytes(StandardCharsets.UTF_8));
+        register(file);
+        Path other = dir.resolve("other.csv");
+        Files.write(other, "x".getBytes(StandardCharsets.UTF_8));
+        watcher.register(other, new CsvWatcher.Listener() {
+            @Override
+            public void onAppend(List<String> lines) {
+            }
+
+            @Override
+            public void onRewrite() {
+                rewrites.addAndGet(100);
+            }
+        });
+
+        // 書き込み中に途中まで書かれた内容は、書き換えとして通知しない
+        watcher.beginWrite(file);
+        Files.write(file, "Code,Name,Status,Rep_User_Code".getBytes(StandardCharsets.UTF_8));
+        Files.write(other, "y".getBytes(StandardCharsets.UTF_8));
+        await(() -> rewrites.get() >= 100);
+        Files.write(file, "\n1,Task One,1,1".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        watcher.acknowledge(file);
+        Files.write(other, "z".getBytes(StandardCharsets.UTF_8));
+        await(() -> rewrites.get() >= 200);
+
+        assertThat(appended).isEmpty();
+        assertThat(rewrites).hasValue(200);
+    }
+
+    private void register(Path file) throws IOException {
+        watcher.register(file, new CsvWatcher.Listener() {
+            @Override
+            public void onAppend(List<String> lines) {
+                appended.addAll(lines);
+            }
+
+            @Override
+            public void onRewrite() {
+                rewrites.incrementAndGet();
+            }
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        // WatchServiceがポーリングで実装されている環境もあるため長めに待つ
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("通知を待つ時間").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.model.Log;
+
+public class LogCursorTest {
+    private static final String TEST_FILE_PATH = "src/test/resources/test_logs.csv";
+
+    @Test
+    public void testPrimitives() {
+        byte[] csv = String.join("\r\n",
+                "Task_Code,Change_User_Code,Status,Change_Date",
+                "12,3,1,2024-02-29",
+                "broken line",
+                "13,3,9,2024-02-30",
+                CsvChecksum.seal("14,4,2,1969-12-31"),
+                "15,4,2,2024-01-01,#00000000").getBytes(StandardCharsets.UTF_8);
+        // 1行より小さいバッファでも、広げながら読み進める
+        LogCursor cursor = new LogCursor(List.of(() -> new ByteArrayInputStream(csv)),
+                LocalDate.MIN, LocalDate.MAX, 8, ByteScanner.DEFAULT);
+
+        assertThat(cursor.next()).isTrue();
+        assertThat(cursor.getTaskCode()).isEqualTo(12);
+        assertThat(cursor.getChangeUserCode()).isEqualTo(3);
+        assertThat(cursor.getStatus()).isEqualTo(1);
+        assertThat(cursor.getChangeEpochDay()).isEqualTo(LocalDate.of(2024, 2, 29).toEpochDay());
+
+        // 存在しない日付・チェックサムが一致しない行は読み飛ばす
+        assertThat(cursor.next()).isTrue();
+        assertThat(cursor.getTaskCode()).isEqualTo(14);
+        assertThat(cursor.toLog().getChangeDate()).isEqualTo(LocalDate.of(1969, 12, 31));
+        assertThat(cursor.next()).isFalse();
+    }
+
+    @Test
+    public void testOpenCursor(@TempDir Path tempDir) throws IOException {
+        Path hotFile = tempDir.resolve("logs.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile);
+        LogDataAccess logDataAccess = new LogDataAccess(hotFile.toString());
+        logDataAccess.rotate();
+        logDataAccess.save(new Log(5, 1, 0, LocalDate.of(2025, 1, 1)));
+        logDataAccess.deleteByTaskCode(4);
+
+        int rows = 0;
+        int done = 0;
+        try (LogCursor cursor = logDataAccess.openCursor()) {
+            while (cursor.next()) {
+                rows++;
+                if (cursor.getStatus() == 2) {
+                    done++;
+                }
+            }
+        }
+        assertThat(rows).isEqualTo(6);
+        assertThat(done).isEqualTo(1);
+
+        List<Integer> taskCodes = new ArrayList<>();
+        try (LogCursor cursor = logDataAccess.openCursor(LocalDate.of(2024, 1, 11), LocalDate.of(2025, 1, 1))) {
+            while (cursor.next()) {
+                taskCodes.add(cursor.getTaskCode());
+            }
+        }
+        assertThat(taskCodes).containsExactly(3, 3, 5);
+    }
+}
@@ -8,20 +8,24 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.taskapp.model.Log;
 
 public class LogDataAccessTest {
     private static final String TEST_FILE_PATH = "src/test/resources/test_logs.csv";
     private static final String BACKUP_FILE_PATH = "src/test/resources/test_logs.csv.bak";
+    private static final String TOMBSTONES_FILE_PATH = "src/test/resources/test_logs.tombstones";
     private LogDataAccess logDataAccess;
 
     @BeforeEach
@@ -45,6 +49,7 @@ public class LogDataAccessTest {
         Path backupFile = Paths.get(BACKUP_FILE_PATH);
         Files.copy(backupFile, originalFile, StandardCopyOption.REPLACE_EXISTING);
         Files.delete(backupFile);
+        Files.deleteIfExists(Paths.get(TOMBSTONES_FILE_PATH));
     }
 
     @Tag("Q3")
@@ -80,12 +85,176 @@ public class LogDataAccessTest {
 
         logDataAccess.deleteByTaskCode(2);
 
-        List<Log> logs = readLogsFromFile(TEST_FILE_PATH);
+        // 行はコンパクション用スレッドが取り除くため、読み込み結果で確認する
+        List<Log> logs = logDataAccess.findAll();
 
         assertThat(logs).hasSize(8);
         assertThat(logs).doesNotContain(log2);
     }
 
+    @Test
+    public void testRotate(@TempDir Path tempDir) throws IOException {
+        Path hotFile = tempDir.resolve("logs.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile);
+        LogDataAccess rotatingLogDataAccess = new LogDataAccess(hotFile.toString());
+
+        rotatingLogDataAccess.rotate();
+        Log newLog = new Log(5, 1, 0, LocalDate.of(2025, 1, 1));
+        rotatingLogDataAccess.save(newLog);
+
+        assertThat(readLogsFromFile(hotFile.toString())).containsExactly(newLog);
+        assertThat(Files.exists(tempDir.resolve("logs-archive/manifest.csv"))).isTrue();
+        assertThat(rotatingLogDataAccess.findAll()).hasSize(8);
+        assertThat(rotatingLogDataAccess.findByTaskCode(3)).hasSize(3);
+        assertThat(rotatingLogDataAccess.findByDateRange(LocalDate.of(2024, 1, 12), LocalDate.of(2024, 12, 31)))
+                .hasSize(2);
+    }
+
+    @Test
+    public void testRotateKeepsUnreadableLines(@TempDir Path tempDir) throws IOException {
+        Path hotFile = tempDir.resolve("logs.csv");
+        Files.writeString(hotFile, Files.readString(Paths.get(TEST_FILE_PATH)) + "\nbroken line\n5,1,0,2025-01-01");
+        LogDataAccess rotatingLogDataAccess = new LogDataAccess(hotFile.toString());
+
+        rotatingLogDataAccess.rotate();
+
+        // 読み取れない行はセグメントに入れず、logs.csvに残す
+        assertThat(Files.readAllLines(hotFile)).containsExactly("Task_Code,Change_User_Code,Status,Change_Date",
+                "broken line");
+        assertThat(rotatingLogDataAccess.findAll()).hasSize(8);
+    }
+
+    @Test
+    public void testRecoverRotationInterruptedBeforeTruncate(@TempDir Path tempDir) throws IOException {
+        Path hotFile = tempDir.resolve("logs.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile);
+        new LogDataAccess(hotFile.toString()).rotate();
+        // マニフェストに追記した後、logs.csvを空にする前に終了した状態（内容・世代とも切り出し前のまま）にする
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile, StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(tempDir.resolve("logs.csv.gen"));
+
+        LogDataAccess recoveredLogDataAccess = new LogDataAccess(hotFile.toString());
+
+        assertThat(readLogsFromFile(hotFile.toString())).isEmpty();
+        assertThat(recoveredLogDataAccess.findAll()).hasSize(7);
+
+        // 切り出し後に同じ内容が追記されただけの場合は取り除かない
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile, StandardCopyOption.REPLACE_EXISTING);
+        assertThat(new LogDataAccess(hotFile.toString()).findAll()).hasSize(14);
+    }
+
+    @Test
+    public void testDeleteByTaskCodeInArchive(@TempDir Path tempDir) throws IOException {
+        Path hotFile = tempDir.resolve("logs.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile);
+        LogDataAccess rotatingLogDataAccess = new LogDataAccess(hotFile.toString());
+        rotatingLogDataAccess.rotate();
+
+        rotatingLogDataAccess.deleteByTaskCode(3);
+
+        assertThat(rotatingLogDataAccess.findByTaskCode(3)).isEmpty();
+        assertThat(rotatingLogDataAccess.findAll()).hasSize(4).noneMatch(log -> log.getTaskCode() == 3);
+
+        // 削除したタスクコードを再び使った場合は新しいログだけが見える
+        Log newLog = new Log(3, 1, 0, LocalDate.of(2025, 1, 1));
+        rotatingLogDataAccess.save(newLog);
+        assertThat(rotatingLogDataAccess.findByTaskCode(3)).containsExactly(newLog);
+    }
+
+    @Test
+    public void testRotateDropsDeletedLines(@TempDir Path tempDir) throws IOException {
+        Path hotFile = tempDir.resolve("logs.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile);
+        LogDataAccess rotatingLogDataAccess = new LogDataAccess(hotFile.toString());
+        rotatingLogDataAccess.deleteByTaskCode(3);
+        Log newLog = new Log(3, 1, 0, LocalDate.of(2025, 1, 1));
+        rotatingLogDataAccess.save(newLog);
+
+        rotatingLogDataAccess.rotate();
+
+        // 墓標より前の行はセグメントに入れず、墓標より後に追記した行だけを残す
+        List<String> manifest = Files.readAllLines(tempDir.resolve("logs-archive/manifest.csv"));
+        assertThat(manifest.get(manifest.size() - 1).split(",")[5]).isEqualTo("5");
+        assertThat(rotatingLogDataAccess.findByTaskCode(3)).containsExactly(newLog);
+        assertThat(rotatingLogDataAccess.findAll()).hasSize(5);
+    }
+
+    @Test
+    public void testSaveAsyncReusedTaskCode(@TempDir Path tempDir) throws IOException {
+        Path hotFile = tempDir.resolve("logs.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile);
+        LogDataAccess reusingLogDataAccess = new LogDataAccess(hotFile.toString());
+        reusingLogDataAccess.deleteByTaskCode(1);
+
+        // 削除したタスクコードのログも古い行を取り除くのを待たずに追記し、墓標より前の行だけを隠す
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<Log> reusedLogs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Log reusedLog = new Log(1, 1, i % 3, LocalDate.of(2025, 1, 1));
+            reusedLogs.add(reusedLog);
+            futures.add(reusingLogDataAccess.saveAsync(reusedLog));
+            futures.add(reusingLogDataAccess.saveAsync(new Log(2, 1, 1, LocalDate.of(2025, 1, 2))));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        assertThat(reusingLogDataAccess.findByTaskCode(1)).isEqualTo(reusedLogs);
+        assertThat(readLogsFromFile(hotFile.toString())).filteredOn(log -> log.getTaskCode() == 1)
+                .hasSize(reusedLogs.size() + 1).endsWith(reusedLogs.toArray(new Log[0]));
+    }
+
+    @Test
+    public void testFindStatusesAt(@TempDir Path tempDir) throws IOException {
+        Path hotFile = tempDir.resolve("logs.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile);
+        LogDataAccess checkpointingLogDataAccess = new LogDataAccess(hotFile.toString());
+
+        assertThat(checkpointingLogDataAccess.findStatusesAt(LocalDate.of(2024, 1, 9))).isEmpty();
+        assertThat(checkpointingLogDataAccess.findStatusesAt(LocalDate.of(2024, 1, 11)))
+                .containsExactly(entry(1, 0), entry(2, 0), entry(3, 1), entry(4, 0));
+        assertThat(checkpointingLogDataAccess.findStatusesAt(LocalDate.of(2024, 1, 20)))
+                .containsExactly(entry(1, 0), entry(2, 0), entry(3, 2), entry(4, 1));
+
+        // 7日ごと（1970-01-01起点）のチェックポイントが作成され、次回からはそれ以降のログだけを再生する
+        assertThat(Files.exists(tempDir.resolve("logs-checkpoints/2024-01-11.csv"))).isTrue();
+        assertThat(Files.exists(tempDir.resolve("logs-checkpoints/2024-01-18.csv"))).isTrue();
+        LogDataAccess reopened = new LogDataAccess(hotFile.toString());
+        assertThat(reopened.findStatusesAt(LocalDate.of(2024, 1, 12)))
+                .containsExactly(entry(1, 0), entry(2, 0), entry(3, 2), entry(4, 0));
+
+        // 削除したタスクはチェックポイントに残っていても含まない
+        reopened.deleteByTaskCode(3);
+        assertThat(reopened.findStatusesAt(LocalDate.of(2024, 1, 20))).containsOnlyKeys(1, 2, 4);
+
+        // 削除後に同じタスクコードで追記したログは、チェックポイントの削除前のステータスと区別して反映する
+        reopened.save(new Log(3, 1, 1, LocalDate.of(2024, 1, 20)));
+        assertThat(reopened.findStatusesAt(LocalDate.of(2024, 1, 20))).containsEntry(3, 1);
+        assertThat(reopened.findStatusesAt(LocalDate.of(2024, 1, 19))).containsOnlyKeys(1, 2, 4);
+    }
+
+    @Test
+    public void testFindStatusesAtDiscardsStaleCheckpoints(@TempDir Path tempDir) throws IOException {
+        Path hotFile = tempDir.resolve("logs.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), hotFile);
+        LogDataAccess checkpointingLogDataAccess = new LogDataAccess(hotFile.toString());
+        checkpointingLogDataAccess.findStatusesAt(LocalDate.of(2024, 1, 20));
+
+        // 切り出しはログの内容を変えないため、チェックポイントを残す
+        checkpointingLogDataAccess.rotate();
+        assertThat(Files.exists(tempDir.resolve("logs-checkpoints/2024-01-11.csv"))).isTrue();
+
+        // チェックポイントより前の変更日のログが追記された場合は、その日以降のチェックポイントを使わない
+        Files.writeString(hotFile, "\n3,1,0,2024-01-11", StandardOpenOption.APPEND);
+        assertThat(new LogDataAccess(hotFile.toString()).findStatusesAt(LocalDate.of(2024, 1, 11)))
+                .containsEntry(3, 0);
+        assertThat(Files.readAllLines(tempDir.resolve("logs-checkpoints/2024-01-11.csv"))).contains("3,0");
+
+        // 書き換えられた場合は全てのチェックポイントを使わない
+        checkpointingLogDataAccess.findStatusesAt(LocalDate.of(2024, 1, 20));
+        Files.writeString(hotFile, Files.readString(hotFile).replace("3,1,0,2024-01-11", "3,1,2,2024-01-11"));
+        assertThat(new LogDataAccess(hotFile.toString()).findStatusesAt(LocalDate.of(2024, 1, 11)))
+                .containsEntry(3, 2);
+    }
+
     private List<Log> readLogsFromFile(String filePath) {
         List<Log> logs = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
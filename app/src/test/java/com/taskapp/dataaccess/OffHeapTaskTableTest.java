@@ -0,0 +1,107 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.taskapp.model.Task;
+
+public class OffHeapTaskTableTest {
+    private static final String TEST_FILE_PATH = "src/test/resources/test_tasks.csv";
+
+    @Test
+    public void testLoad() {
+        OffHeapTaskTable table = OffHeapTaskTable.load(TEST_FILE_PATH);
+        OffHeapTaskTable.TaskView view = table.newView();
+
+        assertThat(table.size()).isEqualTo(4);
+        assertThat(table.find(3, view)).isTrue();
+        assertThat(view.getName()).isEqualTo("taskC");
+        assertThat(view.getStatus()).isEqualTo(2);
+        assertThat(view.getRepUserCode()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSetStatusAndRemove() {
+        OffHeapTaskTable table = new OffHeapTaskTable();
+        for (int code = 1; code <= 5000; code++) {
+            table.put(code, "タスク" + code, 0, 1);
+        }
+        OffHeapTaskTable.TaskView view = table.newView();
+
+        table.setStatus(10, 1);
+        table.remove(20);
+
+        assertThat(table.find(10, view)).isTrue();
+        assertThat(view.getStatus()).isEqualTo(1);
+        assertThat(view.getVersion()).isEqualTo(2);
+        assertThat(view.getName()).isEqualTo("タスク10");
+        assertThat(table.find(20, view)).isFalse();
+        assertThat(table.size()).isEqualTo(4999);
+    }
+
+    @Test
+    public void testRepeatedPutsDoNotGrow() {
+        OffHeapTaskTable table = new OffHeapTaskTable();
+        for (int code = 1; code <= 100; code++) {
+            table.put(code, "タスク" + code, 0, 1);
+        }
+        long initialBytes = table.offHeapBytes();
+
+        // 同じ長さ以下の名前は同じ領域に上書きし、削除と再登録を繰り返しても詰め直して大きくならない
+        for (int round = 0; round < 1000; round++) {
+            for (int code = 1; code <= 100; code++) {
+                table.put(code, "タスク" + (round % 10), round % 3, 1);
+            }
+            for (int code = 1; code <= 100; code++) {
+                table.remove(code);
+                table.put(code, "タスク" + code, 0, 1);
+            }
+        }
+        OffHeapTaskTable.TaskView view = table.newView();
+
+        assertThat(table.offHeapBytes()).isEqualTo(initialBytes);
+        assertThat(table.find(42, view)).isTrue();
+        assertThat(view.getName()).isEqualTo("タスク42");
+        assertThat(table.size()).isEqualTo(100);
+    }
+
+    @Test
+    public void testRemovedRecordsAreReclaimed() {
+        OffHeapTaskTable table = new OffHeapTaskTable();
+        long initialBytes = table.offHeapBytes();
+        table.put(0, "残すタスク", 1, 2);
+        OffHeapTaskTable.TaskView kept = table.newView();
+        table.find(0, kept);
+
+        // 別々のコードの登録と削除を繰り返しても、削除済みレコードと索引を詰め直して大きくならない
+        for (int code = 1; code <= 100_000; code++) {
+            table.put(code, "タスク" + code, 0, 1);
+            table.remove(code);
+        }
+        for (int code = 1; code <= 10; code++) {
+            table.put(code, "タスク" + code, 0, 1);
+        }
+        List<Integer> codes = new ArrayList<>();
+        table.forEach(view -> codes.add(view.getCode()));
+
+        assertThat(table.offHeapBytes()).isEqualTo(initialBytes);
+        assertThat(codes).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        // 詰め直す前に取得したビューも同じタスクを参照する
+        assertThat(kept.getName()).isEqualTo("残すタスク");
+        assertThat(kept.getRepUserCode()).isEqualTo(2);
+    }
+
+    @Test
+    public void testForEach() {
+        OffHeapTaskTable table = OffHeapTaskTable.load(TEST_FILE_PATH);
+        List<Task> tasks = new ArrayList<>();
+
+        table.forEach(view -> tasks.add(view.toTask(null)));
+
+        assertThat(tasks).extracting(Task::getCode).containsExactly(1, 2, 3, 4);
+    }
+}
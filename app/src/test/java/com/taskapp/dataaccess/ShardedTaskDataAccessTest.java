@@ -0,0 +1,97 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+public class ShardedTaskDataAccessTest {
+    private final UserDataAccess userDataAccess = new UserDataAccess("src/test/resources/test_users.csv");
+
+    private final User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+
+    @Test
+    public void testSplitAndRoute(@TempDir Path dir) throws IOException {
+        Path base = dir.resolve("tasks.csv");
+        Files.copy(Paths.get("src/test/resources/test_tasks.csv"), base);
+
+        ShardedTaskDataAccess taskDataAccess = new ShardedTaskDataAccess(base.toString(), 3, userDataAccess);
+
+        assertThat(taskDataAccess.findAll()).extracting(Task::getCode).containsExactly(1, 2, 3, 4);
+        assertThat(taskDataAccess.findAll(task -> task.getStatus() == 0)).extracting(Task::getCode)
+                .containsExactly(1, 2);
+        assertThat(taskDataAccess.findByCode(3).getName()).isEqualTo("taskC");
+
+        // 保存したタスクはコードに対応するシャードだけに書き込まれる
+        Task newTask = new Task(5, "taskE", 0, repUser);
+        taskDataAccess.save(newTask);
+        for (int i = 0; i < 3; i++) {
+            List<String> lines = Files.readAllLines(dir.resolve("tasks.shard" + i + ".csv"));
+            assertThat(lines.contains("5,taskE,0,1")).isEqualTo(i == ShardedTaskDataAccess.shardIndex(5, 3));
+        }
+
+        taskDataAccess.delete(2);
+        assertThat(taskDataAccess.findAll()).extracting(Task::getCode).containsExactly(1, 3, 4, 5);
+    }
+
+    @Test
+    public void testReshard(@TempDir Path dir) throws IOException {
+        Path base = dir.resolve("tasks.csv");
+        Files.copy(Paths.get("src/test/resources/test_tasks.csv"), base);
+        new ShardedTaskDataAccess(base.toString(), 4, userDataAccess).save(new Task(5, "taskE", 0, repUser));
+
+        // シャード数を減らすと既存のシャードから振り分け直し、余ったシャードを削除する
+        ShardedTaskDataAccess taskDataAccess = new ShardedTaskDataAccess(base.toString(), 2, userDataAccess);
+
+        assertThat(taskDataAccess.findAll()).extracting(Task::getCode).containsExactly(1, 2, 3, 4, 5);
+        assertThat(dir.resolve("tasks.shard2.csv")).doesNotExist();
+        assertThat(dir.resolve("tasks.shard3.csv")).doesNotExist();
+    }
+
+    @Test
+    public void testUnshardRestoresTasksCsv(@TempDir Path dir) throws IOException {
+        Path base = dir.resolve("tasks.csv");
+        Files.copy(Paths.get("src/test/resources/test_tasks.csv"), base);
+        new ShardedTaskDataAccess(base.toString(), 4, userDataAccess).save(new Task(5, "taskE", 0, repUser));
+
+        // 振り分けた後の元のCSVは名前を変え、シャード数をマニフェストに記録する
+        assertThat(base).doesNotExist();
+        assertThat(dir.resolve("tasks.csv.migrated")).exists();
+        assertThat(Files.readString(dir.resolve("tasks.shards")).trim()).isEqualTo("4");
+        assertThat(ShardedTaskDataAccess.dataFiles(base)).hasSize(4);
+
+        // シャードを使わずに起動する場合は、シャードの内容をtasks.csvにまとめ直す
+        ShardedTaskDataAccess.unshard(base.toString());
+
+        assertThat(new TaskDataAccess(base.toString(), userDataAccess).findAll()).extracting(Task::getCode)
+                .containsExactlyInAnyOrder(1, 2, 3, 4, 5);
+        assertThat(dir.resolve("tasks.shards")).doesNotExist();
+        for (int i = 0; i < 4; i++) {
+            assertThat(dir.resolve("tasks.shard" + i + ".csv")).doesNotExist();
+        }
+        assertThat(ShardedTaskDataAccess.dataFiles(base)).containsExactly(base);
+    }
+
+    @Test
+    public void testUncommittedReshardIsDiscarded(@TempDir Path dir) throws IOException {
+        Path base = dir.resolve("tasks.csv");
+        Files.copy(Paths.get("src/test/resources/test_tasks.csv"), base);
+        new ShardedTaskDataAccess(base.toString(), 2, userDataAccess);
+        // マニフェストを書き換える前に中断した振り分けの一時ファイル
+        Files.writeString(dir.resolve("tasks.shard0.csv.3.tmp"), "Code,Name,Status,Rep_User_Code\n1,taskA,0,1");
+
+        ShardedTaskDataAccess taskDataAccess = new ShardedTaskDataAccess(base.toString(), 2, userDataAccess);
+
+        assertThat(taskDataAccess.findAll()).extracting(Task::getCode).containsExactly(1, 2, 3, 4);
+        assertThat(dir.resolve("tasks.shard0.csv.3.tmp")).doesNotExist();
+    }
+}
@@ -0,0 +1,99 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TaskCodeSequenceTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReservesBlock() throws IOException {
+        Path file = tempDir.resolve("tasks.seq");
+        TaskCodeSequence sequence = new TaskCodeSequence(file.toString(), 10, () -> 4);
+
+        assertThat(sequence.next()).isEqualTo(5);
+        assertThat(Files.readString(file)).isEqualTo("14");
+
+        // 予約したブロックの中ではファイルを更新しない
+        for (int code = 6; code <= 14; code++) {
+            assertThat(sequence.next()).isEqualTo(code);
+        }
+        assertThat(Files.readString(file)).isEqualTo("14");
+
+        assertThat(sequence.next()).isEqualTo(15);
+        assertThat(Files.readString(file)).isEqualTo("24");
+    }
+
+    @Test
+    public void testObserve() throws IOException {
+        Path file = tempDir.resolve("tasks.seq");
+        TaskCodeSequence sequence = new TaskCodeSequence(file.toString(), 10, () -> 0);
+        assertThat(sequence.next()).isEqualTo(1);
+
+        // 払い出し済みより大きいコードが使われた場合は、その後ろから払い出す
+        sequence.observe(100);
+        assertThat(sequence.next()).isEqualTo(101);
+
+        // 払い出し済みのコードは無視する
+        sequence.observe(50);
+        assertThat(sequence.next()).isEqualTo(102);
+
+        // ファイルにも記録されるため、別のインスタンスも重複しない
+        TaskCodeSequence other = new TaskCodeSequence(file.toString(), 10, () -> 0);
+        assertThat(other.next()).isGreaterThan(110);
+    }
+
+    @Test
+    public void testSharedFile() throws IOException {
+        Path file = tempDir.resolve("tasks.seq");
+        TaskCodeSequence first = new TaskCodeSequence(file.toString(), 10, () -> 0);
+        TaskCodeSequence second = new TaskCodeSequence(file.toString(), 10, () -> 0);
+
+        // 各インスタンスは別のブロックを予約する
+        assertThat(first.next()).isEqualTo(1);
+        assertThat(second.next()).isEqualTo(11);
+        assertThat(first.next()).isEqualTo(2);
+        assertThat(second.next()).isEqualTo(12);
+    }
+
+    @Test
+    public void testSharedFileConcurrently() throws InterruptedException {
+        Path file = tempDir.resolve("tasks.seq");
+        Set<Integer> codes = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            TaskCodeSequence sequence = new TaskCodeSequence(file.toString(), 7, () -> 0);
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int n = 0; n < 500; n++) {
+                        codes.add(sequence.next());
+                    }
+                } catch (IOException e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(errors).isEmpty();
+        assertThat(codes).hasSize(2000);
+    }
+}
@@ -9,8 +9,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -64,6 +68,55 @@ public class TaskDataAccessTest {
         assertThat(tasks).contains(newTask);
     }
 
+    @Test
+    public void testSaveAsync() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        Task newTask = new Task(5, "Task test", 0, repUser);
+
+        taskDataAccess.saveAsync(newTask).join();
+
+        List<Task> tasks = readTasksFromFile(TEST_FILE_PATH);
+
+        assertThat(tasks).contains(newTask);
+    }
+
+    @Test
+    public void testSaveAsyncFromTwoInstancesKeepsOrder() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        // 同じファイルを別の書き方のパスで開いても、書き込み用スレッドは共有する
+        TaskDataAccess other = new TaskDataAccess("src/test/../test/resources/test_tasks.csv", userDataAccess);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int code = 5; code < 45; code++) {
+            TaskDataAccess target = code % 2 == 0 ? taskDataAccess : other;
+            futures.add(target.saveAsync(new Task(code, "Task" + code, 0, repUser)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        List<Task> tasks = readTasksFromFile(TEST_FILE_PATH);
+
+        assertThat(tasks).extracting(Task::getCode).containsExactlyElementsOf(
+                IntStream.range(1, 45).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testSaveAfterSaveAsync() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        List<Task> asyncTasks = new ArrayList<>();
+        for (int code = 5; code < 55; code++) {
+            Task task = new Task(code, "Task " + code, 0, repUser);
+            asyncTasks.add(task);
+            taskDataAccess.saveAsync(task);
+        }
+        Task syncTask = new Task(55, "Task 55", 0, repUser);
+
+        // 後から呼んだ同期の保存は、先に登録した非同期の保存を追い越さない
+        taskDataAccess.save(syncTask);
+
+        List<Task> tasks = readTasksFromFile(TEST_FILE_PATH);
+        assertThat(tasks.subList(tasks.size() - 51, tasks.size() - 1)).isEqualTo(asyncTasks);
+        assertThat(tasks.get(tasks.size() - 1)).isEqualTo(syncTask);
+    }
+
     @Tag("Q2")
     @Test
     public void testFindAll() {
@@ -109,6 +162,36 @@ public class TaskDataAccessTest {
         assertThat(tasks).contains(updatedTask);
     }
 
+    @Test
+    public void testUpdateStatusOnly() {
+        Task task = taskDataAccess.findByCode(2);
+        Task updatedTask = new Task(2, task.getName(), 1, task.getRepUser());
+
+        taskDataAccess.update(updatedTask);
+
+        List<Task> tasks = readTasksFromFile(TEST_FILE_PATH);
+
+        assertThat(tasks).hasSize(4);
+        assertThat(tasks.get(1).getName()).isEqualTo(task.getName());
+        assertThat(tasks.get(1).getStatus()).isEqualTo(1);
+    }
+
+    @Test
+    public void testChecksummedRows() throws IOException {
+        Files.writeString(Paths.get(TEST_FILE_PATH), "\n" + CsvChecksum.seal("5,taskE,0,1")
+                + "\n" + CsvChecksum.seal("6,taskF,0,1").replace("taskF", "taskX"), StandardOpenOption.APPEND);
+
+        // チェックサムが一致しない行は読み込まない
+        assertThat(taskDataAccess.findAll()).extracting(Task::getCode).containsExactly(1, 2, 3, 4, 5);
+        assertThat(taskDataAccess.findByCode(6)).isNull();
+
+        // ステータスだけの上書きでもチェックサムを付け直す
+        Task task = taskDataAccess.findByCode(5);
+        taskDataAccess.update(new Task(5, task.getName(), 2, task.getRepUser()));
+        List<String> lines = Files.readAllLines(Paths.get(TEST_FILE_PATH));
+        assertThat(lines.get(5)).isEqualTo(CsvChecksum.seal("5,taskE,2,1"));
+    }
+
     @Tag("Q5")
     @Test
     public void testDelete() {
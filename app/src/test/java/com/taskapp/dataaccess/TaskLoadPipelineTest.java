@@ -0,0 +1,75 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+public class TaskLoadPipelineTest {
+    @Test
+    public void testSameAsSerial(@TempDir Path tempDir) throws IOException {
+        StringBuilder csv = new StringBuilder("Code,Name,Status,Rep_User_Code");
+        for (int i = 1; i <= 20_000; i++) {
+            // 改行の種類・チェックサム・形式が正しくない行・塊より長い行を混ぜる
+            csv.append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i == 5001) {
+                csv.append(i).append(',').append("x".repeat(200_000)).append(",1,2");
+            } else if (i % 1000 == 0) {
+                csv.append("broken line");
+            } else if (i % 7 == 0) {
+                csv.append(CsvChecksum.seal(i + ",Task" + i + "," + i % 3 + "," + i % 5));
+            } else {
+                csv.append(i).append(",Task").append(i).append(',').append(i % 3).append(',').append(i % 5);
+            }
+        }
+        Path file = tempDir.resolve("tasks.csv");
+        Files.writeString(file, csv);
+        TaskDataAccess taskDataAccess = new TaskDataAccess(file.toString(), new UserDataAccess());
+
+        List<String> expected = new ArrayList<>();
+        taskDataAccess.forEach(TaskLoadPipelineTest::user, task -> expected.add(describe(task)));
+        List<String> actual = new ArrayList<>();
+        new TaskLoadPipeline(file.toString()).forEach(TaskLoadPipelineTest::user, task -> actual.add(describe(task)));
+
+        assertThat(actual).hasSize(19_980).containsExactlyElementsOf(expected);
+        // 塊より長い行も1件として読み込む
+        assertThat(actual).contains("5001," + "x".repeat(200_000) + ",1,User2");
+    }
+
+    @Test
+    public void testStopsOnException(@TempDir Path tempDir) throws IOException {
+        StringBuilder csv = new StringBuilder("Code,Name,Status,Rep_User_Code");
+        for (int i = 1; i <= 20_000; i++) {
+            csv.append('\n').append(i).append(",Task,0,1");
+        }
+        Path file = tempDir.resolve("tasks.csv");
+        Files.writeString(file, csv);
+        TaskLoadPipeline pipeline = new TaskLoadPipeline(file.toString());
+
+        List<Integer> codes = new ArrayList<>();
+        assertThatThrownBy(() -> pipeline.forEach(TaskLoadPipelineTest::user, task -> {
+            if (task.getCode() == 100) {
+                throw new IllegalStateException("stop");
+            }
+            codes.add(task.getCode());
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(codes).hasSize(99);
+    }
+
+    private static User user(int code) {
+        return new User(code, "User" + code, null, null);
+    }
+
+    private static String describe(Task task) {
+        return task.getCode() + "," + task.getName() + "," + task.getStatus() + "," + task.getRepUser().getName();
+    }
+}
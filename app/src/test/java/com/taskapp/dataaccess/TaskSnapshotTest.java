@@ -0,0 +1,122 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.model.Log;
+import com.taskapp.model.Task;
+
+public class TaskSnapshotTest {
+    @TempDir
+    Path tempDir;
+
+    private String usersPath;
+    private String tasksPath;
+    private String logsPath;
+    private String snapshotPath;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        usersPath = copy("test_users.csv");
+        tasksPath = copy("test_tasks.csv");
+        logsPath = copy("test_logs.csv");
+        snapshotPath = tempDir.resolve("tasks.snapshot").toString();
+    }
+
+    @Test
+    public void testLoadWithoutSnapshot() {
+        List<Task> tasks = newSnapshot().load();
+
+        assertThat(tasks).extracting(Task::getCode).containsExactly(1, 2, 3, 4);
+        assertThat(Files.exists(Paths.get(snapshotPath))).isTrue();
+    }
+
+    @Test
+    public void testLoadReplaysAppendedRows() {
+        newSnapshot().load();
+
+        UserDataAccess userDataAccess = new UserDataAccess(usersPath);
+        TaskDataAccess taskDataAccess = new TaskDataAccess(tasksPath, userDataAccess);
+        LogDataAccess logDataAccess = new LogDataAccess(logsPath);
+        taskDataAccess.save(new Task(5, "taskE", 0, userDataAccess.findByCode(1)));
+        logDataAccess.save(new Log(5, 1, 0, LocalDate.now()));
+        logDataAccess.save(new Log(1, 1, 1, LocalDate.now()));
+
+        List<Task> tasks = newSnapshot().load();
+
+        assertThat(tasks).extracting(Task::getCode).containsExactly(1, 2, 3, 4, 5);
+        assertThat(tasks.get(0).getStatus()).isEqualTo(1);
+        assertThat(tasks.get(4).getRepUser().getCode()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLoadKeepsSnapshotAfterStatusPatch() throws IOException {
+        newSnapshot().load();
+        byte[] saved = Files.readAllBytes(Paths.get(snapshotPath));
+
+        // ステータスだけの上書きでは作り直さず、追記されたログからステータスを反映する
+        UserDataAccess userDataAccess = new UserDataAccess(usersPath);
+        TaskDataAccess taskDataAccess = new TaskDataAccess(tasksPath, userDataAccess);
+        LogDataAccess logDataAccess = new LogDataAccess(logsPath);
+        taskDataAccess.update(new Task(4, "taskD", 2, userDataAccess.findByCode(2)));
+        logDataAccess.save(new Log(4, 1, 2, LocalDate.now()));
+
+        List<Task> tasks = newSnapshot().load();
+
+        assertThat(Files.readString(Paths.get(tasksPath))).contains("4,taskD,2,2");
+        assertThat(tasks.get(3).getStatus()).isEqualTo(2);
+        assertThat(Files.readAllBytes(Paths.get(snapshotPath))).isEqualTo(saved);
+    }
+
+    @Test
+    public void testLoadRebuildsAfterRewrite() {
+        newSnapshot().load();
+
+        // 削除で小さくなった後、追記で記録時より大きくなった場合も書き換えとして扱う
+        UserDataAccess userDataAccess = new UserDataAccess(usersPath);
+        TaskDataAccess taskDataAccess = new TaskDataAccess(tasksPath, userDataAccess);
+        taskDataAccess.delete(2);
+        taskDataAccess.save(new Task(5, "taskE", 0, userDataAccess.findByCode(1)));
+        taskDataAccess.save(new Task(6, "taskF", 0, userDataAccess.findByCode(1)));
+
+        List<Task> tasks = newSnapshot().load();
+
+        assertThat(tasks).extracting(Task::getCode).containsExactly(1, 3, 4, 5, 6);
+    }
+
+    @Test
+    public void testLoadRebuildsAfterLogRotation() {
+        newSnapshot().load();
+
+        // 切り出しで空になったlogs.csvに記録時より多く追記されても、途中から読み始めない
+        LogDataAccess logDataAccess = new LogDataAccess(logsPath);
+        logDataAccess.rotate();
+        for (int i = 0; i < 20; i++) {
+            logDataAccess.save(new Log(1, 1, 2, LocalDate.now()));
+        }
+
+        List<Task> tasks = newSnapshot().load();
+
+        assertThat(tasks).extracting(Task::getCode).containsExactly(1, 2, 3, 4);
+    }
+
+    private TaskSnapshot newSnapshot() {
+        return new TaskSnapshot(snapshotPath, usersPath, tasksPath, logsPath);
+    }
+
+    private String copy(String fileName) throws IOException {
+        Path target = tempDir.resolve(fileName);
+        Files.copy(Paths.get("src/test/resources", fileName), target);
+        return target.toString();
+    }
+}
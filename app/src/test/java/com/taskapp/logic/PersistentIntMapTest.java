@@ -0,0 +1,54 @@
+package com.taskapp.logic;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class PersistentIntMapTest {
+    @Test
+    public void testPutAndRemove() {
+        PersistentIntMap<String> empty = PersistentIntMap.empty();
+        PersistentIntMap<String> map = empty.put(3, "c").put(1, "a").put(100000, "z").put(1, "A");
+
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get(1)).isEqualTo("A");
+        assertThat(map.get(2)).isNull();
+
+        // 変更前のマップは変わらない
+        PersistentIntMap<String> removed = map.remove(3);
+        assertThat(removed.containsKey(3)).isFalse();
+        assertThat(map.get(3)).isEqualTo("c");
+        assertThat(empty.size()).isZero();
+        assertThat(removed.remove(3)).isSameAs(removed);
+    }
+
+    @Test
+    public void testForEachFrom() {
+        PersistentIntMap.Builder<Integer> builder = new PersistentIntMap.Builder<>();
+        for (int i = 0; i < 2000; i++) {
+            builder.put(i * 7, i);
+        }
+        PersistentIntMap<Integer> map = builder.build();
+
+        List<Integer> values = new ArrayList<>();
+        map.forEachFrom(1500, (key, value) -> {
+            values.add(value);
+            return values.size() < 3;
+        });
+        assertThat(values).containsExactly(1500, 1501, 1502);
+    }
+
+    @Test
+    public void testBuilderUnsorted() {
+        PersistentIntMap<String> map = new PersistentIntMap.Builder<String>()
+                .put(5, "e").put(2, "b").put(5, "E").put(9, "i")
+                .build();
+
+        // キーの昇順に並び、重複したキーは最後の値が残る
+        assertThat(map.toString()).isEqualTo("{2=b, 5=E, 9=i}");
+        assertThat(map.put(7, "g").toString()).isEqualTo("{2=b, 5=E, 7=g, 9=i}");
+    }
+}
@@ -0,0 +1,44 @@
+package com.taskapp.logic;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class PersistentIntSetTest {
+    @Test
+    public void testAddAndRemove() {
+        PersistentIntSet set = PersistentIntSet.empty().add(40).add(1).add(33).add(1);
+
+        assertThat(set.size()).isEqualTo(3);
+        assertThat(set.contains(33)).isTrue();
+        assertThat(set.contains(32)).isFalse();
+
+        // 変更前の集合は変わらない
+        PersistentIntSet removed = set.remove(33).remove(40);
+        assertThat(toList(removed)).containsExactly(1);
+        assertThat(toList(set)).containsExactly(1, 33, 40);
+        assertThat(removed.remove(1).size()).isZero();
+    }
+
+    @Test
+    public void testBuilder() {
+        PersistentIntSet.Builder builder = new PersistentIntSet.Builder();
+        for (int value : new int[] { 1025, 3, 70000, 3, 31, 32 }) {
+            builder.add(value);
+        }
+        PersistentIntSet set = builder.build();
+
+        assertThat(set.size()).isEqualTo(5);
+        assertThat(toList(set)).containsExactly(3, 31, 32, 1025, 70000);
+        assertThat(toList(set.add(64))).containsExactly(3, 31, 32, 64, 1025, 70000);
+    }
+
+    private static List<Integer> toList(PersistentIntSet set) {
+        List<Integer> values = new ArrayList<>();
+        set.forEach(value -> values.add(value));
+        return values;
+    }
+}
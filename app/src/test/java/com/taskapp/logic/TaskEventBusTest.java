@@ -0,0 +1,107 @@
+package com.taskapp.logic;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.TaskEvent;
+import com.taskapp.model.User;
+
+public class TaskEventBusTest {
+    private final User john = new User(1, "John", "", "");
+
+    @Test
+    public void testPublishToAllSubscribers() {
+        TaskEventBus eventBus = new TaskEventBus(4);
+        List<Integer> first = new CopyOnWriteArrayList<>();
+        List<Integer> second = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("first", events -> events.forEach(event -> first.add(event.getTaskCode())));
+        eventBus.subscribe("second", events -> events.forEach(event -> second.add(event.getTaskCode())));
+
+        // 容量より多く発行しても、全ての購読者が読むまで上書きされない
+        for (int code = 1; code <= 20; code++) {
+            eventBus.publish(TaskEvent.created(new Task(code, "Task " + code, 0, john), 1));
+        }
+
+        assertThat(eventBus.awaitConsumed(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(first).hasSize(20).isSorted();
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    public void testPublishDropsWhenSubscriberIsStuck() throws InterruptedException {
+        TaskEventBus eventBus = new TaskEventBus(4, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("stuck", events -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.forEach(event -> received.add(event.getTaskCode()));
+        });
+
+        // 購読者が読み進めなくても、発行側は上限まで待った後にイベントを捨てて戻る
+        int published = 0;
+        for (int code = 1; code <= 20; code++) {
+            if (eventBus.publish(TaskEvent.created(new Task(code, "Task " + code, 0, john), 1))) {
+                published++;
+            }
+        }
+        release.countDown();
+
+        assertThat(published).isEqualTo(4);
+        assertThat(eventBus.getDroppedCount()).isEqualTo(16);
+        assertThat(eventBus.awaitConsumed(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    public void testPublishAllWaitsOnceForBatch() throws InterruptedException {
+        TaskEventBus eventBus = new TaskEventBus(4, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        eventBus.subscribe("stuck", events -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<TaskEvent> events = new ArrayList<>();
+        for (int code = 1; code <= 1000; code++) {
+            events.add(TaskEvent.created(new Task(code, "Task " + code, 0, john), 1));
+        }
+
+        // 1件ごとに50ミリ秒待つと50秒かかるが、まとめて発行する場合は1回分だけ待つ
+        long start = System.nanoTime();
+        int published = eventBus.publishAll(events);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        assertThat(published).isEqualTo(4);
+        assertThat(eventBus.getDroppedCount()).isEqualTo(996);
+        assertThat(elapsedMillis).isLessThan(1000);
+    }
+
+    @Test
+    public void testEventKeepsValuesAtPublishTime() {
+        Task task = new Task(1, "Task 1", 2, john);
+
+        TaskEvent event = TaskEvent.statusChanged(task, 1, 3);
+        task.setStatus(0);
+
+        assertThat(event.getType()).isEqualTo(TaskEvent.Type.STATUS_CHANGED);
+        assertThat(event.getOldStatus()).isEqualTo(1);
+        assertThat(event.getNewStatus()).isEqualTo(2);
+        assertThat(event.getRepUserCode()).isEqualTo(1);
+        assertThat(event.getChangeUserCode()).isEqualTo(3);
+    }
+}
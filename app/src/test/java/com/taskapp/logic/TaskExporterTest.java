@@ -0,0 +1,87 @@
+package com.taskapp.logic;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.UserDataAccess;
+
+public class TaskExporterTest {
+    @TempDir
+    Path tempDir;
+
+    private TaskExporter exporter;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path users = tempDir.resolve("users.csv");
+        Path tasks = tempDir.resolve("tasks.csv");
+        Path logs = tempDir.resolve("logs.csv");
+        Files.writeString(users, String.join("\n",
+                "Code,Name,Email,Password",
+                "1,John,john@example.com,pass1",
+                "2,Alice \"A\",alice@example.com,pass2"), StandardCharsets.UTF_8);
+        Files.writeString(tasks, String.join("\n",
+                "Code,Name,Status,Rep_User_Code",
+                "1,Task 1,0,2",
+                "2,Task 2,1,9"), StandardCharsets.UTF_8);
+        Files.writeString(logs, String.join("\n",
+                "Task_Code,Change_User_Code,Status,Change_Date",
+                "1,1,0,2024-01-10",
+                "2,9,1,2024-01-11"), StandardCharsets.UTF_8);
+        UserDataAccess userDataAccess = new UserDataAccess(users.toString());
+        exporter = new TaskExporter(new TaskDataAccess(tasks.toString(), userDataAccess),
+                new LogDataAccess(logs.toString()), userDataAccess);
+    }
+
+    @Test
+    public void testExportTasksAsNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exporter.exportTasks(out, TaskExporter.Format.NDJSON, false);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"code\":1,\"name\":\"Task 1\",\"status\":0,\"repUserCode\":2,\"repUserName\":\"Alice \\\"A\\\"\"}\n"
+                        + "{\"code\":2,\"name\":\"Task 2\",\"status\":1,\"repUserCode\":9,\"repUserName\":null}\n");
+    }
+
+    @Test
+    public void testExportTasksAsCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exporter.exportTasks(out, TaskExporter.Format.CSV, false);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "Code,Name,Status,Rep_User_Code,Rep_User_Name\n"
+                        + "1,Task 1,0,2,\"Alice \"\"A\"\"\"\n"
+                        + "2,Task 2,1,9,\n");
+    }
+
+    @Test
+    public void testExportLogsAsGzipCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exporter.exportLogs(out, TaskExporter.Format.CSV, true);
+
+        assertThat(count).isEqualTo(2);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(
+                    "Task_Code,Change_User_Code,Change_User_Name,Status,Change_Date\n"
+                            + "1,1,John,0,2024-01-10\n"
+                            + "2,9,,1,2024-01-11\n");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.taskapp.logic;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+public class TaskIndexTest {
+    private TaskIndex taskIndex;
+
+    private final User john = new User(1, "John", "", "");
+    private final User alice = new User(2, "Alice", "", "");
+
+    @BeforeEach
+    public void setUp() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(1, "Task 1", 0, john));
+        tasks.add(new Task(2, "Task 2", 1, alice));
+        tasks.add(new Task(3, "Task 3", 0, alice));
+        tasks.add(new Task(4, "Task 4", 2, john));
+        tasks.add(new Task(5, "Task 5", 0, alice));
+        taskIndex = TaskIndex.build(tasks);
+    }
+
+    @Test
+    public void testFindByStatus() {
+        List<Task> tasks = taskIndex.find(0, null, 1, 10);
+        assertThat(tasks).extracting(Task::getCode).containsExactly(1, 3, 5);
+    }
+
+    @Test
+    public void testFindByStatusAndRepUser() {
+        List<Task> tasks = taskIndex.find(0, 2, 1, 10);
+        assertThat(tasks).extracting(Task::getCode).containsExactly(3, 5);
+        assertThat(taskIndex.count(0, 2)).isEqualTo(2);
+    }
+
+    @Test
+    public void testFindPage() {
+        assertThat(taskIndex.find(null, null, 2, 2)).extracting(Task::getCode).containsExactly(3, 4);
+        assertThat(taskIndex.find(null, null, 3, 2)).extracting(Task::getCode).containsExactly(5);
+        assertThat(taskIndex.find(null, null, 4, 2)).isEmpty();
+    }
+
+    @Test
+    public void testChangeStatusAndRemove() {
+        taskIndex.changeStatus(1, 0, 1);
+        assertThat(taskIndex.find(1, null, 1, 10)).extracting(Task::getCode).containsExactly(2, 1);
+
+        taskIndex.remove(2);
+        assertThat(taskIndex.find(1, null, 1, 10)).extracting(Task::getCode).containsExactly(1);
+        assertThat(taskIndex.find(null, 2, 1, 10)).extracting(Task::getCode).containsExactly(3, 5);
+        assertThat(taskIndex.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void testSnapshot() {
+        TaskIndex snapshot = taskIndex.snapshot();
+        taskIndex.changeStatus(1, 0, 1);
+        taskIndex.remove(3);
+        taskIndex.add(new Task(6, "Task 6", 0, john));
+
+        // 取得済みの版は以降の変更の影響を受けない
+        assertThat(snapshot.find(0, null, 1, 10)).extracting(Task::getCode).containsExactly(1, 3, 5);
+        assertThat(snapshot.findByCode(1).getStatus()).isEqualTo(0);
+        assertThat(snapshot.size()).isEqualTo(5);
+        assertThat(taskIndex.find(0, null, 1, 10)).extracting(Task::getCode).containsExactly(5, 6);
+        assertThat(snapshot.getVersion()).isLessThan(taskIndex.getVersion());
+
+        assertThatThrownBy(() -> snapshot.remove(1)).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
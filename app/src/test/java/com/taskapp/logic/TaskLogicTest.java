@@ -4,12 +4,19 @@ import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -123,4 +130,123 @@ public class TaskLogicTest {
         verify(taskDataAccess).delete(code);
         verify(logDataAccess).deleteByTaskCode(code);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSaveRejectsLongName() {
+        when(userDataAccess.findByCode(2)).thenReturn(new User(2, "Alice", "", ""));
+
+        assertThatThrownBy(() -> taskLogic.save(1, "Task name 11", 2, new User(1, "John", "", "")))
+                .isInstanceOf(AppException.class)
+                .hasMessage("タスク名は10文字以内で入力してください");
+        verify(taskDataAccess, never()).save(any(Task.class));
+        verify(logDataAccess, never()).save(any(Log.class));
+    }
+
+    @Test
+    public void testChangeStatusRejectsOutOfRange() {
+        when(taskDataAccess.findByCode(1)).thenReturn(new Task(1, "Task 1", 2, new User(2, "Alice", "", "")));
+
+        assertThatThrownBy(() -> taskLogic.changeStatus(1, 3, new User(1, "John", "", "")))
+                .isInstanceOf(AppException.class)
+                .hasMessage("ステータスは1・2の中から選択してください");
+        verify(taskDataAccess, never()).update(any(Task.class));
+        verify(logDataAccess, never()).save(any(Log.class));
+    }
+
+    @Test
+    public void testImportTasks(@TempDir Path tempDir) throws AppException, IOException {
+        User loginUser = new User(1, "John", "", "");
+        User alice = new User(2, "Alice", "", "");
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(1, "Task 1", 0, alice));
+        when(taskDataAccess.findAll()).thenReturn(tasks);
+        when(userDataAccess.findAll()).thenReturn(List.of(loginUser, alice));
+        // 索引を作成していない場合は、CSVのコードの列だけを読んで重複を確かめる
+        doAnswer(invocation -> {
+            tasks.forEach(task -> invocation.<IntConsumer>getArgument(0).accept(task.getCode()));
+            return null;
+        }).when(taskDataAccess).forEachCode(any());
+
+        Path importFile = tempDir.resolve("import.csv");
+        Files.writeString(importFile, String.join("\n",
+                "Code,Name,Rep_User_Code",
+                "2,Task 2,2",
+                "1,Task dup,2",
+                "3,Task 3,99",
+                "2,Task dup,1",
+                "4,Task 4,1",
+                "2147483647,Task max,1"));
+
+        int count = taskLogic.importTasks(importFile.toString(), loginUser);
+
+        assertThat(count).isEqualTo(3);
+        verify(taskDataAccess, times(1)).saveAll(argThat(list -> list.size() == 3));
+        verify(logDataAccess, times(1)).saveAll(argThat(list -> list.size() == 3));
+        verify(taskDataAccess, never()).save(any(Task.class));
+        verify(taskDataAccess, never()).findAll();
+    }
+
+    @Test
+    public void testSaveAll() {
+        User loginUser = new User(1, "John", "", "");
+        User alice = new User(2, "Alice", "", "");
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(1, "Task 1", 0, alice));
+        when(taskDataAccess.findAll()).thenReturn(tasks);
+        when(userDataAccess.findAll()).thenReturn(List.of(loginUser, alice));
+        // 索引を作成済みの場合は、索引のコードで重複を確かめる
+        taskLogic.showAll(loginUser);
+
+        BatchResult result = taskLogic.saveAll(List.of(
+                new Task(2, "Task 2", 0, alice),
+                new Task(1, "Task dup", 0, alice),
+                new Task(3, "Task 3", 0, new User(99, "", "", "")),
+                new Task(2, "Task dup", 0, loginUser),
+                new Task(4, "Task 4", 2, loginUser)), loginUser);
+
+        assertThat(result.getSucceeded()).extracting(Task::getCode).containsExactly(2, 4);
+        assertThat(result.getSucceeded()).extracting(Task::getStatus).containsOnly(0);
+        assertThat(result.getFailures()).extracting(BatchResult.Failure::getIndex).containsExactly(1, 2, 3);
+        assertThat(result.getFailures().get(1).getMessage()).isEqualTo("存在するユーザーコードを入力してください");
+        verify(taskDataAccess, times(1)).saveAll(argThat(list -> list.size() == 2));
+        verify(logDataAccess, times(1)).saveAll(argThat(list -> list.size() == 2));
+        verify(taskDataAccess, never()).save(any(Task.class));
+        assertThat(taskLogic.findTasks(null, null)).hasSize(3);
+    }
+
+    @Test
+    public void testChangeStatusAll() {
+        User loginUser = new User(1, "John", "", "");
+        User alice = new User(2, "Alice", "", "");
+        when(taskDataAccess.findAll()).thenReturn(List.of(
+                new Task(1, "Task 1", 0, alice),
+                new Task(2, "Task 2", 1, alice),
+                new Task(3, "Task 3", 0, alice)));
+
+        Map<Integer, Integer> statusByCode = new LinkedHashMap<>();
+        statusByCode.put(1, 1);
+        statusByCode.put(2, 1);
+        statusByCode.put(9, 1);
+        statusByCode.put(3, 1);
+        BatchResult result = taskLogic.changeStatusAll(statusByCode, loginUser);
+
+        assertThat(result.getSucceeded()).extracting(Task::getCode).containsExactly(1, 3);
+        assertThat(result.getFailures()).extracting(BatchResult.Failure::getCode).containsExactly(2, 9);
+        verify(taskDataAccess, times(1)).updateAll(argThat(list -> list.size() == 2));
+        verify(logDataAccess, times(1)).saveAll(argThat(list -> list.size() == 2));
+        verify(taskDataAccess, never()).update(any(Task.class));
+        assertThat(taskLogic.findTasks(1, null)).extracting(Task::getCode).containsExactlyInAnyOrder(1, 2, 3);
+    }
+
+    @Test
+    public void testChangeStatusAllWithoutChanges() {
+        when(taskDataAccess.findAll()).thenReturn(List.of(new Task(1, "Task 1", 2, new User(2, "Alice", "", ""))));
+
+        BatchResult result = taskLogic.changeStatusAll(Map.of(1, 3), new User(1, "John", "", ""));
+
+        assertThat(result.hasFailures()).isTrue();
+        assertThat(result.getFailures().get(0).getMessage()).isEqualTo("ステータスは1・2の中から選択してください");
+        verify(taskDataAccess, never()).updateAll(anyList());
+        verify(logDataAccess, never()).saveAll(anyList());
+    }
+}
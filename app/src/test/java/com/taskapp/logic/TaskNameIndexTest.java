@@ -0,0 +1,53 @@
+package com.taskapp.logic;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TaskNameIndexTest {
+    private TaskNameIndex nameIndex;
+
+    @BeforeEach
+    public void setUp() {
+        nameIndex = new TaskNameIndex();
+        nameIndex.add(1, "資料作成");
+        nameIndex.add(2, "会議資料の確認");
+        nameIndex.add(3, "Report作成");
+        nameIndex.add(4, "ABCD");
+        nameIndex.add(5, "ABXCD");
+    }
+
+    @Test
+    public void testSearchSubstring() {
+        assertThat(nameIndex.search("資料")).containsExactly(1, 2);
+        assertThat(nameIndex.search("作成")).containsExactly(1, 3);
+        assertThat(nameIndex.search("料")).containsExactly(1, 2);
+        assertThat(nameIndex.search("議事録")).isEmpty();
+        assertThat(nameIndex.search("")).isEmpty();
+    }
+
+    @Test
+    public void testSearchIgnoresWidthAndCase() {
+        assertThat(nameIndex.search("ｒｅｐｏｒｔ")).containsExactly(3);
+        assertThat(nameIndex.search("abcd")).containsExactly(4);
+    }
+
+    @Test
+    public void testBigramsWithoutSubstringDoNotMatch() {
+        // 「ABXCD」は「AB」「CD」を含むが「BC」を含まない
+        assertThat(nameIndex.search("ABCD")).containsExactly(4);
+        assertThat(nameIndex.search("ABC")).containsExactly(4);
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        nameIndex.add(1, "議事録作成");
+        assertThat(nameIndex.search("資料")).containsExactly(2);
+        assertThat(nameIndex.search("議事録")).containsExactly(1);
+
+        nameIndex.remove(2);
+        assertThat(nameIndex.search("資料")).isEmpty();
+        assertThat(nameIndex.size()).isEqualTo(4);
+    }
+}
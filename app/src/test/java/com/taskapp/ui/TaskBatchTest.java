@@ -0,0 +1,74 @@
+package com.taskapp.ui;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.User;
+
+public class TaskBatchTest {
+    @Mock
+    private UserLogic userLogic;
+
+    @Mock
+    private TaskLogic taskLogic;
+
+    private TaskBatch taskBatch;
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        taskBatch = new TaskBatch(userLogic, taskLogic);
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        User user = new User(1, "John", "john@example.com", "password");
+        when(userLogic.login("john@example.com", "password")).thenReturn(user);
+        when(taskLogic.allocateCode()).thenReturn(7);
+        doThrow(new AppException("ステータスが完了のタスクを選択してください")).when(taskLogic).delete(3);
+
+        String script = String.join("\n",
+                "# コメント",
+                "list",
+                "login john@example.com password",
+                "add - 2 Task 7",
+                "status 7 1",
+                "delete 3",
+                "unknown");
+        int failures = taskBatch.run(new BufferedReader(new StringReader(script)));
+
+        assertThat(failures).isEqualTo(3);
+        verify(taskLogic).save(7, "Task 7", 2, user);
+        verify(taskLogic).changeStatus(7, 1, user);
+        verify(taskLogic).checkpoint();
+        assertThat(outContent.toString())
+                .contains("2行目：先にloginを実行してください")
+                .contains("6行目：ステータスが完了のタスクを選択してください")
+                .contains("7行目：不明なコマンドです：unknown")
+                .contains("コマンド, 件数, 失敗, 合計(ms), 平均(µs), 最大(µs)")
+                .contains("add, 1, 0, ");
+    }
+}
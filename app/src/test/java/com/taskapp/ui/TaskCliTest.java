@@ -0,0 +1,75 @@
+package com.taskapp.ui;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+public class TaskCliTest {
+    @Mock
+    private UserLogic userLogic;
+
+    @Mock
+    private TaskLogic taskLogic;
+
+    private TaskCli taskCli;
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        taskCli = new TaskCli(userLogic, taskLogic);
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    public void testListNdjson() {
+        User alice = new User(2, "Alice", "", "");
+        when(taskLogic.findTasks(1, null)).thenReturn(List.of(new Task(12, "Task \"12\"", 1, alice)));
+
+        int status = taskCli.run(new String[] { "list", "--status", "1", "--format", "ndjson" });
+
+        assertThat(status).isZero();
+        assertThat(outContent.toString()).isEqualTo(
+                "{\"code\":12,\"name\":\"Task \\\"12\\\"\",\"status\":1,\"repUserCode\":2,\"repUserName\":\"Alice\"}\n");
+        verifyNoInteractions(userLogic);
+    }
+
+    @Test
+    public void testStatus() throws Exception {
+        User user = new User(1, "John", "john@example.com", "password");
+        when(userLogic.login("john@example.com", "password")).thenReturn(user);
+
+        int status = taskCli.run(new String[] { "status", "12", "2", "--email", "john@example.com", "--password",
+                "password" });
+
+        assertThat(status).isZero();
+        verify(taskLogic).changeStatus(12, 2, user);
+    }
+
+    @Test
+    public void testUnknownCommand() {
+        assertThat(taskCli.run(new String[] { "unknown" })).isEqualTo(2);
+        assertThat(outContent.toString()).contains("使い方：");
+    }
+}
@@ -0,0 +1,50 @@
+package com.taskapp.dataaccess;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API（jdk.incubator.vector）で、CPUのベクトル幅のバイトをまとめて比べる実装です。
+ * 比べた結果をビットの並びとして取り出し、立っているビットの位置を順に記録します。
+ * taskapp.csv.scanner=vector と --add-modules jdk.incubator.vector を指定した場合だけ使います。
+ * インキュベーターモジュールの警告が本体のビルドで出ないよう、src/vector/javaで別にコンパイルしてjarに含めます。
+ *
+ * @see com.taskapp.dataaccess.ByteScanner#select(String)
+ */
+final class VectorByteScanner extends ByteScanner {
+    /** ビットの並びをlongで取り出すため、64バイト以下の幅にする */
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() <= 64
+            ? ByteVector.SPECIES_PREFERRED
+            : ByteVector.SPECIES_512;
+
+    @Override
+    int indexAll(byte[] bytes, int from, int to, byte target, int[] positions) {
+        int count = 0;
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            long bits = ByteVector.fromArray(SPECIES, bytes, i).eq(target).toLong();
+            while (bits != 0) {
+                positions[count++] = i + Long.numberOfTrailingZeros(bits);
+                if (count == positions.length) {
+                    return count;
+                }
+                bits &= bits - 1;
+            }
+        }
+        for (; i < to; i++) {
+            if (bytes[i] == target) {
+                positions[count++] = i;
+                if (count == positions.length) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "vector(" + SPECIES.vectorBitSize() + "bit)";
+    }
+}